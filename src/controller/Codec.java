@@ -0,0 +1,75 @@
+package controller;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import model.Location;
+import model.Point;
+
+/**
+ * Writes values of one type to binary files and reads them back.
+ * @author L. James Davidson
+ *
+ * @param <E> is the type of value which is written.
+ */
+public interface Codec<E> {
+
+	/**
+	 * Writes a value.
+	 * @param out is where the value is written.
+	 * @param value is the value to write.
+	 * @requires out and value are non-null.
+	 * @throws IOException if the value cannot be written.
+	 */
+	void write(DataOutput out, E value) throws IOException;
+
+	/**
+	 * Reads a value written by write.
+	 * @param in is where the value is read from.
+	 * @requires in is non-null.
+	 * @throws IOException if the value cannot be read.
+	 * @return The value read.
+	 */
+	E read(DataInput in) throws IOException;
+
+	/** Writes strings in modified UTF-8. */
+	Codec<String> STRING = new Codec<String>() {
+		public void write(DataOutput out, String value) throws IOException {
+			out.writeUTF(value);
+		}
+
+		public String read(DataInput in) throws IOException {
+			return in.readUTF();
+		}
+	};
+
+	/** Writes doubles as their eight byte IEEE 754 form. */
+	Codec<Double> DOUBLE = new Codec<Double>() {
+		public void write(DataOutput out, Double value) throws IOException {
+			out.writeDouble(value);
+		}
+
+		public Double read(DataInput in) throws IOException {
+			return in.readDouble();
+		}
+	};
+
+	/** Writes the names and entrance of a location. */
+	Codec<Location> LOCATION = new Codec<Location>() {
+		public void write(DataOutput out, Location value) throws IOException {
+			out.writeUTF(value.shortName);
+			out.writeUTF(value.longName);
+			out.writeDouble(value.entrance.getX());
+			out.writeDouble(value.entrance.getY());
+		}
+
+		public Location read(DataInput in) throws IOException {
+			String shortName = in.readUTF();
+			String longName = in.readUTF();
+			double x = in.readDouble();
+			double y = in.readDouble();
+			return new Location(shortName, longName, new Point(x, y));
+		}
+	};
+}
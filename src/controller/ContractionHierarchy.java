@@ -0,0 +1,602 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.IndexedGraph;
+import model.Node;
+
+/**
+ * A contraction hierarchy of a weighted graph which does not change, for
+ * answering many shortest path queries on it quickly. Building it contracts
+ * the nodes one at a time, least important first: a contracted node is taken
+ * out of the graph, and a shortcut is added between two of its neighbours
+ * wherever the path through it was the only shortest path between them.
+ * Every shortest path of the graph can then be found by searching from both
+ * ends using only the edges to nodes contracted later, which reaches very few
+ * nodes. Each shortcut remembers the node it skips, so the path found is
+ * unpacked into the edges of the graph.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ */
+public final class ContractionHierarchy<T extends Comparable<T>> {
+
+	// AF: The hierarchy of graph in which the node with id i was contracted
+	// after rank[i] other nodes. The edges going up from node i, to nodes
+	// contracted after it, are the entries upOffsets[i] up to but not
+	// including upOffsets[i + 1]. The edges coming down to node i, from nodes
+	// contracted after it, are the entries downOffsets[i] up to but not
+	// including downOffsets[i + 1]. Entry k goes to or comes from the node
+	// upNodes[k] or downNodes[k], with the weight upWeights[k] or
+	// downWeights[k], and is a shortcut past the node upMiddles[k] or
+	// downMiddles[k], or is an edge of graph if that is -1.
+
+	// RI: graph != null, rank is a permutation of 0 to graph.numOfNodes() - 1,
+	// upOffsets.length == downOffsets.length == graph.numOfNodes() + 1,
+	// rank[upNodes[k]] > rank[i] for each entry k of node i, and the same for
+	// downNodes, every middle is -1 or was contracted before both ends.
+
+	// Witness searches which finish more nodes than this give up and add the
+	// shortcut. An extra shortcut only makes the hierarchy a little larger.
+	private static final int WITNESS_LIMIT = 64;
+
+	// Each thread keeps the state of its last query for both directions.
+	private static final ThreadLocal<SearchContext[]> CONTEXTS =
+			new ThreadLocal<SearchContext[]>() {
+				@Override
+				protected SearchContext[] initialValue() {
+					return new SearchContext[] {new SearchContext(),
+							new SearchContext()};
+				}
+			};
+
+	private final IndexedGraph<T, Double> graph;
+	private final int[] rank;
+	private final int[] upOffsets;
+	private final int[] upNodes;
+	private final double[] upWeights;
+	private final int[] upMiddles;
+	private final int[] downOffsets;
+	private final int[] downNodes;
+	private final double[] downWeights;
+	private final int[] downMiddles;
+
+	/**
+	 * Builds the contraction hierarchy of a graph. This goes through every
+	 * node and searches around it, so it takes far longer than one query; it
+	 * pays off when the graph is queried many times.
+	 * @param graph is the graph to build the hierarchy of.
+	 * @requires graph is non-null, its weights are not negative and it does
+	 * not change while the hierarchy is used.
+	 * @effects Creates the hierarchy of graph.
+	 */
+	public ContractionHierarchy(IndexedGraph<T, Double> graph) {
+		this.graph = graph;
+		int numOfNodes = graph.numOfNodes();
+
+		// Copy the visible edges, keeping only the lightest edge between
+		// each pair of nodes.
+		Links out = new Links(numOfNodes);
+		Links in = new Links(numOfNodes);
+		for (int id = 0; id < numOfNodes; id++) {
+			int end = graph.edgesEnd(id);
+			for (int e = graph.edgesStart(id); e < end; e++) {
+				int target = graph.target(e);
+				if (target != id && graph.isVisible(e)) {
+					out.put(id, target, graph.weight(e), -1);
+					in.put(target, id, graph.weight(e), -1);
+				}
+			}
+		}
+
+		// Contract the nodes in order of priority. A priority goes up as the
+		// nodes around it are contracted, so it is worked out again when the
+		// node comes out of the queue and the node is put back if it is no
+		// longer the smallest.
+		SearchContext witness = new SearchContext(numOfNodes);
+		int[] contractedNeighbours = new int[numOfNodes];
+		IndexedHeap order = new IndexedHeap(numOfNodes);
+		for (int id = 0; id < numOfNodes; id++) {
+			order.add(id, priority(id, out, in, contractedNeighbours, witness));
+		}
+		this.rank = new int[numOfNodes];
+		Links up = new Links(numOfNodes);
+		Links down = new Links(numOfNodes);
+		int next = 0;
+		while (!order.isEmpty()) {
+			int id = order.poll();
+			double priority = priority(id, out, in, contractedNeighbours,
+					witness);
+			if (!order.isEmpty() && priority > order.key(order.peek())) {
+				order.add(id, priority);
+				continue;
+			}
+			this.rank[id] = next++;
+			up.copy(id, out);
+			down.copy(id, in);
+			contract(id, out, in, witness, true);
+			for (int i = 0; i < up.counts[id]; i++) {
+				contractedNeighbours[up.nodes[id][i]]++;
+			}
+			for (int i = 0; i < down.counts[id]; i++) {
+				contractedNeighbours[down.nodes[id][i]]++;
+			}
+		}
+
+		this.upOffsets = up.offsets();
+		this.upNodes = up.flatNodes(this.upOffsets);
+		this.upWeights = up.flatWeights(this.upOffsets);
+		this.upMiddles = up.flatMiddles(this.upOffsets);
+		this.downOffsets = down.offsets();
+		this.downNodes = down.flatNodes(this.downOffsets);
+		this.downWeights = down.flatWeights(this.downOffsets);
+		this.downMiddles = down.flatMiddles(this.downOffsets);
+		this.checkRep();
+	}
+
+	/**
+	 * @return The graph this is the hierarchy of.
+	 */
+	public IndexedGraph<T, Double> graph() {
+		return this.graph;
+	}
+
+	/**
+	 * @return The number of shortcuts added to the graph, counting each
+	 * shortcut once.
+	 */
+	public int numOfShortcuts() {
+		int count = 0;
+		for (int middle : this.upMiddles) {
+			if (middle != -1) {
+				count++;
+			}
+		}
+		for (int middle : this.downMiddles) {
+			if (middle != -1) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the shortest weighted path from the start node to the target node.
+	 * The query reuses the state of the last query made by the same thread.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going
+	 * to.
+	 * @requires startNode and targetNode are non-null.
+	 * @throws IllegalArgumentException if one or more of the node name
+	 * parameters are not in the graph.
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path
+	 * takes, using only edges of the graph.
+	 */
+	public List<Node<T>> findShortestweightedPath(T startNode, T targetNode) {
+		SearchContext[] contexts = CONTEXTS.get();
+		return this.findShortestweightedPath(startNode, targetNode,
+				contexts[0], contexts[1]);
+	}
+
+	/**
+	 * Finds the shortest weighted path from the start node to the target node,
+	 * using given contexts for the state of the two searches.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going
+	 * to.
+	 * @param forward holds the state of the search from the start.
+	 * @param backward holds the state of the search from the target.
+	 * @requires All parameters are non-null, forward and backward are
+	 * different contexts and neither is being used by another search.
+	 * @throws IllegalArgumentException if one or more of the node name
+	 * parameters are not in the graph.
+	 * @modifies forward, backward
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path
+	 * takes, using only edges of the graph.
+	 */
+	public List<Node<T>> findShortestweightedPath(T startNode, T targetNode,
+			SearchContext forward, SearchContext backward) {
+		final int start = this.graph.idOf(startNode);
+		final int target = this.graph.idOf(targetNode);
+		if (start < 0 || target < 0) {
+			throw new IllegalArgumentException("One or more of the nodes does "
+					+ "not exist in the multigraph.");
+		}
+
+		forward.begin(this.rank.length);
+		backward.begin(this.rank.length);
+		forward.reach(start, 0.0, -1);
+		backward.reach(target, 0.0, -1);
+		IndexedHeap ahead = forward.active();
+		IndexedHeap behind = backward.active();
+		ahead.add(start, 0.0);
+		behind.add(target, 0.0);
+		int meeting = start == target ? start : -1;
+		double best = start == target ? 0.0 : Double.POSITIVE_INFINITY;
+
+		// Both searches only go up the hierarchy, so they cannot stop when
+		// they first meet: the highest node of the shortest path may be
+		// further up. A search stops once its queue holds nothing nearer
+		// than the best path found.
+		// Inv: best is the weight of the best path through a node both
+		// searches have reached, and meeting is that node.
+		while (true) {
+			boolean aheadOpen = !ahead.isEmpty()
+					&& ahead.key(ahead.peek()) < best;
+			boolean behindOpen = !behind.isEmpty()
+					&& behind.key(behind.peek()) < best;
+			if (!aheadOpen && !behindOpen) {
+				break;
+			}
+			boolean goAhead = aheadOpen && (!behindOpen
+					|| ahead.key(ahead.peek()) <= behind.key(behind.peek()));
+			SearchContext context = goAhead ? forward : backward;
+			SearchContext other = goAhead ? backward : forward;
+			IndexedHeap active = goAhead ? ahead : behind;
+			int[] offsets = goAhead ? this.upOffsets : this.downOffsets;
+			int[] nodes = goAhead ? this.upNodes : this.downNodes;
+			double[] weights = goAhead ? this.upWeights : this.downWeights;
+
+			int currId = active.poll();
+			context.finish(currId);
+			for (int k = offsets[currId]; k < offsets[currId + 1]; k++) {
+				int child = nodes[k];
+				double weight = context.pathWeight(currId) + weights[k];
+				if (weight < context.pathWeight(child)) {
+					context.reach(child, weight, currId);
+					active.addOrDecrease(child, weight);
+					if (other.isReached(child)
+							&& weight + other.pathWeight(child) < best) {
+						best = weight + other.pathWeight(child);
+						meeting = child;
+					}
+				}
+			}
+		}
+		// Q: No node left in either queue is on a better path than meeting.
+		if (meeting == -1) {
+			return null;
+		}
+
+		// Go down from meeting to the start and then to the target,
+		// unpacking each edge of the hierarchy into edges of the graph.
+		int length = 0;
+		for (int id = meeting; forward.prevNode(id) != -1;
+				id = forward.prevNode(id)) {
+			length++;
+		}
+		int[] ids = new int[length + 1];
+		for (int id = meeting, i = length; i >= 0;
+				id = forward.prevNode(id), i--) {
+			ids[i] = id;
+		}
+		List<Node<T>> path = new ArrayList<Node<T>>();
+		path.add(new Node<T>(this.graph.nodeOf(start), 0.0, null));
+		for (int i = 1; i < ids.length; i++) {
+			int k = find(this.upOffsets, this.upNodes, ids[i - 1], ids[i]);
+			this.unpack(ids[i - 1], ids[i], this.upWeights[k],
+					this.upMiddles[k], path);
+		}
+		for (int id = meeting, next = backward.prevNode(id); next != -1;
+				id = next, next = backward.prevNode(id)) {
+			int k = find(this.downOffsets, this.downNodes, next, id);
+			this.unpack(id, next, this.downWeights[k], this.downMiddles[k],
+					path);
+		}
+		// Q: path.get(path.size() - 1) is the targetNode
+		return path;
+	}
+
+	/**
+	 * Adds the edges of the graph which an edge of the hierarchy stands for
+	 * to the end of a path.
+	 * @param from is the id of the node the edge leaves.
+	 * @param to is the id of the node the edge goes to.
+	 * @param weight of the edge.
+	 * @param middle is the id of the node the edge is a shortcut past, or -1
+	 * if it is an edge of the graph.
+	 * @param path ends at from.
+	 * @modifies path
+	 */
+	private void unpack(int from, int to, double weight, int middle,
+			List<Node<T>> path) {
+		if (middle == -1) {
+			Node<T> prev = path.get(path.size() - 1);
+			path.add(new Node<T>(this.graph.nodeOf(to),
+					prev.getPathWeight() + weight, prev));
+			return;
+		}
+		// The middle node was contracted before both ends, so the first half
+		// comes down to it and the second half goes up from it.
+		int first = find(this.downOffsets, this.downNodes, middle, from);
+		this.unpack(from, middle, this.downWeights[first],
+				this.downMiddles[first], path);
+		int second = find(this.upOffsets, this.upNodes, middle, to);
+		this.unpack(middle, to, this.upWeights[second],
+				this.upMiddles[second], path);
+	}
+
+	/**
+	 * @return The entry of a node which goes to or comes from another node.
+	 */
+	private static int find(int[] offsets, int[] nodes, int id, int other) {
+		for (int k = offsets[id]; k < offsets[id + 1]; k++) {
+			if (nodes[k] == other) {
+				return k;
+			}
+		}
+		throw new AssertionError("The hierarchy is missing an edge.");
+	}
+
+	/**
+	 * Estimates how much contracting a node would grow the graph, and how
+	 * many of the nodes around it are already contracted, so that nodes are
+	 * contracted evenly across the graph.
+	 * @return The priority of the node; smaller is contracted sooner.
+	 */
+	private static double priority(int id, Links out, Links in,
+			int[] contractedNeighbours, SearchContext witness) {
+		int shortcuts = contract(id, out, in, witness, false);
+		return shortcuts - out.counts[id] - in.counts[id]
+				+ contractedNeighbours[id];
+	}
+
+	/**
+	 * Contracts a node, or counts the shortcuts contracting it would add.
+	 * @param id of the node.
+	 * @param out holds the edges leaving each node which is not contracted.
+	 * @param in holds the edges going to each node which is not contracted.
+	 * @param witness holds the state of the searches for other paths.
+	 * @param apply is true to contract the node, or false to only count.
+	 * @modifies out, in and witness, out and in only if apply is true.
+	 * @return The number of shortcuts needed.
+	 */
+	private static int contract(int id, Links out, Links in,
+			SearchContext witness, boolean apply) {
+		int shortcuts = 0;
+		double maxOut = 0.0;
+		for (int j = 0; j < out.counts[id]; j++) {
+			maxOut = Math.max(maxOut, out.weights[id][j]);
+		}
+		for (int i = 0; i < in.counts[id]; i++) {
+			int from = in.nodes[id][i];
+			double toHere = in.weights[id][i];
+			witness(from, id, toHere + maxOut, out, witness);
+			for (int j = 0; j < out.counts[id]; j++) {
+				int to = out.nodes[id][j];
+				double through = toHere + out.weights[id][j];
+				if (to == from || witness.pathWeight(to) <= through) {
+					continue;
+				}
+				shortcuts++;
+				if (apply) {
+					out.put(from, to, through, id);
+					in.put(to, from, through, id);
+				}
+			}
+		}
+		if (apply) {
+			for (int i = 0; i < in.counts[id]; i++) {
+				out.remove(in.nodes[id][i], id);
+			}
+			for (int j = 0; j < out.counts[id]; j++) {
+				in.remove(out.nodes[id][j], id);
+			}
+			out.counts[id] = 0;
+			in.counts[id] = 0;
+		}
+		return shortcuts;
+	}
+
+	/**
+	 * Searches for paths from a node which do not go through the node being
+	 * contracted, up to a weight and a number of finished nodes.
+	 * @param from is the id of the node to search from.
+	 * @param skipped is the id of the node being contracted.
+	 * @param limit is the weight past which paths are not needed.
+	 * @param out holds the edges leaving each node which is not contracted.
+	 * @param witness holds the state of the search.
+	 * @modifies witness
+	 */
+	private static void witness(int from, int skipped, double limit,
+			Links out, SearchContext witness) {
+		witness.begin(out.counts.length);
+		witness.reach(from, 0.0, -1);
+		IndexedHeap active = witness.active();
+		active.add(from, 0.0);
+		int finished = 0;
+		while (!active.isEmpty() && finished < WITNESS_LIMIT) {
+			int currId = active.poll();
+			if (witness.pathWeight(currId) > limit) {
+				break;
+			}
+			witness.finish(currId);
+			finished++;
+			for (int k = 0; k < out.counts[currId]; k++) {
+				int child = out.nodes[currId][k];
+				if (child == skipped || witness.isFinished(child)) {
+					continue;
+				}
+				double weight = witness.pathWeight(currId)
+						+ out.weights[currId][k];
+				if (weight < witness.pathWeight(child)) {
+					witness.reach(child, weight, currId);
+					active.addOrDecrease(child, weight);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.graph != null) : "The graph cannot be null.";
+		assert (this.rank.length == this.graph.numOfNodes()) : "Every node "
+				+ "needs a rank.";
+		assert (this.upOffsets.length == this.rank.length + 1
+				&& this.downOffsets.length == this.rank.length + 1) : "There "
+				+ "must be one offset per node plus one.";
+	}
+
+	/**
+	 * The edges of each node to other nodes while the hierarchy is built, at
+	 * most one for each pair of nodes.
+	 */
+	private static final class Links {
+
+		// AF: The node with id i has counts[i] edges. Edge j goes to or
+		// comes from nodes[i][j], has the weight weights[i][j] and is a
+		// shortcut past middles[i][j], or is an edge of the graph if that is
+		// -1.
+
+		final int[][] nodes;
+		final double[][] weights;
+		final int[][] middles;
+		final int[] counts;
+
+		/**
+		 * @param numOfNodes is the number of node ids.
+		 * @effects Creates links with no edges.
+		 */
+		Links(int numOfNodes) {
+			this.nodes = new int[numOfNodes][];
+			this.weights = new double[numOfNodes][];
+			this.middles = new int[numOfNodes][];
+			this.counts = new int[numOfNodes];
+		}
+
+		/**
+		 * Adds an edge, or makes the edge between two nodes lighter.
+		 * @param id of the node the edge belongs to.
+		 * @param other is the id of the node at the other end.
+		 * @param weight of the edge.
+		 * @param middle is the node the edge is a shortcut past, or -1.
+		 * @modifies this
+		 */
+		void put(int id, int other, double weight, int middle) {
+			int count = this.counts[id];
+			for (int j = 0; j < count; j++) {
+				if (this.nodes[id][j] == other) {
+					if (weight < this.weights[id][j]) {
+						this.weights[id][j] = weight;
+						this.middles[id][j] = middle;
+					}
+					return;
+				}
+			}
+			if (this.nodes[id] == null) {
+				this.nodes[id] = new int[4];
+				this.weights[id] = new double[4];
+				this.middles[id] = new int[4];
+			} else if (count == this.nodes[id].length) {
+				this.nodes[id] = Arrays.copyOf(this.nodes[id],
+						2 * count);
+				this.weights[id] = Arrays.copyOf(this.weights[id],
+						2 * count);
+				this.middles[id] = Arrays.copyOf(this.middles[id],
+						2 * count);
+			}
+			this.nodes[id][count] = other;
+			this.weights[id][count] = weight;
+			this.middles[id][count] = middle;
+			this.counts[id]++;
+		}
+
+		/**
+		 * Removes the edge between two nodes, if there is one.
+		 * @param id of the node the edge belongs to.
+		 * @param other is the id of the node at the other end.
+		 * @modifies this
+		 */
+		void remove(int id, int other) {
+			int last = this.counts[id] - 1;
+			for (int j = 0; j <= last; j++) {
+				if (this.nodes[id][j] == other) {
+					this.nodes[id][j] = this.nodes[id][last];
+					this.weights[id][j] = this.weights[id][last];
+					this.middles[id][j] = this.middles[id][last];
+					this.counts[id]--;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Replaces the edges of a node with a copy of its edges in other.
+		 * @modifies this
+		 */
+		void copy(int id, Links other) {
+			int count = other.counts[id];
+			this.nodes[id] = new int[count];
+			this.weights[id] = new double[count];
+			this.middles[id] = new int[count];
+			if (count > 0) {
+				System.arraycopy(other.nodes[id], 0, this.nodes[id], 0, count);
+				System.arraycopy(other.weights[id], 0, this.weights[id], 0,
+						count);
+				System.arraycopy(other.middles[id], 0, this.middles[id], 0,
+						count);
+			}
+			this.counts[id] = count;
+		}
+
+		/**
+		 * @return Where the edges of each node start when they are laid out
+		 * one node after another, plus the total number of edges.
+		 */
+		int[] offsets() {
+			int[] offsets = new int[this.counts.length + 1];
+			for (int id = 0; id < this.counts.length; id++) {
+				offsets[id + 1] = offsets[id] + this.counts[id];
+			}
+			return offsets;
+		}
+
+		/**
+		 * @return The other ends of the edges laid out one node after another.
+		 */
+		int[] flatNodes(int[] offsets) {
+			int[] flat = new int[offsets[this.counts.length]];
+			for (int id = 0; id < this.counts.length; id++) {
+				if (this.counts[id] > 0) {
+					System.arraycopy(this.nodes[id], 0, flat, offsets[id],
+							this.counts[id]);
+				}
+			}
+			return flat;
+		}
+
+		/**
+		 * @return The weights of the edges laid out one node after another.
+		 */
+		double[] flatWeights(int[] offsets) {
+			double[] flat = new double[offsets[this.counts.length]];
+			for (int id = 0; id < this.counts.length; id++) {
+				if (this.counts[id] > 0) {
+					System.arraycopy(this.weights[id], 0, flat, offsets[id],
+							this.counts[id]);
+				}
+			}
+			return flat;
+		}
+
+		/**
+		 * @return The middles of the edges laid out one node after another.
+		 */
+		int[] flatMiddles(int[] offsets) {
+			int[] flat = new int[offsets[this.counts.length]];
+			for (int id = 0; id < this.counts.length; id++) {
+				if (this.counts[id] > 0) {
+					System.arraycopy(this.middles[id], 0, flat, offsets[id],
+							this.counts[id]);
+				}
+			}
+			return flat;
+		}
+	}
+}
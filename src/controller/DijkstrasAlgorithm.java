@@ -1,16 +1,14 @@
 package controller;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.ToDoubleBiFunction;
 
-import model.Connection;
 import model.Graph;
+import model.IndexedGraph;
 import model.Node;
+import model.ReverseEdges;
 
 /**
  * Finds the shortest weighted path between any two nodes in a graph provided the graph labels are 
@@ -20,6 +18,30 @@ import model.Node;
  */
 public class DijkstrasAlgorithm {
 	
+	// Each thread keeps the state of its last search so that the next one
+	// can reuse the arrays instead of allocating them again.
+	private static final ThreadLocal<SearchContext> CONTEXTS = 
+			new ThreadLocal<SearchContext>() {
+				@Override
+				protected SearchContext initialValue() {
+					return new SearchContext();
+				}
+			};
+	
+	// Weights summed from the two ends of a path can differ in the last few
+	// bits, so a bidirectional search treats a path within this fraction of
+	// the best weight as tied with it.
+	private static final double TIE_TOLERANCE = 1e-9;
+
+	// Bidirectional searches also keep the state of their backward half.
+	private static final ThreadLocal<SearchContext> BACKWARD_CONTEXTS = 
+			new ThreadLocal<SearchContext>() {
+				@Override
+				protected SearchContext initialValue() {
+					return new SearchContext();
+				}
+			};
+	
 	/**
 	 * Finds the shortest weighted path from the start node to the target node.
 	 * @param startNode is the name of the start point in the graph.
@@ -35,95 +57,520 @@ public class DijkstrasAlgorithm {
 	 */
 	public static <T extends Comparable<T>>  List<Node<T>> findShortestweightedPath
 			(T startNode, T targetNode, Graph<T, Double> multigraph) {
-		//long start = System.nanoTime();
-		
 		if (!(multigraph.nodeExists(startNode) && 
 				multigraph.nodeExists(targetNode))) {
 			throw new IllegalArgumentException("One or more of the nodes does "
 					+ "not exist in the multigraph.");
 		}
-
-		Node<T> dest = new Node<T>(targetNode, Double.POSITIVE_INFINITY);
-		Set<T> finished = new HashSet<T>();
-		Set<Connection<T, Double>> remainingCons = multigraph.getConnections();
-		
-		// Set up a priority queue which will sort by the pathWeights.
-		Queue<Node<T>> active = new PriorityQueue<Node<T>>(
-				1, new Comparator<Node<T>>()
-				{ public int compare(Node<T> n1, Node<T> n2) { 
-					int result =  Double.compare(n1.getPathWeight(), 
-												n2.getPathWeight());
-					if (result != 0) {
-						return result;
+		return findShortestweightedPath(startNode, targetNode, 
+				multigraph.freeze());
+	}
+	
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * in an indexed snapshot of a graph. The search reuses the state of the
+	 * last search made by the same thread, so once a thread has searched a 
+	 * graph of this size only the returned path is allocated.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going 
+	 * to.
+	 * @param multigraph is the graph where the path will be found in.
+	 * @requires startNode, targetNode, and multigraph all be non-null.
+	 * @throws IllegalArgumentException if one or more of the node name 
+	 * parameters are not in the graph.
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path 
+	 * takes.
+	 */
+	public static <T extends Comparable<T>>  List<Node<T>> findShortestweightedPath
+			(T startNode, T targetNode, IndexedGraph<T, Double> multigraph) {
+		return findShortestweightedPath(startNode, targetNode, multigraph, 
+				CONTEXTS.get());
+	}
+	
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * in an indexed snapshot of a graph, using a given context for the state
+	 * of the search.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going 
+	 * to.
+	 * @param multigraph is the graph where the path will be found in.
+	 * @param context holds the state of the search, and is not being used by
+	 * another search.
+	 * @requires All parameters are non-null.
+	 * @throws IllegalArgumentException if one or more of the node name 
+	 * parameters are not in the graph.
+	 * @modifies context
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path 
+	 * takes.
+	 */
+	public static <T extends Comparable<T>>  List<Node<T>> findShortestweightedPath
+			(T startNode, T targetNode, IndexedGraph<T, Double> multigraph,
+					SearchContext context) {
+		return findShortestweightedPath(startNode, targetNode, multigraph, 
+				(IntToDoubleFunction) null, context);
+	}
+	
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * with A*, which searches the nodes in order of the weight of the path 
+	 * to them plus an estimate of the weight left to the target. A good 
+	 * estimate, such as the straight line distance between two places, 
+	 * steers the search towards the target so it finishes far fewer nodes 
+	 * than it would without one, and the path found is still a shortest 
+	 * one. The search reuses the state of the last search made by the same
+	 * thread.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going 
+	 * to.
+	 * @param multigraph is the graph where the path will be found in.
+	 * @param estimate gives the estimated weight of the shortest path from
+	 * a node to the target.
+	 * @requires startNode, targetNode, multigraph and estimate are non-null.
+	 * The estimate must be consistent: it is never negative, it is 0 from 
+	 * the target to itself, and the estimate from a node is never more than
+	 * the weight of a connection from it plus the estimate from the node 
+	 * the connection goes to. A consistent estimate never overestimates.
+	 * @throws IllegalArgumentException if one or more of the node name 
+	 * parameters are not in the graph.
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path 
+	 * takes.
+	 */
+	public static <T extends Comparable<T>>  List<Node<T>> findShortestweightedPath
+			(T startNode, T targetNode, IndexedGraph<T, Double> multigraph,
+					ToDoubleBiFunction<? super T, ? super T> estimate) {
+		return findShortestweightedPath(startNode, targetNode, multigraph, 
+				estimate, CONTEXTS.get());
+	}
+	
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * with A*, using a given context for the state of the search.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going 
+	 * to.
+	 * @param multigraph is the graph where the path will be found in.
+	 * @param estimate gives the estimated weight of the shortest path from
+	 * a node to the target, or is null to search without an estimate.
+	 * @param context holds the state of the search, and is not being used by
+	 * another search.
+	 * @requires startNode, targetNode, multigraph and context are non-null,
+	 * and estimate is null or consistent as described above.
+	 * @throws IllegalArgumentException if one or more of the node name 
+	 * parameters are not in the graph.
+	 * @modifies context
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path 
+	 * takes.
+	 */
+	public static <T extends Comparable<T>>  List<Node<T>> findShortestweightedPath
+			(final T startNode, final T targetNode, 
+					final IndexedGraph<T, Double> multigraph,
+					final ToDoubleBiFunction<? super T, ? super T> estimate,
+					SearchContext context) {
+		if (estimate == null) {
+			return findShortestweightedPath(startNode, targetNode, multigraph,
+					(IntToDoubleFunction) null, context);
+		}
+		return findShortestweightedPath(startNode, targetNode, multigraph, 
+				new IntToDoubleFunction() {
+					public double applyAsDouble(int id) {
+						return estimate.applyAsDouble(multigraph.nodeOf(id), 
+								targetNode);
 					}
-					return n1.getNodeName().compareTo(n2.getNodeName());
-				}});
+				}, context);
+	}
+	
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * with A*, using an estimate which is given the id of a node rather than
+	 * the node itself. Estimates worked out from tables indexed by id, such 
+	 * as distances to landmarks, then never have to look up a node. The 
+	 * search reuses the state of the last search made by the same thread.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going 
+	 * to.
+	 * @param multigraph is the graph where the path will be found in.
+	 * @param estimate gives the estimated weight of the shortest path from
+	 * the node with an id to the target. An estimate of infinity means the
+	 * target cannot be reached from the node, and the node is not searched.
+	 * @requires startNode, targetNode, multigraph and estimate are non-null,
+	 * and estimate is consistent as described above.
+	 * @throws IllegalArgumentException if one or more of the node name 
+	 * parameters are not in the graph.
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path 
+	 * takes.
+	 */
+	public static <T extends Comparable<T>>  List<Node<T>> findShortestweightedPath
+			(T startNode, T targetNode, IndexedGraph<T, Double> multigraph,
+					IntToDoubleFunction estimate) {
+		return findShortestweightedPath(startNode, targetNode, multigraph, 
+				estimate, CONTEXTS.get());
+	}
+	
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * with A*, using an estimate which is given the id of a node, and a given
+	 * context for the state of the search.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going 
+	 * to.
+	 * @param multigraph is the graph where the path will be found in.
+	 * @param estimate gives the estimated weight of the shortest path from
+	 * the node with an id to the target, or is null to search without an 
+	 * estimate. An estimate of infinity means the target cannot be reached 
+	 * from the node, and the node is not searched.
+	 * @param context holds the state of the search, and is not being used by
+	 * another search.
+	 * @requires startNode, targetNode, multigraph and context are non-null,
+	 * and estimate is null or consistent as described above.
+	 * @throws IllegalArgumentException if one or more of the node name 
+	 * parameters are not in the graph.
+	 * @modifies context
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path 
+	 * takes.
+	 */
+	public static <T extends Comparable<T>>  List<Node<T>> findShortestweightedPath
+			(T startNode, T targetNode, IndexedGraph<T, Double> multigraph,
+					IntToDoubleFunction estimate, SearchContext context) {
+		final int start = multigraph.idOf(startNode);
+		final int target = multigraph.idOf(targetNode);
+		if (start < 0 || target < 0) {
+			throw new IllegalArgumentException("One or more of the nodes does "
+					+ "not exist in the multigraph.");
+		}
+		
+		context.begin(multigraph.numOfNodes());
+		
+		// Set up a priority queue which will sort by the path weights, plus
+		// the estimate of the rest of the way if there is one. Ids are 
+		// handed out in the natural order of the nodes so comparing ids
+		// breaks ties the same way as comparing the node names. Each node is
+		// in the queue at most once, with the weight of its best path so far.
+		IndexedHeap active = context.active();
 		
-		active.add(new Node<T>(startNode, 0.0));
+		context.reach(start, 0.0, -1);
+		active.add(start, 0.0);
 		
-		// Inv: The solution has not been found, active contains all paths to 
-		// unfinished nodes that only pass through finished nodes via least 
-		// cost paths to those nodes.
+		// Inv: The solution has not been found, active contains the least 
+		// cost path to each unfinished node that only passes through 
+		// finished nodes.
 		while (!(active.isEmpty())) {
-			Node<T> currNode = active.remove();
-			T currName = currNode.getNodeName();
-			
-			// If its in finished then the shortest possible path has already 
-			// been found. No since searching the same node again.
-			if (finished.contains(currName)) {
-				continue;
-			}
+			int currId = active.poll();
 			
 			// If this is our final node then pack up the info and return.
-			if (currNode.equals(dest)) {
-
-				List<Node<T>> backtrack = new ArrayList<Node<T>>();
-				backtrack.add(currNode);
-				
-				while (currNode.getPrevNode() != null) {
-					currNode = currNode.getPrevNode();
-					backtrack.add(0, currNode);
-				}
-				// Q: currNode is the startNode
-				return backtrack;
+			if (currId == target) {
+				return backtrack(multigraph, currId, context);
 			}
 
 			// This is the shortest path to this node all other paths to this 
 			// node will take longer.
-			finished.add(currName);
-			
-			// Get a set of connections from the current node.
-			Set<Connection<T, Double>> connections = 
-					new HashSet<Connection<T, Double>>();
-			for (Connection<T, Double> con : remainingCons) {
-				if (con.getFrom().equals(currName)) {
-					connections.add(con);
-				}
-			}
+			context.finish(currId);
 			
 			// Inv: All children processed are either in active or finished.
-			for (Connection<T, Double> con : connections) {
-				// These connections have been used so am removing them from 
-				// future searches since they have already been used.
-				remainingCons.remove(con);
-				
-				T nodeToName = con.getTo();
-
+			int end = multigraph.edgesEnd(currId);
+			for (int e = multigraph.edgesStart(currId); e < end; e++) {
+				int child = multigraph.target(e);
+				if (context.isFinished(child) || !multigraph.isVisible(e)) {
+					continue;
+				}
+				double weight = context.pathWeight(currId) 
+						+ multigraph.weight(e);
 				
-				// Create nodes out of all the children.
-				Double pathWeight = currNode.getPathWeight() 
-						+ con.getLabel();
-				Node<T> childNode = new Node<T>(nodeToName, pathWeight, 
-						currNode);				
-
-				active.add(childNode);
+				// Only a strictly cheaper path replaces the one already 
+				// found so the first of two equal cost paths is kept.
+				if (weight < context.pathWeight(child)) {
+					context.reach(child, weight, currId);
+					if (estimate == null) {
+						active.addOrDecrease(child, weight);
+					} else {
+						double rest = estimate.applyAsDouble(child);
+						if (rest != Double.POSITIVE_INFINITY) {
+							active.addOrDecrease(child, weight + rest);
+						}
+					}
+				}
 			}
 			// Q: All children have been processed and therefore all children
 			// are now in active.
 		}
 		// Q: There was no solution found.
 		return null;
+	}
+	
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * by searching forwards from the start and backwards from the target at
+	 * the same time until the two searches meet.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going 
+	 * to.
+	 * @param multigraph is the graph where the path will be found in.
+	 * @requires startNode, targetNode, and multigraph all be non-null.
+	 * @throws IllegalArgumentException if one or more of the node name 
+	 * parameters are not in the graph.
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path 
+	 * takes.
+	 */
+	public static <T extends Comparable<T>> List<Node<T>> 
+			findShortestweightedPathBidirectional(T startNode, T targetNode, 
+					Graph<T, Double> multigraph) {
+		if (!(multigraph.nodeExists(startNode) && 
+				multigraph.nodeExists(targetNode))) {
+			throw new IllegalArgumentException("One or more of the nodes does "
+					+ "not exist in the multigraph.");
+		}
+		return findShortestweightedPathBidirectional(startNode, targetNode, 
+				multigraph.freeze());
+	}
+	
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * in an indexed snapshot of a graph by searching from both ends. Each 
+	 * search only has to go about half of the way, so between two far apart
+	 * nodes far fewer nodes are finished than by a search from the start 
+	 * alone. Of several paths of the same weight it returns the same one as
+	 * findShortestweightedPath. The searches reuse the state of the last 
+	 * search made by the same thread.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going 
+	 * to.
+	 * @param multigraph is the graph where the path will be found in.
+	 * @requires startNode, targetNode, and multigraph all be non-null.
+	 * @throws IllegalArgumentException if one or more of the node name 
+	 * parameters are not in the graph.
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path 
+	 * takes.
+	 */
+	public static <T extends Comparable<T>> List<Node<T>> 
+			findShortestweightedPathBidirectional(T startNode, T targetNode, 
+					IndexedGraph<T, Double> multigraph) {
+		return findShortestweightedPathBidirectional(startNode, targetNode, 
+				multigraph, CONTEXTS.get(), BACKWARD_CONTEXTS.get());
+	}
+	
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * by searching from both ends, using given contexts for the state of the
+	 * two searches.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going 
+	 * to.
+	 * @param multigraph is the graph where the path will be found in.
+	 * @param forward holds the state of the search from the start.
+	 * @param backward holds the state of the search from the target.
+	 * @requires All parameters are non-null, forward and backward are 
+	 * different contexts and neither is being used by another search.
+	 * @throws IllegalArgumentException if one or more of the node name 
+	 * parameters are not in the graph.
+	 * @modifies forward, backward
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path 
+	 * takes.
+	 */
+	public static <T extends Comparable<T>> List<Node<T>> 
+			findShortestweightedPathBidirectional(T startNode, T targetNode, 
+					IndexedGraph<T, Double> multigraph, SearchContext forward,
+					SearchContext backward) {
+		final int start = multigraph.idOf(startNode);
+		final int target = multigraph.idOf(targetNode);
+		if (start < 0 || target < 0) {
+			throw new IllegalArgumentException("One or more of the nodes does "
+					+ "not exist in the multigraph.");
+		}
 		
+		forward.begin(multigraph.numOfNodes());
+		backward.begin(multigraph.numOfNodes());
+		forward.reach(start, 0.0, -1);
+		if (start == target) {
+			return backtrack(multigraph, start, forward);
+		}
+		ReverseEdges reverse = multigraph.reverseEdges();
+		
+		// The backward search keeps, for each node it reaches, the weight of 
+		// the best path from it to the target and the node after it on that
+		// path. meeting is the node in the middle of the best path found by
+		// the two searches so far, and best is its weight.
+		IndexedHeap ahead = forward.active();
+		IndexedHeap behind = backward.active();
+		backward.reach(target, 0.0, -1);
+		ahead.add(start, 0.0);
+		behind.add(target, 0.0);
+		int meeting = -1;
+		double best = Double.POSITIVE_INFINITY;
+		
+		// Inv: Every finished node has the weight of its best path from the
+		// start, or to the target, on the side which finished it, and best is
+		// the weight of the best path through a node both sides have reached.
+		while (!ahead.isEmpty() && !behind.isEmpty()) {
+			// Any better path would have to go through a node left in both
+			// queues, which is at least as far as the two smallest keys.
+			if (ahead.key(ahead.peek()) + behind.key(behind.peek()) >= best) {
+				break;
+			}
+			
+			// Grow the smaller of the two searches.
+			if (ahead.size() <= behind.size()) {
+				int currId = ahead.poll();
+				forward.finish(currId);
+				int end = multigraph.edgesEnd(currId);
+				for (int e = multigraph.edgesStart(currId); e < end; e++) {
+					int child = multigraph.target(e);
+					if (forward.isFinished(child) || !multigraph.isVisible(e)) {
+						continue;
+					}
+					double weight = forward.pathWeight(currId) 
+							+ multigraph.weight(e);
+					if (weight < forward.pathWeight(child)) {
+						forward.reach(child, weight, currId);
+						ahead.addOrDecrease(child, weight);
+						if (backward.isReached(child) 
+								&& weight + backward.pathWeight(child) < best) {
+							best = weight + backward.pathWeight(child);
+							meeting = child;
+						}
+					}
+				}
+			} else {
+				int currId = behind.poll();
+				backward.finish(currId);
+				int end = reverse.edgesEnd(currId);
+				for (int k = reverse.edgesStart(currId); k < end; k++) {
+					int parent = reverse.source(k);
+					int e = reverse.edge(k);
+					if (backward.isFinished(parent) 
+							|| !multigraph.isVisible(e)) {
+						continue;
+					}
+					double weight = backward.pathWeight(currId) 
+							+ multigraph.weight(e);
+					if (weight < backward.pathWeight(parent)) {
+						backward.reach(parent, weight, currId);
+						behind.addOrDecrease(parent, weight);
+						if (forward.isReached(parent) 
+								&& weight + forward.pathWeight(parent) < best) {
+							best = weight + forward.pathWeight(parent);
+							meeting = parent;
+						}
+					}
+				}
+			}
+		}
+		// Q: No path through a node left in either queue can be better than
+		// the one through meeting.
+		if (meeting == -1) {
+			return null;
+		}
+
+		// Other paths may weigh as much as the one through meeting, and a
+		// search from the start alone keeps whichever it finishes first. The
+		// forward search has finished the same nodes in the same order as that
+		// search, so it carries on until it finishes the target too, but only
+		// through nodes which the backward search shows are on a path as light
+		// as best. Any node which could break a tie is on such a path, and
+		// leaving the others out does not change the order of the rest.
+		final double limit = best + best * TIE_TOLERANCE;
+		ahead.retainIf(id -> backward.isReached(id) && forward.pathWeight(id)
+				+ backward.pathWeight(id) <= limit);
+		while (!ahead.isEmpty() && !forward.isFinished(target)) {
+			int currId = ahead.poll();
+			forward.finish(currId);
+			if (currId == target) {
+				break;
+			}
+			int end = multigraph.edgesEnd(currId);
+			for (int e = multigraph.edgesStart(currId); e < end; e++) {
+				int child = multigraph.target(e);
+				if (forward.isFinished(child) || !multigraph.isVisible(e)
+						|| !backward.isReached(child)) {
+					continue;
+				}
+				double weight = forward.pathWeight(currId)
+						+ multigraph.weight(e);
+				if (weight < forward.pathWeight(child)
+						&& weight + backward.pathWeight(child) <= limit) {
+					forward.reach(child, weight, currId);
+					ahead.addOrDecrease(child, weight);
+				}
+			}
+		}
+		if (forward.isFinished(target)) {
+			return backtrack(multigraph, target, forward);
+		}
+		// Rounding left a node of the path out, so the path through meeting,
+		// which weighs the same, is used.
+		return join(multigraph, meeting, forward, backward);
+	}
+	
+	/**
+	 * Builds the list of steps of the path found by a bidirectional search.
+	 * @param multigraph is the graph which was searched.
+	 * @param meeting is the id of the node where the two searches met.
+	 * @param forward holds the best path found to each node from the start.
+	 * @param backward holds the best path found from each node to the 
+	 * target.
+	 * @return The list of nodes from the start node to the target node.
+	 */
+	private static <T extends Comparable<T>> List<Node<T>> join(
+			IndexedGraph<T, Double> multigraph, int meeting, 
+			SearchContext forward, SearchContext backward) {
+		List<Node<T>> path = backtrack(multigraph, meeting, forward);
+		Node<T> prev = path.get(path.size() - 1);
+		for (int id = meeting, next = backward.prevNode(id); next != -1; 
+				id = next, next = backward.prevNode(id)) {
+			// The backward search took the lightest visible edge from id to
+			// next.
+			double weight = Double.POSITIVE_INFINITY;
+			int end = multigraph.edgesEnd(id);
+			for (int e = multigraph.edgesStart(id); e < end; e++) {
+				if (multigraph.target(e) == next && multigraph.isVisible(e)) {
+					weight = Math.min(weight, multigraph.weight(e));
+				}
+			}
+			prev = new Node<T>(multigraph.nodeOf(next), 
+					prev.getPathWeight() + weight, prev);
+			path.add(prev);
+		}
+		// Q: path.get(path.size() - 1) is the targetNode
+		return path;
+	}
+	
+	/**
+	 * Builds the list of steps from the start of a search to a node.
+	 * @param multigraph is the graph which was searched.
+	 * @param last is the id of the final node of the path.
+	 * @param context holds the best path found to each node.
+	 * @return The list of nodes from the start node to last.
+	 */
+	private static <T extends Comparable<T>> List<Node<T>> backtrack(
+			IndexedGraph<T, Double> multigraph, int last, 
+			SearchContext context) {
+		int length = 0;
+		for (int id = last; id != -1; id = context.prevNode(id)) {
+			length++;
+		}
+		int[] ids = new int[length];
+		for (int id = last, i = length - 1; id != -1; 
+				id = context.prevNode(id), i--) {
+			ids[i] = id;
+		}
+		
+		List<Node<T>> backtrack = new ArrayList<Node<T>>(length);
+		Node<T> prev = null;
+		for (int id : ids) {
+			prev = new Node<T>(multigraph.nodeOf(id), context.pathWeight(id),
+					prev);
+			backtrack.add(prev);
+		}
+		// Q: backtrack.get(0) is the startNode
+		return backtrack;
 	}
 	
 }
@@ -0,0 +1,198 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+import exception.MalformedDataException;
+import model.IndexedGraph;
+import model.OffHeapGraph;
+
+/**
+ * Saves a frozen graph in a binary file which can be memory-mapped back in,
+ * so a graph built from a large data file does not have to be built again
+ * every time the program starts.
+ * <p>
+ * The file starts with a header: a magic number, the format version, the
+ * checksum of the data files the graph was built from, the number of nodes,
+ * connections and labels, whether the labels are weights, and the length of
+ * the dictionary. The dictionary holds every node and then every label in
+ * order of id. It is followed by the edges in the layout written by
+ * OffHeapGraph.writeEdges, which are mapped into memory rather than read.
+ * A file whose checksum does not match the data files is stale and is not
+ * used.
+ * @author L. James Davidson
+ */
+public final class GraphFile {
+
+	private static final int MAGIC = 0x47524146;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_LENGTH = 37;
+
+	private GraphFile() {
+	}
+
+	/**
+	 * Writes a graph to a file, replacing the file if it exists.
+	 * @param graph is the graph to write.
+	 * @param file is where the graph is written.
+	 * @param checksum is the checksum of the data the graph was built from.
+	 * @param nodeCodec writes the nodes.
+	 * @param labelCodec writes the labels.
+	 * @requires All parameters are non-null and graph is not a view which
+	 * hides nodes or edges.
+	 * @throws IOException if the file cannot be written.
+	 * @effects Writes graph to file. The file is only replaced once the
+	 * whole graph has been written.
+	 * @modifies file
+	 */
+	public static <T extends Comparable<T>, N extends Comparable<N>> void
+			write(IndexedGraph<T, N> graph, File file, long checksum,
+					Codec<T> nodeCodec, Codec<N> labelCodec)
+							throws IOException {
+		File partial = new File(file.getPath() + ".part");
+		FileOutputStream fileOut = new FileOutputStream(partial);
+		try {
+			FileChannel channel = fileOut.getChannel();
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(fileOut));
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(checksum);
+			out.writeInt(graph.numOfNodes());
+			out.writeInt(graph.numOfEdges());
+			out.writeInt(graph.numOfLabels());
+			out.writeBoolean(graph.isWeighted());
+			out.writeLong(0);
+			for (int i = 0; i < graph.numOfNodes(); i++) {
+				nodeCodec.write(out, graph.nodeOf(i));
+			}
+			for (int i = 0; i < graph.numOfLabels(); i++) {
+				labelCodec.write(out, graph.labelOf(i));
+			}
+			out.flush();
+			long dictionaryLength = channel.position() - HEADER_LENGTH;
+			while (channel.position() % 8 != 0) {
+				out.writeByte(0);
+				out.flush();
+			}
+			OffHeapGraph.writeEdges(graph, channel);
+
+			// The length of the dictionary is only known once it has been
+			// written, so it is filled in last.
+			ByteBuffer length = ByteBuffer.allocate(8);
+			length.putLong(0, dictionaryLength);
+			channel.write(length, HEADER_LENGTH - 8);
+		} finally {
+			fileOut.close();
+		}
+		Files.move(partial.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Maps a graph written by write into memory.
+	 * @param file is where the graph was written.
+	 * @param checksum is the checksum of the data the graph should have
+	 * been built from.
+	 * @param nodeCodec reads the nodes.
+	 * @param labelCodec reads the labels.
+	 * @requires All parameters are non-null.
+	 * @throws IOException if the file cannot be read.
+	 * @throws MalformedDataException if the file is not a graph file or has
+	 * been cut short.
+	 * @return The graph, or null if the file does not exist, was written by
+	 * another version of this format, or was built from other data.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Comparable<T>, N extends Comparable<N>>
+			OffHeapGraph<T, N> read(File file, long checksum,
+					Codec<T> nodeCodec, Codec<N> labelCodec)
+							throws IOException, MalformedDataException {
+		if (!file.exists()) {
+			return null;
+		}
+		FileInputStream fileIn = new FileInputStream(file);
+		try {
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(fileIn));
+			if (file.length() < HEADER_LENGTH || in.readInt() != MAGIC) {
+				throw new MalformedDataException(file + " is not a graph "
+						+ "file.");
+			}
+			if (in.readInt() != FORMAT_VERSION || in.readLong() != checksum) {
+				return null;
+			}
+			int numOfNodes = in.readInt();
+			int numOfEdges = in.readInt();
+			int numOfLabels = in.readInt();
+			boolean weighted = in.readBoolean();
+			long dictionaryLength = in.readLong();
+			if (numOfNodes < 0 || numOfEdges < 0 || numOfLabels < 0
+					|| dictionaryLength < 0) {
+				throw new MalformedDataException(file + " is not a graph "
+						+ "file.");
+			}
+			long edges = (HEADER_LENGTH + dictionaryLength + 7) & ~7L;
+			if (file.length() != edges + OffHeapGraph.edgesLength(numOfNodes,
+					numOfEdges, weighted)) {
+				throw new MalformedDataException(file + " has been cut "
+						+ "short.");
+			}
+			T[] nodes = (T[]) new Comparable<?>[numOfNodes];
+			N[] labels = (N[]) new Comparable<?>[numOfLabels];
+			try {
+				for (int i = 0; i < numOfNodes; i++) {
+					nodes[i] = nodeCodec.read(in);
+				}
+				for (int i = 0; i < numOfLabels; i++) {
+					labels[i] = labelCodec.read(in);
+				}
+			} catch (EOFException e) {
+				throw new MalformedDataException(file + " has been cut "
+						+ "short.", e);
+			}
+			return OffHeapGraph.map(fileIn.getChannel(), edges, nodes, labels,
+					numOfEdges, weighted);
+		} finally {
+			fileIn.close();
+		}
+	}
+
+	/**
+	 * Finds the checksum of data files, so that a graph file built from them
+	 * can be told apart from one built from an older version of them.
+	 * @param sources are the data files.
+	 * @requires sources are non-null.
+	 * @throws IOException if a file cannot be read.
+	 * @return The CRC32 of the contents of the files one after another.
+	 */
+	public static long checksum(File... sources) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[1 << 16];
+		for (File source : sources) {
+			InputStream in = new FileInputStream(source);
+			try {
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					crc.update(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+		}
+		return crc.getValue();
+	}
+}
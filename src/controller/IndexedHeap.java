@@ -0,0 +1,293 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
+
+/**
+ * A priority queue of int ids with double keys, for searches over the ids
+ * of an indexed graph. Each id is in the queue at most once and its key can
+ * be lowered where it is, so the queue never holds more entries than there
+ * are ids and a search does not have to skip stale entries. Ids with the
+ * same key come out smallest id first, which for the ids of an indexed
+ * graph is the natural order of the nodes. The queue is a d-ary heap: a
+ * wider heap is shallower, so lowering a key moves an id up fewer levels.
+ * @author L. James Davidson
+ */
+public final class IndexedHeap {
+
+	// AF: The queue holds heap[0] to heap[size - 1], each with the key
+	// keys[id]. positions[id] is the index of id in heap, or -1 if id is not
+	// in the queue.
+
+	// RI: arity >= 2, 0 <= size <= heap.length,
+	// positions.length == keys.length == heap.length,
+	// positions[heap[i]] == i for i < size,
+	// every other id has positions[id] == -1,
+	// for i > 0 { heap[(i - 1) / arity] comes out no later than heap[i] }
+
+	private static final int DEFAULT_ARITY = 4;
+
+	private final int arity;
+	private final int[] heap;
+	private final int[] positions;
+	private final double[] keys;
+	private int size;
+
+	/**
+	 * Creates an empty queue for a range of ids, kept as a 4-ary heap.
+	 * @param capacity is the number of ids; ids go from 0 to capacity - 1.
+	 * @requires capacity >= 0
+	 * @effects Creates an empty queue.
+	 */
+	public IndexedHeap(int capacity) {
+		this(capacity, DEFAULT_ARITY);
+	}
+
+	/**
+	 * Creates an empty queue for a range of ids.
+	 * @param capacity is the number of ids; ids go from 0 to capacity - 1.
+	 * @param arity is the number of children of each entry of the heap.
+	 * @requires capacity >= 0, arity >= 2
+	 * @effects Creates an empty queue.
+	 */
+	public IndexedHeap(int capacity, int arity) {
+		this.arity = arity;
+		this.heap = new int[capacity];
+		this.positions = new int[capacity];
+		this.keys = new double[capacity];
+		Arrays.fill(this.positions, -1);
+		this.size = 0;
+		this.checkRep();
+	}
+
+	/**
+	 * @return True if there are no ids in this queue.
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * @return The number of ids in this queue.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param id to look for.
+	 * @requires 0 <= id < the capacity of this queue.
+	 * @return True if the id is in this queue.
+	 */
+	public boolean contains(int id) {
+		return this.positions[id] >= 0;
+	}
+
+	/**
+	 * @param id of an entry.
+	 * @requires id is in this queue.
+	 * @return The key of the id.
+	 */
+	public double key(int id) {
+		return this.keys[id];
+	}
+
+	/**
+	 * Adds an id to this queue.
+	 * @param id to add.
+	 * @param key of the id.
+	 * @requires 0 <= id < the capacity of this queue.
+	 * @throws IllegalArgumentException if the id is already in this queue.
+	 * @effects Adds the id with the key.
+	 * @modifies this
+	 */
+	public void add(int id, double key) {
+		if (this.positions[id] >= 0) {
+			throw new IllegalArgumentException("The id " + id + " is already "
+					+ "in the queue.");
+		}
+		this.keys[id] = key;
+		this.siftUp(id, this.size++);
+	}
+
+	/**
+	 * Lowers the key of an id which is in this queue.
+	 * @param id to change.
+	 * @param key is the new key of the id.
+	 * @requires 0 <= id < the capacity of this queue, key <= key(id)
+	 * @throws IllegalArgumentException if the id is not in this queue.
+	 * @effects Changes the key of the id.
+	 * @modifies this
+	 */
+	public void decreaseKey(int id, double key) {
+		if (this.positions[id] < 0) {
+			throw new IllegalArgumentException("The id " + id + " is not in "
+					+ "the queue.");
+		}
+		this.keys[id] = key;
+		this.siftUp(id, this.positions[id]);
+	}
+
+	/**
+	 * Adds an id to this queue, or lowers its key if it is already in it.
+	 * @param id to add or change.
+	 * @param key of the id.
+	 * @requires 0 <= id < the capacity of this queue, and key <= key(id) if
+	 * the id is in this queue.
+	 * @effects Adds the id with the key, or changes its key.
+	 * @modifies this
+	 */
+	public void addOrDecrease(int id, double key) {
+		this.keys[id] = key;
+		if (this.positions[id] < 0) {
+			this.siftUp(id, this.size++);
+		} else {
+			this.siftUp(id, this.positions[id]);
+		}
+	}
+
+	/**
+	 * @requires this queue is not empty.
+	 * @throws NoSuchElementException if this queue is empty.
+	 * @return The id which would be removed next.
+	 */
+	public int peek() {
+		if (this.size == 0) {
+			throw new NoSuchElementException("The queue is empty.");
+		}
+		return this.heap[0];
+	}
+
+	/**
+	 * Removes the id with the smallest key, or the smallest of those ids if
+	 * several have the smallest key.
+	 * @requires this queue is not empty.
+	 * @throws NoSuchElementException if this queue is empty.
+	 * @effects Removes the id.
+	 * @modifies this
+	 * @return The id removed.
+	 */
+	public int poll() {
+		int first = this.peek();
+		this.positions[first] = -1;
+		this.size--;
+		if (this.size > 0) {
+			this.siftDown(this.heap[this.size], 0);
+		}
+		return first;
+	}
+
+	/**
+	 * Removes every id from this queue. This only takes time for the ids
+	 * which are still in it, so one queue can be reused for many searches.
+	 * @effects Empties this queue.
+	 * @modifies this
+	 */
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.heap[i]] = -1;
+		}
+		this.size = 0;
+	}
+
+	/**
+	 * Removes every id which fails a test. The rest keep their keys and come
+	 * out in the same order as before. This takes time linear in the size of
+	 * this queue rather than a poll for each id removed.
+	 * @param keep tells whether an id stays in this queue.
+	 * @requires keep is non-null.
+	 * @effects Removes every id for which keep is false.
+	 * @modifies this
+	 */
+	public void retainIf(IntPredicate keep) {
+		int kept = 0;
+		for (int i = 0; i < this.size; i++) {
+			int id = this.heap[i];
+			if (keep.test(id)) {
+				this.heap[kept] = id;
+				this.positions[id] = kept;
+				kept++;
+			} else {
+				this.positions[id] = -1;
+			}
+		}
+		this.size = kept;
+		// Sifting down each entry with children, from the last, makes a heap.
+		for (int i = (kept - 2) / this.arity; i >= 0 && kept > 1; i--) {
+			this.siftDown(this.heap[i], i);
+		}
+		this.checkRep();
+	}
+
+	/**
+	 * Moves an id up from an index of the heap to where it belongs.
+	 * @param id to move.
+	 * @param index to start from, which is free to be written.
+	 */
+	private void siftUp(int id, int index) {
+		while (index > 0) {
+			int parentIndex = (index - 1) / this.arity;
+			int parent = this.heap[parentIndex];
+			if (!this.before(id, parent)) {
+				break;
+			}
+			this.heap[index] = parent;
+			this.positions[parent] = index;
+			index = parentIndex;
+		}
+		this.heap[index] = id;
+		this.positions[id] = index;
+	}
+
+	/**
+	 * Moves an id down from an index of the heap to where it belongs.
+	 * @param id to move.
+	 * @param index to start from, which is free to be written.
+	 */
+	private void siftDown(int id, int index) {
+		while (true) {
+			int firstChild = index * this.arity + 1;
+			if (firstChild >= this.size) {
+				break;
+			}
+			int lastChild = Math.min(firstChild + this.arity, this.size);
+			int best = this.heap[firstChild];
+			for (int i = firstChild + 1; i < lastChild; i++) {
+				if (this.before(this.heap[i], best)) {
+					best = this.heap[i];
+				}
+			}
+			if (!this.before(best, id)) {
+				break;
+			}
+			int bestIndex = this.positions[best];
+			this.heap[index] = best;
+			this.positions[best] = index;
+			index = bestIndex;
+		}
+		this.heap[index] = id;
+		this.positions[id] = index;
+	}
+
+	/**
+	 * @return True if id a comes out of this queue before id b: it has a
+	 * smaller key, or the same key and a smaller id.
+	 */
+	private boolean before(int a, int b) {
+		return this.keys[a] < this.keys[b]
+				|| (this.keys[a] == this.keys[b] && a < b);
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.arity >= 2) : "Each entry needs at least two children.";
+		assert (this.size >= 0 && this.size <= this.heap.length) : "The "
+				+ "queue cannot hold more ids than it has room for.";
+		assert (this.positions.length == this.heap.length
+				&& this.keys.length == this.heap.length) : "Every id needs a "
+				+ "position and a key.";
+	}
+}
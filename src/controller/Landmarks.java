@@ -0,0 +1,452 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+import exception.MalformedDataException;
+import model.IndexedGraph;
+import model.Node;
+import model.ReverseEdges;
+
+/**
+ * Tables of the weight of the shortest paths to and from a few landmark
+ * nodes of a weighted graph, for searching graphs which have no coordinates
+ * to estimate distances with. By the triangle inequality the shortest path
+ * from a node to a target is at least as heavy as the difference between
+ * their paths to a landmark, or from one, so the largest difference over
+ * all of the landmarks is an estimate for A* which never overestimates.
+ * This is known as ALT: A*, landmarks and the triangle inequality. The
+ * estimates are best when the landmarks are far out at the edges of the
+ * graph, so each landmark is picked as far as possible from the ones picked
+ * before it.
+ * <p>
+ * Working out the tables takes two searches of the whole graph for each
+ * landmark, so they can be saved to a file and read back the next time the
+ * same graph is loaded. The file holds a magic number, the format version,
+ * the checksum of the data the graph was built from, the number of nodes
+ * and landmarks, the id of each landmark and then the two tables of each
+ * landmark.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ */
+public final class Landmarks<T extends Comparable<T>> {
+
+	// AF: The landmarks of graph are the nodes with the ids in landmarks.
+	// from[i][v] is the weight of the shortest path from landmark i to the
+	// node with id v and to[i][v] is the weight of the shortest path from
+	// the node with id v to landmark i, or infinity if there is no path.
+
+	// RI: graph != null, landmarks.length == from.length == to.length,
+	// landmarks.length == min(the number asked for, graph.numOfNodes()),
+	// the landmarks are different ids of graph, every table has
+	// graph.numOfNodes() entries.
+
+	private static final int MAGIC = 0x4C4D524B;
+	private static final int FORMAT_VERSION = 1;
+
+	private final IndexedGraph<T, Double> graph;
+	private final int[] landmarks;
+	private final double[][] from;
+	private final double[][] to;
+
+	/**
+	 * Picks landmarks of a graph and works out their tables. The first
+	 * landmark is the node furthest from the node with the most connections,
+	 * and each landmark after it is the node whose nearest landmark is
+	 * furthest away. The paths from each landmark are needed to pick the
+	 * next one, so those are found one landmark at a time; the paths to the
+	 * landmarks are then all found in parallel.
+	 * @param graph is the graph to pick landmarks of.
+	 * @param numOfLandmarks is the number of landmarks to pick.
+	 * @requires graph is non-null, its weights are not negative and it does
+	 * not change while the landmarks are used. numOfLandmarks > 0
+	 * @effects Creates landmarks of graph, as many as asked for unless the
+	 * graph has fewer nodes.
+	 */
+	public Landmarks(final IndexedGraph<T, Double> graph, int numOfLandmarks) {
+		int numOfNodes = graph.numOfNodes();
+		int count = Math.min(numOfLandmarks, numOfNodes);
+		this.graph = graph;
+		this.landmarks = new int[count];
+		this.from = new double[count][];
+		this.to = new double[count][];
+		if (count == 0) {
+			this.checkRep();
+			return;
+		}
+
+		int hub = 0;
+		for (int id = 1; id < numOfNodes; id++) {
+			if (graph.edgesEnd(id) - graph.edgesStart(id)
+					> graph.edgesEnd(hub) - graph.edgesStart(hub)) {
+				hub = id;
+			}
+		}
+		double[] nearest = distances(graph, null, hub);
+		boolean[] picked = new boolean[numOfNodes];
+		for (int i = 0; i < count; i++) {
+			// Nodes no landmark can reach are left for last, since a
+			// landmark there tells nothing about the rest of the graph.
+			int furthest = -1;
+			for (int id = 0; id < numOfNodes; id++) {
+				if (!picked[id] && (furthest == -1
+						|| farther(nearest[id], nearest[furthest]))) {
+					furthest = id;
+				}
+			}
+			picked[furthest] = true;
+			this.landmarks[i] = furthest;
+			this.from[i] = distances(graph, null, furthest);
+			for (int id = 0; id < numOfNodes; id++) {
+				nearest[id] = i == 0 ? this.from[i][id]
+						: Math.min(nearest[id], this.from[i][id]);
+			}
+		}
+
+		final ReverseEdges reverse = graph.reverseEdges();
+		IntStream.range(0, count).parallel().forEach(new IntConsumer() {
+			public void accept(int i) {
+				Landmarks.this.to[i] = distances(graph, reverse,
+						Landmarks.this.landmarks[i]);
+			}
+		});
+		this.checkRep();
+	}
+
+	/**
+	 * Creates landmarks from tables read from a file.
+	 */
+	private Landmarks(IndexedGraph<T, Double> graph, int[] landmarks,
+			double[][] from, double[][] to) {
+		this.graph = graph;
+		this.landmarks = landmarks;
+		this.from = from;
+		this.to = to;
+		this.checkRep();
+	}
+
+	/**
+	 * @return The graph these are the landmarks of.
+	 */
+	public IndexedGraph<T, Double> graph() {
+		return this.graph;
+	}
+
+	/**
+	 * @return The number of landmarks.
+	 */
+	public int numOfLandmarks() {
+		return this.landmarks.length;
+	}
+
+	/**
+	 * @param i is the index of a landmark.
+	 * @requires 0 <= i < numOfLandmarks()
+	 * @return The landmark, in the order they were picked.
+	 */
+	public T landmark(int i) {
+		return this.graph.nodeOf(this.landmarks[i]);
+	}
+
+	/**
+	 * Gives the estimate of the weight of the shortest path from each node
+	 * of the graph to a target, for DijkstrasAlgorithm to search with.
+	 * @param targetNode is the node the paths go to.
+	 * @requires targetNode is non-null.
+	 * @throws IllegalArgumentException if targetNode is not in the graph.
+	 * @return The estimate, which takes the id of a node and is never more
+	 * than the weight of its shortest path to the target. It is infinity if
+	 * the tables show that there is no path.
+	 */
+	public IntToDoubleFunction towards(T targetNode) {
+		int target = this.graph.idOf(targetNode);
+		if (target < 0) {
+			throw new IllegalArgumentException("The node does not exist in "
+					+ "the multigraph.");
+		}
+		final double[] fromTarget = new double[this.landmarks.length];
+		final double[] toTarget = new double[this.landmarks.length];
+		for (int i = 0; i < this.landmarks.length; i++) {
+			fromTarget[i] = this.from[i][target];
+			toTarget[i] = this.to[i][target];
+		}
+		return new IntToDoubleFunction() {
+			public double applyAsDouble(int id) {
+				return Landmarks.this.bound(id, fromTarget, toTarget);
+			}
+		};
+	}
+
+	/**
+	 * @param fromNode is where the path starts.
+	 * @param toNode is where the path ends.
+	 * @requires fromNode and toNode are non-null.
+	 * @throws IllegalArgumentException if either node is not in the graph.
+	 * @return A weight which the shortest path between the nodes is at least
+	 * as heavy as, or infinity if the tables show that there is no path.
+	 */
+	public double lowerBound(T fromNode, T toNode) {
+		int id = this.graph.idOf(fromNode);
+		if (id < 0) {
+			throw new IllegalArgumentException("The node does not exist in "
+					+ "the multigraph.");
+		}
+		return this.towards(toNode).applyAsDouble(id);
+	}
+
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * with A*, using the landmarks for the estimate of the rest of the way.
+	 * The search reuses the state of the last search made by the same
+	 * thread.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going
+	 * to.
+	 * @requires startNode and targetNode are non-null.
+	 * @throws IllegalArgumentException if one or more of the node name
+	 * parameters are not in the graph.
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path
+	 * takes.
+	 */
+	public List<Node<T>> findShortestweightedPath(T startNode, T targetNode) {
+		if (!this.graph.nodeExists(startNode)) {
+			throw new IllegalArgumentException("One or more of the nodes does "
+					+ "not exist in the multigraph.");
+		}
+		return DijkstrasAlgorithm.findShortestweightedPath(startNode,
+				targetNode, this.graph, this.towards(targetNode));
+	}
+
+	/**
+	 * Finds the shortest weighted path from the start node to the target node
+	 * with A*, using the landmarks for the estimate of the rest of the way
+	 * and a given context for the state of the search.
+	 * @param startNode is the name of the start point in the graph.
+	 * @param targetNode is the name of the node for which the path is going
+	 * to.
+	 * @param context holds the state of the search, and is not being used by
+	 * another search.
+	 * @requires All parameters are non-null.
+	 * @throws IllegalArgumentException if one or more of the node name
+	 * parameters are not in the graph.
+	 * @modifies context
+	 * @return  A null value will be returned if there is no path between these
+	 * two nodes. A list of nodes that make up the steps of the lowest cost path
+	 * takes.
+	 */
+	public List<Node<T>> findShortestweightedPath(T startNode, T targetNode,
+			SearchContext context) {
+		if (!this.graph.nodeExists(startNode)) {
+			throw new IllegalArgumentException("One or more of the nodes does "
+					+ "not exist in the multigraph.");
+		}
+		return DijkstrasAlgorithm.findShortestweightedPath(startNode,
+				targetNode, this.graph, this.towards(targetNode), context);
+	}
+
+	/**
+	 * Writes the tables to a file, replacing the file if it exists.
+	 * @param file is where the tables are written.
+	 * @param checksum is the checksum of the data the graph was built from.
+	 * @requires file is non-null.
+	 * @throws IOException if the file cannot be written.
+	 * @effects Writes the landmarks to file. The file is only replaced once
+	 * all of the tables have been written.
+	 * @modifies file
+	 */
+	public void write(File file, long checksum) throws IOException {
+		File partial = new File(file.getPath() + ".part");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(partial)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(checksum);
+			out.writeInt(this.graph.numOfNodes());
+			out.writeInt(this.landmarks.length);
+			for (int landmark : this.landmarks) {
+				out.writeInt(landmark);
+			}
+			for (int i = 0; i < this.landmarks.length; i++) {
+				for (double weight : this.from[i]) {
+					out.writeDouble(weight);
+				}
+				for (double weight : this.to[i]) {
+					out.writeDouble(weight);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		Files.move(partial.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads tables written by write for a graph.
+	 * @param graph is the graph the tables were worked out for.
+	 * @param file is where the tables were written.
+	 * @param checksum is the checksum of the data the graph should have
+	 * been built from.
+	 * @param numOfLandmarks is the number of landmarks asked for.
+	 * @requires graph and file are non-null, numOfLandmarks > 0
+	 * @throws IOException if the file cannot be read.
+	 * @throws MalformedDataException if the file is not a landmark file or
+	 * has been cut short.
+	 * @return The landmarks, or null if the file does not exist, was written
+	 * by another version of this format, was worked out from other data or
+	 * for another number of landmarks.
+	 */
+	public static <T extends Comparable<T>> Landmarks<T> read(
+			IndexedGraph<T, Double> graph, File file, long checksum,
+			int numOfLandmarks) throws IOException, MalformedDataException {
+		if (!file.exists()) {
+			return null;
+		}
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new MalformedDataException(file + " is not a landmark "
+						+ "file.");
+			}
+			if (in.readInt() != FORMAT_VERSION || in.readLong() != checksum
+					|| in.readInt() != graph.numOfNodes()) {
+				return null;
+			}
+			int count = in.readInt();
+			if (count != Math.min(numOfLandmarks, graph.numOfNodes())) {
+				return null;
+			}
+			int[] landmarks = new int[count];
+			for (int i = 0; i < count; i++) {
+				landmarks[i] = in.readInt();
+				if (landmarks[i] < 0 || landmarks[i] >= graph.numOfNodes()) {
+					throw new MalformedDataException(file + " is not a "
+							+ "landmark file.");
+				}
+			}
+			double[][] from = new double[count][graph.numOfNodes()];
+			double[][] to = new double[count][graph.numOfNodes()];
+			for (int i = 0; i < count; i++) {
+				for (int id = 0; id < graph.numOfNodes(); id++) {
+					from[i][id] = in.readDouble();
+				}
+				for (int id = 0; id < graph.numOfNodes(); id++) {
+					to[i][id] = in.readDouble();
+				}
+			}
+			return new Landmarks<T>(graph, landmarks, from, to);
+		} catch (EOFException e) {
+			throw new MalformedDataException(file + " has been cut short.", e);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Works out the estimate for a node from the tables of a target.
+	 * @param id of the node.
+	 * @param fromTarget holds the weight of the path from each landmark to
+	 * the target.
+	 * @param toTarget holds the weight of the path from the target to each
+	 * landmark.
+	 * @return The largest lower bound given by any landmark.
+	 */
+	private double bound(int id, double[] fromTarget, double[] toTarget) {
+		// A path from the node to the target followed by the path from the
+		// target to a landmark is a path from the node to the landmark, and
+		// the same goes for paths from a landmark. A table which shows no
+		// path from the node, or from the landmark, gives no bound.
+		double best = 0.0;
+		for (int i = 0; i < this.landmarks.length; i++) {
+			if (toTarget[i] != Double.POSITIVE_INFINITY) {
+				best = Math.max(best, this.to[i][id] - toTarget[i]);
+			}
+			if (this.from[i][id] != Double.POSITIVE_INFINITY) {
+				best = Math.max(best, fromTarget[i] - this.from[i][id]);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return True if a node at distance a should be picked as a landmark
+	 * before one at distance b: it is further away but still reachable.
+	 */
+	private static boolean farther(double a, double b) {
+		if (b == Double.POSITIVE_INFINITY) {
+			return a != Double.POSITIVE_INFINITY;
+		}
+		return a != Double.POSITIVE_INFINITY && a > b;
+	}
+
+	/**
+	 * Finds the weight of the shortest path from a node to every node, or
+	 * from every node to it.
+	 * @param graph is the graph to search.
+	 * @param reverse holds the edges of graph grouped by the node they go
+	 * to, to find paths to the node, or is null to find paths from it.
+	 * @param source is the id of the node.
+	 * @return The weight of the shortest path between each node and the
+	 * source, or infinity if there is none.
+	 */
+	private static double[] distances(IndexedGraph<?, Double> graph,
+			ReverseEdges reverse, int source) {
+		int numOfNodes = graph.numOfNodes();
+		double[] weights = new double[numOfNodes];
+		Arrays.fill(weights, Double.POSITIVE_INFINITY);
+		boolean[] finished = new boolean[numOfNodes];
+		IndexedHeap active = new IndexedHeap(numOfNodes);
+		weights[source] = 0.0;
+		active.add(source, 0.0);
+		while (!active.isEmpty()) {
+			int currId = active.poll();
+			finished[currId] = true;
+			int start = reverse == null ? graph.edgesStart(currId)
+					: reverse.edgesStart(currId);
+			int end = reverse == null ? graph.edgesEnd(currId)
+					: reverse.edgesEnd(currId);
+			for (int k = start; k < end; k++) {
+				int e = reverse == null ? k : reverse.edge(k);
+				int child = reverse == null ? graph.target(e)
+						: reverse.source(k);
+				if (finished[child] || !graph.isVisible(e)) {
+					continue;
+				}
+				double weight = weights[currId] + graph.weight(e);
+				if (weight < weights[child]) {
+					weights[child] = weight;
+					active.addOrDecrease(child, weight);
+				}
+			}
+		}
+		return weights;
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.graph != null) : "The graph cannot be null.";
+		assert (this.landmarks.length == this.from.length
+				&& this.landmarks.length == this.to.length) : "Every "
+				+ "landmark needs a table of paths to it and from it.";
+	}
+}
@@ -4,13 +4,18 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import exception.MalformedDataException;
 import model.Campus;
 import model.Connection;
 import model.Graph;
+import model.IndexedGraph;
 import model.Location;
 import model.Point;
 
@@ -24,6 +29,11 @@ public class LoadCampus {
 	// information and gives the UI the ability to access other model 
 	// representation.
 	
+	private static final File BUILDINGS_FILE = 
+			new File("src/data/campus_buildings.dat");
+	private static final File PATHS_FILE = 
+			new File("src/data/campus_paths.dat");
+	
 	/**
 	 * Loads up the graph and other necessary information for the University 
 	 * of Washington campus.
@@ -37,9 +47,6 @@ public class LoadCampus {
 		
 		//long start = System.nanoTime();
 		
-		// Initialize the graph for the all model files.
-		Graph<Location, Double> campus = new Graph<Location, Double>();
-		
 		// Parse both data files for the information.
 		Set<Location> buildings = parseBuildingData();
 		Set<Connection<Location, Double>> paths = parsePathData();
@@ -48,8 +55,7 @@ public class LoadCampus {
 		connectBuildingsToPaths(buildings, paths);
 			
 		// Add data to the graph.
-		campus.addNodes(buildings);
-		campus.addConnections(paths);
+		Graph<Location, Double> campus = buildGraph(buildings, paths);
 		
 		// Initialize the model of the application.
 		Campus UofW = new Campus(campus, buildings);
@@ -62,6 +68,125 @@ public class LoadCampus {
 		return UofW;
 	}
 	
+	/**
+	 * Loads the campus like loadInfo() and then makes the changes saved in a
+	 * log, such as closed paths, to it. Every later change to the campus is
+	 * added to the log.
+	 * @param changes is the file of the log. It is created if it does not
+	 * exist.
+	 * @requires changes is non-null.
+	 * @throws IOException if a data file or the log cannot be read, or the
+	 * log cannot be written.
+	 * @throws MalformedDataException if the data within the campus data
+	 * files are not formatted properly or changes is not a graph log.
+	 * @return The model containing all the necessary info for the application.
+	 */
+	public static Campus loadInfo(File changes) throws IOException, 
+			MalformedDataException {
+		Set<Location> buildings = parseBuildingData();
+		Set<Connection<Location, Double>> paths = parsePathData();
+		connectBuildingsToPaths(buildings, paths);
+		Graph<Location, Double> campus = buildGraph(buildings, paths);
+		return withLog(campus, buildings, changes);
+	}
+	
+	/**
+	 * Loads the campus like loadInfo(changes), but keeps a binary copy of 
+	 * the campus graph, with the buildings already joined to the paths, in
+	 * a cache file. If the cache was built from the current versions of the
+	 * data files the graph is read from the cache instead of parsing and 
+	 * joining them again. The changes in the log are made on top of the 
+	 * graph read from the cache, so the cache never holds them.
+	 * @param changes is the file of the log. It is created if it does not
+	 * exist.
+	 * @param cache is where the binary copy of the campus graph is kept.
+	 * @requires changes and cache are non-null.
+	 * @throws IOException if a data file, the cache or the log cannot be 
+	 * read, or the cache or log cannot be written.
+	 * @throws MalformedDataException if the data within the campus data
+	 * files are not formatted properly, cache is not a graph file or 
+	 * changes is not a graph log.
+	 * @effects Writes the campus graph to cache if the cache is missing or 
+	 * stale.
+	 * @modifies cache
+	 * @return The model containing all the necessary info for the application.
+	 */
+	public static Campus loadInfo(File changes, File cache) 
+			throws IOException, MalformedDataException {
+		long checksum = GraphFile.checksum(BUILDINGS_FILE, PATHS_FILE);
+		IndexedGraph<Location, Double> joined = GraphFile.read(cache, 
+				checksum, Codec.LOCATION, Codec.DOUBLE);
+		if (joined == null) {
+			Set<Location> buildings = parseBuildingData();
+			Set<Connection<Location, Double>> paths = parsePathData();
+			connectBuildingsToPaths(buildings, paths);
+			joined = buildGraph(buildings, paths).freeze();
+			GraphFile.write(joined, cache, checksum, Codec.LOCATION, 
+					Codec.DOUBLE);
+		}
+		
+		// The points along the paths are the locations named after their
+		// coordinates, so every other location is a building.
+		Set<Location> buildings = new HashSet<Location>();
+		Graph.Builder<Location, Double> campus = new Graph.Builder<Location, 
+				Double>(joined.numOfNodes(), joined.numOfEdges());
+		for (int id = 0; id < joined.numOfNodes(); id++) {
+			Location location = joined.nodeOf(id);
+			campus.addNode(location);
+			if (!location.equals(new Location(location.entrance))) {
+				buildings.add(location);
+			}
+		}
+		for (int id = 0; id < joined.numOfNodes(); id++) {
+			for (int e = joined.edgesStart(id); e < joined.edgesEnd(id); 
+					e++) {
+				campus.addConnection(joined.nodeOf(id), joined.nodeOf(
+						joined.target(e)), joined.weight(e));
+			}
+		}
+		return withLog(campus.build(), buildings, changes);
+	}
+	
+	/**
+	 * Makes the changes saved in a log to a campus graph and then creates 
+	 * the campus, adding every later change to the log.
+	 * @param campus is the campus graph.
+	 * @param buildings are the buildings on campus.
+	 * @param changes is the file of the log.
+	 * @requires All parameters are non-null.
+	 * @throws IOException if the log cannot be read or written.
+	 * @throws MalformedDataException if changes is not a graph log.
+	 * @modifies campus, changes
+	 * @return The campus.
+	 */
+	private static Campus withLog(Graph<Location, Double> campus, 
+			Set<Location> buildings, File changes) throws IOException, 
+					MalformedDataException {
+		WriteAheadLog<Location, Double> log = new WriteAheadLog<Location, 
+				Double>(changes, Codec.LOCATION, Codec.DOUBLE);
+		log.replay(campus);
+		log.open();
+		Campus UofW = new Campus(campus, buildings);
+		UofW.addListener(log);
+		return UofW;
+	}
+	
+	/**
+	 * Builds the campus graph from the buildings and the paths between them.
+	 * @param buildings are the buildings on campus.
+	 * @param paths are the paths between buildings and points on campus.
+	 * @requires buildings and paths and their elements are non-null.
+	 * @return A graph with the buildings and paths.
+	 */
+	private static Graph<Location, Double> buildGraph(Set<Location> buildings,
+			Set<Connection<Location, Double>> paths) {
+		Graph.Builder<Location, Double> campus = new Graph.Builder<Location, 
+				Double>(buildings.size() + paths.size() / 2, paths.size());
+		campus.addNodes(buildings);
+		campus.addConnections(paths);
+		return campus.build();
+	}
+	
 	/**
 	 * Parses the data from the buildings file to get the information about 
 	 * the buildings and their entrances.
@@ -72,7 +197,7 @@ public class LoadCampus {
 	 */
 	private static Set<Location> parseBuildingData() throws IOException, 
 											MalformedDataException {
-		File buildings = new File("src/data/campus_buildings.dat");
+		File buildings = BUILDINGS_FILE;
 		
 		// List of all buildings to be added to the graph as nodes.
 		Set<Location> buildingNodes = new HashSet<Location>();
@@ -132,7 +257,7 @@ public class LoadCampus {
 	 */
 	private static Set<Connection<Location, Double>> parsePathData() 
 			throws IOException, MalformedDataException {
-		File paths = new File("src/data/campus_paths.dat");
+		File paths = PATHS_FILE;
 		
 		// Set of paths to be added as connections.
 		Set<Connection<Location, Double>> pathConnections = 
@@ -254,53 +379,53 @@ public class LoadCampus {
 	private static void connectBuildingsToPaths(Set<Location> allBuildings, 
 			Set<Connection<Location, Double>> allPaths) {
 		
+		// Buildings are looked up by their entrance so that each path is 
+		// only looked at once rather than once for every building.
+		Map<Point, List<Location>> byEntrance = 
+				new HashMap<Point, List<Location>>();
+		for (Location building : allBuildings) {
+			List<Location> atEntrance = byEntrance.get(building.entrance);
+			if (atEntrance == null) {
+				atEntrance = new ArrayList<Location>(1);
+				byEntrance.put(building.entrance, atEntrance);
+			}
+			atEntrance.add(building);
+		}
+		
 		// Copying allPaths so when we add we won't get a concurrent 
 		// modification error.
 		Set<Connection<Location, Double>> copiedSet = 
 				new HashSet<Connection<Location, Double>>(allPaths);
 		
-		// Inv: Each building already seen will have connections with all the 
-		// paths that end/start at its location.
-		for (Location building : allBuildings) {
-			for (Connection<Location, Double> path : copiedSet) {
-				Location from = path.getFrom();
-				Location to = path.getTo();
-				
-				// Checking to see if the buildings are connected to one part 
-				// of any of the connections. If it is add a connection between
-				// that building and the beginning of the path and set it's 
-				// cost to zero.
-				if (building.entrance.equals(from.entrance)) {
-					
-					// Create a two connections from this relationship to 
-					// maintain bi-directionality.
-					Connection<Location, Double> con = new Connection
-							<Location, Double>(building, from, 0.0);
-					Connection<Location, Double> reverseCon = new Connection
-							<Location, Double>(from, building, 0.0);
-					
-					// Add them this connection to all the paths.
-					allPaths.add(con);
-					allPaths.add(reverseCon);
-				} else if (building.entrance.equals(to.entrance)) {
-					// Doing the same exact thing except where the connection 
-					// is to so that paths can go to the building.
-					
-					// Create a two connections from this relationship to 
-					// maintain bi-directionality.
-					Connection<Location, Double> con = new Connection
-							<Location, Double>(building, to, 0.0);
-					Connection<Location, Double> reverseCon = new Connection
-							<Location, Double>(to, building, 0.0);
-					
-					// Add them this connection to all the paths.
-					allPaths.add(con);
-					allPaths.add(reverseCon);
+		// Inv: Each path already seen has connections between both of its 
+		// ends and the buildings with an entrance there.
+		for (Connection<Location, Double> path : copiedSet) {
+			Location from = path.getFrom();
+			Location to = path.getTo();
+			
+			// A building at the start of the path is connected to the start
+			// and one only at the end of it is connected to the end, each 
+			// way with a cost of zero to maintain bi-directionality.
+			List<Location> atFrom = byEntrance.get(from.entrance);
+			if (atFrom != null) {
+				for (Location building : atFrom) {
+					allPaths.add(new Connection<Location, Double>(building, 
+							from, 0.0));
+					allPaths.add(new Connection<Location, Double>(from, 
+							building, 0.0));
+				}
+			}
+			List<Location> atTo = byEntrance.get(to.entrance);
+			if (atTo != null && atTo != atFrom) {
+				for (Location building : atTo) {
+					allPaths.add(new Connection<Location, Double>(building, 
+							to, 0.0));
+					allPaths.add(new Connection<Location, Double>(to, 
+							building, 0.0));
 				}
 			}
-		
 		}
-		// Q: All buildings have been seen. All buildings will have connections
+		// Q: All paths have been seen. All buildings will have connections
 		// with all the paths that end/start at its location.
 	}
 }
@@ -1,5 +1,6 @@
 package controller;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -8,6 +9,7 @@ import java.util.Map;
 import java.util.Set;
 
 import model.Graph;
+import model.IndexedGraph;
 import exception.MalformedDataException;
 
 /**
@@ -37,8 +39,9 @@ public class LoadGraph {
 		Map<String, List<String>> labelsToNodes = 
 				new HashMap<String, List<String>>();
 		filename = FILE_PREFIX + filename;
-		Graph<String, Double> loadedGraph = new Graph<String, Double>();
 		FileParser.parseData(filename, allNodes, labelsToNodes);
+		Graph.Builder<String, Double> loadedGraph = 
+				new Graph.Builder<String, Double>(allNodes.size(), 0);
 		loadedGraph.addNodes(allNodes);
 		
 		// This is a map which maps characters to a map. The value map then 
@@ -130,8 +133,8 @@ public class LoadGraph {
 				
 				// Get edge weight from number of connections between the two
 				// nodes.
-				Double numOfConnections = (double) nodeMap.get(nodeTo);
-				Double edgeWeight = 1 / numOfConnections;
+				double numOfConnections = nodeMap.get(nodeTo);
+				double edgeWeight = 1 / numOfConnections;
 				
 				// Add the connection between the two nodes.
 				loadedGraph.addConnection(nodeFrom, nodeTo, edgeWeight);
@@ -143,8 +146,72 @@ public class LoadGraph {
 		// connection have been added.
 		
 		// All the individual nodes were added to the graph at the very start.
-		// Now all connections have been added so we just return the graph.
-		return loadedGraph;
+		// Now all connections have been added so we just build the graph.
+		return loadedGraph.build();
+	}
+	
+	/**
+	 * Loads the same graph as loadWeightedGraph(filename), but keeps a 
+	 * binary copy of it in a cache file. If the cache was built from the
+	 * current version of the data file the graph is mapped from the cache
+	 * instead of being built again.
+	 * @param filename is the name of the file in the directory src/data
+	 * @param cache is where the binary copy of the graph is kept.
+	 * @requires The file must be a properly formatted tsv file.
+	 * @return A frozen copy of the loaded graph.
+	 * @throws MalformedDataException if the file is not well-formed or the
+	 * cache is not a graph file.
+	 * @throws IOException if the file name given does not exist or the cache
+	 * cannot be written.
+	 * @effects Writes the graph to cache if the cache is missing or stale.
+	 * @modifies cache
+	 */
+	public static IndexedGraph<String, Double> loadWeightedGraph(
+			String filename, File cache) throws MalformedDataException, 
+					IOException {
+		long checksum = GraphFile.checksum(new File(FILE_PREFIX + filename));
+		IndexedGraph<String, Double> cached = GraphFile.read(cache, checksum,
+				Codec.STRING, Codec.DOUBLE);
+		if (cached != null) {
+			return cached;
+		}
+		IndexedGraph<String, Double> graph = 
+				loadWeightedGraph(filename).freeze();
+		GraphFile.write(graph, cache, checksum, Codec.STRING, Codec.DOUBLE);
+		return graph;
+	}
+	
+	/**
+	 * Picks landmarks of a graph loaded from a file in src/data, keeping 
+	 * their tables in a cache file. If the cache was worked out from the 
+	 * current version of the data file for as many landmarks the tables are
+	 * read from the cache instead of being worked out again.
+	 * @param filename is the name of the file in the directory src/data which
+	 * the graph was loaded from.
+	 * @param graph is the graph loaded from the file by loadWeightedGraph.
+	 * @param numOfLandmarks is the number of landmarks to pick.
+	 * @param cache is where the tables of the landmarks are kept.
+	 * @requires filename, graph and cache are non-null, numOfLandmarks > 0
+	 * @return The landmarks of graph.
+	 * @throws MalformedDataException if the cache is not a landmark file.
+	 * @throws IOException if the file name given does not exist or the cache
+	 * cannot be written.
+	 * @effects Writes the tables to cache if the cache is missing or stale.
+	 * @modifies cache
+	 */
+	public static Landmarks<String> loadLandmarks(String filename, 
+			IndexedGraph<String, Double> graph, int numOfLandmarks, 
+					File cache) throws MalformedDataException, IOException {
+		long checksum = GraphFile.checksum(new File(FILE_PREFIX + filename));
+		Landmarks<String> cached = Landmarks.read(graph, cache, checksum, 
+				numOfLandmarks);
+		if (cached != null) {
+			return cached;
+		}
+		Landmarks<String> landmarks = new Landmarks<String>(graph, 
+				numOfLandmarks);
+		landmarks.write(cache, checksum);
+		return landmarks;
 	}
 	
 }
@@ -0,0 +1,187 @@
+package controller;
+
+import java.util.Arrays;
+
+/**
+ * The working state of a shortest path search over the ids of an indexed
+ * graph: the weight of the best path found to each node, the node before
+ * it on that path, which nodes are finished and the queue of nodes still to
+ * search. A context is kept and reused from one search to the next instead
+ * of being allocated for every search. The arrays are only ever made larger,
+ * and each entry is stamped with the search which wrote it, so starting a
+ * new search does not have to clear them. A context must only be used by
+ * one search at a time; DijkstrasAlgorithm keeps one for each thread.
+ * @author L. James Davidson
+ */
+public final class SearchContext {
+
+	// AF: The current search has reached the node with id i if
+	// reached[i] == epoch, in which case pathWeight[i] is the weight of the
+	// best path to it so far and prevNode[i] is the id of the node before
+	// it on that path, or -1 if it is the start. The node is finished if
+	// finished[i] == epoch. active holds the nodes still to search, and
+	// numOfFinished is the number of nodes the search has finished.
+
+	// RI: reached.length == finished.length == pathWeight.length
+	// == prevNode.length, active != null, epoch >= 1,
+	// every stamp in reached and finished is <= epoch
+
+	private int[] reached;
+	private int[] finished;
+	private double[] pathWeight;
+	private int[] prevNode;
+	private IndexedHeap active;
+	private int epoch;
+	private int numOfFinished;
+
+	/**
+	 * Creates a context which grows to fit the first graph it searches.
+	 * @effects Creates an empty context.
+	 */
+	public SearchContext() {
+		this(0);
+	}
+
+	/**
+	 * Creates a context with room for a graph of a certain size.
+	 * @param expectedNodes is the number of node ids of the graphs which
+	 * will be searched.
+	 * @requires expectedNodes >= 0
+	 * @effects Creates an empty context.
+	 */
+	public SearchContext(int expectedNodes) {
+		this.allocate(expectedNodes);
+		this.epoch = 1;
+		this.checkRep();
+	}
+
+	/**
+	 * Starts a new search, forgetting everything about the last one. This
+	 * only takes time for the nodes left in the queue by the last search,
+	 * unless the graph has more nodes than this context has room for.
+	 * @param numOfNodes is the number of node ids of the graph to search.
+	 * @requires numOfNodes >= 0
+	 * @effects Makes every node unreached and unfinished and empties the
+	 * queue.
+	 * @modifies this
+	 */
+	void begin(int numOfNodes) {
+		if (numOfNodes > this.reached.length) {
+			this.allocate(Math.max(numOfNodes, 2 * this.reached.length));
+		} else {
+			this.active.clear();
+		}
+		this.epoch++;
+		if (this.epoch == Integer.MAX_VALUE) {
+			// The stamps would wrap around, so they are cleared instead.
+			Arrays.fill(this.reached, 0);
+			Arrays.fill(this.finished, 0);
+			this.epoch = 1;
+		}
+		this.numOfFinished = 0;
+	}
+
+	/**
+	 * Counts how much work the last search did, for comparing ways of 
+	 * searching.
+	 * @return The number of nodes the last search with this context found
+	 * the best path to before it stopped.
+	 */
+	public int numOfFinished() {
+		return this.numOfFinished;
+	}
+
+	/**
+	 * @param id of a node.
+	 * @return True if a path to the node has been found by this search.
+	 */
+	boolean isReached(int id) {
+		return this.reached[id] == this.epoch;
+	}
+
+	/**
+	 * @param id of a node.
+	 * @return The weight of the best path found to the node, or infinity if
+	 * it has not been reached.
+	 */
+	double pathWeight(int id) {
+		if (this.reached[id] != this.epoch) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return this.pathWeight[id];
+	}
+
+	/**
+	 * @param id of a node which has been reached.
+	 * @return The id of the node before it on its best path, or -1 if it is
+	 * where the search started.
+	 */
+	int prevNode(int id) {
+		return this.prevNode[id];
+	}
+
+	/**
+	 * Records a better path to a node.
+	 * @param id of the node.
+	 * @param weight of the path.
+	 * @param prev is the id of the node before it on the path, or -1 if it
+	 * is where the search started.
+	 * @modifies this
+	 */
+	void reach(int id, double weight, int prev) {
+		this.reached[id] = this.epoch;
+		this.pathWeight[id] = weight;
+		this.prevNode[id] = prev;
+	}
+
+	/**
+	 * @param id of a node.
+	 * @return True if the best path to the node is known.
+	 */
+	boolean isFinished(int id) {
+		return this.finished[id] == this.epoch;
+	}
+
+	/**
+	 * Marks a node as finished.
+	 * @param id of the node.
+	 * @modifies this
+	 */
+	void finish(int id) {
+		this.finished[id] = this.epoch;
+		this.numOfFinished++;
+	}
+
+	/**
+	 * @return The queue of nodes still to search, which is empty when a
+	 * search begins.
+	 */
+	IndexedHeap active() {
+		return this.active;
+	}
+
+	/**
+	 * Replaces the arrays with new ones for a number of nodes.
+	 * @param capacity is the number of nodes to make room for.
+	 * @modifies this
+	 */
+	private void allocate(int capacity) {
+		this.reached = new int[capacity];
+		this.finished = new int[capacity];
+		this.pathWeight = new double[capacity];
+		this.prevNode = new int[capacity];
+		this.active = new IndexedHeap(capacity);
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.reached.length == this.finished.length
+				&& this.reached.length == this.pathWeight.length
+				&& this.reached.length == this.prevNode.length) : "Every node "
+				+ "needs a stamp, a weight and a previous node.";
+		assert (this.active != null) : "The queue cannot be null.";
+		assert (this.epoch >= 1) : "The first search is search 1.";
+	}
+}
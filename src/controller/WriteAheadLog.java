@@ -0,0 +1,398 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+import exception.MalformedDataException;
+import model.Graph;
+import model.GraphEvent;
+import model.GraphListener;
+
+/**
+ * An append-only binary log of the changes made to a graph. Once attached to
+ * a graph every change is written to the end of the log before the graph
+ * makes it, and replaying the log into a graph at startup makes the same
+ * changes again, so edits do not have to be saved by writing out the whole
+ * graph. A change which cannot be written is not made, and after a write to
+ * the file fails the log takes no more changes, so the graph never holds a
+ * change the log does not.
+ * <p>
+ * The log starts with a header of a magic number and format version. Each
+ * change is then one record: the length of the body, the body (the kind of
+ * change followed by its nodes and label) and a CRC32 of the body. A record
+ * which was only partly written, for example because the program stopped
+ * while writing it, is dropped by replay along with anything after it, and
+ * so is a header which was only partly written.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public class WriteAheadLog<T extends Comparable<T>, N extends Comparable<N>>
+		implements GraphListener<T, N>, Closeable {
+
+	// AF: The log is the file, which holds the records of every change
+	// passed to graphChanging since the file was created. fileOut writes to
+	// the end of the file once the log has been opened for writing, and
+	// length is the length of the file up to the end of its last whole
+	// record. failure is the error which stopped the log taking changes, or
+	// null if no write has failed.
+
+	// RI: file != null, nodeCodec != null, labelCodec != null,
+	// body != null, bodyData writes to body, length >= 0
+
+	private static final int MAGIC = 0x4757414C;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_LENGTH = 8;
+
+	private final File file;
+	private final Codec<T> nodeCodec;
+	private final Codec<N> labelCodec;
+	private final ByteArrayOutputStream body;
+	private final DataOutputStream bodyData;
+	private FileOutputStream fileOut;
+	private long length;
+	private IOException failure;
+
+	/**
+	 * Creates a log kept in a file. Nothing is read or written until the log
+	 * is replayed or attached.
+	 * @param file is where the log is kept. It is created if it does not
+	 * exist.
+	 * @param nodeCodec writes the nodes.
+	 * @param labelCodec writes the labels.
+	 * @requires All parameters are non-null.
+	 * @effects Creates a log.
+	 */
+	public WriteAheadLog(File file, Codec<T> nodeCodec, Codec<N> labelCodec) {
+		this.file = file;
+		this.nodeCodec = nodeCodec;
+		this.labelCodec = labelCodec;
+		this.body = new ByteArrayOutputStream();
+		this.bodyData = new DataOutputStream(this.body);
+		this.checkRep();
+	}
+
+	/**
+	 * Replays the log into a graph and then writes every later change made
+	 * to the graph to the end of the log.
+	 * @param graph is the graph to bring up to date and then log.
+	 * @requires graph is non-null and this log is not attached to a graph.
+	 * @throws IOException if the log cannot be read or written.
+	 * @throws MalformedDataException if the file is not a graph log.
+	 * @effects Makes the changes in the log to graph and adds this as a
+	 * listener of graph.
+	 * @modifies graph, the file of this log.
+	 * @return The number of changes replayed.
+	 */
+	public int attach(Graph<T, N> graph) throws IOException,
+			MalformedDataException {
+		int replayed = this.replay(graph);
+		this.open();
+		graph.addListener(this);
+		return replayed;
+	}
+
+	/**
+	 * Makes the changes in the log to a graph, in the order they were
+	 * logged. A partly written record at the end of the log is cut off. A
+	 * damaged record with more records after it cannot have been left by 
+	 * stopping part way through a write, so the file is left as it is.
+	 * @param graph is the graph the changes are made to.
+	 * @requires graph is non-null and this log is not listening to it.
+	 * @throws IOException if the log cannot be read.
+	 * @throws MalformedDataException if the file is not a graph log or a 
+	 * record before the last one is damaged. The changes before the damaged
+	 * record have been made to graph.
+	 * @effects Makes the logged changes to graph.
+	 * @modifies graph, the file of this log.
+	 * @return The number of changes replayed.
+	 */
+	public int replay(Graph<T, N> graph) throws IOException,
+			MalformedDataException {
+		if (!this.file.exists() || this.file.length() == 0) {
+			return 0;
+		}
+		long fileLength = this.file.length();
+		if (fileLength < HEADER_LENGTH) {
+			// The program stopped while the file was being created.
+			byte[] start = Files.readAllBytes(this.file.toPath());
+			byte[] header = header();
+			for (int i = 0; i < start.length; i++) {
+				if (start[i] != header[i]) {
+					throw new MalformedDataException(this.file
+							+ " is not a graph log.");
+				}
+			}
+			this.cutOff(0);
+			return 0;
+		}
+		long good = HEADER_LENGTH;
+		int replayed = 0;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(this.file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new MalformedDataException(this.file
+						+ " is not a graph log.");
+			}
+			CRC32 crc = new CRC32();
+			// Inv: Every record before the byte at good has been replayed.
+			while (good < fileLength) {
+				byte[] record = this.readRecord(in, fileLength - good, crc);
+				if (record == null) {
+					break;
+				}
+				graph.apply(this.decode(record));
+				good += record.length + 8;
+				replayed++;
+			}
+		} finally {
+			in.close();
+		}
+		if (good < fileLength) {
+			this.cutOff(good);
+		}
+		return replayed;
+	}
+
+	/**
+	 * Writes a change to the end of the log before the graph makes it. The
+	 * whole record is written at once. If writing it fails, whatever part of
+	 * it reached the file is cut off and the log takes no more changes.
+	 * @throws UncheckedIOException if the change cannot be written, if an
+	 * earlier change could not be written or if the log is closed, which
+	 * stops the graph making the change.
+	 */
+	@Override
+	public void graphChanging(GraphEvent<T, N> event) {
+		if (this.failure != null) {
+			throw new UncheckedIOException("The log takes no more changes "
+					+ "since a write to it failed.", this.failure);
+		}
+		if (this.fileOut == null) {
+			throw new UncheckedIOException(new IOException("The log is "
+					+ "closed."));
+		}
+		byte[] record;
+		try {
+			this.body.reset();
+			this.encode(event);
+			CRC32 crc = new CRC32();
+			crc.update(this.body.toByteArray());
+			record = ByteBuffer.allocate(this.body.size() + 8)
+					.putInt(this.body.size()).put(this.body.toByteArray())
+					.putInt((int) crc.getValue()).array();
+		} catch (IOException e) {
+			// Nothing has been written, so the log can take later changes.
+			throw new UncheckedIOException("Could not write the change.", e);
+		}
+		try {
+			this.fileOut.write(record);
+			this.length += record.length;
+		} catch (IOException e) {
+			this.failure = e;
+			try {
+				this.fileOut.getChannel().truncate(this.length);
+			} catch (IOException ignored) {
+				// Replay drops the torn record, and nothing is written
+				// after it.
+			}
+			throw new UncheckedIOException("Could not write to the log.", e);
+		}
+	}
+
+	/**
+	 * Does nothing, since changes are written before they are made.
+	 */
+	@Override
+	public void graphChanged(GraphEvent<T, N> event) {
+	}
+
+	/**
+	 * Forces every change written so far onto the disk.
+	 * @requires This log has been attached to a graph.
+	 * @throws IOException if the changes cannot be forced to the disk.
+	 */
+	public void sync() throws IOException {
+		this.fileOut.getChannel().force(false);
+	}
+
+	/**
+	 * Closes the file of this log. The log should be removed as a listener
+	 * of any graph it was attached to before it is closed, since it stops
+	 * every change to the graph once closed.
+	 * @throws IOException if the file cannot be closed.
+	 */
+	public void close() throws IOException {
+		if (this.fileOut != null) {
+			this.fileOut.close();
+			this.fileOut = null;
+		}
+	}
+
+	/**
+	 * Opens the file so that changes passed to graphChanging are written to
+	 * it, writing the header if the file is new. attach does this itself; 
+	 * it is only needed when this log listens to something other than a 
+	 * Graph, such as a Campus.
+	 * @requires The log has been replayed if the file already exists.
+	 * @throws IOException if the file cannot be opened.
+	 * @effects Opens the file for appending.
+	 * @modifies the file of this log.
+	 */
+	public void open() throws IOException {
+		boolean isNew = !this.file.exists() || this.file.length() == 0;
+		this.fileOut = new FileOutputStream(this.file, true);
+		if (isNew) {
+			this.fileOut.write(header());
+		}
+		this.length = this.fileOut.getChannel().size();
+		this.failure = null;
+	}
+
+	/**
+	 * @return The header every log starts with.
+	 */
+	private static byte[] header() {
+		return ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC)
+				.putInt(FORMAT_VERSION).array();
+	}
+
+	/**
+	 * Cuts the file off after its whole records.
+	 * @param good is the length of the file up to the end of its last
+	 * whole record.
+	 * @throws IOException if the file cannot be cut.
+	 * @modifies the file of this log.
+	 */
+	private void cutOff(long good) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+		try {
+			raf.setLength(good);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Reads the body of the next record, checking it against its CRC.
+	 * @param in is positioned at the start of a record.
+	 * @param remaining is the number of bytes left in the file.
+	 * @param crc is used to check the body.
+	 * @throws MalformedDataException if the record is damaged and is not 
+	 * the last one in the file.
+	 * @return The body or null if the record is the last one in the file and
+	 * was only partly written: it runs past the end of the file or does not
+	 * match its CRC.
+	 */
+	private byte[] readRecord(DataInputStream in, long remaining, CRC32 crc) 
+			throws IOException, MalformedDataException {
+		if (remaining < 4) {
+			return null;
+		}
+		int length = in.readInt();
+		if (length > remaining - 8) {
+			return null;
+		}
+		if (length < 1) {
+			throw new MalformedDataException("A record in " + this.file 
+					+ " has length " + length + ".");
+		}
+		byte[] record = new byte[length];
+		in.readFully(record);
+		int expected = in.readInt();
+		crc.reset();
+		crc.update(record);
+		if ((int) crc.getValue() != expected) {
+			if (length == remaining - 8) {
+				return null;
+			}
+			throw new MalformedDataException("A record in " + this.file 
+					+ " does not match its CRC, and is followed by others.");
+		}
+		return record;
+	}
+
+	/**
+	 * Writes an event to body.
+	 * @param event is the event to write.
+	 * @throws IOException if a node or label cannot be written.
+	 */
+	private void encode(GraphEvent<T, N> event) throws IOException {
+		this.bodyData.writeByte(event.getType().ordinal());
+		switch (event.getType()) {
+		case NODE_ADDED:
+		case NODE_REMOVED:
+			this.nodeCodec.write(this.bodyData, event.getFrom());
+			break;
+		case CONNECTION_ADDED:
+		case CONNECTION_REMOVED:
+			this.nodeCodec.write(this.bodyData, event.getFrom());
+			this.nodeCodec.write(this.bodyData, event.getTo());
+			this.labelCodec.write(this.bodyData, event.getLabel());
+			break;
+		default:
+			break;
+		}
+		this.bodyData.flush();
+	}
+
+	/**
+	 * Reads an event from the body of a record.
+	 * @param record is the body of a record.
+	 * @throws MalformedDataException if the record is not an event.
+	 * @throws IOException if a node or label cannot be read.
+	 * @return The event.
+	 */
+	private GraphEvent<T, N> decode(byte[] record) throws IOException,
+			MalformedDataException {
+		DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(record));
+		int type = in.readByte();
+		GraphEvent.Type[] types = GraphEvent.Type.values();
+		if (type < 0 || type >= types.length) {
+			throw new MalformedDataException("Unknown change in " + this.file
+					+ ": " + type);
+		}
+		switch (types[type]) {
+		case NODE_ADDED:
+			return GraphEvent.nodeAdded(this.nodeCodec.read(in));
+		case NODE_REMOVED:
+			return GraphEvent.nodeRemoved(this.nodeCodec.read(in));
+		case CONNECTION_ADDED:
+			return GraphEvent.connectionAdded(this.nodeCodec.read(in),
+					this.nodeCodec.read(in), this.labelCodec.read(in));
+		case CONNECTION_REMOVED:
+			return GraphEvent.connectionRemoved(this.nodeCodec.read(in),
+					this.nodeCodec.read(in), this.labelCodec.read(in));
+		default:
+			return GraphEvent.cleared();
+		}
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.file != null) : "The file cannot be null.";
+		assert (this.nodeCodec != null && this.labelCodec != null) : "The "
+				+ "codecs cannot be null.";
+		assert (this.body != null && this.bodyData != null) : "The record "
+				+ "buffer cannot be null.";
+		assert (this.length >= 0) : "The length cannot be negative.";
+	}
+}
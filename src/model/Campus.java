@@ -1,13 +1,18 @@
 package model;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.ToDoubleBiFunction;
 
+import controller.ContractionHierarchy;
 import controller.DijkstrasAlgorithm;
+import model.ConcurrentGraph;
 import model.Connection;
 import model.Graph;
+import model.GraphListener;
 import model.Node;
 
 /**
@@ -16,14 +21,45 @@ import model.Node;
  * @author L. James Davidson
  */
 public class Campus {
+
+	/**
+	 * The ways a route can be found. They all find a route of the same 
+	 * length.
+	 */
+	public enum Routing {
+		/** 
+		 * Query a contraction hierarchy of the paths, which is built when 
+		 * the campus is made and again each time the paths change.
+		 */
+		CONTRACTION_HIERARCHY,
+		/** 
+		 * Search with A*, using the straight line distance between 
+		 * entrances as the estimate of the rest of the route. 
+		 */
+		STRAIGHT_LINE,
+		/** Search outwards from the start with no estimate. */
+		PLAIN
+	}
+
 	// AF: The graph, campus, must be non-null as well as the set of buildings
 	// in the campus. There should also be at least one building otherwise it 
-	// makes no sense to attempt to find a path between no buildings.
+	// makes no sense to attempt to find a path between no buildings. Paths 
+	// can be opened and closed while routes are being found on other 
+	// threads, each route is found on one snapshot of the paths. index is
+	// the latest snapshot along with its contraction hierarchy and straight
+	// line estimate.
 	
-	// RI: campus != null, buildings != null, buildings.size() > 1
+	// RI: campus != null, buildings != null, buildings.size() > 1,
+	// writeLock != null, index != null
 	
-	private Graph<Location, Double> campusGraph;
+	// Paths are only opened or closed while holding writeLock, and index is
+	// replaced only once the hierarchy of the new snapshot is built, so 
+	// every route found on a snapshot is found the same way.
+
+	private ConcurrentGraph<Location, Double> campusGraph;
 	private Set<Location> buildings;
+	private final Object writeLock;
+	private volatile PathIndex index;
 	
 	/**
 	 * Creates a model of data of a campus.
@@ -31,12 +67,14 @@ public class Campus {
 	 * @param buildings is the set of buildings on this campus.
 	 * @requires campusGraph and buildings are both non-null. All the elements 
 	 * in buildings are also non-null.
-	 * @effects Creates a new campus object.
+	 * @effects Creates a new campus object with a copy of campusGraph.
 	 */
 	public Campus(Graph<Location, Double> campusGraph, 
 			Set<Location> buildings) {
-		this.campusGraph = campusGraph;
+		this.campusGraph = new ConcurrentGraph<Location, Double>(campusGraph);
 		this.buildings = buildings;
+		this.writeLock = new Object();
+		this.index = new PathIndex(this.campusGraph.snapshot());
 		this.checkRep();
 	}
 	
@@ -81,7 +119,66 @@ public class Campus {
 	}
 	
 	/**
-	 * Finds the shortest route between two buildings on campus.
+	 * Opens a path between two points on campus. This is safe to call while
+	 * other threads are finding routes, which keep using the old paths until
+	 * their contraction hierarchy has been rebuilt.
+	 * @param from is the location the path starts at.
+	 * @param to is the location the path ends at.
+	 * @param length of the path in feet.
+	 * @requires from and to are non-null.
+	 * @effects Adds the path to the campus.
+	 * @modifies this
+	 * @return True if the path was not already open.
+	 */
+	public boolean openPath(Location from, Location to, double length) {
+		synchronized (this.writeLock) {
+			try {
+				return this.campusGraph.addConnection(from, to, length);
+			} finally {
+				this.publish();
+			}
+		}
+	}
+
+	/**
+	 * Closes a path between two points on campus. This is safe to call while
+	 * other threads are finding routes, which keep using the old paths until
+	 * their contraction hierarchy has been rebuilt.
+	 * @param from is the location the path starts at.
+	 * @param to is the location the path ends at.
+	 * @param length of the path in feet.
+	 * @requires from and to are non-null.
+	 * @effects Removes the path from the campus.
+	 * @modifies this
+	 * @return True if the path was open.
+	 */
+	public boolean closePath(Location from, Location to, double length) {
+		synchronized (this.writeLock) {
+			try {
+				return this.campusGraph.removeConnection(from, to, length);
+			} finally {
+				this.publish();
+			}
+		}
+	}
+
+	/**
+	 * Adds a listener which is told about every path opened or closed from 
+	 * now on, for example a log which saves the changes. A log which cannot
+	 * save a change stops it, and its exception is passed on to the caller
+	 * of openPath or closePath.
+	 * @param listener is the listener to add.
+	 * @requires listener is non-null.
+	 * @effects The listener is told about later changes to the paths.
+	 * @modifies this
+	 */
+	public void addListener(GraphListener<Location, Double> listener) {
+		this.campusGraph.addListener(listener);
+	}
+
+	/**
+	 * Finds the shortest route between two buildings on campus. This can be
+	 * called from many threads at once.
 	 * @param from is the building that you are going from.
 	 * @param to is the building you are going to
 	 * @param directions is a list of strings which must be empty.
@@ -96,9 +193,42 @@ public class Campus {
 	 */
 	public List<Connection<Location, Double>> shortestRouteFromTo
 			(Location from, Location to, List<String> directions) {
+		return this.shortestRouteFromTo(from, to, directions, 
+				Routing.CONTRACTION_HIERARCHY);
+	}
+	
+	/**
+	 * Finds the shortest route between two buildings on campus in a certain
+	 * way. Every way finds a route of the same length, but querying the 
+	 * contraction hierarchy looks at the fewest places, and
+	 * A* looks at far fewer than a plain search.
+	 * @param from is the building that you are going from.
+	 * @param to is the building you are going to
+	 * @param directions is a list of strings which must be empty.
+	 * @param routing is the way to find the route.
+	 * @requires from, to and routing are non-null, and from and to both need
+	 * to be valid buildings in this campus. directions must also be empty. 
+	 * There must be a valid path between the two locations in this campus.
+	 * @effects Adds all the directions of each step to the list parameter.
+	 * @modifies The list parameter, directions.
+	 * @return A list of connections which in order describes the paths needed
+	 * to take to find the shortest path.
+	 */
+	public List<Connection<Location, Double>> shortestRouteFromTo
+			(Location from, Location to, List<String> directions, 
+					Routing routing) {
 		
-		List<Node<Location>> route = DijkstrasAlgorithm.
-				findShortestweightedPath(from, to, this.campusGraph);
+		PathIndex index = this.index;
+		List<Node<Location>> route;
+		if (routing == Routing.CONTRACTION_HIERARCHY) {
+			route = index.hierarchy.findShortestweightedPath(from, to);
+		} else if (routing == Routing.STRAIGHT_LINE) {
+			route = DijkstrasAlgorithm.findShortestweightedPath(from, to, 
+					index.paths, index.straightLine);
+		} else {
+			route = DijkstrasAlgorithm.findShortestweightedPath(from, to, 
+					index.paths);
+		}
 		int size = route.size();
 		List<Connection<Location, Double>> result = 
 				new ArrayList<Connection<Location, Double>>(size - 1);
@@ -134,6 +264,101 @@ public class Campus {
 		return result;
 	}
 	
+	/**
+	 * Makes the latest snapshot of the paths the one routes are found on, 
+	 * building its contraction hierarchy first if the paths have changed.
+	 * @requires The caller holds writeLock.
+	 * @effects Makes the current paths visible to routes found from now on.
+	 * @modifies this
+	 */
+	private void publish() {
+		CompactGraph<Location, Double> paths = this.campusGraph.snapshot();
+		if (paths != this.index.paths) {
+			this.index = new PathIndex(paths);
+		}
+		this.checkRep();
+	}
+	
+	/**
+	 * A snapshot of the paths along with everything built from it to find 
+	 * routes on it.
+	 */
+	private static final class PathIndex {
+		
+		private final CompactGraph<Location, Double> paths;
+		private final ContractionHierarchy<Location> hierarchy;
+		private final StraightLine straightLine;
+		
+		/**
+		 * Builds the contraction hierarchy and straight line estimate of a 
+		 * snapshot of the paths.
+		 * @param paths is the snapshot.
+		 * @requires paths is non-null.
+		 * @effects Creates the index of paths.
+		 */
+		PathIndex(CompactGraph<Location, Double> paths) {
+			this.paths = paths;
+			this.hierarchy = new ContractionHierarchy<Location>(paths);
+			this.straightLine = new StraightLine(paths);
+		}
+	}
+	
+	/**
+	 * Estimates the length of the route between two places as the straight 
+	 * line distance between their entrances. Lengths are in feet but 
+	 * entrances are in pixels of the map, so the distance is multiplied by a
+	 * scale. The scale is the smallest ratio of the length of a path to the 
+	 * distance between its ends, which makes the estimate consistent: no path
+	 * is shorter than the estimate says, so no route is either. A path which
+	 * is 0 ft long between two different points makes the scale 0, and the
+	 * search is then no different from one without an estimate.
+	 */
+	private static final class StraightLine 
+			implements ToDoubleBiFunction<Location, Location> {
+		
+		// Rounding could make a sum of estimates come out slightly more than 
+		// the length of a route, so the scale is made slightly smaller.
+		private static final double ROUNDING = 1 - 1e-9;
+		
+		private final double scale;
+		
+		/**
+		 * Works out the scale for a snapshot of the paths.
+		 * @param paths is the snapshot.
+		 * @requires paths is non-null.
+		 * @effects Creates the estimate for routes on paths.
+		 */
+		StraightLine(CompactGraph<Location, Double> paths) {
+			double scale = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < paths.numOfNodes(); i++) {
+				Point from = paths.nodeOf(i).entrance;
+				int end = paths.edgesEnd(i);
+				for (int e = paths.edgesStart(i); e < end; e++) {
+					double distance = distance(from, 
+							paths.nodeOf(paths.target(e)).entrance);
+					if (distance > 0) {
+						scale = Math.min(scale, paths.weight(e) / distance);
+					}
+				}
+			}
+			this.scale = Double.isInfinite(scale) ? 0 : scale * ROUNDING;
+		}
+		
+		@Override
+		public double applyAsDouble(Location from, Location to) {
+			return this.scale * distance(from.entrance, to.entrance);
+		}
+		
+		/**
+		 * @return The straight line distance between two points.
+		 */
+		private static double distance(Point from, Point to) {
+			double run = to.getX() - from.getX();
+			double rise = to.getY() - from.getY();
+			return Math.sqrt(run * run + rise * rise);
+		}
+	}
+	
 	/**
 	 * Determines the cardinal or intermediate direction between two points.
 	 * @param from is the point from which the path starts.
@@ -197,11 +422,30 @@ public class Campus {
 	 * buildings and the campus.
 	 */
 	public String toString() {
-		String result = this.campusGraph.toString();
+		StringBuilder result = new StringBuilder();
+		try {
+			this.writeTo(result);
+		} catch (IOException e) {
+			// A StringBuilder never throws an IOException.
+			throw new AssertionError(e);
+		}
+		return result.toString();
+	}
+	
+	/**
+	 * Writes the string representation of this model to out as it is made,
+	 * rather than building the whole string first.
+	 * @param out is where the string representation is written.
+	 * @requires out is non-null.
+	 * @throws IOException if out cannot be written to.
+	 * @effects Appends toString() to out.
+	 * @modifies out
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		this.campusGraph.writeTo(out);
 		for (Location loc : this.buildings) {
-			result += '\n' + loc.toString();
+			out.append('\n').append(loc.toString());
 		}
-		return result;
 	}
 	
 	/**
@@ -213,5 +457,7 @@ public class Campus {
 		assert (this.buildings != null) : "Buildings cannot be null.";
 		assert (this.buildings.size() > 0) : "There must be at least one "
 				+ "building on the campus.";
+		assert (this.writeLock != null) : "The lock cannot be null.";
+		assert (this.index != null) : "The index cannot be null.";
 	}
 }
@@ -0,0 +1,360 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of a graph stored in compressed sparse row (CSR) form.
+ * Every node is given an integer id, and the connections leaving a node are
+ * stored next to each other in primitive arrays so that searches can walk
+ * them without creating any objects.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public class CompactGraph<T extends Comparable<T>, N extends Comparable<N>>
+		implements IndexedGraph<T, N> {
+
+	// AF: The node with id i is nodes[i] and the label with id l is
+	// labelValues[l]. The connections leaving node i are the edges 
+	// offsets[i] up to but not including offsets[i + 1]. Edge e goes to the 
+	// node with id targets[e] and has the label with id labels[e]. If the
+	// labels are numbers then weights[e] is the label of edge e as a double,
+	// otherwise weights is null. reverse is null until the edges grouped by
+	// the node they go to are first asked for.
+
+	// RI: nodes != null, ids != null, offsets != null, targets != null,
+	// labels != null, labelValues != null, 
+	// offsets.length == nodes.length + 1, offsets[0] == 0,
+	// offsets[nodes.length] == targets.length == labels.length,
+	// offsets is non-decreasing, 0 <= targets[e] < nodes.length,
+	// 0 <= labels[e] < labelValues.length,
+	// weights == null || weights.length == labels.length,
+	// nodes and labelValues are sorted, ids.get(nodes[i]) == i,
+	// the edges of a node are sorted by target and then by label.
+
+	private final T[] nodes;
+	private final Map<T, Integer> ids;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] labels;
+	private final N[] labelValues;
+	private final double[] weights;
+	private volatile ReverseEdges reverse;
+
+	/**
+	 * Lays out the nodes and connections of a version of a graph in CSR 
+	 * form. Ids are given out in the natural order of the nodes and labels 
+	 * so that comparing two ids gives the same answer as comparing the two 
+	 * values.
+	 * @param graph is the version to take a snapshot of.
+	 * @requires graph is non-null.
+	 * @effects Creates a snapshot of the nodes and connections in graph.
+	 */
+	@SuppressWarnings("unchecked")
+	CompactGraph(GraphVersion<T, N> graph) {
+		int bound = graph.idBound();
+		int size = graph.numOfNodes();
+		this.nodes = (T[]) new Comparable<?>[size];
+		int next = 0;
+		for (int id = 0; id < bound; id++) {
+			if (graph.outgoing(id) != null) {
+				this.nodes[next++] = graph.nodeOf(id);
+			}
+		}
+		Arrays.sort(this.nodes);
+		this.ids = new HashMap<T, Integer>(2 * size);
+		for (int i = 0; i < size; i++) {
+			this.ids.put(this.nodes[i], i);
+		}
+		
+		// Map the graph's ids, which are in the order the nodes and labels 
+		// were first added, to the ids used here.
+		int[] nodeRemap = new int[bound];
+		int[] graphIds = new int[size];
+		for (int id = 0; id < bound; id++) {
+			if (graph.outgoing(id) != null) {
+				nodeRemap[id] = this.ids.get(graph.nodeOf(id));
+				graphIds[nodeRemap[id]] = id;
+			}
+		}
+		boolean[] used = new boolean[graph.labelBound()];
+		int numOfLabels = 0;
+		for (int id = 0; id < bound; id++) {
+			EdgeSet out = graph.outgoing(id);
+			for (int i = 0; out != null && i < out.capacity(); i++) {
+				long edge = out.slot(i);
+				if (edge != EdgeSet.EMPTY && !used[EdgeSet.label(edge)]) {
+					used[EdgeSet.label(edge)] = true;
+					numOfLabels++;
+				}
+			}
+		}
+		this.labelValues = (N[]) new Comparable<?>[numOfLabels];
+		next = 0;
+		for (int id = 0; id < used.length; id++) {
+			if (used[id]) {
+				this.labelValues[next++] = graph.labelOf(id);
+			}
+		}
+		Arrays.sort(this.labelValues);
+		Map<N, Integer> labelIds = new HashMap<N, Integer>(2 * numOfLabels);
+		for (int i = 0; i < numOfLabels; i++) {
+			labelIds.put(this.labelValues[i], i);
+		}
+		int[] labelRemap = new int[used.length];
+		for (int id = 0; id < used.length; id++) {
+			if (used[id]) {
+				labelRemap[id] = labelIds.get(graph.labelOf(id));
+			}
+		}
+
+		// Graphs labelled by numbers, such as the weighted graphs searched by
+		// DijkstrasAlgorithm, also keep every label as a primitive double so 
+		// that searches never have to unbox it.
+		double[] labelWeights = new double[numOfLabels];
+		for (int i = 0; i < numOfLabels && labelWeights != null; i++) {
+			if (this.labelValues[i] instanceof Number) {
+				labelWeights[i] = ((Number) this.labelValues[i]).doubleValue();
+			} else {
+				labelWeights = null;
+			}
+		}
+
+		int numOfEdges = graph.numOfEdges();
+		this.offsets = new int[size + 1];
+		this.targets = new int[numOfEdges];
+		this.labels = new int[numOfEdges];
+		this.weights = labelWeights == null ? null : new double[numOfEdges];
+
+		// Inv: The edges of the nodes with ids 0 to i - 1 have been written
+		// to edges 0 to offsets[i] - 1.
+		int edge = 0;
+		for (int i = 0; i < size; i++) {
+			this.offsets[i] = edge;
+			EdgeSet out = graph.outgoing(graphIds[i]);
+			
+			// Packing the new ids with the target first means sorting the
+			// packed edges sorts them by target and then by label.
+			long[] sorted = new long[out.size()];
+			int count = 0;
+			for (int j = 0; j < out.capacity(); j++) {
+				long packed = out.slot(j);
+				if (packed != EdgeSet.EMPTY) {
+					sorted[count++] = EdgeSet.pack(
+							nodeRemap[EdgeSet.node(packed)], 
+							labelRemap[EdgeSet.label(packed)]);
+				}
+			}
+			Arrays.sort(sorted);
+			for (long packed : sorted) {
+				this.targets[edge] = EdgeSet.node(packed);
+				this.labels[edge] = EdgeSet.label(packed);
+				if (this.weights != null) {
+					this.weights[edge] = labelWeights[this.labels[edge]];
+				}
+				edge++;
+			}
+		}
+		this.offsets[size] = edge;
+		this.checkRep();
+	}
+
+	/**
+	 * @return The number of nodes in this graph.
+	 */
+	public int numOfNodes() {
+		return this.nodes.length;
+	}
+
+	/**
+	 * @return The number of connections in this graph.
+	 */
+	public int numOfEdges() {
+		return this.targets.length;
+	}
+
+	/**
+	 * Returns the id of a node in this graph.
+	 * @param name of the node.
+	 * @requires name to be non-null.
+	 * @return The id of the node or -1 if it is not in this graph.
+	 */
+	public int idOf(T name) {
+		Integer id = this.ids.get(name);
+		if (id == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the node which has a certain id.
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The node with this id.
+	 */
+	public T nodeOf(int id) {
+		return this.nodes[id];
+	}
+
+	/**
+	 * Checks the existence of a node in this graph.
+	 * @param name of the node.
+	 * @requires name must be non-null.
+	 * @return True if the node is in this graph.
+	 */
+	public boolean nodeExists(T name) {
+		return this.ids.containsKey(name);
+	}
+
+	/**
+	 * Returns the first edge leaving a node. The edges leaving the node are
+	 * edgesStart(id) up to but not including edgesEnd(id), sorted by the id
+	 * of the node they go to and then by label.
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The index of the first edge leaving the node.
+	 */
+	public int edgesStart(int id) {
+		return this.offsets[id];
+	}
+
+	/**
+	 * Returns one past the last edge leaving a node.
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The index just after the last edge leaving the node.
+	 */
+	public int edgesEnd(int id) {
+		return this.offsets[id + 1];
+	}
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The id of the node which the edge goes to.
+	 */
+	public int target(int edge) {
+		return this.targets[edge];
+	}
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The label of the edge.
+	 */
+	public N label(int edge) {
+		return this.labelValues[this.labels[edge]];
+	}
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The id of the label of the edge.
+	 */
+	public int labelId(int edge) {
+		return this.labels[edge];
+	}
+
+	/**
+	 * @return True if every label of this graph is a number, in which case
+	 * weight(int) gives the label of an edge as a primitive double.
+	 */
+	public boolean isWeighted() {
+		return this.weights != null;
+	}
+
+	/**
+	 * Returns the label of an edge as a primitive double.
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @throws UnsupportedOperationException if the labels of this graph are
+	 * not numbers.
+	 * @return The weight of the edge.
+	 */
+	public double weight(int edge) {
+		if (this.weights == null) {
+			throw new UnsupportedOperationException("The labels of this graph"
+					+ " are not numbers.");
+		}
+		return this.weights[edge];
+	}
+
+	/**
+	 * @return The number of distinct labels in this graph.
+	 */
+	public int numOfLabels() {
+		return this.labelValues.length;
+	}
+
+	/**
+	 * Returns the label which has a certain id. Label ids are given out in 
+	 * the natural order of the labels.
+	 * @param id of the label.
+	 * @requires 0 <= id < numOfLabels()
+	 * @return The label with this id.
+	 */
+	public N labelOf(int id) {
+		return this.labelValues[id];
+	}
+
+	/**
+	 * Groups the edges of this graph by the node they go to. They are 
+	 * grouped the first time they are asked for and then kept.
+	 * @return The reverse edges of this graph, with the same edge indexes.
+	 */
+	public ReverseEdges reverseEdges() {
+		ReverseEdges reverse = this.reverse;
+		if (reverse == null) {
+			reverse = new ReverseEdges(this);
+			this.reverse = reverse;
+		}
+		return reverse;
+	}
+
+	/**
+	 * Estimates the bytes this snapshot takes up, not counting the nodes and
+	 * labels, which are shared with the graph it was taken from.
+	 * @return The size of the arrays, the map of ids and the reverse edges.
+	 */
+	long retainedBytes() {
+		long bytes = MemoryStats.align(MemoryStats.HEADER
+				+ 8 * MemoryStats.REFERENCE)
+				+ MemoryStats.arrayBytes(this.nodes.length, MemoryStats.REFERENCE)
+				+ MemoryStats.mapBytes(this.nodes.length)
+				+ MemoryStats.arrayBytes(this.offsets.length, 4)
+				+ MemoryStats.arrayBytes(this.targets.length, 4)
+				+ MemoryStats.arrayBytes(this.labels.length, 4)
+				+ MemoryStats.arrayBytes(this.labelValues.length,
+						MemoryStats.REFERENCE);
+		if (this.weights != null) {
+			bytes += MemoryStats.arrayBytes(this.weights.length, 8);
+		}
+		ReverseEdges reverse = this.reverse;
+		if (reverse != null) {
+			bytes += reverse.retainedBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.nodes != null) : "The nodes cannot be null.";
+		assert (this.ids != null) : "The node ids cannot be null.";
+		assert (this.offsets.length == this.nodes.length + 1) : "There must "
+				+ "be one offset per node plus one.";
+		assert (this.labelValues != null) : "The labels cannot be null.";
+		assert (this.targets.length == this.labels.length) : "Every edge "
+				+ "must have a target and a label.";
+		assert (this.weights == null 
+				|| this.weights.length == this.labels.length) : "Every edge "
+				+ "must have a weight if the labels are numbers.";
+		assert (this.offsets[this.nodes.length] == this.targets.length) :
+				"The last offset must be the number of edges.";
+	}
+}
@@ -0,0 +1,338 @@
+package model;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * A graph which can be searched by many threads while other threads change
+ * it. Changes are made one at a time to a private graph and each change
+ * publishes a new version of it. Readers only ever look at the latest
+ * published version, so they never take a lock and never see a change which
+ * is only partly made. A reader can also pin a version and keep using it
+ * for as long as it likes while later changes are published.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public class ConcurrentGraph<T extends Comparable<T>,
+		N extends Comparable<N>> {
+
+	// AF: The nodes and connections of this graph are the nodes and
+	// connections of current, which always matches graph once a change has
+	// finished.
+
+	// RI: graph != null, lock != null, current != null,
+	// graph and current have the same nodes and connections whenever lock
+	// is not held.
+
+	// graph is only read or changed while holding lock. current is
+	// immutable and volatile, so a reader which loads it sees everything the
+	// version shares with graph fully written.
+	private final Graph<T, N> graph;
+	private final Object lock;
+	private volatile GraphVersion<T, N> current;
+
+	/**
+	 * Creates an empty concurrent graph.
+	 * @effects Creates a graph with no nodes or connections.
+	 */
+	public ConcurrentGraph() {
+		this(new Graph<T, N>());
+	}
+
+	/**
+	 * Creates a concurrent graph with the same nodes and connections as
+	 * another graph. Later changes to the other graph do not affect this one.
+	 * The copy is made with graph.clone(), so the two share connections
+	 * until either changes them.
+	 * @param graph is the graph to copy.
+	 * @requires graph is non-null.
+	 * @effects Creates a graph with a copy of the nodes and connections of
+	 * graph.
+	 * @modifies graph, which will copy shared connections before its next
+	 * changes to them, the same as after graph.clone().
+	 */
+	public ConcurrentGraph(Graph<T, N> graph) {
+		this.graph = graph.clone();
+		this.lock = new Object();
+		this.current = this.graph.snapshot();
+		this.checkRep();
+	}
+
+	/**
+	 * Returns the latest read-only snapshot of this graph in compact form. 
+	 * The snapshot never changes, so one search can use it from start to 
+	 * finish while other threads keep changing this graph.
+	 * @return The snapshot of this graph as of the last finished change.
+	 */
+	public CompactGraph<T, N> snapshot() {
+		return this.current.freeze();
+	}
+
+	/**
+	 * Pins the latest version of this graph. The version does not change 
+	 * while it is held and is reclaimed once it is no longer referred to.
+	 * @return The version of this graph as of the last finished change.
+	 */
+	public GraphVersion<T, N> pin() {
+		return this.current;
+	}
+
+	/**
+	 * @return The number of the latest version of this graph. Every change
+	 * publishes a version with a larger number.
+	 */
+	public long version() {
+		return this.current.number();
+	}
+
+	/**
+	 * Adds a node to the graph.
+	 * @param name of the node.
+	 * @requires name is non-null.
+	 * @effects Adds the node to the graph.
+	 * @modifies this
+	 * @return True if the node was added.
+	 */
+	public boolean addNode(T name) {
+		synchronized (this.lock) {
+			try {
+				return this.graph.addNode(name);
+			} finally {
+				this.publish();
+			}
+		}
+	}
+
+	/**
+	 * Removes a node and all connections to and from it.
+	 * @param name of the node.
+	 * @requires name is non-null.
+	 * @effects Removes the node and its connections from the graph.
+	 * @modifies this
+	 * @return True if the node was removed.
+	 */
+	public boolean removeNode(T name) {
+		synchronized (this.lock) {
+			try {
+				return this.graph.removeNode(name);
+			} finally {
+				this.publish();
+			}
+		}
+	}
+
+	/**
+	 * Adds a connection to the graph, adding the nodes if they are not
+	 * already in it.
+	 * @param from is the node the connection leaves.
+	 * @param to is the node the connection goes to.
+	 * @param label of the connection.
+	 * @requires from, to and label are non-null.
+	 * @effects Adds the connection to the graph.
+	 * @modifies this
+	 * @return True if the connection was added.
+	 */
+	public boolean addConnection(T from, T to, N label) {
+		synchronized (this.lock) {
+			try {
+				return this.graph.addConnection(from, to, label);
+			} finally {
+				this.publish();
+			}
+		}
+	}
+
+	/**
+	 * Removes a connection from the graph. Like Graph.removeConnection, a
+	 * node which is left with no connections leaving it is removed too.
+	 * @param from is the node the connection leaves.
+	 * @param to is the node the connection goes to.
+	 * @param label of the connection.
+	 * @requires from, to and label are non-null.
+	 * @effects Removes the connection from the graph.
+	 * @modifies this
+	 * @return True if the connection was removed.
+	 */
+	public boolean removeConnection(T from, T to, N label) {
+		synchronized (this.lock) {
+			try {
+				return this.graph.removeConnection(from, to, label);
+			} finally {
+				this.publish();
+			}
+		}
+	}
+
+	/**
+	 * Removes and then adds sets of connections as one change. Readers see
+	 * either none or all of the change, unless a listener such as a log
+	 * stops it part way, in which case they see the part which was made.
+	 * @param removals are the connections to remove.
+	 * @param additions are the connections to add.
+	 * @requires removals and additions are non-null and have no null
+	 * elements.
+	 * @effects Removes every connection in removals from the graph and then
+	 * adds every connection in additions.
+	 * @modifies this
+	 * @return True if the graph was changed.
+	 */
+	public boolean update(Set<Connection<T, N>> removals,
+			Set<Connection<T, N>> additions) {
+		synchronized (this.lock) {
+			try {
+				boolean changed = false;
+				for (Connection<T, N> con : removals) {
+					changed |= this.graph.removeConnection(con);
+				}
+				for (Connection<T, N> con : additions) {
+					changed |= this.graph.addConnection(con);
+				}
+				return changed;
+			} finally {
+				this.publish();
+			}
+		}
+	}
+
+	/**
+	 * Removes every connection from the graph. As with Graph.clear the nodes
+	 * are kept.
+	 * @effects Removes all of the connections in the graph.
+	 * @modifies this
+	 */
+	public void clear() {
+		synchronized (this.lock) {
+			try {
+				this.graph.clear();
+			} finally {
+				this.publish();
+			}
+		}
+	}
+
+	/**
+	 * Adds a listener which is told about every change made to this graph
+	 * from now on. Listeners are called by the thread making the change while
+	 * it holds the write lock, so they see changes one at a time.
+	 * @param listener is the listener to add.
+	 * @requires listener is non-null.
+	 * @effects The listener is told about later changes.
+	 * @modifies this
+	 */
+	public void addListener(GraphListener<T, N> listener) {
+		synchronized (this.lock) {
+			this.graph.addListener(listener);
+		}
+	}
+
+	/**
+	 * Removes a listener from this graph.
+	 * @param listener is the listener to remove.
+	 * @effects The listener is no longer told about changes.
+	 * @modifies this
+	 * @return True if the listener had been added to this graph.
+	 */
+	public boolean removeListener(GraphListener<T, N> listener) {
+		synchronized (this.lock) {
+			return this.graph.removeListener(listener);
+		}
+	}
+
+	/**
+	 * Checks the existence of a node in this graph.
+	 * @param name of the node.
+	 * @requires name is non-null.
+	 * @return True if the node is in the latest snapshot of this graph.
+	 */
+	public boolean nodeExists(T name) {
+		return this.current.nodeExists(name);
+	}
+
+	/**
+	 * Checks the existence of a connection in this graph.
+	 * @param from is the node the connection leaves.
+	 * @param to is the node the connection goes to.
+	 * @param label of the connection.
+	 * @requires from, to and label are non-null.
+	 * @return True if the connection is in the latest snapshot of this graph.
+	 */
+	public boolean connectionExists(T from, T to, N label) {
+		return this.current.connectionExists(from, to, label);
+	}
+
+	/**
+	 * @return The number of nodes in the latest snapshot of this graph.
+	 */
+	public int numOfNodes() {
+		return this.current.numOfNodes();
+	}
+
+	/**
+	 * @return The number of connections in the latest snapshot of this graph.
+	 */
+	public int numOfEdges() {
+		return this.current.numOfEdges();
+	}
+
+	/**
+	 * Returns a copy of this graph which can be changed freely.
+	 * @return A graph with the same nodes and connections as this one.
+	 */
+	public Graph<T, N> toGraph() {
+		synchronized (this.lock) {
+			return this.graph.clone();
+		}
+	}
+
+	/**
+	 * Writes the string representation of the latest version of this graph
+	 * to out as it is made, in the same form as Graph.toString. This does 
+	 * not wait for any change in progress.
+	 * @param out is where the string representation is written.
+	 * @requires out is non-null.
+	 * @throws IOException if out cannot be written to.
+	 * @effects Appends the string representation to out.
+	 * @modifies out
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		this.current.writeTo(out);
+	}
+
+	@Override
+	/**
+	 * Returns a string representation of this graph in the same form as
+	 * Graph.toString. This waits for any change in progress to finish.
+	 */
+	public String toString() {
+		synchronized (this.lock) {
+			return this.graph.toString();
+		}
+	}
+
+	/**
+	 * Publishes the current state of the graph. This is done after every
+	 * change, even one stopped part way by a listener such as a log, so 
+	 * readers never see an older state than the graph holds. Taking the 
+	 * version does not copy the graph, and if the graph has not changed 
+	 * since the last one it is the same version. The compact form of it is 
+	 * only built when a reader first asks for it.
+	 * @requires The caller holds lock.
+	 * @effects Makes the current state of graph visible to readers.
+	 * @modifies this
+	 */
+	private void publish() {
+		this.current = this.graph.snapshot();
+		this.checkRep();
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.graph != null) : "The graph cannot be null.";
+		assert (this.lock != null) : "The lock cannot be null.";
+		assert (this.current != null) : "The version cannot be null.";
+	}
+}
@@ -0,0 +1,140 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives each distinct value a dense integer id the first time it is seen.
+ * Ids start at zero, go up by one for every new value and are never reused,
+ * so they can be used to index into arrays. Values are only ever added, so
+ * one thread can add values while other threads look up the values and ids
+ * which were already there.
+ * @author L. James Davidson
+ *
+ * @param <E> is the type of value which is given ids.
+ */
+public class Dictionary<E> {
+
+	// AF: The value with id i is values[i] for 0 <= i < size. ids maps every
+	// value back to its id.
+
+	// RI: ids != null, values != null, ids.size() == size,
+	// size <= values.length, for 0 <= i < size { ids.get(values[i]) == i }
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final Map<E, Integer> ids;
+	private volatile Object[] values;
+	private int size;
+
+	/**
+	 * Creates an empty dictionary.
+	 * @effects Creates a dictionary with no values in it.
+	 */
+	public Dictionary() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty dictionary with room for a number of values.
+	 * @param expectedSize is the number of values expected to be added.
+	 * @requires expectedSize >= 0
+	 * @effects Creates a dictionary with no values in it.
+	 */
+	public Dictionary(int expectedSize) {
+		int capacity = Math.max(expectedSize, DEFAULT_CAPACITY);
+		this.ids = new ConcurrentHashMap<E, Integer>(capacity * 4 / 3 + 1);
+		this.values = new Object[capacity];
+		this.size = 0;
+		this.checkRep();
+	}
+
+	/**
+	 * Creates a copy of another dictionary which hands out the same ids.
+	 * @param other is the dictionary to copy.
+	 * @requires other is non-null.
+	 * @effects Creates a dictionary with the same values and ids as other.
+	 */
+	public Dictionary(Dictionary<E> other) {
+		this.ids = new ConcurrentHashMap<E, Integer>(other.ids);
+		this.values = Arrays.copyOf(other.values, other.values.length);
+		this.size = other.size;
+		this.checkRep();
+	}
+
+	/**
+	 * Returns the id of a value, giving it a new id if it has not been seen
+	 * before.
+	 * @param value is the value to look up.
+	 * @requires value is non-null.
+	 * @effects Adds the value to this if it is not already in it.
+	 * @modifies this
+	 * @return The id of the value.
+	 */
+	public int intern(E value) {
+		Integer id = this.ids.get(value);
+		if (id != null) {
+			return id;
+		}
+		if (this.size == this.values.length) {
+			this.values = Arrays.copyOf(this.values, 2 * this.size);
+		}
+		this.values[this.size] = value;
+		this.ids.put(value, this.size);
+		this.size++;
+		return this.size - 1;
+	}
+
+	/**
+	 * Returns the id of a value without adding it.
+	 * @param value is the value to look up.
+	 * @return The id of the value or -1 if it has no id.
+	 */
+	public int idOf(Object value) {
+		Integer id = this.ids.get(value);
+		if (id == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the value which has an id.
+	 * @param id of the value.
+	 * @requires 0 <= id < size()
+	 * @return The value with this id.
+	 */
+	@SuppressWarnings("unchecked")
+	public E valueOf(int id) {
+		return (E) this.values[id];
+	}
+
+	/**
+	 * @return The number of ids handed out, which is one more than the
+	 * largest id.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Estimates the bytes this dictionary takes up, not counting the values
+	 * themselves.
+	 * @return The size of the array of values and the map of ids.
+	 */
+	long retainedBytes() {
+		return MemoryStats.align(MemoryStats.HEADER + 2 * MemoryStats.REFERENCE
+				+ 4) + MemoryStats.arrayBytes(this.values.length,
+						MemoryStats.REFERENCE) + MemoryStats.mapBytes(this.size);
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.ids != null) : "The id map cannot be null.";
+		assert (this.values != null) : "The values cannot be null.";
+		assert (this.ids.size() == this.size) : "Every value needs an id.";
+	}
+}
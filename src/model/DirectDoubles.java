@@ -0,0 +1,110 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A fixed length array of doubles kept outside of the Java heap in direct
+ * byte buffers. One buffer can hold at most 2 GB so the array is split into
+ * chunks, which lets it hold up to Integer.MAX_VALUE doubles.
+ * @author L. James Davidson
+ */
+final class DirectDoubles {
+
+	// AF: Element i is the double at byte (i & MASK) * 8 of
+	// chunks[i >>> SHIFT].
+
+	// RI: chunks != null, every chunk but the last holds exactly 2^SHIFT
+	// doubles and the last holds the rest of the length doubles.
+
+	/** Each chunk holds 2^SHIFT doubles, or 512 MB. */
+	static final int SHIFT = 26;
+	private static final int MASK = (1 << SHIFT) - 1;
+
+	private final ByteBuffer[] chunks;
+	private final int length;
+
+	/**
+	 * Allocates an array of zeros.
+	 * @param length of the array.
+	 * @requires length >= 0
+	 * @effects Creates an array of length zeros outside of the heap.
+	 */
+	DirectDoubles(int length) {
+		this.length = length;
+		this.chunks = new ByteBuffer[(int) (((long) length + MASK) >>> SHIFT)];
+		for (int c = 0; c < this.chunks.length; c++) {
+			long doubles = Math.min(1L << SHIFT, length - ((long) c << SHIFT));
+			this.chunks[c] = ByteBuffer.allocateDirect((int) (8 * doubles))
+					.order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/**
+	 * Uses buffers which already hold the doubles, such as parts of a
+	 * mapped file.
+	 * @param chunks hold the doubles. Every chunk but the last must hold
+	 * exactly 2^SHIFT doubles.
+	 * @param length of the array.
+	 * @requires chunks hold length doubles in total and have the right
+	 * order.
+	 * @effects Creates an array backed by chunks.
+	 */
+	DirectDoubles(ByteBuffer[] chunks, int length) {
+		this.chunks = chunks;
+		this.length = length;
+	}
+
+	/**
+	 * Maps doubles stored in a file into memory, so that they are read from
+	 * the file as they are used rather than all at once.
+	 * @param channel is the file the doubles are in.
+	 * @param position is the byte at which the doubles start.
+	 * @param length is the number of doubles.
+	 * @param order is the byte order the doubles were written in.
+	 * @requires The file holds length doubles starting at position.
+	 * @throws IOException if the file cannot be mapped.
+	 * @return An array backed by the file.
+	 */
+	static DirectDoubles map(FileChannel channel, long position, int length,
+			ByteOrder order) throws IOException {
+		ByteBuffer[] chunks = 
+				new ByteBuffer[(int) (((long) length + MASK) >>> SHIFT)];
+		for (int c = 0; c < chunks.length; c++) {
+			long doubles = Math.min(1L << SHIFT, length - ((long) c << SHIFT));
+			chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, 
+					position + ((long) c << SHIFT) * 8, 8 * doubles)
+					.order(order);
+		}
+		return new DirectDoubles(chunks, length);
+	}
+
+	/**
+	 * @return The number of doubles in this array.
+	 */
+	int length() {
+		return this.length;
+	}
+
+	/**
+	 * @param index of an element.
+	 * @requires 0 <= index < length()
+	 * @return The element at index.
+	 */
+	double get(int index) {
+		return this.chunks[index >>> SHIFT].getDouble((index & MASK) << 3);
+	}
+
+	/**
+	 * @param index of an element.
+	 * @param value to store.
+	 * @requires 0 <= index < length()
+	 * @effects Stores value at index.
+	 * @modifies this
+	 */
+	void set(int index, double value) {
+		this.chunks[index >>> SHIFT].putDouble((index & MASK) << 3, value);
+	}
+}
@@ -0,0 +1,257 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A set of the edges touching one node of a Graph. Each edge is stored as a
+ * single long holding the id of the node at the other end and the id of the
+ * label, so a node's edges take up one primitive array instead of a set of
+ * Connection objects.
+ * @author L. James Davidson
+ */
+class EdgeSet {
+
+	// AF: The set contains every packed edge in slots which is not EMPTY.
+	// Slots are filled by linear probing from the hash of the edge. 
+	// generation records which generation of a Graph made this set; a graph
+	// copies a set from an older generation before changing it because 
+	// versions of the graph may still share it.
+
+	// RI: slots != null, slots.length is a power of two,
+	// size < slots.length, size == the number of non EMPTY slots,
+	// every edge is reachable by probing from its hash without passing an
+	// EMPTY slot.
+
+	/** Marks an unused slot. Node ids are never negative so no edge packs
+	 * to this value. */
+	static final long EMPTY = -1L;
+
+	private static final int MIN_CAPACITY = 4;
+
+	private final int generation;
+	private long[] slots;
+	private int size;
+
+	/**
+	 * Creates an empty edge set.
+	 * @param generation of the graph making the set.
+	 * @effects Creates an edge set with no edges in it.
+	 */
+	EdgeSet(int generation) {
+		this.generation = generation;
+		this.slots = newSlots(MIN_CAPACITY);
+		this.size = 0;
+	}
+
+	/**
+	 * Creates an empty edge set with room for a number of edges.
+	 * @param generation of the graph making the set.
+	 * @param expectedSize is the number of edges expected to be added.
+	 * @requires expectedSize >= 0
+	 * @effects Creates an edge set with no edges in it.
+	 */
+	EdgeSet(int generation, int expectedSize) {
+		this.generation = generation;
+		int capacity = MIN_CAPACITY;
+		while (capacity < 2 * expectedSize) {
+			capacity *= 2;
+		}
+		this.slots = newSlots(capacity);
+		this.size = 0;
+	}
+
+	/**
+	 * Creates a copy of another edge set.
+	 * @param other is the edge set to copy.
+	 * @param generation of the graph making the copy.
+	 * @requires other is non-null.
+	 * @effects Creates an edge set with the same edges as other.
+	 */
+	EdgeSet(EdgeSet other, int generation) {
+		this.generation = generation;
+		this.slots = other.slots.clone();
+		this.size = other.size;
+	}
+
+	/**
+	 * @return The generation of the graph which made this set.
+	 */
+	int generation() {
+		return this.generation;
+	}
+
+	/**
+	 * Packs the other end and label of an edge into one value.
+	 * @param node is the id of the node at the other end of the edge.
+	 * @param label is the id of the label of the edge.
+	 * @requires node >= 0, label >= 0
+	 * @return The packed edge.
+	 */
+	static long pack(int node, int label) {
+		return ((long) node << 32) | (label & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param edge is a packed edge.
+	 * @return The id of the node at the other end of the edge.
+	 */
+	static int node(long edge) {
+		return (int) (edge >>> 32);
+	}
+
+	/**
+	 * @param edge is a packed edge.
+	 * @return The id of the label of the edge.
+	 */
+	static int label(long edge) {
+		return (int) edge;
+	}
+
+	/**
+	 * @return The number of edges in this set.
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return The number of slots; edges are found by checking each slot
+	 * from 0 up to capacity() - 1 for a value other than EMPTY.
+	 */
+	int capacity() {
+		return this.slots.length;
+	}
+
+	/**
+	 * @return An estimate of the bytes this set takes up.
+	 */
+	long retainedBytes() {
+		return MemoryStats.align(MemoryStats.HEADER + 4 + MemoryStats.REFERENCE
+				+ 4) + MemoryStats.arrayBytes(this.slots.length, 8);
+	}
+
+	/**
+	 * @param index of a slot.
+	 * @requires 0 <= index < capacity()
+	 * @return The packed edge in the slot or EMPTY.
+	 */
+	long slot(int index) {
+		return this.slots[index];
+	}
+
+	/**
+	 * @return A new array of the edges in this set, in slot order, which can
+	 * be walked while the set is changed.
+	 */
+	long[] toArray() {
+		long[] edges = new long[this.size];
+		int count = 0;
+		for (long edge : this.slots) {
+			if (edge != EMPTY) {
+				edges[count++] = edge;
+			}
+		}
+		return edges;
+	}
+
+	/**
+	 * @param edge is a packed edge.
+	 * @return True if the edge is in this set.
+	 */
+	boolean contains(long edge) {
+		int mask = this.slots.length - 1;
+		for (int i = hash(edge) & mask; this.slots[i] != EMPTY;
+				i = (i + 1) & mask) {
+			if (this.slots[i] == edge) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds an edge to this set.
+	 * @param edge is a packed edge.
+	 * @modifies this
+	 * @effects Adds the edge if it is not already in this set.
+	 * @return True if the edge was added.
+	 */
+	boolean add(long edge) {
+		if (2 * (this.size + 1) > this.slots.length) {
+			this.resize(2 * this.slots.length);
+		}
+		int mask = this.slots.length - 1;
+		int i = hash(edge) & mask;
+		while (this.slots[i] != EMPTY) {
+			if (this.slots[i] == edge) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		this.slots[i] = edge;
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Removes an edge from this set.
+	 * @param edge is a packed edge.
+	 * @modifies this
+	 * @effects Removes the edge if it is in this set.
+	 * @return True if the edge was removed.
+	 */
+	boolean remove(long edge) {
+		int mask = this.slots.length - 1;
+		int i = hash(edge) & mask;
+		while (this.slots[i] != edge) {
+			if (this.slots[i] == EMPTY) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		// Shift later edges of the same probe run back so that none of them
+		// are cut off from their hash by the new gap.
+		int gap = i;
+		for (int j = (gap + 1) & mask; this.slots[j] != EMPTY;
+				j = (j + 1) & mask) {
+			int home = hash(this.slots[j]) & mask;
+			if (((j - home) & mask) >= ((j - gap) & mask)) {
+				this.slots[gap] = this.slots[j];
+				gap = j;
+			}
+		}
+		this.slots[gap] = EMPTY;
+		this.size--;
+		return true;
+	}
+
+	/**
+	 * Moves the edges into a new array of slots.
+	 * @param capacity is the new number of slots, a power of two.
+	 */
+	private void resize(int capacity) {
+		long[] old = this.slots;
+		this.slots = newSlots(capacity);
+		int mask = capacity - 1;
+		for (long edge : old) {
+			if (edge != EMPTY) {
+				int i = hash(edge) & mask;
+				while (this.slots[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				this.slots[i] = edge;
+			}
+		}
+	}
+
+	private static long[] newSlots(int capacity) {
+		long[] slots = new long[capacity];
+		Arrays.fill(slots, EMPTY);
+		return slots;
+	}
+
+	private static int hash(long edge) {
+		long h = edge * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -1,12 +1,18 @@
 package model;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.TreeSet;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import model.Connection;
 
@@ -18,34 +24,112 @@ import model.Connection;
  * @param <N> is the type of object which will define paths between nodes.
  */
 public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
-	
 
-	public Set<Connection<T, N>> connections;
-	public Set<T> nodes;
+	private static final int DEFAULT_CAPACITY = 16;
 	private static final boolean DEBUG_MODE = false;
-	
+
+	// Every node and label is given a dense int id the first time it is
+	// added so the connections can be stored as ints instead of objects.
+	private Dictionary<T> nodeIds;
+	private Dictionary<N> labelIds;
+	// outgoing[id] holds the (to, label) pairs of the connections leaving the
+	// node with that id and incoming[id] the (from, label) pairs of the
+	// connections ending at it. Both are null when the node is not in this
+	// graph.
+	private EdgeSet[] outgoing;
+	private EdgeSet[] incoming;
+	private int numOfNodes;
+	private int numOfEdges;
+	// The sum of edgeFingerprint of every connection, kept up to date by
+	// every change. It depends only on the values of the connections, not
+	// on their ids or the order they were added in.
+	private long fingerprint;
+	// Versions handed out by snapshot() share the arrays and sets of this
+	// graph as they were when the version was taken. published is the
+	// version of the current state, if one has been handed out, and is 
+	// dropped by the next change. The first change after a version is taken
+	// copies both arrays and starts a new generation. Sets from an older
+	// generation may be shared with a version so they are copied before 
+	// they are changed.
+	private GraphVersion<T, N> published;
+	private int generation;
+	private long version;
+	// A clone starts out sharing the arrays, sets and dictionaries of the
+	// graph it was cloned from, and both are marked as shared. A graph whose
+	// arrays are shared copies them and starts a new generation before its
+	// first change, the same as after a version is taken, so only the sets
+	// it changes are copied. A graph whose dictionaries are shared copies 
+	// them before giving an id to a new node or label.
+	private boolean sharedSets;
+	private boolean sharedIds;
+	// Told about every change made to this graph, in the order they were
+	// added. Events are only built when there is at least one listener.
+	private List<GraphListener<T, N>> listeners;
+	// byLabel[label] holds the (from, to) pairs of the connections with that
+	// label, packed with from as the node and to as the label. It is only 
+	// built by the first query by label and is null until then, after which
+	// every change keeps it up to date. It is never shared with a version.
+	private EdgeSet[] byLabel;
+	// hubs holds every node id handed out by nodeIds, sorted from the node
+	// with the most connections leaving it to the node with the fewest, 
+	// with the ids of nodes which are not in this graph last. hubPositions
+	// gives the index of each id in hubs, and atLeast[d] is the number of
+	// nodes with at least d connections leaving them, so the nodes with 
+	// exactly d are in hubs from atLeast[d + 1] up to atLeast[d]. A node 
+	// which gains or loses a connection is swapped to the edge of its 
+	// range and the boundary is moved past it. Like byLabel they are only 
+	// built by the first query by degree and are never shared.
+	private int[] hubs;
+	private int[] hubPositions;
+	private int[] atLeast;
+
 	// Abstract function:
-	// The set of connections must be non-null.
-	// The set of nodes is non-null.
-	// All of the edges are between characters which are in this.characters.
-	
+	// The nodes of the graph are nodeIds.valueOf(id) for every id where
+	// outgoing[id] != null. There is a connection from nodeIds.valueOf(from)
+	// to nodeIds.valueOf(to) with the label labelIds.valueOf(label) for
+	// every packed (to, label) in outgoing[from].
+	// All of the edges are between nodes which are in this graph.
+
 	// Representation invariant:
-	// this.connections != null
-	// this.nodes != null
-	// for (Connection con : connections) 
-	// { this.nodes.contains(con.getFrom()) == true }
-	// { this.nodes.contains(con.getTo()) == true }
-		
+	// this.nodeIds != null, this.labelIds != null
+	// this.outgoing != null, this.incoming != null
+	// this.outgoing.length == this.incoming.length >= this.nodeIds.size()
+	// for (id) { (this.outgoing[id] == null) == (this.incoming[id] == null) }
+	// for (every (to, label) in outgoing[from])
+	// { this.outgoing[to] != null }
+	// { this.incoming[to].contains((from, label)) == true }
+	// this.numOfNodes == the number of ids with outgoing[id] != null
+	// this.numOfEdges == the sum of outgoing[id].size()
+	// this.fingerprint == the sum of edgeFingerprint of every connection
+	// every set has a generation <= this.generation
+	// if this.sharedSets is false then no other graph refers to 
+	// this.outgoing, this.incoming or a set of this.generation
+	// if this.sharedIds is false then no other graph refers to 
+	// this.nodeIds or this.labelIds
+	// this.byLabel == null or for (every (to, label) in outgoing[from])
+	// { this.byLabel[label].contains((from, to)) == true } and
+	// this.numOfEdges == the sum of byLabel[label].size()
+	// this.hubs == null or (hubs[hubPositions[id]] == id for every 
+	// id < this.nodeIds.size(), and the degrees of the nodes in hubs do not
+	// go up, where the degree of a node is outgoing[id].size() or -1 if 
+	// outgoing[id] == null, and atLeast[d] is the number of nodes with a
+	// degree of at least d)
+
 	/**
 	 * Creates an empty graph with no nodes or connections in it.
 	 * @effects Creates the graph.
 	 */
 	public Graph() {
-		this.connections = new HashSet<Connection<T, N>>();
-		this.nodes = new HashSet<T>();
+		this.nodeIds = new Dictionary<T>();
+		this.labelIds = new Dictionary<N>();
+		this.outgoing = new EdgeSet[DEFAULT_CAPACITY];
+		this.incoming = new EdgeSet[DEFAULT_CAPACITY];
+		this.numOfNodes = 0;
+		this.numOfEdges = 0;
+		this.listeners = new ArrayList<GraphListener<T, N>>();
 		this.checkRep();
 	}
-	
+
 	/**
 	 * Creates a new graph containing the nodes whose values are in the set
 	 * parameter. If the set is empty then it will create an empty graph.
@@ -57,13 +141,13 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 		this();
 		this.addNodes(initialNodes);
 		// No need to use checkRep() here because the representation invariant
-		// is checked immediately after every node gets added in the 
+		// is checked immediately after every node gets added in the
 		// addNode(T) file which is where this will eventually go.
 	}
-	
+
 	/**
-	 * Creates a graph containing some initial set of nodes and connections. 
-	 * @param initialConnections is the set of connections that this will be 
+	 * Creates a graph containing some initial set of nodes and connections.
+	 * @param initialConnections is the set of connections that this will be
 	 * created with.
 	 * @param initialNodes is the set of nodes that this graph will be created
 	 * with.
@@ -74,7 +158,31 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 		this(initialNodes);
 		this.addConnections(initialConnections);
 	}
-	
+
+	/**
+	 * Creates a graph from sets of connections which were already built.
+	 * @param nodeIds are the ids of the nodes, every one of which is in the
+	 * graph.
+	 * @param labelIds are the ids of the labels.
+	 * @param outgoing are the connections leaving each node.
+	 * @param incoming are the connections ending at each node.
+	 * @param numOfEdges is the number of connections.
+	 * @requires The parameters satisfy the representation invariant.
+	 * @effects Creates the graph.
+	 */
+	private Graph(Dictionary<T> nodeIds, Dictionary<N> labelIds,
+			EdgeSet[] outgoing, EdgeSet[] incoming, int numOfEdges) {
+		this.nodeIds = nodeIds;
+		this.labelIds = labelIds;
+		this.outgoing = outgoing;
+		this.incoming = incoming;
+		this.numOfNodes = nodeIds.size();
+		this.numOfEdges = numOfEdges;
+		this.fingerprint = this.sumOfFingerprints();
+		this.listeners = new ArrayList<GraphListener<T, N>>();
+		this.checkRep();
+	}
+
 	/**
 	 * Adds a new node to the graph.
 	 * @param name of the node that is added.
@@ -87,13 +195,13 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	public boolean addNode(T name) {
 		boolean result = !(this.nodeExists(name));
 		if (result) {
-			this.nodes.add(name);
+			this.addNodeId(name);
 			this.checkRep();
 		}
 		return result;
 	}
 
-	
+
 	/**
 	 * Adds the set of nodes to the graph.
 	 * @param setOfNames is the set containing all the values of the nodes that
@@ -111,12 +219,12 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 			boolean nodeAdded = this.addNode(name);
 			result = result && nodeAdded;
 		}
-		// No checkRep here because all the modification is occurring the 
+		// No checkRep here because all the modification is occurring the
 		// the add method call.
 		return result;
 	}
 
-	
+
 	/**
 	 * Removes a node from this and all connections to the node.
 	 * @param name is the node that will be removed.
@@ -127,26 +235,39 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * successfully.
 	 */
 	public boolean removeNode(T name) {
-		if (!(this.nodeExists(name))) {
+		int id = this.idOf(name);
+		if (id < 0) {
 			return false;
 		}
-		Set<Connection<T, N>> connectionsToRemove = 
-				new HashSet<Connection<T, N>>();
-		for (Connection<T, N> con : this.connections) {
-			if (con.getFrom().equals(name) || con.getTo().equals(name)) {
-				connectionsToRemove.add(con);
-			}
+		// Each connection is removed in full before the next one, so a 
+		// listener which stops the removal part way leaves a whole graph. A
+		// connection from the node to itself is removed with the ones 
+		// leaving it, so it is gone before the ones coming in are listed.
+		for (long edge : this.outgoing[id].toArray()) {
+			this.removeEdgeById(id, EdgeSet.node(edge), EdgeSet.label(edge));
+		}
+		for (long edge : this.incoming[id].toArray()) {
+			this.removeEdgeById(EdgeSet.node(edge), id, EdgeSet.label(edge));
+		}
+		GraphEvent<T, N> event = null;
+		if (!this.listeners.isEmpty()) {
+			event = GraphEvent.<T, N>nodeRemoved(name);
+			this.fireChanging(event);
 		}
-		for (Connection<T, N> con : connectionsToRemove) {
-			this.connections.remove(con);
+		this.beginChange();
+		this.lowerDegree(id, 0);
+		this.outgoing[id] = null;
+		this.incoming[id] = null;
+		this.numOfNodes--;
+		if (event != null) {
+			this.fireChanged(event);
 		}
-		this.nodes.remove(name);
 		this.checkRep();
 		return true;
 	}
-	
+
 	/**
-	 * Removes multiple nodes from this. If a node is not currently in this 
+	 * Removes multiple nodes from this. If a node is not currently in this
 	 * then nothing will happen.
 	 * @param setOfNames is a set of the names of all the nodes that will be
 	 * removed from this.
@@ -163,22 +284,42 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 			boolean nodeRemoved = this.removeNode(name);
 			result = result && nodeRemoved;
 		}
-		// No checkRep here because all the modification is occurring the 
+		// No checkRep here because all the modification is occurring the
 		// the remove method call.
 		return result;
 	}
 
-	
+
 	/**
 	 * Removes all the nodes and connections from this.
 	 * @effects Removes all nodes and connections.
 	 * @modifies The nodes and connections in this.
 	 */
 	public void clear() {
-		this.connections.clear();
+		GraphEvent<T, N> event = null;
+		if (!this.listeners.isEmpty()) {
+			event = GraphEvent.<T, N>cleared();
+			this.fireChanging(event);
+		}
+		this.beginChange();
+		for (int id = 0; id < this.nodeIds.size(); id++) {
+			if (this.outgoing[id] != null) {
+				this.outgoing[id] = new EdgeSet(this.generation);
+				this.incoming[id] = new EdgeSet(this.generation);
+			}
+		}
+		this.numOfEdges = 0;
+		this.fingerprint = 0;
+		this.byLabel = null;
+		this.hubs = null;
+		this.hubPositions = null;
+		this.atLeast = null;
+		if (event != null) {
+			this.fireChanged(event);
+		}
 		this.checkRep();
-	}	
-	
+	}
+
 	/**
 	 * Adds a connection to this graph.
 	 * @param from is the name of the node where the connection is coming from.
@@ -191,11 +332,31 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * connection could either not be added or was already there.
 	 */
 	public boolean addConnection(T from, T to, N label) {
-		Connection<T, N> con = new Connection<T, N>(from, to, label);
-		return this.addConnection(con);
-
+		if (this.connectionExists(from, to, label)) {
+			return false;
+		}
+		int fromId = this.addNodeId(from);
+		int toId = this.addNodeId(to);
+		int labelId = this.internLabel(label);
+		GraphEvent<T, N> event = null;
+		if (!this.listeners.isEmpty()) {
+			event = GraphEvent.<T, N>connectionAdded(from, to, label);
+			this.fireChanging(event);
+		}
+		this.beginChange();
+		this.raiseDegree(fromId, this.outgoing[fromId].size());
+		this.outgoingToChange(fromId).add(EdgeSet.pack(toId, labelId));
+		this.incomingToChange(toId).add(EdgeSet.pack(fromId, labelId));
+		this.index(fromId, toId, labelId);
+		this.numOfEdges++;
+		this.fingerprint += this.edgeFingerprint(fromId, toId, labelId);
+		if (event != null) {
+			this.fireChanged(event);
+		}
+		this.checkRep();
+		return true;
 	}
-	
+
 	/**
 	 * Adds a connection to this graph.
 	 * @param con is the connection being added.
@@ -206,23 +367,12 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * connection could either not be added or was already there.
 	 */
 	public boolean addConnection(Connection<T, N> con) {
-		if (this.connectionExists(con)) {
-			return false;
-		}
-		if (!this.nodes.contains(con.getFrom())) {
-			this.nodes.add(con.getFrom());
-		}
-		if (!this.nodes.contains(con.getTo())) {
-			this.nodes.add(con.getTo());
-		}
-		boolean result = this.connections.add(con);
-		this.checkRep();
-		return result;
+		return this.addConnection(con.getFrom(), con.getTo(), con.getLabel());
 	}
-	
+
 	/**
 	 * Adds the set of connections to the graph.
-	 * @param allCons is the set containing all the connections that will be 
+	 * @param allCons is the set containing all the connections that will be
 	 * added to this.
 	 * @requires All connections in the set and the set to be non-null.
 	 * @effects New connections from the input set will be added to this graph.
@@ -239,7 +389,7 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 		}
 		return result;
 	}
-	
+
 	/**
 	 * Removes the specified connection between two nodes.
 	 * @param from is the name of the node that the connection is from.
@@ -248,43 +398,46 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * @requires from, to, and label must be non-null.
 	 * @effects Removes the connection from one node to another.
 	 * @modifies The connections of a node from.
-	 * @returns A true if the connection was removed successful and a false if 
+	 * @returns A true if the connection was removed successful and a false if
 	 * the connection was not in the graph.
 	 */
 	public boolean removeConnection(T from, T to, N label) {
-		Connection<T, N> con = new Connection<T, N>(from, to, label);
-		return this.removeConnection(con);
+		if (!this.removeEdge(from, to, label)) {
+			return false;
+		}
+		int fromId = this.idOf(from);
+		int toId = this.idOf(to);
+
+		boolean result = true;
+		if (this.outgoing[fromId].size() == 0) {
+			result = result && this.removeNode(from);
+		}
+		// The to node is already gone if the connection was to itself.
+		if (this.outgoing[toId] != null && this.outgoing[toId].size() == 0) {
+			result = result && this.removeNode(to);
+		}
+
+		this.checkRep();
+		return result;
 	}
-	
+
 	/**
 	 * Removes a connection to this graph.
 	 * @param con is the connection being removed.
 	 * @requires con to be non-null.
 	 * @effects The connections from the node.
 	 * @modifies The connections the node from has.
-	 * @returns True if the connection was removed successfully, and false if 
+	 * @returns True if the connection was removed successfully, and false if
 	 * the connection does not exist.
 	 */
 	public boolean removeConnection(Connection<T, N> con) {
-		if (!(this.connectionExists(con))) {
-			return false;
-		}
-
-		boolean result = this.connections.remove(con);
-		if (this.numOfConnections(con.getFrom()) == 0) {
-			result = result && this.removeNode(con.getFrom());
-		}
-		if (this.numOfConnections(con.getTo()) == 0) {
-			result = result && this.removeNode(con.getTo());
-		}
-		
-		this.checkRep();
-		return result;
+		return this.removeConnection(con.getFrom(), con.getTo(),
+				con.getLabel());
 	}
-	
+
 	/**
 	 * Removes the set of connections to the graph.
-	 * @param allCons is the set containing all the connections that will be 
+	 * @param allCons is the set containing all the connections that will be
 	 * removed from this.
 	 * @requires All connections in the set and the set to be non-null.
 	 * @effects New connections from the input set will be removed from this
@@ -301,7 +454,7 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 		}
 		return result;
 	}
-	
+
 	/**
 	 * Returns whether a connection is in this graph.
 	 * @param from is the name of the node the connection is from.
@@ -312,10 +465,9 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * does not.
 	 */
 	public boolean connectionExists(T from, T to, N label) {
-		Connection<T, N> con = new Connection<T, N>(from, to, label);
-		return this.connections.contains(con);
+		return this.containsEdge(from, to, label);
 	}
-	
+
 	/**
 	 * Returns whether a connection is in this graph.
 	 * @param con is the connection in question.
@@ -325,7 +477,7 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * does not.
 	 */
 	public boolean connectionExists(Connection<T, N> con) {
-		return this.connections.contains(con);
+		return this.containsEdge(con.getFrom(), con.getTo(), con.getLabel());
 	}
 
 	/**
@@ -333,17 +485,30 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * @return A set of nodes in this graph.
 	 */
 	public Set<T> getNodes() {
-		return new HashSet<T>(this.nodes);
+		Set<T> allNodes = new HashSet<T>(2 * this.numOfNodes);
+		for (int id = 0; id < this.nodeIds.size(); id++) {
+			if (this.outgoing[id] != null) {
+				allNodes.add(this.nodeIds.valueOf(id));
+			}
+		}
+		return allNodes;
 	}
-	
+
 	/**
 	 * Returns a set of all connections within this graph.
 	 * @return The set of connections.
 	 */
 	public Set<Connection<T, N>> getConnections() {
-		return new HashSet<Connection<T, N>>(this.connections);
+		Set<Connection<T, N>> allCons =
+				new HashSet<Connection<T, N>>(2 * this.numOfEdges);
+		for (int id = 0; id < this.nodeIds.size(); id++) {
+			if (this.outgoing[id] != null) {
+				this.addConnectionsFrom(id, allCons);
+			}
+		}
+		return allCons;
 	}
-	
+
 	/**
 	 * Checks the existence of a node in this graph.
 	 * @param name of the node.
@@ -351,7 +516,7 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * @return True if the node is in this graph.
 	 */
 	public boolean nodeExists(T name) {
-		return this.nodes.contains(name);
+		return this.idOf(name) >= 0;
 	}
 
 	/**
@@ -362,21 +527,19 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * @throws IllegalArguementException if from is not currently in the graph.
 	 */
 	public Set<Connection<T, N>> isConnectedWith(T name) {
-		if (!this.nodeExists(name)) {
+		int id = this.idOf(name);
+		if (id < 0) {
 			throw new IllegalArgumentException("This node does not exist in "
 					+ "the graph.");
 		}
-		Set<Connection<T, N>> connectedNodes = new HashSet<Connection<T, N>>();
-		for (Connection<T, N> con : this.connections) {
-			if (con.getFrom().equals(name)) {
-				connectedNodes.add(con);
-			}
-		}
+		Set<Connection<T, N>> connectedNodes = new HashSet<Connection<T, N>>(
+				2 * this.outgoing[id].size());
+		this.addConnectionsFrom(id, connectedNodes);
 		return connectedNodes;
 	}
-	
+
 	/**
-	 * Returns a set of connection labels between two nodes. If there are no 
+	 * Returns a set of connection labels between two nodes. If there are no
 	 * connections between the two nodes then it will return an empty set.
 	 * @param from is the name of the node connected from.
 	 * @param to is the name of the node connected to.
@@ -386,21 +549,26 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * currently in this graph.
 	 */
 	public Set<N> isConnectedWith(T from, T to) {
-		if (!(this.nodeExists(from) && this.nodeExists(to))) {
+		int fromId = this.idOf(from);
+		int toId = this.idOf(to);
+		if (fromId < 0 || toId < 0) {
 			throw new IllegalArgumentException("One or more of the nodes do "
 					+ "not exist in this graph.");
 		}
 		Set<N> differentLabels = new HashSet<N>();
-		for (Connection<T, N> con : this.connections) {
-			if (con.getFrom().equals(from) && con.getTo().equals(to)) {
-				differentLabels.add(con.getLabel());
+		EdgeSet out = this.outgoing[fromId];
+		for (int i = 0; i < out.capacity(); i++) {
+			long edge = out.slot(i);
+			if (edge != EdgeSet.EMPTY && EdgeSet.node(edge) == toId) {
+				differentLabels.add(
+						this.labelIds.valueOf(EdgeSet.label(edge)));
 			}
 		}
 		return differentLabels;
 	}
-	
+
 	/**
-	 * Returns the alphabetically first connection label between two nodes in 
+	 * Returns the alphabetically first connection label between two nodes in
 	 * this graph. Will return null if there is no connection between the two.
 	 * @param from is the name of the node which the connection is from.
 	 * @param to is the name of the node which the connection is to.
@@ -411,19 +579,27 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * will be returned if there is no such connection.
 	 */
 	public N getFirstConnectionLabel(T from, T to) {
-		if (!(this.nodeExists(from) && this.nodeExists(to))) {
+		int fromId = this.idOf(from);
+		int toId = this.idOf(to);
+		if (fromId < 0 || toId < 0) {
 			throw new IllegalArgumentException("One or more of the nodes"
 											+ " do not exist in this graph.");
 		}
-		Set<N> connectionLabels = new TreeSet<N>(this.isConnectedWith(from, to));
-		Iterator<N> it = connectionLabels.iterator();
-		if (it.hasNext()) {
-			return it.next();
-		} else {
-			return null;
+		// Only need the smallest label so there is no need to sort them all.
+		N first = null;
+		EdgeSet out = this.outgoing[fromId];
+		for (int i = 0; i < out.capacity(); i++) {
+			long edge = out.slot(i);
+			if (edge != EdgeSet.EMPTY && EdgeSet.node(edge) == toId) {
+				N label = this.labelIds.valueOf(EdgeSet.label(edge));
+				if (first == null || label.compareTo(first) < 0) {
+					first = label;
+				}
+			}
 		}
+		return first;
 	}
-	
+
 	/**
 	 * Returns the number of nodes a specific node is connected to.
 	 * @param name of the node.
@@ -433,15 +609,31 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * this graph.
 	 */
 	public int numOfConnectedNodes(T name) {
-		Set<T> characters = new HashSet<T>();
-		for (Connection<T, N> con : this.connections) {
-			if (con.getFrom().equals(name)) {
-				characters.add(con.getTo());
+		int id = this.idOf(name);
+		if (id < 0) {
+			return 0;
+		}
+		// Sorting the ids of the nodes connected to puts any repeats next to
+		// each other so they can be counted without a set.
+		EdgeSet out = this.outgoing[id];
+		int[] children = new int[out.size()];
+		int size = 0;
+		for (int i = 0; i < out.capacity(); i++) {
+			long edge = out.slot(i);
+			if (edge != EdgeSet.EMPTY) {
+				children[size++] = EdgeSet.node(edge);
+			}
+		}
+		Arrays.sort(children);
+		int characters = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || children[i] != children[i - 1]) {
+				characters++;
 			}
 		}
-		return characters.size();
+		return characters;
 	}
-	
+
 	/**
 	 * Returns the number of connections coming from this node.
 	 * @param name of the node where the connections are coming from.
@@ -452,19 +644,14 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * this graph.
 	 */
 	public int numOfConnections(T name) {
-		if (!this.nodeExists(name)) {
+		int id = this.idOf(name);
+		if (id < 0) {
 			throw new IllegalArgumentException("This node does not exist in "
 					+ "the graph.");
 		}
-		int connections = 0;
-		for (Connection<T, N> con : this.connections) {
-			if (con.getFrom().equals(name)) {
-				connections++;
-			}
-		}
-		return connections;
+		return this.outgoing[id].size();
 	}
-	
+
 	/**
 	 * Returns the number of times a certain node is connected with
 	 * another node.
@@ -476,19 +663,376 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 	 * currently in this graph.
 	 */
 	public int numOfConnections(T from, T to) {
-		if (!(this.nodeExists(from) && this.nodeExists(to))) {
+		int fromId = this.idOf(from);
+		int toId = this.idOf(to);
+		if (fromId < 0 || toId < 0) {
 			throw new IllegalArgumentException("One or more of the nodes do "
 					+ "not exist in this graph.");
 		}
 		int connections = 0;
-		for (Connection<T, N> con : this.connections) {
-			if (con.getFrom().equals(from) && con.getTo().equals(to)) {
+		EdgeSet out = this.outgoing[fromId];
+		for (int i = 0; i < out.capacity(); i++) {
+			long edge = out.slot(i);
+			if (edge != EdgeSet.EMPTY && EdgeSet.node(edge) == toId) {
 				connections++;
 			}
 		}
 		return connections;
 	}
-	
+
+	/**
+	 * Returns every connection with a certain label. The first query by 
+	 * label builds an index of the connections by label, after which a 
+	 * query takes time in proportion to the number of connections found.
+	 * @param label is the label of the connections.
+	 * @requires label must be non-null.
+	 * @return A set of the connections with the label, which is empty if 
+	 * there are none.
+	 */
+	public Set<Connection<T, N>> connectionsWithLabel(N label) {
+		EdgeSet pairs = this.withLabel(label);
+		if (pairs == null) {
+			return new HashSet<Connection<T, N>>();
+		}
+		Set<Connection<T, N>> cons =
+				new HashSet<Connection<T, N>>(2 * pairs.size());
+		for (int i = 0; i < pairs.capacity(); i++) {
+			long pair = pairs.slot(i);
+			if (pair != EdgeSet.EMPTY) {
+				cons.add(new Connection<T, N>(
+						this.nodeIds.valueOf(EdgeSet.node(pair)),
+						this.nodeIds.valueOf(EdgeSet.label(pair)), label));
+			}
+		}
+		return cons;
+	}
+
+	/**
+	 * Returns every node which a connection with a certain label is from or
+	 * to, such as the characters who appear in a book. Uses the same index 
+	 * as connectionsWithLabel.
+	 * @param label is the label of the connections.
+	 * @requires label must be non-null.
+	 * @return A set of the nodes at either end of a connection with the 
+	 * label, which is empty if there are none.
+	 */
+	public Set<T> nodesWithLabel(N label) {
+		EdgeSet pairs = this.withLabel(label);
+		if (pairs == null) {
+			return new HashSet<T>();
+		}
+		Set<T> nodes = new HashSet<T>();
+		for (int i = 0; i < pairs.capacity(); i++) {
+			long pair = pairs.slot(i);
+			if (pair != EdgeSet.EMPTY) {
+				nodes.add(this.nodeIds.valueOf(EdgeSet.node(pair)));
+				nodes.add(this.nodeIds.valueOf(EdgeSet.label(pair)));
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of connections with a certain label. Uses the same
+	 * index as connectionsWithLabel.
+	 * @param label is the label of the connections.
+	 * @requires label must be non-null.
+	 * @return The number of connections with the label.
+	 */
+	public int numOfConnectionsWithLabel(N label) {
+		EdgeSet pairs = this.withLabel(label);
+		return pairs == null ? 0 : pairs.size();
+	}
+
+	/**
+	 * Removes every connection with a certain label, finding them with the 
+	 * same index as connectionsWithLabel instead of looking through every
+	 * connection. The connections are removed one at a time exactly as by
+	 * removeConnection, in order of the id of the node they leave and then
+	 * of the node they go to, which is the order the nodes were first added
+	 * to this graph. So a node is removed as soon as it is left with no 
+	 * connections leaving it, along with its connections, and a connection
+	 * with the label which went to or from it is not removed again.
+	 * @param label is the label of the connections.
+	 * @requires label must be non-null.
+	 * @effects Removes the connections with the label and any node left 
+	 * without connections leaving it, as removeConnection would.
+	 * @modifies This graph.
+	 * @return The number of connections with the label which were removed,
+	 * either one at a time or along with a node.
+	 */
+	public int removeConnectionsByLabel(N label) {
+		EdgeSet pairs = this.withLabel(label);
+		if (pairs == null || pairs.size() == 0) {
+			return 0;
+		}
+		int labelId = this.labelIds.idOf(label);
+		long[] removed = new long[pairs.size()];
+		int count = 0;
+		for (int i = 0; i < pairs.capacity(); i++) {
+			if (pairs.slot(i) != EdgeSet.EMPTY) {
+				removed[count++] = pairs.slot(i);
+			}
+		}
+		// Packed pairs sort by the from node and then the to node.
+		Arrays.sort(removed);
+		for (long pair : removed) {
+			int fromId = EdgeSet.node(pair);
+			int toId = EdgeSet.label(pair);
+			if (this.outgoing[fromId] != null && this.outgoing[fromId]
+					.contains(EdgeSet.pack(toId, labelId))) {
+				this.removeConnection(this.nodeIds.valueOf(fromId),
+						this.nodeIds.valueOf(toId), label);
+			}
+		}
+		this.checkRep();
+		return count;
+	}
+
+	/**
+	 * Counts the nodes of this graph by the number of connections leaving
+	 * them. The counts are kept up to date as the graph changes, so this 
+	 * only takes time for the length of the array it returns. The number of
+	 * connections leaving one node is given by numOfConnections(T), which 
+	 * does not look at the connections either.
+	 * @return An array whose element d is the number of nodes with exactly
+	 * d connections leaving them. Its last element is the count for the 
+	 * largest number of connections any node has, and it is empty if this 
+	 * graph has no nodes.
+	 */
+	public int[] degreeHistogram() {
+		this.buildHubs();
+		int maxDegree = this.atLeast.length - 1;
+		while (maxDegree >= 0 && this.atLeast[maxDegree] == 0) {
+			maxDegree--;
+		}
+		int[] histogram = new int[maxDegree + 1];
+		for (int d = 0; d <= maxDegree; d++) {
+			histogram[d] = this.atLeast[d] - this.atLeast[d + 1];
+		}
+		return histogram;
+	}
+
+	/**
+	 * Returns the nodes with the most connections leaving them. The nodes 
+	 * are kept sorted by their number of connections as the graph changes,
+	 * so this only sorts the nodes it returns and the nodes tied with the 
+	 * last of them.
+	 * @param k is the number of nodes to return.
+	 * @requires k >= 0
+	 * @throws IllegalArgumentException if k is negative.
+	 * @return A list of the k nodes with the most connections leaving them,
+	 * or every node if there are fewer than k, from the most connections to
+	 * the fewest. Nodes with the same number of connections are in their 
+	 * natural order.
+	 */
+	public List<T> hubs(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Cannot find a negative number "
+					+ "of nodes.");
+		}
+		this.buildHubs();
+		k = Math.min(k, this.numOfNodes);
+		List<T> top = new ArrayList<T>(k);
+		if (k == 0) {
+			return top;
+		}
+		// Every node with more connections than the k-th node is returned,
+		// and only enough of the nodes tied with it to make k.
+		int lastDegree = this.outgoing[this.hubs[k - 1]].size();
+		int tiesStart = this.atLeast[lastDegree + 1];
+		PriorityQueue<T> ties = new PriorityQueue<T>(k - tiesStart,
+				Collections.reverseOrder());
+		for (int i = tiesStart; i < this.atLeast[lastDegree]; i++) {
+			ties.add(this.nodeIds.valueOf(this.hubs[i]));
+			if (ties.size() > k - tiesStart) {
+				ties.poll();
+			}
+		}
+		List<T> sorted = new ArrayList<T>(tiesStart);
+		for (int i = 0; i < tiesStart; i++) {
+			sorted.add(this.nodeIds.valueOf(this.hubs[i]));
+		}
+		Collections.sort(sorted, new Comparator<T>() {
+			public int compare(T a, T b) {
+				int byDegree = Integer.compare(numOfConnections(b), 
+						numOfConnections(a));
+				return byDegree != 0 ? byDegree : a.compareTo(b);
+			}
+		});
+		top.addAll(sorted);
+		sorted = new ArrayList<T>(ties);
+		Collections.sort(sorted);
+		top.addAll(sorted);
+		return top;
+	}
+
+	/**
+	 * Returns a read-only snapshot of this graph in compressed sparse row
+	 * form which searches can walk without creating objects. The snapshot is
+	 * kept and handed out again until this graph is modified.
+	 * @return A compact copy of the nodes and connections of this graph.
+	 */
+	public CompactGraph<T, N> freeze() {
+		return this.snapshot().freeze();
+	}
+
+	/**
+	 * Returns a view of the nodes and labels of this graph which pass 
+	 * tests, for searching part of the graph. The view is of freeze(), so it
+	 * does not copy the graph unless it has changed since it was last 
+	 * frozen, and it does not see later changes.
+	 * @param nodes tests whether a node is in the view.
+	 * @param labels tests whether connections with a label are in the view.
+	 * @requires nodes and labels are non-null.
+	 * @return A view of this graph without the nodes and labels which fail
+	 * the tests.
+	 */
+	public Subgraph<T, N> subgraph(Predicate<? super T> nodes,
+			Predicate<? super N> labels) {
+		return new Subgraph<T, N>(this.freeze(), nodes, labels);
+	}
+
+	/**
+	 * Returns an immutable version of the current state of this graph. 
+	 * Taking a version does not copy the graph; the version shares the 
+	 * connections of this graph and only the parts which are changed 
+	 * afterwards are copied. A version can be kept and used for as long as 
+	 * needed while this graph keeps changing, and is reclaimed by the 
+	 * garbage collector once nothing refers to it.
+	 * @return The version of the current state of this graph.
+	 */
+	public GraphVersion<T, N> snapshot() {
+		if (this.published == null) {
+			this.published = new GraphVersion<T, N>(this.version, 
+					this.nodeIds, this.labelIds, this.outgoing, 
+					this.numOfNodes, this.numOfEdges, this.fingerprint);
+		}
+		return this.published;
+	}
+
+	/**
+	 * Estimates how much memory this graph holds on to, so heaps can be 
+	 * sized for it. See MemoryStats for what is counted and how.
+	 * @return The number of nodes and connections in this graph and the 
+	 * estimated bytes held for its node set, connection set, indexes and 
+	 * labels.
+	 */
+	public MemoryStats memoryStats() {
+		long nodeBytes = this.nodeIds.retainedBytes() 
+				+ 2 * MemoryStats.arrayBytes(this.outgoing.length, 
+						MemoryStats.REFERENCE);
+		long connectionBytes = 0;
+		for (int id = 0; id < this.nodeIds.size(); id++) {
+			nodeBytes += MemoryStats.valueBytes(this.nodeIds.valueOf(id));
+			if (this.outgoing[id] != null) {
+				connectionBytes += this.outgoing[id].retainedBytes()
+						+ this.incoming[id].retainedBytes();
+			}
+		}
+		long indexBytes = 0;
+		if (this.byLabel != null) {
+			indexBytes += MemoryStats.arrayBytes(this.byLabel.length, 
+					MemoryStats.REFERENCE);
+			for (EdgeSet pairs : this.byLabel) {
+				if (pairs != null) {
+					indexBytes += pairs.retainedBytes();
+				}
+			}
+		}
+		if (this.published != null) {
+			indexBytes += this.published.frozenBytes();
+		}
+		long labelBytes = this.labelIds.retainedBytes();
+		for (int id = 0; id < this.labelIds.size(); id++) {
+			labelBytes += MemoryStats.valueBytes(this.labelIds.valueOf(id));
+		}
+		return new MemoryStats(this.numOfNodes, this.numOfEdges, nodeBytes,
+				connectionBytes, indexBytes, labelBytes);
+	}
+
+	/**
+	 * Returns the number of the version the current state of this graph 
+	 * belongs to. All the changes made between two calls to snapshot() are 
+	 * one batch and share a version number, and every batch gets a larger 
+	 * number than the one before it.
+	 * @return The version number of the current state of this graph.
+	 */
+	public long version() {
+		return this.version;
+	}
+
+	/**
+	 * Returns a 64-bit fingerprint of the connections in this graph, which
+	 * is kept up to date as the graph changes so it takes no time to read.
+	 * Equal graphs always have the same fingerprint, however they were 
+	 * built, so it can be used as the key of a cache of results worked out
+	 * from a graph; graphs with different connections have the same 
+	 * fingerprint only by a very unlikely chance. The fingerprint is made 
+	 * from the hash codes of the nodes and labels, so it is only the same 
+	 * from one run of the program to the next if their hash codes are, as 
+	 * the hash codes of strings and numbers are.
+	 * @return The fingerprint of the connections in this graph.
+	 */
+	public long fingerprint() {
+		return this.fingerprint;
+	}
+
+	/**
+	 * Adds a listener which is told about every change made to this graph 
+	 * from now on. Listeners are not copied by clone().
+	 * @param listener is the listener to add.
+	 * @requires listener is non-null.
+	 * @effects The listener is told about later changes.
+	 * @modifies This graph.
+	 */
+	public void addListener(GraphListener<T, N> listener) {
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener from this graph.
+	 * @param listener is the listener to remove.
+	 * @effects The listener is no longer told about changes.
+	 * @modifies This graph.
+	 * @return True if the listener had been added to this graph.
+	 */
+	public boolean removeListener(GraphListener<T, N> listener) {
+		return this.listeners.remove(listener);
+	}
+
+	/**
+	 * Makes the change described by an event, such as one given to a 
+	 * listener of another graph. Unlike removeConnection, applying a 
+	 * CONNECTION_REMOVED event never removes a node; any node the other graph
+	 * removed has its own NODE_REMOVED event.
+	 * @param event describes the change.
+	 * @requires event is non-null.
+	 * @effects Makes the change if it is not already made.
+	 * @modifies This graph.
+	 * @return True if this graph was changed.
+	 */
+	public boolean apply(GraphEvent<T, N> event) {
+		switch (event.getType()) {
+		case NODE_ADDED:
+			return this.addNode(event.getFrom());
+		case NODE_REMOVED:
+			return this.removeNode(event.getFrom());
+		case CONNECTION_ADDED:
+			return this.addConnection(event.getFrom(), event.getTo(),
+					event.getLabel());
+		case CONNECTION_REMOVED:
+			boolean removed = this.removeEdge(event.getFrom(), event.getTo(),
+					event.getLabel());
+			this.checkRep();
+			return removed;
+		default:
+			boolean changed = this.numOfEdges > 0;
+			this.clear();
+			return changed;
+		}
+	}
+
 	@Override
 	/**
 	 * Compares this with another object to see if the two are equal. A
@@ -503,111 +1047,882 @@ public class Graph<T extends Comparable<T>, N extends Comparable<N>> {
 			return false;
 		}
 		Graph<?, ?> other = (Graph<?, ?>) o;
-		if (!(this.connections.size() == other.connections.size())) {
+		if (!(this.numOfEdges == other.numOfEdges)
+				|| this.fingerprint != other.fingerprint) {
 			return false;
 		}
-		for (Connection<T, N> con : this.connections) {
-			if (!(other.connections.contains(con))) {
-				return false;
+		// The two graphs hand out their own ids so each connection has to be
+		// looked up in the other graph by its values.
+		for (int id = 0; id < this.nodeIds.size(); id++) {
+			EdgeSet out = this.outgoing[id];
+			if (out == null) {
+				continue;
+			}
+			T from = this.nodeIds.valueOf(id);
+			for (int i = 0; i < out.capacity(); i++) {
+				long edge = out.slot(i);
+				if (edge != EdgeSet.EMPTY && !other.containsEdge(from,
+						this.nodeIds.valueOf(EdgeSet.node(edge)),
+						this.labelIds.valueOf(EdgeSet.label(edge)))) {
+					return false;
+				}
 			}
 		}
 		return true;
 	}
-	
+
 	/**
-	 * Clones the graph to another graph object.
+	 * Clones the graph to another graph object. The clone shares the 
+	 * connections of this graph rather than copying them, so cloning takes
+	 * the same time however large the graph is. Each graph copies a set of
+	 * connections the first time it changes it, so the two graphs stay 
+	 * independent.
+	 * @modifies This graph, which will copy shared connections before 
+	 * changing them.
 	 * @return A clone of this.
 	 */
 	public Graph<T, N> clone() {
 		Graph<T, N> clone = new Graph<T, N>();
-		clone.nodes = new HashSet<T>(this.nodes);
-		clone.connections = new HashSet<Connection<T, N>>(this.connections);
+		clone.nodeIds = this.nodeIds;
+		clone.labelIds = this.labelIds;
+		clone.outgoing = this.outgoing;
+		clone.incoming = this.incoming;
+		clone.numOfNodes = this.numOfNodes;
+		clone.numOfEdges = this.numOfEdges;
+		clone.fingerprint = this.fingerprint;
+		clone.generation = this.generation;
+		clone.sharedSets = true;
+		clone.sharedIds = true;
+		this.sharedSets = true;
+		this.sharedIds = true;
 		return clone;
 	}
-	
+
+	/**
+	 * Copies the graph to another graph object, copying every set of
+	 * connections the way clone() did before clones shared them. Copying
+	 * takes time for the size of the graph, but neither graph is marked as
+	 * shared, so neither has to copy anything when it is changed later.
+	 * Listeners are not copied.
+	 * @return A copy of this.
+	 */
+	public Graph<T, N> copy() {
+		Graph<T, N> copy = new Graph<T, N>();
+		copy.nodeIds = new Dictionary<T>(this.nodeIds);
+		copy.labelIds = new Dictionary<N>(this.labelIds);
+		copy.outgoing = new EdgeSet[this.outgoing.length];
+		copy.incoming = new EdgeSet[this.incoming.length];
+		for (int id = 0; id < this.nodeIds.size(); id++) {
+			if (this.outgoing[id] != null) {
+				copy.outgoing[id] = new EdgeSet(this.outgoing[id], 0);
+				copy.incoming[id] = new EdgeSet(this.incoming[id], 0);
+			}
+		}
+		copy.numOfNodes = this.numOfNodes;
+		copy.numOfEdges = this.numOfEdges;
+		copy.fingerprint = this.fingerprint;
+		copy.checkRep();
+		return copy;
+	}
+
 	@Override
 	/**
-	 * Returns a hash representation of this graph.
+	 * Returns a hash representation of this graph, which is taken from 
+	 * fingerprint() so it does not look at the connections.
 	 * @returns An integer representing the graph.
 	 */
 	public int hashCode() {
-		return this.connections.hashCode();
+		return (int) (this.fingerprint ^ (this.fingerprint >>> 32));
 	}
-	
+
 	@Override
 	/**
 	 * Creates a string representation of this graph and its contents.
 	 * @returns A string representation of this graph.
 	 */
 	public String toString() {
-		String result = "";
-		Map<T, TreeSet<N>> fromToLabel = new TreeMap<T, TreeSet<N>>();
-		for (Connection<T, N> con : this.connections) {
-			if (!fromToLabel.containsKey(con.getFrom())) {
-				fromToLabel.put(con.getFrom(), new TreeSet<N>());
-			}
-			fromToLabel.get(con.getFrom()).add(con.getLabel());				
+		StringBuilder result = new StringBuilder();
+		try {
+			this.writeTo(result);
+		} catch (IOException e) {
+			// A StringBuilder never throws an IOException.
+			throw new AssertionError(e);
 		}
+		return result.toString();
+	}
 
-		Set<T> keys = fromToLabel.keySet();
-		for (T node : keys) {
-			Set<N> allLabels = fromToLabel.get(node);
-			for (N label : allLabels) {
-				result += node.toString() + " ";
-				result += label.toString() + '\n';
-			}
+	/**
+	 * Writes the string representation of this graph to out as it is made,
+	 * rather than building the whole string first. Each line is a node and 
+	 * the label of a connection leaving it, sorted by node and then by
+	 * label, with each label only once for each node.
+	 * @param out is where the string representation is written.
+	 * @requires out is non-null.
+	 * @throws IOException if out cannot be written to.
+	 * @effects Appends toString() to out.
+	 * @modifies out
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		GraphVersion<T, N> current = this.published;
+		if (current == null) {
+			// The graph cannot change while it is being written, so there is
+			// no need to publish a version which later changes must copy.
+			current = new GraphVersion<T, N>(this.version, this.nodeIds,
+					this.labelIds, this.outgoing, this.numOfNodes,
+					this.numOfEdges, this.fingerprint);
 		}
-		return result;
+		current.writeTo(out);
 	}
 
-	
 	/**
-	 * Creates an iterator which will cycle through the graph. In an 
-	 * alphabetical fashion is will go through where the connection is from 
-	 * and the book they were in.
+	 * Creates an iterator which will cycle through the graph. In an
+	 * alphabetical fashion is will go through where the connection is from
+	 * and the book they were in. The iterator walks a version of the graph
+	 * taken when it was created, so later changes to the graph do not 
+	 * affect it.
 	 * @return An iterator over this graph.
 	 */
 	public Iterator<String> iterator() {
-		Map<T, TreeSet<N>> fromToLabel = new TreeMap<T, TreeSet<N>>();
-		for (Connection<T, N> con : this.connections) {
-			if (!fromToLabel.containsKey(con.getFrom())) {
-				fromToLabel.put(con.getFrom(), new TreeSet<N>());
+		return this.snapshot().iterator();
+	}
+
+	/**
+	 * Returns the id of a node in this graph.
+	 * @param name of the node.
+	 * @return The id of the node or -1 if it is not in this graph.
+	 */
+	private int idOf(Object name) {
+		int id = this.nodeIds.idOf(name);
+		if (id < 0 || this.outgoing[id] == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Adds a node to this graph if it is not already in it.
+	 * @param name of the node.
+	 * @requires name to be non-null.
+	 * @modifies This graph.
+	 * @effects Gives the node an id and empty sets of connections.
+	 * @return The id of the node.
+	 */
+	private int addNodeId(T name) {
+		if (this.sharedIds && this.nodeIds.idOf(name) < 0) {
+			this.copyIds();
+		}
+		int numOfIds = this.nodeIds.size();
+		int id = this.nodeIds.intern(name);
+		if (id >= this.outgoing.length) {
+			int capacity = 2 * this.outgoing.length;
+			this.outgoing = Arrays.copyOf(this.outgoing, capacity);
+			this.incoming = Arrays.copyOf(this.incoming, capacity);
+		}
+		if (id >= numOfIds && this.hubs != null) {
+			if (id >= this.hubs.length) {
+				this.hubs = Arrays.copyOf(this.hubs, 2 * this.hubs.length);
+				this.hubPositions = Arrays.copyOf(this.hubPositions, 
+						this.hubs.length);
+			}
+			this.hubs[id] = id;
+			this.hubPositions[id] = id;
+		}
+		if (this.outgoing[id] == null) {
+			GraphEvent<T, N> event = null;
+			if (!this.listeners.isEmpty()) {
+				event = GraphEvent.<T, N>nodeAdded(name);
+				this.fireChanging(event);
+			}
+			this.raiseDegree(id, -1);
+			this.beginChange();
+			this.outgoing[id] = new EdgeSet(this.generation);
+			this.incoming[id] = new EdgeSet(this.generation);
+			this.numOfNodes++;
+			if (event != null) {
+				this.fireChanged(event);
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * Removes a connection without removing either of its nodes.
+	 * @param from is the name of the node that the connection is from.
+	 * @param to is the name node that the connection is to.
+	 * @param label is the label of the connection.
+	 * @modifies This graph.
+	 * @effects Removes the connection if it is in this graph.
+	 * @return True if the connection was removed.
+	 */
+	private boolean removeEdge(T from, T to, N label) {
+		int fromId = this.idOf(from);
+		int toId = this.idOf(to);
+		int labelId = this.labelIds.idOf(label);
+		if (fromId < 0 || toId < 0 || labelId < 0
+				|| !this.outgoing[fromId].contains(
+						EdgeSet.pack(toId, labelId))) {
+			return false;
+		}
+		this.removeEdgeById(fromId, toId, labelId);
+		return true;
+	}
+
+	/**
+	 * Removes a connection which is in this graph without removing either of
+	 * its nodes.
+	 * @param fromId is the id of the node that the connection is from.
+	 * @param toId is the id of the node that the connection is to.
+	 * @param labelId is the id of the label of the connection.
+	 * @requires The connection is in this graph.
+	 * @modifies This graph.
+	 * @effects Removes the connection.
+	 */
+	private void removeEdgeById(int fromId, int toId, int labelId) {
+		GraphEvent<T, N> event = null;
+		if (!this.listeners.isEmpty()) {
+			event = GraphEvent.<T, N>connectionRemoved(
+					this.nodeIds.valueOf(fromId), this.nodeIds.valueOf(toId),
+					this.labelIds.valueOf(labelId));
+			this.fireChanging(event);
+		}
+		this.beginChange();
+		this.lowerDegree(fromId, this.outgoing[fromId].size());
+		this.outgoingToChange(fromId).remove(EdgeSet.pack(toId, labelId));
+		this.incomingToChange(toId).remove(EdgeSet.pack(fromId, labelId));
+		this.unindex(fromId, toId, labelId);
+		this.numOfEdges--;
+		this.fingerprint -= this.edgeFingerprint(fromId, toId, labelId);
+		if (event != null) {
+			this.fireChanged(event);
+		}
+	}
+
+	/**
+	 * Returns the connections with a label, building the index of
+	 * connections by label if it has not been built yet.
+	 * @param label is the label of the connections.
+	 * @modifies This graph.
+	 * @return The (from, to) pairs of the connections with the label, or 
+	 * null if there are none.
+	 */
+	private EdgeSet withLabel(Object label) {
+		int labelId = this.labelIds.idOf(label);
+		if (labelId < 0) {
+			return null;
+		}
+		if (this.byLabel == null) {
+			this.byLabel = new EdgeSet[Math.max(DEFAULT_CAPACITY,
+					this.labelIds.size())];
+			for (int id = 0; id < this.nodeIds.size(); id++) {
+				EdgeSet out = this.outgoing[id];
+				for (int i = 0; out != null && i < out.capacity(); i++) {
+					long edge = out.slot(i);
+					if (edge != EdgeSet.EMPTY) {
+						this.index(id, EdgeSet.node(edge), 
+								EdgeSet.label(edge));
+					}
+				}
+			}
+		}
+		return labelId < this.byLabel.length ? this.byLabel[labelId] : null;
+	}
+
+	/**
+	 * Adds a connection to the index by label if it has been built.
+	 * @param from is the id of the node the connection is from.
+	 * @param to is the id of the node the connection is to.
+	 * @param label is the id of the label of the connection.
+	 * @modifies This graph.
+	 */
+	private void index(int from, int to, int label) {
+		if (this.byLabel == null) {
+			return;
+		}
+		if (label >= this.byLabel.length) {
+			this.byLabel = Arrays.copyOf(this.byLabel,
+					Math.max(2 * this.byLabel.length, label + 1));
+		}
+		if (this.byLabel[label] == null) {
+			this.byLabel[label] = new EdgeSet(0);
+		}
+		this.byLabel[label].add(EdgeSet.pack(from, to));
+	}
+
+	/**
+	 * Removes a connection from the index by label if it has been built.
+	 * @param from is the id of the node the connection is from.
+	 * @param to is the id of the node the connection is to.
+	 * @param label is the id of the label of the connection.
+	 * @modifies This graph.
+	 */
+	private void unindex(int from, int to, int label) {
+		if (this.byLabel != null) {
+			this.byLabel[label].remove(EdgeSet.pack(from, to));
+		}
+	}
+
+	/**
+	 * Builds the nodes sorted by degree if they have not been built yet.
+	 * @modifies This graph.
+	 */
+	private void buildHubs() {
+		if (this.hubs != null) {
+			return;
+		}
+		int numOfIds = this.nodeIds.size();
+		int maxDegree = 0;
+		for (int id = 0; id < numOfIds; id++) {
+			if (this.outgoing[id] != null) {
+				maxDegree = Math.max(maxDegree, this.outgoing[id].size());
+			}
+		}
+		this.atLeast = new int[maxDegree + 2];
+		for (int id = 0; id < numOfIds; id++) {
+			if (this.outgoing[id] != null) {
+				this.atLeast[this.outgoing[id].size()]++;
+			}
+		}
+		for (int d = maxDegree - 1; d >= 0; d--) {
+			this.atLeast[d] += this.atLeast[d + 1];
+		}
+		int capacity = Math.max(DEFAULT_CAPACITY, numOfIds);
+		this.hubs = new int[capacity];
+		this.hubPositions = new int[capacity];
+		int[] next = Arrays.copyOf(this.atLeast, this.atLeast.length);
+		int absent = this.atLeast[0];
+		for (int id = 0; id < numOfIds; id++) {
+			int position;
+			if (this.outgoing[id] == null) {
+				position = absent++;
+			} else {
+				position = next[this.outgoing[id].size() + 1]++;
+			}
+			this.hubs[position] = id;
+			this.hubPositions[id] = position;
+		}
+	}
+
+	/**
+	 * Moves a node which is about to gain a connection into the range of 
+	 * the nodes with one more connection, if the nodes sorted by degree 
+	 * have been built.
+	 * @param id of the node.
+	 * @param degree is the number of connections leaving the node before it
+	 * gains one, or -1 if it is being added to this graph.
+	 * @modifies This graph.
+	 */
+	private void raiseDegree(int id, int degree) {
+		if (this.hubs == null) {
+			return;
+		}
+		if (degree + 2 >= this.atLeast.length) {
+			this.atLeast = Arrays.copyOf(this.atLeast, 
+					2 * this.atLeast.length);
+		}
+		this.swapHubs(id, this.atLeast[degree + 1]);
+		this.atLeast[degree + 1]++;
+	}
+
+	/**
+	 * Moves a node which is about to lose a connection into the range of 
+	 * the nodes with one less connection, if the nodes sorted by degree 
+	 * have been built.
+	 * @param id of the node.
+	 * @param degree is the number of connections leaving the node before it
+	 * loses one; losing one from 0 means it is being removed from this 
+	 * graph.
+	 * @modifies This graph.
+	 */
+	private void lowerDegree(int id, int degree) {
+		if (this.hubs == null) {
+			return;
+		}
+		this.swapHubs(id, this.atLeast[degree] - 1);
+		this.atLeast[degree]--;
+	}
+
+	/**
+	 * Swaps a node id with the id at a position of hubs.
+	 * @param id of the node.
+	 * @param position to move the node to.
+	 * @modifies This graph.
+	 */
+	private void swapHubs(int id, int position) {
+		int other = this.hubs[position];
+		this.hubs[this.hubPositions[id]] = other;
+		this.hubPositions[other] = this.hubPositions[id];
+		this.hubs[position] = id;
+		this.hubPositions[id] = position;
+	}
+
+	/**
+	 * Tells every listener about a change which is about to be made.
+	 * @param event describes the change.
+	 * @throws RuntimeException if a listener stops the change, in which case
+	 * the change must not be made.
+	 */
+	private void fireChanging(GraphEvent<T, N> event) {
+		for (GraphListener<T, N> listener : this.listeners) {
+			listener.graphChanging(event);
+		}
+	}
+
+	/**
+	 * Tells every listener about a change which has been made.
+	 * @param event describes the change.
+	 */
+	private void fireChanged(GraphEvent<T, N> event) {
+		for (GraphListener<T, N> listener : this.listeners) {
+			listener.graphChanged(event);
+		}
+	}
+
+	/**
+	 * Gets this graph ready to be changed. If a version of the current state
+	 * has been handed out then the arrays of sets are copied and a new 
+	 * generation and version number are started so that the version keeps 
+	 * the state it was taken from.
+	 * @modifies This graph.
+	 */
+	private void beginChange() {
+		if (this.published != null || this.sharedSets) {
+			this.outgoing = this.outgoing.clone();
+			this.incoming = this.incoming.clone();
+			this.generation++;
+			this.sharedSets = false;
+		}
+		if (this.published != null) {
+			this.version++;
+			this.published = null;
+		}
+	}
+
+	/**
+	 * Returns the id of a label, giving it a new id if it has not been seen
+	 * before.
+	 * @param label is the label to look up.
+	 * @requires label is non-null.
+	 * @modifies This graph.
+	 * @return The id of the label.
+	 */
+	private int internLabel(N label) {
+		if (this.sharedIds && this.labelIds.idOf(label) < 0) {
+			this.copyIds();
+		}
+		return this.labelIds.intern(label);
+	}
+
+	/**
+	 * Copies the dictionaries so that new ids can be handed out without 
+	 * being seen by a graph this one was cloned from or to.
+	 * @modifies This graph.
+	 * @effects This graph no longer shares its dictionaries.
+	 */
+	private void copyIds() {
+		this.nodeIds = new Dictionary<T>(this.nodeIds);
+		this.labelIds = new Dictionary<N>(this.labelIds);
+		this.sharedIds = false;
+	}
+
+	/**
+	 * Returns the set of connections leaving a node, copying it first if it
+	 * may be shared with a version.
+	 * @param id of a node in this graph.
+	 * @modifies This graph.
+	 * @return A set which can be changed.
+	 */
+	private EdgeSet outgoingToChange(int id) {
+		if (this.outgoing[id].generation() != this.generation) {
+			this.outgoing[id] = new EdgeSet(this.outgoing[id], 
+					this.generation);
+		}
+		return this.outgoing[id];
+	}
+
+	/**
+	 * Returns the set of connections ending at a node, copying it first if
+	 * it may be shared with a version.
+	 * @param id of a node in this graph.
+	 * @modifies This graph.
+	 * @return A set which can be changed.
+	 */
+	private EdgeSet incomingToChange(int id) {
+		if (this.incoming[id].generation() != this.generation) {
+			this.incoming[id] = new EdgeSet(this.incoming[id], 
+					this.generation);
+		}
+		return this.incoming[id];
+	}
+
+	/**
+	 * Works out the part of the fingerprint which one connection adds.
+	 * @param from is the id of the node the connection is from.
+	 * @param to is the id of the node the connection is to.
+	 * @param label is the id of the label of the connection.
+	 * @return A 64-bit hash of the values of the connection.
+	 */
+	private long edgeFingerprint(int from, int to, int label) {
+		long hash = mix(this.nodeIds.valueOf(from).hashCode());
+		hash = mix(hash ^ this.nodeIds.valueOf(to).hashCode());
+		return mix(hash ^ this.labelIds.valueOf(label).hashCode());
+	}
+
+	/**
+	 * Spreads the bits of a hash over all 64 bits, so that the sum of the
+	 * hashes of different sets of connections is very unlikely to be the 
+	 * same.
+	 * @param hash is the value to mix.
+	 * @return The mixed value.
+	 */
+	private static long mix(long hash) {
+		hash = (hash + 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+
+	/**
+	 * @return The sum of edgeFingerprint of every connection in this graph.
+	 */
+	private long sumOfFingerprints() {
+		long sum = 0;
+		for (int id = 0; id < this.nodeIds.size(); id++) {
+			EdgeSet out = this.outgoing[id];
+			if (out == null) {
+				continue;
+			}
+			for (int i = 0; i < out.capacity(); i++) {
+				long edge = out.slot(i);
+				if (edge != EdgeSet.EMPTY) {
+					sum += this.edgeFingerprint(id, EdgeSet.node(edge),
+							EdgeSet.label(edge));
+				}
 			}
-			fromToLabel.get(con.getFrom()).add(con.getLabel());
 		}
-		
-		ArrayList<String> info = new ArrayList<String>();
-		Set<T> keys = fromToLabel.keySet();
-		for (T node : keys) {
-			Set<N> allLabels = fromToLabel.get(node);
-			for (N label : allLabels) {
-				info.add(node.toString());
-				info.add(label.toString());
+		return sum;
+	}
+
+	/**
+	 * Checks for a connection by the values of its ends and label.
+	 * @return True if the connection is in this graph.
+	 */
+	private boolean containsEdge(Object from, Object to, Object label) {
+		int fromId = this.idOf(from);
+		int toId = this.idOf(to);
+		int labelId = this.labelIds.idOf(label);
+		return fromId >= 0 && toId >= 0 && labelId >= 0
+				&& this.outgoing[fromId].contains(
+						EdgeSet.pack(toId, labelId));
+	}
+
+	/**
+	 * Adds a Connection object for every connection leaving a node.
+	 * @param id of the node.
+	 * @param cons is the set the connections are added to.
+	 * @modifies cons
+	 */
+	private void addConnectionsFrom(int id, Set<Connection<T, N>> cons) {
+		T from = this.nodeIds.valueOf(id);
+		EdgeSet out = this.outgoing[id];
+		for (int i = 0; i < out.capacity(); i++) {
+			long edge = out.slot(i);
+			if (edge != EdgeSet.EMPTY) {
+				cons.add(new Connection<T, N>(from,
+						this.nodeIds.valueOf(EdgeSet.node(edge)),
+						this.labelIds.valueOf(EdgeSet.label(edge))));
 			}
 		}
-		return info.iterator();
 	}
-	
+
 	private void checkRep() {
 		// this.connections != null
-		assert (this.connections != null) : "The storage device of the "
-										+ "connections cannot be null.";
-		
+		assert (this.outgoing != null && this.incoming != null) : "The "
+				+ "storage device of the connections cannot be null.";
+
 		// this.characters != null
-		assert (this.nodes != null) : "The storage device of the "
-										+ "nodes cannot be null.";
-		
+		assert (this.nodeIds != null && this.labelIds != null) : "The "
+				+ "storage device of the nodes cannot be null.";
+
 		// Very expensive check here therefore it can be toggled off for
 		// larger graphs.
 		if (DEBUG_MODE) {
-			for (Connection<T, N> con1 : this.connections) {
-				// for (Connection con : connections) 
-				// { characters.contains(con.from) == true }
-				assert (this.nodes.contains(con1.getFrom()) == true);
-				assert (this.nodes.contains(con1.getTo()) == true);
+			int nodes = 0;
+			int edges = 0;
+			for (int id = 0; id < this.nodeIds.size(); id++) {
+				EdgeSet out = this.outgoing[id];
+				assert ((out == null) == (this.incoming[id] == null));
+				if (out == null) {
+					continue;
+				}
+				nodes++;
+				edges += out.size();
+				for (int i = 0; i < out.capacity(); i++) {
+					long edge = out.slot(i);
+					if (edge != EdgeSet.EMPTY) {
+						// for (Connection con : connections)
+						// { nodes.contains(con.to) == true }
+						int to = EdgeSet.node(edge);
+						assert (this.incoming[to] != null);
+						assert (this.incoming[to].contains(
+								EdgeSet.pack(id, EdgeSet.label(edge))));
+					}
+				}
+			}
+			assert (nodes == this.numOfNodes);
+			assert (edges == this.numOfEdges);
+			assert (this.sumOfFingerprints() == this.fingerprint);
+			if (this.hubs != null) {
+				int previous = Integer.MAX_VALUE;
+				for (int i = 0; i < this.nodeIds.size(); i++) {
+					assert (this.hubPositions[this.hubs[i]] == i);
+					EdgeSet out = this.outgoing[this.hubs[i]];
+					int degree = out == null ? -1 : out.size();
+					assert (degree <= previous);
+					assert (degree < 0 || (i < this.atLeast[degree] 
+							&& i >= this.atLeast[degree + 1]));
+					previous = degree;
+				}
+			}
+			if (this.byLabel != null) {
+				int indexed = 0;
+				for (EdgeSet pairs : this.byLabel) {
+					indexed += pairs == null ? 0 : pairs.size();
+				}
+				assert (indexed == this.numOfEdges);
 			}
 		}
 	}
-	
-}
 
+	/**
+	 * Builds a graph from many nodes and connections at once. Connections are
+	 * collected without checking them one at a time; duplicates are removed
+	 * in bulk when the graph is built, so loading a large data set does much
+	 * less work than calling addConnection for every connection.
+	 * @author L. James Davidson
+	 *
+	 * @param <T> is the type of object which will define the nodes.
+	 * @param <N> is the type of object which will define paths between nodes.
+	 */
+	public static class Builder<T extends Comparable<T>,
+			N extends Comparable<N>> {
+
+		// Sorting the connections of each node on its own thread only pays
+		// off once there are this many connections.
+		private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+		// AF: The graph being built has every node with an id in nodeIds and
+		// a connection from the node with id froms[i] to the node and label
+		// packed in tos[i] for every i < size, with repeats counted once.
+
+		// RI: nodeIds != null, labelIds != null, froms.length == tos.length,
+		// size <= froms.length, every id in froms and tos is an id of nodeIds,
+		// every label in tos is an id of labelIds.
+
+		private Dictionary<T> nodeIds;
+		private Dictionary<N> labelIds;
+		private int[] froms;
+		private long[] tos;
+		private int size;
+
+		/**
+		 * Creates a builder for an empty graph.
+		 * @effects Creates a builder with no nodes or connections.
+		 */
+		public Builder() {
+			this(DEFAULT_CAPACITY, DEFAULT_CAPACITY);
+		}
+
+		/**
+		 * Creates a builder with room for a number of nodes and connections.
+		 * @param expectedNodes is the number of nodes expected to be added.
+		 * @param expectedConnections is the number of connections expected to
+		 * be added, counting any repeats.
+		 * @requires expectedNodes >= 0, expectedConnections >= 0
+		 * @effects Creates a builder with no nodes or connections.
+		 */
+		public Builder(int expectedNodes, int expectedConnections) {
+			this.nodeIds = new Dictionary<T>(expectedNodes);
+			this.labelIds = new Dictionary<N>();
+			int capacity = Math.max(expectedConnections, DEFAULT_CAPACITY);
+			this.froms = new int[capacity];
+			this.tos = new long[capacity];
+			this.size = 0;
+		}
+
+		/**
+		 * Adds a node to the graph being built.
+		 * @param name of the node.
+		 * @requires name is non-null and build() has not been called.
+		 * @effects The graph will contain the node.
+		 * @modifies this
+		 * @return This builder.
+		 */
+		public Builder<T, N> addNode(T name) {
+			this.ids().intern(name);
+			return this;
+		}
+
+		/**
+		 * Adds a set of nodes to the graph being built.
+		 * @param setOfNames are the names of the nodes.
+		 * @requires setOfNames and its elements are non-null and build() has
+		 * not been called.
+		 * @effects The graph will contain the nodes.
+		 * @modifies this
+		 * @return This builder.
+		 */
+		public Builder<T, N> addNodes(Set<? extends T> setOfNames) {
+			for (T name : setOfNames) {
+				this.addNode(name);
+			}
+			return this;
+		}
+
+		/**
+		 * Adds a connection, and its nodes, to the graph being built. Adding
+		 * the same connection more than once is allowed and it is only put in
+		 * the graph once.
+		 * @param from is the name of the node the connection is from.
+		 * @param to is the name of the node the connection is to.
+		 * @param label is the label of the connection.
+		 * @requires All parameters are non-null and build() has not been
+		 * called.
+		 * @effects The graph will contain the connection.
+		 * @modifies this
+		 * @return This builder.
+		 */
+		public Builder<T, N> addConnection(T from, T to, N label) {
+			int fromId = this.ids().intern(from);
+			int toId = this.nodeIds.intern(to);
+			int labelId = this.labelIds.intern(label);
+			if (this.size == this.froms.length) {
+				this.froms = Arrays.copyOf(this.froms, 2 * this.size);
+				this.tos = Arrays.copyOf(this.tos, 2 * this.size);
+			}
+			this.froms[this.size] = fromId;
+			this.tos[this.size] = EdgeSet.pack(toId, labelId);
+			this.size++;
+			return this;
+		}
+
+		/**
+		 * Adds a connection, and its nodes, to the graph being built.
+		 * @param con is the connection.
+		 * @requires con is non-null and build() has not been called.
+		 * @effects The graph will contain the connection.
+		 * @modifies this
+		 * @return This builder.
+		 */
+		public Builder<T, N> addConnection(Connection<T, N> con) {
+			return this.addConnection(con.getFrom(), con.getTo(),
+					con.getLabel());
+		}
+
+		/**
+		 * Adds a set of connections, and their nodes, to the graph being
+		 * built.
+		 * @param allCons are the connections.
+		 * @requires allCons and its elements are non-null and build() has not
+		 * been called.
+		 * @effects The graph will contain the connections.
+		 * @modifies this
+		 * @return This builder.
+		 */
+		public Builder<T, N> addConnections(Set<Connection<T, N>> allCons) {
+			for (Connection<T, N> con : allCons) {
+				this.addConnection(con);
+			}
+			return this;
+		}
+
+		/**
+		 * Builds the graph. The builder cannot be used afterwards.
+		 * @requires build() has not been called.
+		 * @throws IllegalStateException if build() has already been called.
+		 * @effects Empties this builder.
+		 * @modifies this
+		 * @return A graph with every node and connection which was added.
+		 */
+		public Graph<T, N> build() {
+			Dictionary<T> ids = this.ids();
+			int numOfNodes = ids.size();
+			int capacity = Math.max(numOfNodes, DEFAULT_CAPACITY);
+
+			// Bucket the connections by the node they leave so each node's
+			// connections can be sorted, and their repeats found, on their
+			// own.
+			final int[] offsets = new int[numOfNodes + 1];
+			for (int i = 0; i < this.size; i++) {
+				offsets[this.froms[i] + 1]++;
+			}
+			for (int id = 0; id < numOfNodes; id++) {
+				offsets[id + 1] += offsets[id];
+			}
+			final long[] sorted = new long[this.size];
+			int[] next = Arrays.copyOf(offsets, numOfNodes);
+			for (int i = 0; i < this.size; i++) {
+				sorted[next[this.froms[i]]++] = this.tos[i];
+			}
+			this.froms = null;
+			this.tos = null;
+
+			IntStream nodes = IntStream.range(0, numOfNodes);
+			if (this.size >= PARALLEL_THRESHOLD) {
+				nodes = nodes.parallel();
+			}
+			nodes.forEach(new IntConsumer() {
+				public void accept(int id) {
+					Arrays.sort(sorted, offsets[id], offsets[id + 1]);
+				}
+			});
+
+			// Every repeat is now next to the connection it repeats.
+			EdgeSet[] outgoing = new EdgeSet[capacity];
+			int[] inDegree = new int[numOfNodes];
+			int numOfEdges = 0;
+			for (int id = 0; id < numOfNodes; id++) {
+				int unique = 0;
+				for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+					if (i == offsets[id] || sorted[i] != sorted[i - 1]) {
+						inDegree[EdgeSet.node(sorted[i])]++;
+						unique++;
+					}
+				}
+				outgoing[id] = new EdgeSet(0, unique);
+				for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+					outgoing[id].add(sorted[i]);
+				}
+				numOfEdges += unique;
+			}
+			EdgeSet[] incoming = new EdgeSet[capacity];
+			for (int id = 0; id < numOfNodes; id++) {
+				incoming[id] = new EdgeSet(0, inDegree[id]);
+			}
+			for (int id = 0; id < numOfNodes; id++) {
+				for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+					if (i == offsets[id] || sorted[i] != sorted[i - 1]) {
+						incoming[EdgeSet.node(sorted[i])].add(EdgeSet.pack(id,
+								EdgeSet.label(sorted[i])));
+					}
+				}
+			}
+
+			Graph<T, N> graph = new Graph<T, N>(ids, this.labelIds, outgoing,
+					incoming, numOfEdges);
+			this.nodeIds = null;
+			this.labelIds = null;
+			return graph;
+		}
+
+		/**
+		 * @throws IllegalStateException if build() has already been called.
+		 * @return The ids of the nodes.
+		 */
+		private Dictionary<T> ids() {
+			if (this.nodeIds == null) {
+				throw new IllegalStateException("This builder has already "
+						+ "built its graph.");
+			}
+			return this.nodeIds;
+		}
+	}
+}
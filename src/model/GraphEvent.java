@@ -0,0 +1,203 @@
+package model;
+
+/**
+ * Immutable description of one change made to a Graph. Every change a graph
+ * makes is described by exactly one event, so applying the events of one
+ * graph to another graph in order with Graph.apply gives the second graph
+ * the same nodes and connections.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public class GraphEvent<T extends Comparable<T>, N extends Comparable<N>> {
+
+	/**
+	 * The kinds of change a graph can make.
+	 */
+	public enum Type {
+		/** A node with no connections was added. */
+		NODE_ADDED,
+		/** A node with no connections left was removed. */
+		NODE_REMOVED,
+		/** A connection between two nodes already in the graph was added. */
+		CONNECTION_ADDED,
+		/** A connection was removed. Its nodes are left in the graph. */
+		CONNECTION_REMOVED,
+		/** Every connection was removed. The nodes are left in the graph. */
+		CLEARED
+	}
+
+	// AF: The change described is type applied to the node from, or to the
+	// connection from from to to with the label label.
+
+	// RI: type != null, from == null iff type == CLEARED,
+	// to != null and label != null iff type is CONNECTION_ADDED or
+	// CONNECTION_REMOVED
+
+	private final Type type;
+	private final T from;
+	private final T to;
+	private final N label;
+
+	/**
+	 * Creates an event.
+	 * @param type of the change.
+	 * @param from is the node changed or the node the connection leaves.
+	 * @param to is the node the connection goes to.
+	 * @param label of the connection.
+	 * @requires The parameters satisfy the representation invariant.
+	 * @effects Creates a new event.
+	 */
+	private GraphEvent(Type type, T from, T to, N label) {
+		this.type = type;
+		this.from = from;
+		this.to = to;
+		this.label = label;
+		this.checkRep();
+	}
+
+	/**
+	 * @param node which was added.
+	 * @requires node is non-null.
+	 * @return An event for adding the node.
+	 */
+	public static <T extends Comparable<T>, N extends Comparable<N>>
+			GraphEvent<T, N> nodeAdded(T node) {
+		return new GraphEvent<T, N>(Type.NODE_ADDED, node, null, null);
+	}
+
+	/**
+	 * @param node which was removed.
+	 * @requires node is non-null.
+	 * @return An event for removing the node.
+	 */
+	public static <T extends Comparable<T>, N extends Comparable<N>>
+			GraphEvent<T, N> nodeRemoved(T node) {
+		return new GraphEvent<T, N>(Type.NODE_REMOVED, node, null, null);
+	}
+
+	/**
+	 * @param from is the node the connection leaves.
+	 * @param to is the node the connection goes to.
+	 * @param label of the connection.
+	 * @requires All parameters are non-null.
+	 * @return An event for adding the connection.
+	 */
+	public static <T extends Comparable<T>, N extends Comparable<N>>
+			GraphEvent<T, N> connectionAdded(T from, T to, N label) {
+		return new GraphEvent<T, N>(Type.CONNECTION_ADDED, from, to, label);
+	}
+
+	/**
+	 * @param from is the node the connection leaves.
+	 * @param to is the node the connection goes to.
+	 * @param label of the connection.
+	 * @requires All parameters are non-null.
+	 * @return An event for removing the connection.
+	 */
+	public static <T extends Comparable<T>, N extends Comparable<N>>
+			GraphEvent<T, N> connectionRemoved(T from, T to, N label) {
+		return new GraphEvent<T, N>(Type.CONNECTION_REMOVED, from, to, label);
+	}
+
+	/**
+	 * @return An event for removing every connection.
+	 */
+	public static <T extends Comparable<T>, N extends Comparable<N>>
+			GraphEvent<T, N> cleared() {
+		return new GraphEvent<T, N>(Type.CLEARED, null, null, null);
+	}
+
+	/**
+	 * @return The kind of change.
+	 */
+	public Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * @return The node added or removed, or the node the connection leaves.
+	 * Null for CLEARED events.
+	 */
+	public T getFrom() {
+		return this.from;
+	}
+
+	/**
+	 * @return The node the connection goes to. Null unless this event is for
+	 * a connection.
+	 */
+	public T getTo() {
+		return this.to;
+	}
+
+	/**
+	 * @return The label of the connection. Null unless this event is for a
+	 * connection.
+	 */
+	public N getLabel() {
+		return this.label;
+	}
+
+	@Override
+	/**
+	 * Determines if two events describe the same change.
+	 * @returns True if the two events are equal.
+	 */
+	public boolean equals(Object o) {
+		if (!(o instanceof GraphEvent<?, ?>)) {
+			return false;
+		}
+		GraphEvent<?, ?> other = (GraphEvent<?, ?>) o;
+		return this.type == other.type && equal(this.from, other.from)
+				&& equal(this.to, other.to) && equal(this.label, other.label);
+	}
+
+	@Override
+	/**
+	 * Returns a hash code value for this event.
+	 * @return An integer representing this event.
+	 */
+	public int hashCode() {
+		int hash = this.type.hashCode();
+		hash = 31 * hash + (this.from == null ? 0 : this.from.hashCode());
+		hash = 31 * hash + (this.to == null ? 0 : this.to.hashCode());
+		return 31 * hash + (this.label == null ? 0 : this.label.hashCode());
+	}
+
+	@Override
+	/**
+	 * Returns a string representation of the event in the format
+	 * "type from to label", leaving out the parts the event does not have.
+	 * @returns A string representation of this event.
+	 */
+	public String toString() {
+		String result = this.type.toString();
+		if (this.from != null) {
+			result += " " + this.from;
+		}
+		if (this.to != null) {
+			result += " " + this.to + " " + this.label;
+		}
+		return result;
+	}
+
+	private static boolean equal(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.type != null) : "The type cannot be null.";
+		assert ((this.from == null) == (this.type == Type.CLEARED)) : "Only "
+				+ "CLEARED events have no node.";
+		boolean isConnection = this.type == Type.CONNECTION_ADDED
+				|| this.type == Type.CONNECTION_REMOVED;
+		assert ((this.to != null) == isConnection
+				&& (this.label != null) == isConnection) : "Only connection "
+				+ "events have a to node and a label.";
+	}
+}
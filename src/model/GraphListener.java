@@ -0,0 +1,36 @@
+package model;
+
+/**
+ * Is told about every change made to a Graph it has been added to. Changes
+ * made by one call to the graph, such as removeNode removing the node's
+ * connections, are passed on one event at a time in the order they are made.
+ * Each change is passed on twice: to graphChanging just before it is made
+ * and to graphChanged just after.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public interface GraphListener<T extends Comparable<T>,
+		N extends Comparable<N>> {
+
+	/**
+	 * Called before the graph makes a change, for listeners such as a log
+	 * which must record the change before it is made. If this throws, the
+	 * change is not made and the exception is passed on to the caller of the
+	 * graph. Changes already made by the same call, such as connections
+	 * removed by removeNode before the node itself, are kept, and listeners
+	 * added before this one have already been told about the change. The
+	 * listener must not change the graph. Does nothing unless overridden.
+	 * @param event describes the change.
+	 */
+	default void graphChanging(GraphEvent<T, N> event) {
+	}
+
+	/**
+	 * Called after the graph has made a change. The listener must not change
+	 * the graph.
+	 * @param event describes the change.
+	 */
+	void graphChanged(GraphEvent<T, N> event);
+}
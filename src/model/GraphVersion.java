@@ -0,0 +1,336 @@
+package model;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable version of a Graph, handed out by Graph.snapshot(). A version
+ * shares the connections of the graph it was taken from instead of copying
+ * them, so taking one is cheap, and it keeps seeing the same nodes and
+ * connections however the graph is changed afterwards. Versions can be read
+ * by many threads at once.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public final class GraphVersion<T extends Comparable<T>,
+		N extends Comparable<N>> {
+
+	// AF: The nodes of this version are nodeIds.valueOf(id) for every
+	// id < idBound where outgoing[id] != null. There is a connection from
+	// nodeIds.valueOf(from) to nodeIds.valueOf(to) with the label
+	// labelIds.valueOf(label) for every packed (to, label) in outgoing[from].
+	// Ids at or above idBound and labelBound were handed out after this
+	// version was taken.
+
+	// RI: nodeIds != null, labelIds != null, outgoing != null,
+	// idBound <= nodeIds.size(), labelBound <= labelIds.size(),
+	// idBound <= outgoing.length, number >= 0,
+	// outgoing and the sets in it are never changed.
+
+	private final long number;
+	private final Dictionary<T> nodeIds;
+	private final Dictionary<N> labelIds;
+	private final EdgeSet[] outgoing;
+	private final int idBound;
+	private final int labelBound;
+	private final int numOfNodes;
+	private final int numOfEdges;
+	private final long fingerprint;
+	// Built the first time it is asked for. Two threads may both build it,
+	// which is harmless since the snapshots are the same and immutable.
+	private volatile CompactGraph<T, N> frozen;
+
+	/**
+	 * Creates a version of the current state of a graph.
+	 * @param number of the version.
+	 * @param nodeIds are the ids of the nodes of the graph.
+	 * @param labelIds are the ids of the labels of the graph.
+	 * @param outgoing are the connections leaving each node of the graph.
+	 * @param numOfNodes is the number of nodes in the graph.
+	 * @param numOfEdges is the number of connections in the graph.
+	 * @param fingerprint is the fingerprint of the graph.
+	 * @requires The graph never changes outgoing or the sets in it again.
+	 * @effects Creates a version of the graph.
+	 */
+	GraphVersion(long number, Dictionary<T> nodeIds, Dictionary<N> labelIds,
+			EdgeSet[] outgoing, int numOfNodes, int numOfEdges,
+			long fingerprint) {
+		this.number = number;
+		this.nodeIds = nodeIds;
+		this.labelIds = labelIds;
+		this.outgoing = outgoing;
+		this.idBound = nodeIds.size();
+		this.labelBound = labelIds.size();
+		this.numOfNodes = numOfNodes;
+		this.numOfEdges = numOfEdges;
+		this.fingerprint = fingerprint;
+		this.checkRep();
+	}
+
+	/**
+	 * @return The version number, which is larger for later versions of the
+	 * same graph.
+	 */
+	public long number() {
+		return this.number;
+	}
+
+	/**
+	 * @return The fingerprint of the connections in this version, which is
+	 * the same as Graph.fingerprint() of any graph with the same 
+	 * connections.
+	 */
+	public long fingerprint() {
+		return this.fingerprint;
+	}
+
+	/**
+	 * @return The number of nodes in this version.
+	 */
+	public int numOfNodes() {
+		return this.numOfNodes;
+	}
+
+	/**
+	 * @return The number of connections in this version.
+	 */
+	public int numOfEdges() {
+		return this.numOfEdges;
+	}
+
+	/**
+	 * Checks the existence of a node in this version.
+	 * @param name of the node.
+	 * @requires name must be non-null.
+	 * @return True if the node is in this version.
+	 */
+	public boolean nodeExists(T name) {
+		return this.idOf(name) >= 0;
+	}
+
+	/**
+	 * Returns whether a connection is in this version.
+	 * @param from is the name of the node the connection is from.
+	 * @param to is the name of the node which the connection is to.
+	 * @param label is the label of the connection.
+	 * @requires All parameters to be non-null.
+	 * @return True if the connection is in this version.
+	 */
+	public boolean connectionExists(T from, T to, N label) {
+		int fromId = this.idOf(from);
+		int toId = this.idOf(to);
+		int labelId = this.labelIds.idOf(label);
+		return fromId >= 0 && toId >= 0 && labelId >= 0
+				&& labelId < this.labelBound
+				&& this.outgoing[fromId].contains(EdgeSet.pack(toId, labelId));
+	}
+
+	/**
+	 * Returns a set of the nodes in this version.
+	 * @return A set of nodes in this version.
+	 */
+	public Set<T> getNodes() {
+		Set<T> allNodes = new HashSet<T>(2 * this.numOfNodes);
+		for (int id = 0; id < this.idBound; id++) {
+			if (this.outgoing[id] != null) {
+				allNodes.add(this.nodeIds.valueOf(id));
+			}
+		}
+		return allNodes;
+	}
+
+	/**
+	 * Returns a set of all connections leaving a node in this version.
+	 * @param name of the node.
+	 * @requires name must be non-null.
+	 * @throws IllegalArgumentException if the node is not in this version.
+	 * @return A set of connections leaving the node.
+	 */
+	public Set<Connection<T, N>> isConnectedWith(T name) {
+		int id = this.idOf(name);
+		if (id < 0) {
+			throw new IllegalArgumentException("This node does not exist in "
+					+ "the graph.");
+		}
+		EdgeSet out = this.outgoing[id];
+		Set<Connection<T, N>> cons =
+				new HashSet<Connection<T, N>>(2 * out.size());
+		for (int i = 0; i < out.capacity(); i++) {
+			long edge = out.slot(i);
+			if (edge != EdgeSet.EMPTY) {
+				cons.add(new Connection<T, N>(name,
+						this.nodeIds.valueOf(EdgeSet.node(edge)),
+						this.labelIds.valueOf(EdgeSet.label(edge))));
+			}
+		}
+		return cons;
+	}
+
+	/**
+	 * Returns this version in compressed sparse row form for searching. The
+	 * compact form is built the first time it is asked for and then kept.
+	 * @return A compact copy of the nodes and connections of this version.
+	 */
+	public CompactGraph<T, N> freeze() {
+		CompactGraph<T, N> compact = this.frozen;
+		if (compact == null) {
+			compact = new CompactGraph<T, N>(this);
+			this.frozen = compact;
+		}
+		return compact;
+	}
+
+	/**
+	 * Writes the same text as Graph.toString for this version: one line of
+	 * a node and a label for each distinct label of the connections leaving 
+	 * each node, sorted by node and then by label. The text is written as it
+	 * is made, so only one node's labels are held in memory at a time.
+	 * @param out is where the text is written.
+	 * @requires out is non-null.
+	 * @throws IOException if out cannot be written to.
+	 * @effects Appends the text of this version to out.
+	 * @modifies out
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		LabelWalk<T, N> walk = new LabelWalk<T, N>(this);
+		T last = null;
+		String name = null;
+		while (walk.next()) {
+			if (walk.node() != last) {
+				last = walk.node();
+				name = last.toString();
+			}
+			out.append(name).append(' ').append(walk.label().toString())
+					.append('\n');
+		}
+	}
+
+	/**
+	 * Creates an iterator over the same strings as Graph.iterator for this
+	 * version, sorting the labels of each node only when it is reached.
+	 * @return An iterator which gives a node and then a label for each 
+	 * distinct label leaving each node, sorted by node and then by label.
+	 */
+	public Iterator<String> iterator() {
+		final LabelWalk<T, N> walk = new LabelWalk<T, N>(this);
+		return new Iterator<String>() {
+			// True if the node has been given and its label is next.
+			private boolean atLabel = false;
+			// True if walk has been moved to the pair given next.
+			private boolean moved = false;
+			private boolean more = false;
+
+			public boolean hasNext() {
+				if (this.atLabel) {
+					return true;
+				}
+				if (!this.moved) {
+					this.more = walk.next();
+					this.moved = true;
+				}
+				return this.more;
+			}
+
+			public String next() {
+				if (!this.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				if (this.atLabel) {
+					this.atLabel = false;
+					return walk.label().toString();
+				}
+				this.moved = false;
+				this.atLabel = true;
+				return walk.node().toString();
+			}
+		};
+	}
+
+	/**
+	 * Returns the id of a node in this version.
+	 * @param name of the node.
+	 * @return The id of the node or -1 if it is not in this version.
+	 */
+	int idOf(Object name) {
+		int id = this.nodeIds.idOf(name);
+		if (id < 0 || id >= this.idBound || this.outgoing[id] == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	// The methods below give CompactGraph and LabelWalk access to the ids
+	// and sets of this version so that they do not need to build Connection
+	// objects.
+
+	/**
+	 * @return One more than the largest node id in this version.
+	 */
+	int idBound() {
+		return this.idBound;
+	}
+
+	/**
+	 * @param id of a node.
+	 * @requires 0 <= id < idBound()
+	 * @return The node with this id.
+	 */
+	T nodeOf(int id) {
+		return this.nodeIds.valueOf(id);
+	}
+
+	/**
+	 * @param id of a node.
+	 * @requires 0 <= id < idBound()
+	 * @return The connections leaving the node or null if it is not in this
+	 * version.
+	 */
+	EdgeSet outgoing(int id) {
+		return this.outgoing[id];
+	}
+
+	/**
+	 * @return One more than the largest label id in this version.
+	 */
+	int labelBound() {
+		return this.labelBound;
+	}
+
+	/**
+	 * @param id of a label.
+	 * @requires 0 <= id < labelBound()
+	 * @return The label with this id.
+	 */
+	N labelOf(int id) {
+		return this.labelIds.valueOf(id);
+	}
+
+	/**
+	 * @return An estimate of the bytes taken up by the compact form of this
+	 * version, or 0 if it has not been built.
+	 */
+	long frozenBytes() {
+		CompactGraph<T, N> compact = this.frozen;
+		if (compact == null) {
+			return 0;
+		}
+		return compact.retainedBytes();
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.nodeIds != null && this.labelIds != null) : "The ids "
+				+ "cannot be null.";
+		assert (this.outgoing != null) : "The connections cannot be null.";
+		assert (this.idBound <= this.outgoing.length) : "Every node id must "
+				+ "have a set of connections.";
+		assert (this.number >= 0) : "Version numbers cannot be negative.";
+	}
+}
@@ -0,0 +1,142 @@
+package model;
+
+/**
+ * A read-only graph whose nodes, connections and labels are numbered so that
+ * searches can walk it by integer id without creating any objects. Node ids
+ * run from 0 to numOfNodes() - 1 in the natural order of the nodes, and label
+ * ids in the natural order of the labels, so comparing two ids gives the same
+ * answer as comparing the two values. The connections leaving a node are the
+ * edges edgesStart(id) up to but not including edgesEnd(id), sorted by the id
+ * of the node they go to and then by label.
+ * <p>
+ * A view of another indexed graph, such as a Subgraph, keeps the ids and 
+ * edge indices of the graph it views and hides nodes and edges rather than
+ * numbering them again, so numOfNodes() and numOfEdges() count hidden ones
+ * too. A hidden node has no edges and idOf gives -1 for it, and 
+ * isVisible(edge) is false for a hidden edge. Code which walks the edges of
+ * a node should skip the edges which are not visible.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public interface IndexedGraph<T extends Comparable<T>,
+		N extends Comparable<N>> {
+
+	/**
+	 * @return The number of nodes in this graph.
+	 */
+	int numOfNodes();
+
+	/**
+	 * @return The number of connections in this graph.
+	 */
+	int numOfEdges();
+
+	/**
+	 * Returns the id of a node in this graph.
+	 * @param name of the node.
+	 * @requires name to be non-null.
+	 * @return The id of the node or -1 if it is not in this graph.
+	 */
+	int idOf(T name);
+
+	/**
+	 * Returns the node which has a certain id.
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The node with this id.
+	 */
+	T nodeOf(int id);
+
+	/**
+	 * Checks the existence of a node in this graph.
+	 * @param name of the node.
+	 * @requires name must be non-null.
+	 * @return True if the node is in this graph.
+	 */
+	boolean nodeExists(T name);
+
+	/**
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The index of the first edge leaving the node.
+	 */
+	int edgesStart(int id);
+
+	/**
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The index just after the last edge leaving the node.
+	 */
+	int edgesEnd(int id);
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The id of the node which the edge goes to.
+	 */
+	int target(int edge);
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The label of the edge.
+	 */
+	N label(int edge);
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The id of the label of the edge.
+	 */
+	int labelId(int edge);
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return False if the edge is hidden by a view of this graph.
+	 */
+	default boolean isVisible(int edge) {
+		return true;
+	}
+
+	/**
+	 * Groups the edges of this graph by the node they go to, for searches 
+	 * which walk the graph backwards. Graphs which never change build this
+	 * once and keep it.
+	 * @return The reverse edges of this graph, with the same edge indexes.
+	 */
+	default ReverseEdges reverseEdges() {
+		return new ReverseEdges(this);
+	}
+
+	/**
+	 * @return True if every label of this graph is a number, in which case
+	 * weight(int) gives the label of an edge as a primitive double.
+	 */
+	boolean isWeighted();
+
+	/**
+	 * Returns the label of an edge as a primitive double.
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @throws UnsupportedOperationException if the labels of this graph are
+	 * not numbers.
+	 * @return The weight of the edge.
+	 */
+	double weight(int edge);
+
+	/**
+	 * @return The number of distinct labels in this graph.
+	 */
+	int numOfLabels();
+
+	/**
+	 * Returns the label which has a certain id.
+	 * @param id of the label.
+	 * @requires 0 <= id < numOfLabels()
+	 * @return The label with this id.
+	 */
+	N labelOf(int id);
+}
@@ -0,0 +1,150 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Walks the distinct labels of the connections leaving each node of a
+ * version of a graph, sorted by node and then by label. Only the nodes and
+ * the labels of the node being walked are held at once, so walking a graph
+ * never needs memory for all of its connections.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+final class LabelWalk<T extends Comparable<T>, N extends Comparable<N>> {
+
+	// AF: The walk is at the pair (nodes[node], labels[label]). nodes are
+	// the nodes of version with at least one connection leaving them, in
+	// order, and ids[i] is the id of nodes[i]. labels[0] to
+	// labels[numOfLabels - 1] are the distinct labels leaving nodes[node], in
+	// order.
+
+	// RI: version != null, nodes != null, ids.length == nodes.length,
+	// labels != null, numOfLabels <= labels.length
+
+	private final GraphVersion<T, N> version;
+	private final T[] nodes;
+	private final int[] ids;
+	private N[] labels;
+	private int numOfLabels;
+	private int node;
+	private int label;
+
+	/**
+	 * Starts a walk before the first label of a version.
+	 * @param version is the version to walk.
+	 * @requires version is non-null.
+	 * @effects Creates a walk of version.
+	 */
+	@SuppressWarnings("unchecked")
+	LabelWalk(GraphVersion<T, N> version) {
+		this.version = version;
+		int bound = version.idBound();
+		int count = 0;
+		for (int id = 0; id < bound; id++) {
+			EdgeSet out = version.outgoing(id);
+			if (out != null && out.size() > 0) {
+				count++;
+			}
+		}
+		this.nodes = (T[]) new Comparable<?>[count];
+		count = 0;
+		for (int id = 0; id < bound; id++) {
+			EdgeSet out = version.outgoing(id);
+			if (out != null && out.size() > 0) {
+				this.nodes[count++] = version.nodeOf(id);
+			}
+		}
+		Arrays.sort(this.nodes);
+		this.ids = new int[count];
+		for (int i = 0; i < count; i++) {
+			this.ids[i] = version.idOf(this.nodes[i]);
+		}
+		this.labels = (N[]) new Comparable<?>[0];
+		this.node = -1;
+		this.checkRep();
+	}
+
+	/**
+	 * Moves to the next label.
+	 * @effects Moves this walk to the next label, or to the first label of
+	 * the next node if the labels of this node have all been walked.
+	 * @modifies this
+	 * @return True if there was another label, false if the walk is over.
+	 */
+	boolean next() {
+		this.label++;
+		while (this.label >= this.numOfLabels) {
+			this.node++;
+			if (this.node >= this.nodes.length) {
+				this.numOfLabels = 0;
+				return false;
+			}
+			this.loadLabels();
+			this.label = 0;
+		}
+		return true;
+	}
+
+	/**
+	 * @requires next() last returned true.
+	 * @return The node the walk is at.
+	 */
+	T node() {
+		return this.nodes[this.node];
+	}
+
+	/**
+	 * @requires next() last returned true.
+	 * @return The label the walk is at.
+	 */
+	N label() {
+		return this.labels[this.label];
+	}
+
+	/**
+	 * Sorts the distinct labels of the connections leaving the current node
+	 * into labels.
+	 */
+	@SuppressWarnings("unchecked")
+	private void loadLabels() {
+		EdgeSet out = this.version.outgoing(this.ids[this.node]);
+		if (this.labels.length < out.size()) {
+			this.labels = (N[]) new Comparable<?>[out.size()];
+		}
+		int count = 0;
+		for (int i = 0; i < out.capacity(); i++) {
+			long edge = out.slot(i);
+			if (edge != EdgeSet.EMPTY) {
+				this.labels[count++] = this.version.labelOf(
+						EdgeSet.label(edge));
+			}
+		}
+		Arrays.sort(this.labels, 0, count);
+
+		// The same label can lead to several nodes but is only walked once.
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0
+					|| this.labels[i].compareTo(this.labels[distinct - 1]) != 0) {
+				this.labels[distinct++] = this.labels[i];
+			}
+		}
+		Arrays.fill(this.labels, distinct, count, null);
+		this.numOfLabels = distinct;
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.version != null) : "The version cannot be null.";
+		assert (this.nodes != null
+				&& this.ids.length == this.nodes.length) : "Every node must "
+				+ "have an id.";
+		assert (this.labels != null
+				&& this.numOfLabels <= this.labels.length) : "The labels "
+				+ "must fit in the label buffer.";
+	}
+}
@@ -15,6 +15,8 @@ public class Location implements Comparable<Location>{
 	public final String shortName;
 	public final String longName;
 	public final Point entrance;
+	// Graphs hash their nodes on every lookup so the hash is worked out once.
+	private final int hashCode;
 	
 	/**
 	 * Instantiates a building object.
@@ -30,6 +32,7 @@ public class Location implements Comparable<Location>{
 		this.longName = longName;
 		this.entrance = entrance;
 		this.checkRep();
+		this.hashCode = this.computeHashCode();
 	}
 	
 	public Location(Point entrance) {
@@ -39,6 +42,7 @@ public class Location implements Comparable<Location>{
 		this.longName = "x" + ((Double)entrance.getX()).toString() + "y"
 				+ ((Double)entrance.getY()).toString();
 		this.entrance = entrance;
+		this.hashCode = this.computeHashCode();
 	}
 	
 	@Override
@@ -51,6 +55,9 @@ public class Location implements Comparable<Location>{
 			return false;
 		}
 		Location other = (Location) o;
+		if (this.hashCode != other.hashCode) {
+			return false;
+		}
 		if (this.shortName.equals(other.shortName) && 
 				this.longName.equals(other.longName) &&
 				this.entrance.equals(other.entrance)) {
@@ -64,6 +71,10 @@ public class Location implements Comparable<Location>{
 	 * Returns an integer representing the hash value of this object.
 	 */
 	public int hashCode() {
+		return this.hashCode;
+	}
+	
+	private int computeHashCode() {
 		return 3 * this.shortName.hashCode() + 5 * this.longName.hashCode() 
 			+ 7 * this.entrance.hashCode();
 	}
@@ -0,0 +1,213 @@
+package model;
+
+/**
+ * An estimate of how much heap memory a graph holds on to, broken down by
+ * the structure the memory is used for. The sizes are worked out from the
+ * lengths of the arrays and the number of objects in each structure rather
+ * than measured, assuming a 64-bit JVM with compressed references, so they
+ * are a guide for sizing a heap rather than exact figures. Memory which a
+ * graph shares with its clones or versions is counted in full for each of
+ * them.
+ * @author L. James Davidson
+ */
+public final class MemoryStats {
+
+	// AF: A graph with numOfNodes nodes and numOfEdges connections which
+	// holds nodeBytes bytes for its nodes, connectionBytes for its sets of
+	// connections, indexBytes for its indexes and labelBytes for its labels.
+
+	// RI: numOfNodes >= 0, numOfEdges >= 0, nodeBytes >= 0,
+	// connectionBytes >= 0, indexBytes >= 0, labelBytes >= 0
+
+	// The size of an object header, a reference and the alignment of every
+	// object on a 64-bit JVM with compressed references.
+	static final int HEADER = 12;
+	static final int REFERENCE = 4;
+	private static final int ALIGNMENT = 8;
+	// The size of one entry of a hash map, not counting its key and value.
+	private static final int MAP_ENTRY = 32;
+	// Boxed ints below this are cached by the JVM and take no extra memory.
+	private static final int BOXED_CACHE = 128;
+
+	private final int numOfNodes;
+	private final int numOfEdges;
+	private final long nodeBytes;
+	private final long connectionBytes;
+	private final long indexBytes;
+	private final long labelBytes;
+
+	/**
+	 * Creates the stats of a graph.
+	 * @param numOfNodes is the number of nodes in the graph.
+	 * @param numOfEdges is the number of connections in the graph.
+	 * @param nodeBytes is the memory held for the nodes.
+	 * @param connectionBytes is the memory held for the connections.
+	 * @param indexBytes is the memory held for indexes.
+	 * @param labelBytes is the memory held for the labels.
+	 * @requires All parameters are >= 0.
+	 * @effects Creates the stats.
+	 */
+	MemoryStats(int numOfNodes, int numOfEdges, long nodeBytes,
+			long connectionBytes, long indexBytes, long labelBytes) {
+		this.numOfNodes = numOfNodes;
+		this.numOfEdges = numOfEdges;
+		this.nodeBytes = nodeBytes;
+		this.connectionBytes = connectionBytes;
+		this.indexBytes = indexBytes;
+		this.labelBytes = labelBytes;
+		this.checkRep();
+	}
+
+	/**
+	 * @return The number of nodes in the graph.
+	 */
+	public int numOfNodes() {
+		return this.numOfNodes;
+	}
+
+	/**
+	 * @return The number of connections in the graph.
+	 */
+	public int numOfEdges() {
+		return this.numOfEdges;
+	}
+
+	/**
+	 * @return The bytes held for the node set: the nodes themselves, their
+	 * ids and the arrays indexed by id.
+	 */
+	public long nodeBytes() {
+		return this.nodeBytes;
+	}
+
+	/**
+	 * @return The bytes held for the connection set: the sets of connections
+	 * leaving and ending at each node.
+	 */
+	public long connectionBytes() {
+		return this.connectionBytes;
+	}
+
+	/**
+	 * @return The bytes held for indexes which can be rebuilt from the
+	 * connections, such as the index by label and the frozen compact form.
+	 */
+	public long indexBytes() {
+		return this.indexBytes;
+	}
+
+	/**
+	 * @return The bytes held for the labels themselves and their ids.
+	 */
+	public long labelBytes() {
+		return this.labelBytes;
+	}
+
+	/**
+	 * @return The bytes held for all of the structures together.
+	 */
+	public long totalBytes() {
+		return this.nodeBytes + this.connectionBytes + this.indexBytes
+				+ this.labelBytes;
+	}
+
+	/**
+	 * @return The total bytes divided by the number of connections, or 0 if
+	 * there are no connections.
+	 */
+	public double bytesPerEdge() {
+		if (this.numOfEdges == 0) {
+			return 0;
+		}
+		return (double) this.totalBytes() / this.numOfEdges;
+	}
+
+	@Override
+	/**
+	 * @return One line with the number of nodes and connections, then one
+	 * line for each structure, the total and the bytes per connection.
+	 */
+	public String toString() {
+		return String.format("%d nodes and %d connections%n"
+				+ "  node set:       %,d bytes%n"
+				+ "  connection set: %,d bytes%n"
+				+ "  indexes:        %,d bytes%n"
+				+ "  labels:         %,d bytes%n"
+				+ "  total:          %,d bytes (%.1f bytes per connection)",
+				this.numOfNodes, this.numOfEdges, this.nodeBytes,
+				this.connectionBytes, this.indexBytes, this.labelBytes,
+				this.totalBytes(), this.bytesPerEdge());
+	}
+
+	/**
+	 * @param bytes is the size of the fields of an object.
+	 * @return The size rounded up to the alignment of objects.
+	 */
+	static long align(long bytes) {
+		return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * @param length of an array.
+	 * @param elementBytes is the size of each element.
+	 * @return The size of the array.
+	 */
+	static long arrayBytes(int length, int elementBytes) {
+		return align(HEADER + 4 + (long) length * elementBytes);
+	}
+
+	/**
+	 * Estimates the size of a hash map from keys to boxed int ids, not
+	 * counting the keys.
+	 * @param size is the number of entries in the map.
+	 * @return The size of the map, its table, its entries and its boxed ids.
+	 */
+	static long mapBytes(int size) {
+		int tableLength = 1;
+		while (tableLength * 3 < size * 4) {
+			tableLength *= 2;
+		}
+		return align(HEADER + 6 * REFERENCE)
+				+ arrayBytes(tableLength, REFERENCE) + (long) size * MAP_ENTRY
+				+ Math.max(0, size - BOXED_CACHE) * align(HEADER + 4);
+	}
+
+	/**
+	 * Estimates the size of a node or label. Strings and boxed numbers are
+	 * sized from their contents; any other object is counted as a bare
+	 * object with no fields.
+	 * @param value is the node or label.
+	 * @requires value is non-null.
+	 * @return The size of the value.
+	 */
+	static long valueBytes(Object value) {
+		if (value instanceof String) {
+			String string = (String) value;
+			int charBytes = 1;
+			for (int i = 0; i < string.length(); i++) {
+				if (string.charAt(i) > 0xFF) {
+					charBytes = 2;
+					break;
+				}
+			}
+			return align(HEADER + 4 + 2 + REFERENCE)
+					+ arrayBytes(string.length(), charBytes);
+		} else if (value instanceof Long || value instanceof Double) {
+			return align(HEADER + 8);
+		} else if (value instanceof Number || value instanceof Character) {
+			return align(HEADER + 4);
+		}
+		return align(HEADER);
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.numOfNodes >= 0 && this.numOfEdges >= 0) : "There "
+				+ "cannot be a negative number of nodes or connections.";
+		assert (this.nodeBytes >= 0 && this.connectionBytes >= 0
+				&& this.indexBytes >= 0 && this.labelBytes >= 0) : "A "
+				+ "structure cannot take a negative number of bytes.";
+	}
+}
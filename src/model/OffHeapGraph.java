@@ -0,0 +1,424 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only copy of an indexed graph which keeps its connections outside of
+ * the Java heap. The offsets, targets, labels and weights of the edges are
+ * held in direct byte buffers, so a graph of hundreds of millions of
+ * connections only needs heap space for its distinct nodes and labels. It
+ * answers every query the same way as the graph it was copied from.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public class OffHeapGraph<T extends Comparable<T>, N extends Comparable<N>>
+		implements IndexedGraph<T, N> {
+
+	// AF: The node with id i is nodes[i] and the label with id l is
+	// labelValues[l]. The connections leaving node i are the edges
+	// offsets[i] up to but not including offsets[i + 1]. Edge e goes to the
+	// node with id targets[e] and has the label with id labels[e]. If the
+	// labels are numbers then weights[e] is the label of edge e as a double,
+	// otherwise weights is null. reverse is null until the edges grouped by
+	// the node they go to are first asked for.
+
+	// RI: nodes != null, ids != null, offsets != null, targets != null,
+	// labels != null, labelValues != null,
+	// offsets.length() == nodes.length + 1,
+	// targets.length() == labels.length(),
+	// weights == null || weights.length() == labels.length(),
+	// nodes and labelValues are sorted, ids.get(nodes[i]) == i,
+	// the edges of a node are sorted by target and then by label.
+
+	/** The order of the bytes of the edges written by writeEdges. */
+	private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	private final T[] nodes;
+	private final Map<T, Integer> ids;
+	private final DirectInts offsets;
+	private final DirectInts targets;
+	private final DirectInts labels;
+	private final N[] labelValues;
+	private final DirectDoubles weights;
+	private volatile ReverseEdges reverse;
+
+	/**
+	 * Copies a graph into off-heap storage.
+	 * @param graph is the graph to copy, such as the CompactGraph given by
+	 * Graph.freeze().
+	 * @requires graph is non-null and is not a view which hides nodes or
+	 * edges.
+	 * @effects Creates a copy of graph whose connections are kept off the
+	 * heap.
+	 */
+	@SuppressWarnings("unchecked")
+	public OffHeapGraph(IndexedGraph<T, N> graph) {
+		int size = graph.numOfNodes();
+		int numOfEdges = graph.numOfEdges();
+		this.nodes = (T[]) new Comparable<?>[size];
+		for (int i = 0; i < size; i++) {
+			this.nodes[i] = graph.nodeOf(i);
+		}
+		this.labelValues = (N[]) new Comparable<?>[graph.numOfLabels()];
+		for (int i = 0; i < this.labelValues.length; i++) {
+			this.labelValues[i] = graph.labelOf(i);
+		}
+		this.ids = idsOf(this.nodes);
+		this.offsets = new DirectInts(size + 1);
+		this.targets = new DirectInts(numOfEdges);
+		this.labels = new DirectInts(numOfEdges);
+		this.weights = graph.isWeighted() ? new DirectDoubles(numOfEdges)
+				: null;
+		for (int i = 0; i < size; i++) {
+			this.offsets.set(i, graph.edgesStart(i));
+		}
+		this.offsets.set(size, numOfEdges);
+		for (int e = 0; e < numOfEdges; e++) {
+			this.targets.set(e, graph.target(e));
+			this.labels.set(e, graph.labelId(e));
+			if (this.weights != null) {
+				this.weights.set(e, graph.weight(e));
+			}
+		}
+		this.checkRep();
+	}
+
+	/**
+	 * Creates a graph from storage which has already been filled in, such as
+	 * buffers mapped from a file.
+	 * @param nodes are the nodes in order of id.
+	 * @param labelValues are the labels in order of id.
+	 * @param offsets are the first edge of each node followed by the number
+	 * of edges.
+	 * @param targets are the target of each edge.
+	 * @param labels are the label id of each edge.
+	 * @param weights are the weight of each edge or null if the labels are
+	 * not numbers.
+	 * @requires Every parameter but weights is non-null and together they
+	 * satisfy the representation invariant.
+	 * @effects Creates a graph backed by the storage given.
+	 */
+	OffHeapGraph(T[] nodes, N[] labelValues, DirectInts offsets,
+			DirectInts targets, DirectInts labels, DirectDoubles weights) {
+		this.nodes = nodes;
+		this.labelValues = labelValues;
+		this.ids = idsOf(nodes);
+		this.offsets = offsets;
+		this.targets = targets;
+		this.labels = labels;
+		this.weights = weights;
+		this.checkRep();
+	}
+
+	/**
+	 * Maps the edges written by writeEdges from a file, so a graph stored in
+	 * a file can be searched without first reading all of it.
+	 * @param channel is the file the edges are in.
+	 * @param position is the byte at which writeEdges started writing.
+	 * @param nodes are the nodes of the graph in order of id.
+	 * @param labelValues are the labels of the graph in order of id.
+	 * @param numOfEdges is the number of edges in the graph.
+	 * @param weighted is true if the weights of the edges were written.
+	 * @requires The file holds edgesLength(nodes.length, numOfEdges, 
+	 * weighted) bytes written by writeEdges starting at position, for a 
+	 * graph with these nodes and labels.
+	 * @throws IOException if the file cannot be mapped.
+	 * @return A graph backed by the file.
+	 */
+	public static <T extends Comparable<T>, N extends Comparable<N>> 
+			OffHeapGraph<T, N> map(FileChannel channel, long position, 
+					T[] nodes, N[] labelValues, int numOfEdges, 
+					boolean weighted) throws IOException {
+		long targets = position + 4L * (nodes.length + 1);
+		long labels = targets + 4L * numOfEdges;
+		long weights = align(labels + 4L * numOfEdges - position) + position;
+		return new OffHeapGraph<T, N>(nodes, labelValues, 
+				DirectInts.map(channel, position, nodes.length + 1, ORDER), 
+				DirectInts.map(channel, targets, numOfEdges, ORDER), 
+				DirectInts.map(channel, labels, numOfEdges, ORDER), 
+				weighted ? DirectDoubles.map(channel, weights, numOfEdges, 
+						ORDER) : null);
+	}
+
+	/**
+	 * Writes the edges of a graph to a file in the layout read by map: the
+	 * offsets, targets and label ids of the edges as little-endian ints,
+	 * padded to a multiple of eight bytes, followed by the weights of the 
+	 * edges as little-endian doubles if the graph is weighted.
+	 * @param graph is the graph whose edges are written.
+	 * @param channel is the file written to, starting at its position.
+	 * @requires graph and channel are non-null.
+	 * @throws IOException if the file cannot be written.
+	 * @effects Writes edgesLength(graph.numOfNodes(), graph.numOfEdges(),
+	 * graph.isWeighted()) bytes to channel.
+	 * @modifies channel
+	 */
+	public static void writeEdges(IndexedGraph<?, ?> graph, 
+			FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ORDER);
+		int size = graph.numOfNodes();
+		int numOfEdges = graph.numOfEdges();
+		for (int i = 0; i < size; i++) {
+			buffer = drain(buffer, channel, 4).putInt(graph.edgesStart(i));
+		}
+		buffer = drain(buffer, channel, 4).putInt(numOfEdges);
+		for (int e = 0; e < numOfEdges; e++) {
+			buffer = drain(buffer, channel, 4).putInt(graph.target(e));
+		}
+		for (int e = 0; e < numOfEdges; e++) {
+			buffer = drain(buffer, channel, 4).putInt(graph.labelId(e));
+		}
+		if ((size + 1 + 2L * numOfEdges) % 2 != 0) {
+			buffer = drain(buffer, channel, 4).putInt(0);
+		}
+		for (int e = 0; graph.isWeighted() && e < numOfEdges; e++) {
+			buffer = drain(buffer, channel, 8).putDouble(graph.weight(e));
+		}
+		drain(buffer, channel, buffer.capacity());
+	}
+
+	/**
+	 * @param numOfNodes is the number of nodes in a graph.
+	 * @param numOfEdges is the number of edges in the graph.
+	 * @param weighted is true if the graph is weighted.
+	 * @return The number of bytes writeEdges writes for the graph.
+	 */
+	public static long edgesLength(int numOfNodes, int numOfEdges, 
+			boolean weighted) {
+		long ints = align(4L * (numOfNodes + 1 + 2L * numOfEdges));
+		return weighted ? ints + 8L * numOfEdges : ints;
+	}
+
+	/**
+	 * @return The number of nodes in this graph.
+	 */
+	public int numOfNodes() {
+		return this.nodes.length;
+	}
+
+	/**
+	 * @return The number of connections in this graph.
+	 */
+	public int numOfEdges() {
+		return this.targets.length();
+	}
+
+	/**
+	 * Returns the id of a node in this graph.
+	 * @param name of the node.
+	 * @requires name to be non-null.
+	 * @return The id of the node or -1 if it is not in this graph.
+	 */
+	public int idOf(T name) {
+		Integer id = this.ids.get(name);
+		if (id == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the node which has a certain id.
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The node with this id.
+	 */
+	public T nodeOf(int id) {
+		return this.nodes[id];
+	}
+
+	/**
+	 * Checks the existence of a node in this graph.
+	 * @param name of the node.
+	 * @requires name must be non-null.
+	 * @return True if the node is in this graph.
+	 */
+	public boolean nodeExists(T name) {
+		return this.ids.containsKey(name);
+	}
+
+	/**
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The index of the first edge leaving the node.
+	 */
+	public int edgesStart(int id) {
+		return this.offsets.get(id);
+	}
+
+	/**
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The index just after the last edge leaving the node.
+	 */
+	public int edgesEnd(int id) {
+		return this.offsets.get(id + 1);
+	}
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The id of the node which the edge goes to.
+	 */
+	public int target(int edge) {
+		return this.targets.get(edge);
+	}
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The label of the edge.
+	 */
+	public N label(int edge) {
+		return this.labelValues[this.labels.get(edge)];
+	}
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The id of the label of the edge.
+	 */
+	public int labelId(int edge) {
+		return this.labels.get(edge);
+	}
+
+	/**
+	 * @return True if every label of this graph is a number, in which case
+	 * weight(int) gives the label of an edge as a primitive double.
+	 */
+	public boolean isWeighted() {
+		return this.weights != null;
+	}
+
+	/**
+	 * Returns the label of an edge as a primitive double.
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @throws UnsupportedOperationException if the labels of this graph are
+	 * not numbers.
+	 * @return The weight of the edge.
+	 */
+	public double weight(int edge) {
+		if (this.weights == null) {
+			throw new UnsupportedOperationException("The labels of this graph"
+					+ " are not numbers.");
+		}
+		return this.weights.get(edge);
+	}
+
+	/**
+	 * @return The number of distinct labels in this graph.
+	 */
+	public int numOfLabels() {
+		return this.labelValues.length;
+	}
+
+	/**
+	 * Returns the label which has a certain id.
+	 * @param id of the label.
+	 * @requires 0 <= id < numOfLabels()
+	 * @return The label with this id.
+	 */
+	public N labelOf(int id) {
+		return this.labelValues[id];
+	}
+
+	/**
+	 * Groups the edges of this graph by the node they go to. They are 
+	 * grouped the first time they are asked for and then kept.
+	 * @return The reverse edges of this graph, with the same edge indexes.
+	 */
+	public ReverseEdges reverseEdges() {
+		ReverseEdges reverse = this.reverse;
+		if (reverse == null) {
+			reverse = new ReverseEdges(this);
+			this.reverse = reverse;
+		}
+		return reverse;
+	}
+
+	/**
+	 * Estimates how much heap memory this graph holds on to. The connections
+	 * are kept off the heap, so only the nodes, the map from nodes to ids 
+	 * and the labels are counted. See MemoryStats for how.
+	 * @return The number of nodes and connections in this graph and the 
+	 * estimated bytes held on the heap for its nodes and labels.
+	 */
+	public MemoryStats memoryStats() {
+		long nodeBytes = MemoryStats.arrayBytes(this.nodes.length, 
+				MemoryStats.REFERENCE) + MemoryStats.mapBytes(this.nodes.length);
+		for (T node : this.nodes) {
+			nodeBytes += MemoryStats.valueBytes(node);
+		}
+		long labelBytes = MemoryStats.arrayBytes(this.labelValues.length, 
+				MemoryStats.REFERENCE);
+		for (N label : this.labelValues) {
+			labelBytes += MemoryStats.valueBytes(label);
+		}
+		return new MemoryStats(this.nodes.length, this.numOfEdges(), 
+				nodeBytes, 0, 0, labelBytes);
+	}
+
+	/**
+	 * @param nodes are the nodes in order of id.
+	 * @return A map from each node to its id.
+	 */
+	private static <T> Map<T, Integer> idsOf(T[] nodes) {
+		Map<T, Integer> ids = new HashMap<T, Integer>(2 * nodes.length);
+		for (int i = 0; i < nodes.length; i++) {
+			ids.put(nodes[i], i);
+		}
+		return ids;
+	}
+
+	/**
+	 * @param length is a number of bytes.
+	 * @return length rounded up to a multiple of eight.
+	 */
+	private static long align(long length) {
+		return (length + 7) & ~7L;
+	}
+
+	/**
+	 * Writes out a buffer once it does not have room for more bytes.
+	 * @param buffer holds bytes not yet written.
+	 * @param channel is where the bytes are written.
+	 * @param needed is the number of bytes about to be put in buffer.
+	 * @throws IOException if the bytes cannot be written.
+	 * @return buffer, with room for needed more bytes.
+	 */
+	private static ByteBuffer drain(ByteBuffer buffer, FileChannel channel,
+			int needed) throws IOException {
+		if (buffer.remaining() < needed) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+		return buffer;
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.nodes != null) : "The nodes cannot be null.";
+		assert (this.ids != null) : "The node ids cannot be null.";
+		assert (this.offsets.length() == this.nodes.length + 1) : "There "
+				+ "must be one offset per node plus one.";
+		assert (this.labelValues != null) : "The labels cannot be null.";
+		assert (this.targets.length() == this.labels.length()) : "Every edge "
+				+ "must have a target and a label.";
+		assert (this.weights == null
+				|| this.weights.length() == this.labels.length()) : "Every "
+				+ "edge must have a weight if the labels are numbers.";
+	}
+}
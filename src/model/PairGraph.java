@@ -0,0 +1,279 @@
+package model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only copy of a multigraph which stores each ordered pair of connected
+ * nodes once, with a sorted array of the labels of the connections between
+ * them. Data where the same two nodes share many labels, such as characters
+ * who appear in many of the same books, take much less memory this way than
+ * with one record per connection, and questions about the labels between
+ * two nodes only look at those labels.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public class PairGraph<T extends Comparable<T>, N extends Comparable<N>> {
+
+	// AF: The node with id i is nodes[i] and the label with id l is
+	// labelValues[l]. The pairs leaving node i are pairStarts[i] up to but
+	// not including pairStarts[i + 1]. Pair p goes to the node with id
+	// pairTargets[p], and there is one connection of the pair for each label
+	// id labels[labelStarts[p]] up to but not including
+	// labels[labelStarts[p + 1]].
+
+	// RI: nodes != null, ids != null, labelValues != null,
+	// pairStarts.length == nodes.length + 1, pairStarts[0] == 0,
+	// pairStarts[nodes.length] == pairTargets.length,
+	// labelStarts.length == pairTargets.length + 1, labelStarts[0] == 0,
+	// labelStarts[pairTargets.length] == labels.length,
+	// pairStarts and labelStarts are non-decreasing,
+	// labelStarts[p] < labelStarts[p + 1],
+	// the pairs of a node are sorted by target with no repeats,
+	// the labels of a pair are sorted with no repeats,
+	// nodes and labelValues are sorted, ids.get(nodes[i]) == i.
+
+	private final T[] nodes;
+	private final Map<T, Integer> ids;
+	private final N[] labelValues;
+	private final int[] pairStarts;
+	private final int[] pairTargets;
+	private final int[] labelStarts;
+	private final int[] labels;
+
+	/**
+	 * Groups the connections of a graph by the pair of nodes they join.
+	 * @param graph is the graph to copy, such as the CompactGraph given by
+	 * Graph.freeze().
+	 * @requires graph is non-null and is not a view which hides nodes or
+	 * edges.
+	 * @effects Creates a copy of graph with one record per pair of nodes.
+	 */
+	@SuppressWarnings("unchecked")
+	public PairGraph(IndexedGraph<T, N> graph) {
+		int size = graph.numOfNodes();
+		int numOfEdges = graph.numOfEdges();
+		this.nodes = (T[]) new Comparable<?>[size];
+		this.ids = new HashMap<T, Integer>(2 * size);
+		for (int i = 0; i < size; i++) {
+			this.nodes[i] = graph.nodeOf(i);
+			this.ids.put(this.nodes[i], i);
+		}
+		this.labelValues = (N[]) new Comparable<?>[graph.numOfLabels()];
+		for (int i = 0; i < this.labelValues.length; i++) {
+			this.labelValues[i] = graph.labelOf(i);
+		}
+
+		// The edges of each node are sorted by target and then by label, so
+		// the edges of a pair are next to each other with their labels in
+		// order.
+		int numOfPairs = 0;
+		for (int i = 0; i < size; i++) {
+			for (int e = graph.edgesStart(i); e < graph.edgesEnd(i); e++) {
+				if (e == graph.edgesStart(i)
+						|| graph.target(e) != graph.target(e - 1)) {
+					numOfPairs++;
+				}
+			}
+		}
+		this.pairStarts = new int[size + 1];
+		this.pairTargets = new int[numOfPairs];
+		this.labelStarts = new int[numOfPairs + 1];
+		this.labels = new int[numOfEdges];
+		int pair = 0;
+		int edge = 0;
+		for (int i = 0; i < size; i++) {
+			this.pairStarts[i] = pair;
+			for (int e = graph.edgesStart(i); e < graph.edgesEnd(i); e++) {
+				if (e == graph.edgesStart(i)
+						|| graph.target(e) != graph.target(e - 1)) {
+					this.pairTargets[pair] = graph.target(e);
+					this.labelStarts[pair] = edge;
+					pair++;
+				}
+				this.labels[edge++] = graph.labelId(e);
+			}
+		}
+		this.pairStarts[size] = pair;
+		this.labelStarts[numOfPairs] = edge;
+		this.checkRep();
+	}
+
+	/**
+	 * @return The number of nodes in this graph.
+	 */
+	public int numOfNodes() {
+		return this.nodes.length;
+	}
+
+	/**
+	 * @return The number of connections in this graph.
+	 */
+	public int numOfEdges() {
+		return this.labels.length;
+	}
+
+	/**
+	 * @return The number of ordered pairs of nodes joined by at least one
+	 * connection.
+	 */
+	public int numOfPairs() {
+		return this.pairTargets.length;
+	}
+
+	/**
+	 * Checks the existence of a node in this graph.
+	 * @param name of the node.
+	 * @requires name must be non-null.
+	 * @return True if the node is in this graph.
+	 */
+	public boolean nodeExists(T name) {
+		return this.ids.containsKey(name);
+	}
+
+	/**
+	 * Returns a set of connection labels between two nodes. If there are no
+	 * connections between the two nodes then it will return an empty set.
+	 * @param from is the name of the node connected from.
+	 * @param to is the name of the node connected to.
+	 * @requires from and to must be non-null.
+	 * @throws IllegalArgumentException if either of the nodes are not in
+	 * this graph.
+	 * @return A set of connection labels.
+	 */
+	public Set<N> isConnectedWith(T from, T to) {
+		int pair = this.pairOf(from, to);
+		Set<N> differentLabels = new HashSet<N>();
+		if (pair >= 0) {
+			for (int l = this.labelStarts[pair];
+					l < this.labelStarts[pair + 1]; l++) {
+				differentLabels.add(this.labelValues[this.labels[l]]);
+			}
+		}
+		return differentLabels;
+	}
+
+	/**
+	 * Returns the number of times a certain node is connected with
+	 * another node.
+	 * @param from is the name of the node connected from.
+	 * @param to is the name of the node connected to.
+	 * @requires to and from parameters to be non-null.
+	 * @throws IllegalArgumentException if either of the nodes are not in
+	 * this graph.
+	 * @return The number of times a node is connected with another node.
+	 */
+	public int numOfConnections(T from, T to) {
+		int pair = this.pairOf(from, to);
+		if (pair < 0) {
+			return 0;
+		}
+		return this.labelStarts[pair + 1] - this.labelStarts[pair];
+	}
+
+	/**
+	 * Returns the alphabetically first connection label between two nodes in
+	 * this graph. Will return null if there is no connection between the two.
+	 * @param from is the name of the node which the connection is from.
+	 * @param to is the name of the node which the connection is to.
+	 * @requires from and to must be non-null.
+	 * @throws IllegalArgumentException if either of the nodes are not in
+	 * this graph.
+	 * @return A label of a connection that goes from 'from' and to 'to'. Null
+	 * will be returned if there is no such connection.
+	 */
+	public N getFirstConnectionLabel(T from, T to) {
+		int pair = this.pairOf(from, to);
+		if (pair < 0) {
+			return null;
+		}
+		// The labels of a pair are sorted so the first is the smallest.
+		return this.labelValues[this.labels[this.labelStarts[pair]]];
+	}
+
+	/**
+	 * Returns the number of nodes a specific node is connected to.
+	 * @param name of the node.
+	 * @requires name to be non-null
+	 * @return The number of nodes the node is connected to, or 0 if it is
+	 * not in this graph.
+	 */
+	public int numOfConnectedNodes(T name) {
+		Integer id = this.ids.get(name);
+		if (id == null) {
+			return 0;
+		}
+		return this.pairStarts[id + 1] - this.pairStarts[id];
+	}
+
+	/**
+	 * Returns the number of connections coming from this node.
+	 * @param name of the node where the connections are coming from.
+	 * @requires name to be non-null.
+	 * @throws IllegalArgumentException if the node is not in this graph.
+	 * @return The number of connections leaving the node.
+	 */
+	public int numOfConnections(T name) {
+		Integer id = this.ids.get(name);
+		if (id == null) {
+			throw new IllegalArgumentException("This node does not exist in "
+					+ "the graph.");
+		}
+		return this.labelStarts[this.pairStarts[id + 1]]
+				- this.labelStarts[this.pairStarts[id]];
+	}
+
+	/**
+	 * Finds the pair of two nodes by a binary search of the pairs leaving
+	 * the first node.
+	 * @param from is the name of the node the pair is from.
+	 * @param to is the name of the node the pair is to.
+	 * @throws IllegalArgumentException if either of the nodes are not in
+	 * this graph.
+	 * @return The index of the pair or -1 if the nodes are not connected.
+	 */
+	private int pairOf(T from, T to) {
+		Integer fromId = this.ids.get(from);
+		Integer toId = this.ids.get(to);
+		if (fromId == null || toId == null) {
+			throw new IllegalArgumentException("One or more of the nodes do "
+					+ "not exist in this graph.");
+		}
+		int low = this.pairStarts[fromId];
+		int high = this.pairStarts[fromId + 1] - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (this.pairTargets[middle] < toId) {
+				low = middle + 1;
+			} else if (this.pairTargets[middle] > toId) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.nodes != null) : "The nodes cannot be null.";
+		assert (this.ids != null) : "The node ids cannot be null.";
+		assert (this.labelValues != null) : "The labels cannot be null.";
+		assert (this.pairStarts.length == this.nodes.length + 1) : "There "
+				+ "must be one pair offset per node plus one.";
+		assert (this.pairStarts[this.nodes.length]
+				== this.pairTargets.length) : "The last pair offset must be "
+				+ "the number of pairs.";
+		assert (this.labelStarts.length == this.pairTargets.length + 1) :
+				"There must be one label offset per pair plus one.";
+		assert (this.labelStarts[this.pairTargets.length]
+				== this.labels.length) : "The last label offset must be the "
+				+ "number of connections.";
+	}
+}
@@ -0,0 +1,124 @@
+package model;
+
+/**
+ * The edges of an indexed graph grouped by the node they go to rather than
+ * the node they leave, so that a search can walk the graph backwards from
+ * its target. Each entry refers to an edge of the graph by its index, so the
+ * weight, label and visibility of the edge are still looked up in the graph.
+ * @author L. James Davidson
+ */
+public final class ReverseEdges {
+
+	// AF: The edges going to the node with id i are edge(k) for k from
+	// offsets[i] up to but not including offsets[i + 1]. edges[k] is the
+	// index of the edge in the graph and sources[k] is the id of the node it
+	// leaves.
+
+	// RI: offsets != null, edges != null, sources != null, offsets[0] == 0,
+	// offsets is non-decreasing, offsets[offsets.length - 1] == edges.length
+	// == sources.length, the entries of a node are sorted by source and then
+	// by edge.
+
+	private final int[] offsets;
+	private final int[] edges;
+	private final int[] sources;
+
+	/**
+	 * Groups the edges of a graph by the node they go to. Hidden edges are
+	 * kept, since a view can hide more of the graph later.
+	 * @param graph is the graph to group the edges of.
+	 * @requires graph is non-null.
+	 * @effects Creates the reverse edges of graph.
+	 */
+	ReverseEdges(IndexedGraph<?, ?> graph) {
+		int numOfNodes = graph.numOfNodes();
+		this.offsets = new int[numOfNodes + 1];
+		for (int id = 0; id < numOfNodes; id++) {
+			int end = graph.edgesEnd(id);
+			for (int e = graph.edgesStart(id); e < end; e++) {
+				this.offsets[graph.target(e) + 1]++;
+			}
+		}
+		for (int id = 0; id < numOfNodes; id++) {
+			this.offsets[id + 1] += this.offsets[id];
+		}
+		this.edges = new int[this.offsets[numOfNodes]];
+		this.sources = new int[this.edges.length];
+
+		// Going through the sources in order of id leaves the entries of each
+		// node sorted by source.
+		int[] next = new int[numOfNodes];
+		System.arraycopy(this.offsets, 0, next, 0, numOfNodes);
+		for (int id = 0; id < numOfNodes; id++) {
+			int end = graph.edgesEnd(id);
+			for (int e = graph.edgesStart(id); e < end; e++) {
+				int k = next[graph.target(e)]++;
+				this.edges[k] = e;
+				this.sources[k] = id;
+			}
+		}
+		this.checkRep();
+	}
+
+	/**
+	 * Returns the first entry for the edges going to a node. The entries are
+	 * edgesStart(id) up to but not including edgesEnd(id), sorted by the id
+	 * of the node the edges leave.
+	 * @param id of the node.
+	 * @requires 0 <= id < the number of node ids of the graph.
+	 * @return The index of the first entry.
+	 */
+	public int edgesStart(int id) {
+		return this.offsets[id];
+	}
+
+	/**
+	 * Returns one past the last entry for the edges going to a node.
+	 * @param id of the node.
+	 * @requires 0 <= id < the number of node ids of the graph.
+	 * @return The index just after the last entry.
+	 */
+	public int edgesEnd(int id) {
+		return this.offsets[id + 1];
+	}
+
+	/**
+	 * @param entry is the index of an entry.
+	 * @requires 0 <= entry < the number of edges of the graph.
+	 * @return The index in the graph of the edge.
+	 */
+	public int edge(int entry) {
+		return this.edges[entry];
+	}
+
+	/**
+	 * @param entry is the index of an entry.
+	 * @requires 0 <= entry < the number of edges of the graph.
+	 * @return The id of the node which the edge leaves.
+	 */
+	public int source(int entry) {
+		return this.sources[entry];
+	}
+
+	/**
+	 * @return The size of the arrays.
+	 */
+	long retainedBytes() {
+		return MemoryStats.align(MemoryStats.HEADER
+				+ 3 * MemoryStats.REFERENCE)
+				+ MemoryStats.arrayBytes(this.offsets.length, 4)
+				+ MemoryStats.arrayBytes(this.edges.length, 4)
+				+ MemoryStats.arrayBytes(this.sources.length, 4);
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.offsets.length > 0 && this.offsets[0] == 0) : "The "
+				+ "first offset must be 0.";
+		assert (this.offsets[this.offsets.length - 1] == this.edges.length
+				&& this.edges.length == this.sources.length) : "The last "
+				+ "offset must be the number of edges.";
+	}
+}
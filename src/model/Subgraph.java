@@ -0,0 +1,272 @@
+package model;
+
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+/**
+ * A view of an indexed graph which hides some of its nodes and labels. The
+ * view does not copy the graph: it keeps the ids and edges of the graph it
+ * views and only remembers which nodes and labels are hidden, so searches
+ * can be run on part of a graph without building a smaller one. A hidden
+ * node is hidden along with every connection to or from it, and a hidden
+ * label is hidden along with every connection which has it.
+ * @author L. James Davidson
+ *
+ * @param <T> is the type of object which defines the nodes.
+ * @param <N> is the type of object which defines the paths between nodes.
+ */
+public class Subgraph<T extends Comparable<T>, N extends Comparable<N>>
+		implements IndexedGraph<T, N> {
+
+	// AF: The nodes of the view are the nodes of graph whose ids are not set
+	// in hiddenNodes. The edges of the view are the edges of graph which are
+	// visible in graph, leave a node of the view, go to a node of the view
+	// and have a label whose id is not set in hiddenLabels.
+
+	// RI: graph != null, hiddenNodes != null, hiddenLabels != null
+
+	private final IndexedGraph<T, N> graph;
+	private final BitSet hiddenNodes;
+	private final BitSet hiddenLabels;
+
+	/**
+	 * Creates a view of the nodes and labels of a graph which pass tests.
+	 * Each node and label is tested once, when the view is created.
+	 * @param graph is the graph to view.
+	 * @param nodes tests whether a node is in the view.
+	 * @param labels tests whether connections with a label are in the view.
+	 * @requires All parameters are non-null.
+	 * @effects Creates a view of graph without the nodes and labels which
+	 * fail the tests.
+	 */
+	public Subgraph(IndexedGraph<T, N> graph, Predicate<? super T> nodes,
+			Predicate<? super N> labels) {
+		this.graph = graph;
+		this.hiddenNodes = new BitSet(graph.numOfNodes());
+		for (int id = 0; id < graph.numOfNodes(); id++) {
+			if (!nodes.test(graph.nodeOf(id))) {
+				this.hiddenNodes.set(id);
+			}
+		}
+		this.hiddenLabels = new BitSet(graph.numOfLabels());
+		for (int id = 0; id < graph.numOfLabels(); id++) {
+			if (!labels.test(graph.labelOf(id))) {
+				this.hiddenLabels.set(id);
+			}
+		}
+		this.checkRep();
+	}
+
+	/**
+	 * Creates a view of a graph without the nodes whose ids are in a set.
+	 * The set is not copied, so nodes added to it later are hidden too; a
+	 * search can use this to hide the nodes it has already been through.
+	 * @param graph is the graph to view.
+	 * @param excluded holds the ids of the nodes to hide.
+	 * @requires graph and excluded are non-null.
+	 * @effects Creates a view of graph without the excluded nodes.
+	 */
+	public Subgraph(IndexedGraph<T, N> graph, BitSet excluded) {
+		this.graph = graph;
+		this.hiddenNodes = excluded;
+		this.hiddenLabels = new BitSet();
+		this.checkRep();
+	}
+
+	/**
+	 * @return The number of node ids of the graph viewed, including the ids
+	 * of hidden nodes.
+	 */
+	public int numOfNodes() {
+		return this.graph.numOfNodes();
+	}
+
+	/**
+	 * @return The number of edge indices of the graph viewed, including the
+	 * indices of hidden edges.
+	 */
+	public int numOfEdges() {
+		return this.graph.numOfEdges();
+	}
+
+	/**
+	 * Counts the nodes which are not hidden. This looks at every id.
+	 * @return The number of nodes in this view.
+	 */
+	public int numOfVisibleNodes() {
+		int count = 0;
+		for (int id = 0; id < this.graph.numOfNodes(); id++) {
+			if (!this.hiddenNodes.get(id) && this.graph.idOf(
+					this.graph.nodeOf(id)) >= 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the connections which are not hidden. This looks at every edge
+	 * of every node in this view.
+	 * @return The number of connections in this view.
+	 */
+	public int numOfVisibleEdges() {
+		int count = 0;
+		for (int id = 0; id < this.graph.numOfNodes(); id++) {
+			for (int e = this.edgesStart(id); e < this.edgesEnd(id); e++) {
+				if (this.isVisible(e)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the id of a node in this view.
+	 * @param name of the node.
+	 * @requires name to be non-null.
+	 * @return The id of the node or -1 if it is hidden or not in the graph.
+	 */
+	public int idOf(T name) {
+		int id = this.graph.idOf(name);
+		if (id < 0 || this.hiddenNodes.get(id)) {
+			return -1;
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the node which has a certain id.
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The node with this id, whether or not it is hidden.
+	 */
+	public T nodeOf(int id) {
+		return this.graph.nodeOf(id);
+	}
+
+	/**
+	 * Checks the existence of a node in this view.
+	 * @param name of the node.
+	 * @requires name must be non-null.
+	 * @return True if the node is in the graph and is not hidden.
+	 */
+	public boolean nodeExists(T name) {
+		return this.idOf(name) >= 0;
+	}
+
+	/**
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The index of the first edge leaving the node.
+	 */
+	public int edgesStart(int id) {
+		return this.graph.edgesStart(id);
+	}
+
+	/**
+	 * @param id of the node.
+	 * @requires 0 <= id < numOfNodes()
+	 * @return The index just after the last edge leaving the node, which is
+	 * edgesStart(id) if the node is hidden.
+	 */
+	public int edgesEnd(int id) {
+		if (this.hiddenNodes.get(id)) {
+			return this.graph.edgesStart(id);
+		}
+		return this.graph.edgesEnd(id);
+	}
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The id of the node which the edge goes to.
+	 */
+	public int target(int edge) {
+		return this.graph.target(edge);
+	}
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The label of the edge.
+	 */
+	public N label(int edge) {
+		return this.graph.label(edge);
+	}
+
+	/**
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return The id of the label of the edge.
+	 */
+	public int labelId(int edge) {
+		return this.graph.labelId(edge);
+	}
+
+	/**
+	 * @param edge is the index of an edge leaving a node of this view.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @return False if the edge, the node it goes to or its label is hidden.
+	 */
+	public boolean isVisible(int edge) {
+		return !this.hiddenNodes.get(this.graph.target(edge))
+				&& !this.hiddenLabels.get(this.graph.labelId(edge))
+				&& this.graph.isVisible(edge);
+	}
+
+	/**
+	 * @return True if every label of the graph viewed is a number.
+	 */
+	public boolean isWeighted() {
+		return this.graph.isWeighted();
+	}
+
+	/**
+	 * Returns the label of an edge as a primitive double.
+	 * @param edge is the index of an edge.
+	 * @requires 0 <= edge < numOfEdges()
+	 * @throws UnsupportedOperationException if the labels of the graph are
+	 * not numbers.
+	 * @return The weight of the edge.
+	 */
+	public double weight(int edge) {
+		return this.graph.weight(edge);
+	}
+
+	/**
+	 * @return The number of label ids of the graph viewed, including the
+	 * ids of hidden labels.
+	 */
+	public int numOfLabels() {
+		return this.graph.numOfLabels();
+	}
+
+	/**
+	 * Returns the label which has a certain id.
+	 * @param id of the label.
+	 * @requires 0 <= id < numOfLabels()
+	 * @return The label with this id, whether or not it is hidden.
+	 */
+	public N labelOf(int id) {
+		return this.graph.labelOf(id);
+	}
+
+	/**
+	 * Groups the edges of the graph viewed by the node they go to. Hidden 
+	 * edges are included, so a search must still check isVisible.
+	 * @return The reverse edges of the graph viewed.
+	 */
+	public ReverseEdges reverseEdges() {
+		return this.graph.reverseEdges();
+	}
+
+	/**
+	 * Ensures the representation invariant is satisfied.
+	 */
+	private void checkRep() {
+		assert (this.graph != null) : "The graph viewed cannot be null.";
+		assert (this.hiddenNodes != null && this.hiddenLabels != null) :
+				"The hidden nodes and labels cannot be null.";
+	}
+}
@@ -1,15 +1,21 @@
 package test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import controller.LoadCampus;
 import model.Graph;
 import model.Campus;
+import model.Connection;
 import model.Location;
 import model.Point;
 
@@ -102,6 +108,101 @@ public class CampusTest {
 	// The methods shortestRouteFromTo and findDirection are both tested 
 	// through specification testing.
 	
+	// Routes found with the straight line estimate or the contraction 
+	// hierarchy should be as long as routes found by a plain search, between
+	// every pair of buildings on the real campus.
+	@Test
+	public void testRoutingsFindShortestRoutes() throws Exception {
+		Campus campus = LoadCampus.loadInfo();
+		for (Location from : campus.getBuildings()) {
+			for (Location to : campus.getBuildings()) {
+				if (from.equals(to)) {
+					continue;
+				}
+				List<Connection<Location, Double>> expected = campus
+						.shortestRouteFromTo(from, to, new ArrayList<String>(), 
+								Campus.Routing.PLAIN);
+				for (Campus.Routing routing : Campus.Routing.values()) {
+					List<String> directions = new ArrayList<String>();
+					List<Connection<Location, Double>> actual = campus
+							.shortestRouteFromTo(from, to, directions, 
+									routing);
+					assertEquals(expected.get(expected.size() - 1)
+							.getLabel(), actual.get(actual.size() - 1)
+							.getLabel(), 1e-9);
+					assertEquals(actual.size(), directions.size());
+					for (int i = 1; i < actual.size(); i++) {
+						assertEquals(actual.get(i - 1).getTo(), 
+								actual.get(i).getFrom());
+					}
+				}
+			}
+		}
+	}
+	
+	// A route asked for right after a path is opened should take the new 
+	// path, since the contraction hierarchy is rebuilt before openPath 
+	// returns, and closing it again should give the old route back.
+	@Test
+	public void testRoutesUseLatestPaths() throws Exception {
+		Campus campus = LoadCampus.loadInfo();
+		List<Location> all = new ArrayList<Location>(campus.getBuildings());
+		Location from = all.get(0);
+		Location to = null;
+		List<Connection<Location, Double>> before = null;
+		for (int i = 1; before == null || before.size() < 3; i++) {
+			to = all.get(i);
+			before = campus.shortestRouteFromTo(from, to, 
+					new ArrayList<String>());
+		}
+		Location first = before.get(0).getTo();
+		Location last = before.get(before.size() - 1).getFrom();
+		
+		assertTrue(campus.openPath(first, last, 1.0));
+		List<Connection<Location, Double>> after = campus.shortestRouteFromTo(
+				from, to, new ArrayList<String>());
+		assertEquals(3, after.size());
+		assertEquals(campus.shortestRouteFromTo(from, to, 
+				new ArrayList<String>(), Campus.Routing.PLAIN), after);
+		
+		assertTrue(campus.closePath(first, last, 1.0));
+		assertEquals(before, campus.shortestRouteFromTo(from, to, 
+				new ArrayList<String>()));
+	}
+	
+	// The second load should read the joined campus graph written by the
+	// first and give the same buildings and routes as parsing the data.
+	@Test
+	public void testCachedLoad() throws Exception {
+		File cache = File.createTempFile("campus", ".bin");
+		File changes = File.createTempFile("campus", ".log");
+		try {
+			cache.delete();
+			changes.delete();
+			Campus parsed = LoadCampus.loadInfo();
+			LoadCampus.loadInfo(changes, cache);
+			assertTrue(cache.exists());
+			assertTrue(cache.setLastModified(331000));
+			Campus cached = LoadCampus.loadInfo(changes, cache);
+			assertEquals(331000, cache.lastModified());
+			assertEquals(parsed.getBuildings(), cached.getBuildings());
+			List<Location> all = new ArrayList<Location>(
+					parsed.getBuildings());
+			for (int i = 1; i < all.size(); i += 5) {
+				List<String> parsedDirections = new ArrayList<String>();
+				List<String> cachedDirections = new ArrayList<String>();
+				assertEquals(parsed.shortestRouteFromTo(all.get(0), 
+						all.get(i), parsedDirections), 
+						cached.shortestRouteFromTo(all.get(0), all.get(i), 
+								cachedDirections));
+				assertEquals(parsedDirections, cachedDirections);
+			}
+		} finally {
+			cache.delete();
+			changes.delete();
+		}
+	}
+	
 	// Testing toString since it does not rely on any other methods.
 	@Test
 	public void testToString() {
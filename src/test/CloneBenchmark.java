@@ -0,0 +1,71 @@
+package test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import controller.LoadGraph;
+import exception.MalformedDataException;
+import model.Connection;
+import model.Graph;
+
+/**
+ * Times cloning marvel.tsv and then removing one connection from the clone,
+ * against copying every set of connections first the way clone() used to.
+ * This is run by hand rather than as part of the tests, since timings vary
+ * too much from one machine and run to the next to assert on.
+ * @author L. James Davidson
+ */
+public class CloneBenchmark {
+	// This class does not represent an ADT.
+
+	private static final int WARM_UP_ROUNDS = 5;
+	private static final int ROUNDS = 21;
+
+	/**
+	 * Prints the median time of each way of cloning then editing.
+	 * @param args are not used.
+	 * @throws IOException if marvel.tsv cannot be read.
+	 * @throws MalformedDataException if marvel.tsv is not well-formed.
+	 */
+	public static void main(String[] args) throws IOException,
+			MalformedDataException {
+		Graph<String, Double> marvel = LoadGraph.loadWeightedGraph(
+				"marvel.tsv");
+		Connection<String, Double> edge = marvel.getConnections().iterator()
+				.next();
+
+		long[] copyTimes = new long[ROUNDS];
+		long[] cloneTimes = new long[ROUNDS];
+		for (int round = -WARM_UP_ROUNDS; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			Graph<String, Double> copy = marvel.copy();
+			copy.removeConnection(edge);
+			long copyTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			Graph<String, Double> clone = marvel.clone();
+			clone.removeConnection(edge);
+			long cloneTime = System.nanoTime() - start;
+
+			if (round >= 0) {
+				copyTimes[round] = copyTime;
+				cloneTimes[round] = cloneTime;
+			}
+		}
+		System.out.printf("Copying every set then editing took %.3f ms%n",
+				median(copyTimes) / 1000000.0);
+		System.out.printf("Cloning then editing took %.3f ms%n",
+				median(cloneTimes) / 1000000.0);
+	}
+
+	/**
+	 * @param times are the times of each round.
+	 * @requires times is non-empty.
+	 * @return The median of times.
+	 * @modifies times, which is sorted.
+	 */
+	private static long median(long[] times) {
+		Arrays.sort(times);
+		return times[times.length / 2];
+	}
+}
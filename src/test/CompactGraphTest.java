@@ -0,0 +1,214 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.DijkstrasAlgorithm;
+import model.CompactGraph;
+import model.Graph;
+import model.Node;
+import model.ReverseEdges;
+import view.GraphPaths;
+
+public class CompactGraphTest {
+
+	private Graph<String, String> graph;
+	private Graph<String, Double> weighted;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setGraphsToOriginalValues() {
+		graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Hulk", "Thor", "Avengers");
+		graph.addConnection("Hulk", "Captain America", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addNode("Luke Cage");
+
+		weighted = new Graph<String, Double>();
+		weighted.addConnection("a", "b", 1.0);
+		weighted.addConnection("b", "c", 1.0);
+		weighted.addConnection("a", "c", 3.0);
+		weighted.addConnection("c", "a", 0.5);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Layout tests ///////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testSizes() {
+		CompactGraph<String, String> compact = graph.freeze();
+		assertEquals(4, compact.numOfNodes());
+		assertEquals(4, compact.numOfEdges());
+	}
+
+	// Ids should be given out in the natural order of the nodes.
+	@Test
+	public void testIdsAreSorted() {
+		CompactGraph<String, String> compact = graph.freeze();
+		assertEquals("Captain America", compact.nodeOf(0));
+		assertEquals("Hulk", compact.nodeOf(1));
+		assertEquals("Luke Cage", compact.nodeOf(2));
+		assertEquals("Thor", compact.nodeOf(3));
+		for (int i = 0; i < compact.numOfNodes(); i++) {
+			assertEquals(i, compact.idOf(compact.nodeOf(i)));
+		}
+		assertEquals(-1, compact.idOf("Spider-Man"));
+		assertTrue(compact.nodeExists("Luke Cage"));
+		assertFalse(compact.nodeExists("Spider-Man"));
+	}
+
+	// The edges of a node should be sorted by target and then by label.
+	@Test
+	public void testEdgesAreSorted() {
+		CompactGraph<String, String> compact = graph.freeze();
+		int hulk = compact.idOf("Hulk");
+		int start = compact.edgesStart(hulk);
+		assertEquals(3, compact.edgesEnd(hulk) - start);
+		assertEquals("Captain America", compact.nodeOf(compact.target(start)));
+		assertEquals("Axis", compact.label(start));
+		assertEquals("Thor", compact.nodeOf(compact.target(start + 1)));
+		assertEquals("Avengers", compact.label(start + 1));
+		assertEquals("Thor", compact.nodeOf(compact.target(start + 2)));
+		assertEquals("Axis", compact.label(start + 2));
+
+		int cage = compact.idOf("Luke Cage");
+		assertEquals(compact.edgesStart(cage), compact.edgesEnd(cage));
+	}
+
+	// Numeric labels should also be readable as primitive weights.
+	@Test
+	public void testWeights() {
+		CompactGraph<String, Double> compact = weighted.freeze();
+		assertTrue(compact.isWeighted());
+		int a = compact.idOf("a");
+		for (int e = compact.edgesStart(a); e < compact.edgesEnd(a); e++) {
+			assertEquals(compact.label(e), compact.weight(e), 0.0);
+		}
+		assertEquals(1.0, compact.weight(compact.edgesStart(a)), 0.0);
+		assertEquals(3.0, compact.weight(compact.edgesStart(a) + 1), 0.0);
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testWeightOfNonNumericLabel() {
+		CompactGraph<String, String> compact = graph.freeze();
+		assertFalse(compact.isWeighted());
+		compact.weight(0);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// freeze() tests /////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testFreezeIsReusedUntilModified() {
+		CompactGraph<String, String> compact = graph.freeze();
+		assertSame(compact, graph.freeze());
+		graph.addConnection("Thor", "Luke Cage", "Axis");
+		CompactGraph<String, String> changed = graph.freeze();
+		assertNotSame(compact, changed);
+		assertEquals(4, compact.numOfEdges());
+		assertEquals(5, changed.numOfEdges());
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// reverseEdges() tests ///////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// Every edge should be listed once under the node it goes to, sorted by
+	// the node it leaves.
+	@Test
+	public void testReverseEdgesGroupByTarget() {
+		CompactGraph<String, String> compact = graph.freeze();
+		ReverseEdges reverse = compact.reverseEdges();
+		int count = 0;
+		for (int id = 0; id < compact.numOfNodes(); id++) {
+			int prevSource = -1;
+			for (int k = reverse.edgesStart(id); k < reverse.edgesEnd(id); 
+					k++) {
+				int e = reverse.edge(k);
+				int source = reverse.source(k);
+				assertEquals(id, compact.target(e));
+				assertTrue(compact.edgesStart(source) <= e 
+						&& e < compact.edgesEnd(source));
+				assertTrue(prevSource <= source);
+				prevSource = source;
+				count++;
+			}
+		}
+		assertEquals(compact.numOfEdges(), count);
+		
+		// Thor is reached from Hulk by two edges, one for each label.
+		int thor = compact.idOf("Thor");
+		assertEquals(2, reverse.edgesEnd(thor) - reverse.edgesStart(thor));
+		int luke = compact.idOf("Luke Cage");
+		assertEquals(reverse.edgesStart(luke), reverse.edgesEnd(luke));
+	}
+
+	@Test
+	public void testReverseEdgesAreKept() {
+		CompactGraph<String, String> compact = graph.freeze();
+		assertSame(compact.reverseEdges(), compact.reverseEdges());
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Search tests ///////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testFindPath() {
+		CompactGraph<String, String> compact = graph.freeze();
+		assertArrayEquals(new String[] {"Thor", "Hulk", "Captain America"},
+				GraphPaths.findPath("Thor", "Captain America", compact));
+		assertNull(GraphPaths.findPath("Thor", "Luke Cage", compact));
+	}
+
+	@Test
+	public void testFindShortestWeightedPath() {
+		List<Node<String>> path = DijkstrasAlgorithm.findShortestweightedPath(
+				"a", "c", weighted.freeze());
+		assertEquals(3, path.size());
+		assertEquals("a", path.get(0).getNodeName());
+		assertEquals("b", path.get(1).getNodeName());
+		assertEquals("c", path.get(2).getNodeName());
+		assertEquals(2.0, path.get(2).getPathWeight(), 0.0);
+		assertNull(DijkstrasAlgorithm.findShortestweightedPath("c", "d",
+				addIsolated(weighted, "d").freeze()));
+	}
+
+	@Test
+	public void testFindShortestWeightedPathBidirectional() {
+		List<Node<String>> path = DijkstrasAlgorithm
+				.findShortestweightedPathBidirectional("a", "c", weighted);
+		assertEquals(3, path.size());
+		assertEquals("a", path.get(0).getNodeName());
+		assertEquals("b", path.get(1).getNodeName());
+		assertEquals("c", path.get(2).getNodeName());
+		assertEquals(1.0, path.get(1).getPathWeight(), 0.0);
+		assertEquals(2.0, path.get(2).getPathWeight(), 0.0);
+		path = DijkstrasAlgorithm.findShortestweightedPathBidirectional("a", 
+				"a", weighted);
+		assertEquals(1, path.size());
+		assertEquals(0.0, path.get(0).getPathWeight(), 0.0);
+		assertNull(DijkstrasAlgorithm.findShortestweightedPathBidirectional(
+				"c", "d", addIsolated(weighted, "d")));
+	}
+
+	private static Graph<String, Double> addIsolated(Graph<String, Double> g,
+			String node) {
+		g.addNode(node);
+		return g;
+	}
+}
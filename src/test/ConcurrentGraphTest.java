@@ -0,0 +1,257 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.DijkstrasAlgorithm;
+import model.CompactGraph;
+import model.ConcurrentGraph;
+import model.Connection;
+import model.Graph;
+import model.GraphEvent;
+import model.GraphListener;
+import model.GraphVersion;
+import model.Node;
+
+public class ConcurrentGraphTest {
+
+	private static final int RING_SIZE = 50;
+	private static final int READERS = 4;
+	private static final int WRITES = 2000;
+	private static final double SHORT = 1.0;
+	private static final double LONG = 100.0;
+
+	private ConcurrentGraph<String, Double> graph;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	// A ring of nodes joined both ways by connections of weight 1 with a
+	// shortcut from the first node to the one across the ring.
+	@Before
+	public void setGraphToOriginalValue() {
+		Graph<String, Double> ring = new Graph<String, Double>();
+		for (int i = 0; i < RING_SIZE; i++) {
+			ring.addConnection(name(i), name((i + 1) % RING_SIZE), 1.0);
+			ring.addConnection(name((i + 1) % RING_SIZE), name(i), 1.0);
+		}
+		ring.addConnection(name(0), name(RING_SIZE / 2), SHORT);
+		graph = new ConcurrentGraph<String, Double>(ring);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Single thread tests ////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testCopiesGraph() {
+		Graph<String, Double> original = new Graph<String, Double>();
+		original.addConnection("a", "b", 1.0);
+		ConcurrentGraph<String, Double> copy =
+				new ConcurrentGraph<String, Double>(original);
+		original.addConnection("b", "a", 1.0);
+		assertEquals(1, copy.numOfEdges());
+		assertFalse(copy.connectionExists("b", "a", 1.0));
+	}
+
+	@Test
+	public void testChangesArePublished() {
+		int edges = graph.numOfEdges();
+		assertTrue(graph.addConnection(name(1), name(3), 2.0));
+		assertTrue(graph.connectionExists(name(1), name(3), 2.0));
+		assertEquals(edges + 1, graph.numOfEdges());
+		assertFalse(graph.addConnection(name(1), name(3), 2.0));
+		assertTrue(graph.removeConnection(name(1), name(3), 2.0));
+		assertFalse(graph.connectionExists(name(1), name(3), 2.0));
+		assertTrue(graph.addNode("x"));
+		assertTrue(graph.nodeExists("x"));
+		assertTrue(graph.removeNode("x"));
+		assertFalse(graph.nodeExists("x"));
+	}
+
+	// A snapshot taken before a change should not see the change.
+	@Test
+	public void testSnapshotIsUnchangedByWrites() {
+		CompactGraph<String, Double> before = graph.snapshot();
+		int edges = before.numOfEdges();
+		graph.addConnection(name(1), name(3), 2.0);
+		assertEquals(edges, before.numOfEdges());
+		assertNotSame(before, graph.snapshot());
+	}
+
+	@Test
+	public void testUnchangedWriteKeepsSnapshot() {
+		CompactGraph<String, Double> before = graph.snapshot();
+		assertFalse(graph.addConnection(name(0), name(1), 1.0));
+		assertSame(before, graph.snapshot());
+	}
+
+	// A change stopped part way by a listener should still publish the part
+	// which was made.
+	@Test
+	public void testStoppedChangeIsPublished() {
+		graph.addListener(new GraphListener<String, Double>() {
+			public void graphChanging(GraphEvent<String, Double> event) {
+				if (event.getType() == GraphEvent.Type.NODE_REMOVED) {
+					throw new IllegalStateException();
+				}
+			}
+
+			public void graphChanged(GraphEvent<String, Double> event) {
+			}
+		});
+		try {
+			graph.removeNode(name(1));
+			fail("The change should have been stopped.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertTrue(graph.nodeExists(name(1)));
+		assertFalse(graph.connectionExists(name(0), name(1), 1.0));
+		assertFalse(graph.connectionExists(name(1), name(2), 1.0));
+		assertEquals(graph.toGraph().getConnections().size(),
+				graph.numOfEdges());
+	}
+
+	@Test
+	public void testPinnedVersionIsUnchangedByWrites() {
+		GraphVersion<String, Double> pinned = graph.pin();
+		long number = graph.version();
+		graph.removeConnection(name(0), name(RING_SIZE / 2), SHORT);
+		assertTrue(graph.version() > number);
+		assertEquals(number, pinned.number());
+		assertTrue(pinned.connectionExists(name(0), name(RING_SIZE / 2),
+				SHORT));
+		assertFalse(graph.connectionExists(name(0), name(RING_SIZE / 2),
+				SHORT));
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals(graph.toGraph().toString(), graph.toString());
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Stress tests ///////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// One writer keeps swapping the weight of the shortcut between SHORT and
+	// LONG in single updates while readers search the graph. Every snapshot
+	// a reader sees must have exactly one shortcut and the shortest path
+	// must agree with the weight of that shortcut.
+	@Test
+	public void testReadersNeverSeeTornState() throws InterruptedException {
+		final int edges = graph.numOfEdges();
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		final AtomicReference<Throwable> failure =
+				new AtomicReference<Throwable>();
+
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					double current = SHORT;
+					for (int i = 0; i < WRITES; i++) {
+						double next = current == SHORT ? LONG : SHORT;
+						graph.update(shortcut(current), shortcut(next));
+						current = next;
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				} finally {
+					writing.set(false);
+				}
+			}
+		});
+
+		Thread[] readers = new Thread[READERS];
+		for (int r = 0; r < READERS; r++) {
+			readers[r] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						int searches = 0;
+						long last = -1;
+						while (writing.get() || searches < 10) {
+							checkSnapshot(graph.snapshot(), edges);
+							last = checkVersion(graph.pin(), last);
+							searches++;
+						}
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			});
+		}
+
+		for (Thread reader : readers) {
+			reader.start();
+		}
+		writer.start();
+		writer.join();
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		assertEquals(edges, graph.numOfEdges());
+	}
+
+	private static void checkSnapshot(CompactGraph<String, Double> snapshot,
+			int edges) {
+		assertEquals(edges, snapshot.numOfEdges());
+		assertEquals(RING_SIZE, snapshot.numOfNodes());
+
+		int from = snapshot.idOf(name(0));
+		int to = snapshot.idOf(name(RING_SIZE / 2));
+		int shortcuts = 0;
+		double weight = 0.0;
+		for (int e = snapshot.edgesStart(from); e < snapshot.edgesEnd(from);
+				e++) {
+			if (snapshot.target(e) == to) {
+				shortcuts++;
+				weight = snapshot.weight(e);
+			}
+		}
+		assertEquals(1, shortcuts);
+
+		List<Node<String>> path = DijkstrasAlgorithm.findShortestweightedPath(
+				name(0), name(RING_SIZE / 2), snapshot);
+		double expected = weight == SHORT ? SHORT : RING_SIZE / 2;
+		assertEquals(expected, path.get(path.size() - 1).getPathWeight(), 0.0);
+	}
+
+	// A pinned version should have exactly one shortcut and should never be
+	// older than the last version this reader saw.
+	private static long checkVersion(GraphVersion<String, Double> version,
+			long last) {
+		assertTrue(version.number() >= last);
+		boolean isShort = version.connectionExists(name(0),
+				name(RING_SIZE / 2), SHORT);
+		boolean isLong = version.connectionExists(name(0),
+				name(RING_SIZE / 2), LONG);
+		assertTrue(isShort != isLong);
+		return version.number();
+	}
+
+	private static Set<Connection<String, Double>> shortcut(double weight) {
+		return Collections.singleton(new Connection<String, Double>(name(0),
+				name(RING_SIZE / 2), weight));
+	}
+
+	private static String name(int i) {
+		return String.format("n%02d", i);
+	}
+}
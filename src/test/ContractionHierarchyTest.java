@@ -0,0 +1,171 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.ContractionHierarchy;
+import controller.DijkstrasAlgorithm;
+import model.CompactGraph;
+import model.Graph;
+import model.IndexedGraph;
+import model.Node;
+import model.Subgraph;
+
+public class ContractionHierarchyTest {
+
+	private Graph<String, Double> graph;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setGraphToOriginalValues() {
+		// A line a-b-c-d-e with a slower way round from a to e.
+		graph = new Graph<String, Double>();
+		String[] line = {"a", "b", "c", "d", "e"};
+		for (int i = 1; i < line.length; i++) {
+			graph.addConnection(line[i - 1], line[i], 1.0);
+			graph.addConnection(line[i], line[i - 1], 1.0);
+		}
+		graph.addConnection("a", "e", 5.0);
+		graph.addConnection("a", "e", 4.5);
+		graph.addNode("f");
+	}
+
+	/**
+	 * Checks that a path found by a hierarchy is as heavy as the one found
+	 * by a search from the start, and that each of its steps is a visible
+	 * edge of the graph with the weight of the step.
+	 */
+	private static void assertSamePath(IndexedGraph<String, Double> graph,
+			List<Node<String>> expected, List<Node<String>> actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertEquals(expected.get(0).getNodeName(),
+				actual.get(0).getNodeName());
+		assertEquals(expected.get(expected.size() - 1).getNodeName(),
+				actual.get(actual.size() - 1).getNodeName());
+		assertEquals(expected.get(expected.size() - 1).getPathWeight(),
+				actual.get(actual.size() - 1).getPathWeight(), 1e-9);
+		for (int i = 1; i < actual.size(); i++) {
+			int from = graph.idOf(actual.get(i - 1).getNodeName());
+			int to = graph.idOf(actual.get(i).getNodeName());
+			double step = actual.get(i).getPathWeight()
+					- actual.get(i - 1).getPathWeight();
+			boolean found = false;
+			for (int e = graph.edgesStart(from); e < graph.edgesEnd(from);
+					e++) {
+				if (graph.target(e) == to && graph.isVisible(e)
+						&& Math.abs(graph.weight(e) - step) < 1e-9) {
+					found = true;
+				}
+			}
+			assertTrue(actual.get(i - 1).getNodeName() + " to "
+					+ actual.get(i).getNodeName(), found);
+		}
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Query tests ////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// The query should go the short way along the line and unpack any
+	// shortcuts back into single steps.
+	@Test
+	public void testFindPathAlongLine() {
+		CompactGraph<String, Double> compact = graph.freeze();
+		ContractionHierarchy<String> hierarchy =
+				new ContractionHierarchy<String>(compact);
+		List<Node<String>> path = hierarchy.findShortestweightedPath("a",
+				"e");
+		assertEquals(5, path.size());
+		for (int i = 0; i < 5; i++) {
+			assertEquals(String.valueOf((char) ('a' + i)),
+					path.get(i).getNodeName());
+			assertEquals((double) i, path.get(i).getPathWeight(), 0.0);
+		}
+		path = hierarchy.findShortestweightedPath("e", "a");
+		assertEquals(5, path.size());
+		assertEquals(4.0, path.get(4).getPathWeight(), 0.0);
+	}
+
+	@Test
+	public void testFindPathToItself() {
+		ContractionHierarchy<String> hierarchy =
+				new ContractionHierarchy<String>(graph.freeze());
+		List<Node<String>> path = hierarchy.findShortestweightedPath("c",
+				"c");
+		assertEquals(1, path.size());
+		assertEquals("c", path.get(0).getNodeName());
+		assertEquals(0.0, path.get(0).getPathWeight(), 0.0);
+	}
+
+	@Test
+	public void testNoPath() {
+		ContractionHierarchy<String> hierarchy =
+				new ContractionHierarchy<String>(graph.freeze());
+		assertNull(hierarchy.findShortestweightedPath("a", "f"));
+		assertNull(hierarchy.findShortestweightedPath("f", "a"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnknownNode() {
+		new ContractionHierarchy<String>(graph.freeze())
+				.findShortestweightedPath("a", "z");
+	}
+
+	// Queries on random graphs, including ones with edges of weight 0,
+	// should find paths exactly as heavy as a search from the start.
+	@Test
+	public void testMatchesDijkstraOnRandomGraphs() {
+		Random random = new Random(24);
+		for (int size : new int[] {5, 40, 300, 1000}) {
+			CompactGraph<String, Double> compact = RandomGraphs.weighted(random, size,
+					3 * size);
+			ContractionHierarchy<String> hierarchy =
+					new ContractionHierarchy<String>(compact);
+			for (int i = 0; i < 200; i++) {
+				String from = compact.nodeOf(random.nextInt(
+						compact.numOfNodes()));
+				String to = compact.nodeOf(random.nextInt(
+						compact.numOfNodes()));
+				assertSamePath(compact, DijkstrasAlgorithm
+						.findShortestweightedPath(from, to, compact),
+						hierarchy.findShortestweightedPath(from, to));
+			}
+		}
+	}
+
+	// A hierarchy of a view should only use the edges the view shows.
+	@Test
+	public void testMatchesDijkstraOnView() {
+		Random random = new Random(240);
+		CompactGraph<String, Double> compact = RandomGraphs.weighted(random, 300, 900);
+		Subgraph<String, Double> view = new Subgraph<String, Double>(compact,
+				name -> name.hashCode() % 4 != 0, weight -> weight != 3.0);
+		ContractionHierarchy<String> hierarchy =
+				new ContractionHierarchy<String>(view);
+		for (int i = 0; i < 200; i++) {
+			String from = compact.nodeOf(random.nextInt(compact.numOfNodes()));
+			String to = compact.nodeOf(random.nextInt(compact.numOfNodes()));
+			if (!view.nodeExists(from) || !view.nodeExists(to)) {
+				continue;
+			}
+			assertSamePath(view, DijkstrasAlgorithm.findShortestweightedPath(
+					from, to, view), hierarchy.findShortestweightedPath(from,
+							to));
+		}
+	}
+}
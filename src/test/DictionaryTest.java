@@ -0,0 +1,71 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Dictionary;
+
+public class DictionaryTest {
+
+	private Dictionary<String> dictionary;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setDictionaryToOriginalValue() {
+		dictionary = new Dictionary<String>();
+		dictionary.intern("Hulk");
+		dictionary.intern("Thor");
+	}
+
+	// Ids should be dense and given out in the order values are first seen.
+	@Test
+	public void testIntern() {
+		assertEquals(0, dictionary.intern("Hulk"));
+		assertEquals(1, dictionary.intern("Thor"));
+		assertEquals(2, dictionary.intern("Luke Cage"));
+		assertEquals(3, dictionary.size());
+	}
+
+	@Test
+	public void testIdOf() {
+		assertEquals(0, dictionary.idOf("Hulk"));
+		assertEquals(1, dictionary.idOf("Thor"));
+		assertEquals(-1, dictionary.idOf("Luke Cage"));
+		// Looking up a value should not give it an id.
+		assertEquals(2, dictionary.size());
+	}
+
+	@Test
+	public void testValueOf() {
+		assertEquals("Hulk", dictionary.valueOf(0));
+		assertEquals("Thor", dictionary.valueOf(1));
+	}
+
+	// Adding past the starting capacity should keep every id.
+	@Test
+	public void testGrow() {
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i + 2, dictionary.intern("character" + i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("character" + i, dictionary.valueOf(i + 2));
+		}
+	}
+
+	@Test
+	public void testCopy() {
+		Dictionary<String> copy = new Dictionary<String>(dictionary);
+		assertEquals(2, copy.intern("Luke Cage"));
+		assertEquals(-1, dictionary.idOf("Luke Cage"));
+		assertEquals(1, copy.idOf("Thor"));
+	}
+}
@@ -0,0 +1,129 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Connection;
+import model.Graph;
+
+public class GraphBuilderTest {
+
+	private Graph.Builder<String, String> builder;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setBuilderToOriginalValue() {
+		builder = new Graph.Builder<String, String>();
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// build() tests //////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testEmpty() {
+		Graph<String, String> graph = builder.build();
+		assertEquals(new Graph<String, String>(), graph);
+		assertTrue(graph.getNodes().isEmpty());
+	}
+
+	@Test
+	public void testNodesWithoutConnections() {
+		Graph<String, String> graph = builder.addNode("Hulk")
+				.addNode("Thor").addNode("Hulk").build();
+		assertEquals(2, graph.getNodes().size());
+		assertEquals(0, graph.numOfConnections("Hulk"));
+	}
+
+	// Repeated connections should only be put in the graph once.
+	@Test
+	public void testRepeatsAreRemoved() {
+		builder.addConnection("Hulk", "Thor", "Axis");
+		builder.addConnection("Hulk", "Thor", "Axis");
+		builder.addConnection("Hulk", "Thor", "Avengers");
+		builder.addConnection("Hulk", "Hulk", "Axis");
+		builder.addConnection("Hulk", "Hulk", "Axis");
+		Graph<String, String> graph = builder.build();
+		assertEquals(3, graph.getConnections().size());
+		assertEquals(3, graph.numOfConnections("Hulk"));
+		assertEquals(0, graph.numOfConnections("Thor"));
+		assertTrue(graph.connectionExists("Hulk", "Hulk", "Axis"));
+	}
+
+	// The incoming connections built in bulk should let removeNode remove
+	// the connections to the node.
+	@Test
+	public void testBuiltGraphCanBeChanged() {
+		builder.addConnection("Hulk", "Thor", "Axis");
+		builder.addConnection("Thor", "Hulk", "Axis");
+		builder.addConnection("Loki", "Thor", "Asgard");
+		Graph<String, String> graph = builder.build();
+		assertTrue(graph.removeNode("Thor"));
+		assertEquals(0, graph.numOfConnections("Hulk"));
+		assertEquals(0, graph.numOfConnections("Loki"));
+		assertTrue(graph.addConnection("Hulk", "Loki", "Axis"));
+		assertEquals(1, graph.getConnections().size());
+	}
+
+	// A large random graph should match the same graph built one connection
+	// at a time, which also covers sorting the connections in parallel.
+	@Test
+	public void testMatchesAddConnection() {
+		Random random = new Random(331);
+		Set<Connection<String, String>> cons =
+				new HashSet<Connection<String, String>>();
+		Graph.Builder<String, String> large =
+				new Graph.Builder<String, String>(500, 100000);
+		Graph<String, String> expected = new Graph<String, String>();
+		for (int i = 0; i < 100000; i++) {
+			Connection<String, String> con = new Connection<String, String>(
+					"n" + random.nextInt(500), "n" + random.nextInt(500),
+					"b" + random.nextInt(20));
+			cons.add(con);
+			large.addConnection(con);
+			expected.addConnection(con);
+		}
+		Graph<String, String> graph = large.build();
+		assertEquals(expected, graph);
+		assertEquals(cons, graph.getConnections());
+		assertEquals(expected.toString(), graph.toString());
+		assertEquals(expected.hashCode(), graph.hashCode());
+	}
+
+	@Test
+	public void testAddConnections() {
+		Set<Connection<String, String>> cons =
+				new HashSet<Connection<String, String>>();
+		cons.add(new Connection<String, String>("Hulk", "Thor", "Axis"));
+		cons.add(new Connection<String, String>("Thor", "Hulk", "Axis"));
+		Set<String> nodes = new HashSet<String>();
+		nodes.add("Luke Cage");
+		assertEquals(new Graph<String, String>(nodes, cons),
+				builder.addNodes(nodes).addConnections(cons).build());
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testBuildTwice() {
+		builder.build();
+		builder.build();
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testAddAfterBuild() {
+		builder.build();
+		builder.addNode("Hulk");
+	}
+}
@@ -0,0 +1,179 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.Codec;
+import controller.GraphFile;
+import controller.LoadGraph;
+import exception.MalformedDataException;
+import model.CompactGraph;
+import model.Graph;
+import model.IndexedGraph;
+import model.OffHeapGraph;
+
+public class GraphFileTest {
+
+	private File file;
+	private Graph<String, String> graph;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("graph", ".bin");
+		file.delete();
+		graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Hulk", "Thor", "Avengers");
+		graph.addConnection("Hulk", "Captain America", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addNode("Luke Cage");
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Round trip tests ///////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testReadGivesSameGraph() throws Exception {
+		CompactGraph<String, String> compact = graph.freeze();
+		GraphFile.write(compact, file, 331, Codec.STRING, Codec.STRING);
+		OffHeapGraph<String, String> read = GraphFile.read(file, 331, 
+				Codec.STRING, Codec.STRING);
+		assertSameGraph(compact, read);
+		assertFalse(read.isWeighted());
+	}
+
+	// Weighted graphs with an odd number of ints before the weights should
+	// keep every weight.
+	@Test
+	public void testWeights() throws Exception {
+		Random random = new Random(331);
+		Graph<String, Double> weighted = new Graph<String, Double>();
+		for (int i = 0; i < 1001; i++) {
+			weighted.addConnection("n" + random.nextInt(100), 
+					"n" + random.nextInt(100), random.nextDouble());
+		}
+		CompactGraph<String, Double> compact = weighted.freeze();
+		GraphFile.write(compact, file, 0, Codec.STRING, Codec.DOUBLE);
+		OffHeapGraph<String, Double> read = GraphFile.read(file, 0, 
+				Codec.STRING, Codec.DOUBLE);
+		assertSameGraph(compact, read);
+		assertTrue(read.isWeighted());
+		for (int e = 0; e < compact.numOfEdges(); e++) {
+			assertEquals(compact.weight(e), read.weight(e), 0.0);
+		}
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		GraphFile.write(new Graph<String, String>().freeze(), file, 0, 
+				Codec.STRING, Codec.STRING);
+		assertEquals(0, GraphFile.read(file, 0, Codec.STRING, 
+				Codec.STRING).numOfNodes());
+	}
+
+	@Test
+	public void testWriteReplacesFile() throws Exception {
+		GraphFile.write(graph.freeze(), file, 0, Codec.STRING, Codec.STRING);
+		graph.addConnection("Loki", "Thor", "Asgard");
+		GraphFile.write(graph.freeze(), file, 1, Codec.STRING, Codec.STRING);
+		assertTrue(GraphFile.read(file, 1, Codec.STRING, Codec.STRING)
+				.nodeExists("Loki"));
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Stale and broken file tests ////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testMissingFile() throws Exception {
+		assertNull(GraphFile.read(file, 0, Codec.STRING, Codec.STRING));
+	}
+
+	@Test
+	public void testStaleFile() throws Exception {
+		GraphFile.write(graph.freeze(), file, 331, Codec.STRING, Codec.STRING);
+		assertNull(GraphFile.read(file, 332, Codec.STRING, Codec.STRING));
+	}
+
+	@Test(expected=MalformedDataException.class)
+	public void testNotAGraphFile() throws Exception {
+		FileOutputStream out = new FileOutputStream(file);
+		out.write("Hulk\tAxis\nThor\tAxis\nLoki\tAsgard\n".getBytes("UTF-8"));
+		out.close();
+		GraphFile.read(file, 0, Codec.STRING, Codec.STRING);
+	}
+
+	@Test(expected=MalformedDataException.class)
+	public void testCutShort() throws Exception {
+		GraphFile.write(graph.freeze(), file, 0, Codec.STRING, Codec.STRING);
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(file.length() - 4);
+		raf.close();
+		GraphFile.read(file, 0, Codec.STRING, Codec.STRING);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Cached loading tests ///////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// The second load should be mapped from the cache written by the first.
+	@Test
+	public void testCachedLoad() throws Exception {
+		IndexedGraph<String, Double> built = 
+				LoadGraph.loadWeightedGraph("animals_v2.tsv", file);
+		assertTrue(file.exists());
+		IndexedGraph<String, Double> cached = 
+				LoadGraph.loadWeightedGraph("animals_v2.tsv", file);
+		assertTrue(cached instanceof OffHeapGraph);
+		assertSameGraph(built, cached);
+		assertSameGraph(LoadGraph.loadWeightedGraph("animals_v2.tsv")
+				.freeze(), cached);
+	}
+
+	/**
+	 * Checks that two graphs answer every query the same way.
+	 */
+	private static <T extends Comparable<T>, N extends Comparable<N>> void
+			assertSameGraph(IndexedGraph<T, N> expected, 
+					IndexedGraph<T, N> actual) {
+		assertEquals(expected.numOfNodes(), actual.numOfNodes());
+		assertEquals(expected.numOfEdges(), actual.numOfEdges());
+		assertEquals(expected.numOfLabels(), actual.numOfLabels());
+		for (int id = 0; id < expected.numOfNodes(); id++) {
+			assertEquals(expected.nodeOf(id), actual.nodeOf(id));
+			assertEquals(id, actual.idOf(expected.nodeOf(id)));
+			assertEquals(expected.edgesStart(id), actual.edgesStart(id));
+			assertEquals(expected.edgesEnd(id), actual.edgesEnd(id));
+		}
+		for (int l = 0; l < expected.numOfLabels(); l++) {
+			assertEquals(expected.labelOf(l), actual.labelOf(l));
+		}
+		for (int e = 0; e < expected.numOfEdges(); e++) {
+			assertEquals(expected.target(e), actual.target(e));
+			assertEquals(expected.labelId(e), actual.labelId(e));
+		}
+	}
+}
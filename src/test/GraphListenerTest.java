@@ -0,0 +1,220 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Graph;
+import model.GraphEvent;
+import model.GraphListener;
+
+public class GraphListenerTest {
+
+	private Graph<String, String> graph;
+	private List<GraphEvent<String, String>> events;
+	private GraphListener<String, String> recorder;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setGraphToOriginalValue() {
+		graph = new Graph<String, String>();
+		events = new ArrayList<GraphEvent<String, String>>();
+		recorder = new GraphListener<String, String>() {
+			public void graphChanged(GraphEvent<String, String> event) {
+				events.add(event);
+			}
+		};
+		graph.addListener(recorder);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Event tests ////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testAddConnectionAddsNodesFirst() {
+		graph.addConnection("Hulk", "Thor", "Axis");
+		assertEquals(3, events.size());
+		assertEquals(GraphEvent.nodeAdded("Hulk"), events.get(0));
+		assertEquals(GraphEvent.nodeAdded("Thor"), events.get(1));
+		assertEquals(GraphEvent.connectionAdded("Hulk", "Thor", "Axis"),
+				events.get(2));
+	}
+
+	@Test
+	public void testUnchangedGraphSendsNoEvents() {
+		graph.addConnection("Hulk", "Thor", "Axis");
+		events.clear();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addNode("Hulk");
+		graph.removeNode("Spider-Man");
+		graph.removeConnection("Hulk", "Thor", "Avengers");
+		assertTrue(events.isEmpty());
+	}
+
+	// Removing a node should remove each of its connections before it.
+	@Test
+	public void testRemoveNode() {
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addConnection("Hulk", "Hulk", "Axis");
+		events.clear();
+		graph.removeNode("Hulk");
+		assertEquals(4, events.size());
+		assertTrue(events.contains(GraphEvent.connectionRemoved("Hulk", "Thor",
+				"Axis")));
+		assertTrue(events.contains(GraphEvent.connectionRemoved("Thor", "Hulk",
+				"Axis")));
+		assertTrue(events.contains(GraphEvent.connectionRemoved("Hulk", "Hulk",
+				"Axis")));
+		assertEquals(GraphEvent.nodeRemoved("Hulk"), events.get(3));
+	}
+
+	// removeConnection removes a node with no connections left leaving it.
+	@Test
+	public void testRemoveConnectionRemovesEmptyNode() {
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addConnection("Thor", "Loki", "Asgard");
+		events.clear();
+		graph.removeConnection("Hulk", "Thor", "Axis");
+		assertEquals(GraphEvent.connectionRemoved("Hulk", "Thor", "Axis"),
+				events.get(0));
+		assertTrue(events.contains(GraphEvent.connectionRemoved("Thor", "Hulk",
+				"Axis")));
+		assertEquals(GraphEvent.nodeRemoved("Hulk"),
+				events.get(events.size() - 1));
+	}
+
+	// Removing by label should make the same changes as removeConnection on
+	// each connection in turn. Hulk loses its only connection first, which
+	// takes Loki's connection to Hulk with it, so Loki is left in the graph
+	// with no connections leaving it.
+	@Test
+	public void testRemoveConnectionsByLabelMatchesRemoveConnection() {
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Loki", "Asgard");
+		graph.addConnection("Loki", "Hulk", "Axis");
+		Graph<String, String> expected = graph.clone();
+		final List<GraphEvent<String, String>> expectedEvents =
+				new ArrayList<GraphEvent<String, String>>();
+		expected.addListener(new GraphListener<String, String>() {
+			public void graphChanged(GraphEvent<String, String> event) {
+				expectedEvents.add(event);
+			}
+		});
+		assertTrue(expected.removeConnection("Hulk", "Thor", "Axis"));
+		assertFalse(expected.removeConnection("Loki", "Hulk", "Axis"));
+		events.clear();
+
+		assertEquals(2, graph.removeConnectionsByLabel("Axis"));
+		assertEquals(expectedEvents, events);
+		assertEquals(expected, graph);
+		assertEquals(expected.getNodes(), graph.getNodes());
+		assertTrue(graph.nodeExists("Loki"));
+		assertEquals(0, graph.numOfConnections("Loki"));
+	}
+
+	// A listener which stops a change part way should leave the steps made
+	// before it, and only those are passed to graphChanged.
+	@Test
+	public void testStoppedChangeIsNotMade() {
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addListener(new GraphListener<String, String>() {
+			public void graphChanging(GraphEvent<String, String> event) {
+				if (event.getType() == GraphEvent.Type.NODE_REMOVED) {
+					throw new IllegalStateException();
+				}
+			}
+
+			public void graphChanged(GraphEvent<String, String> event) {
+			}
+		});
+		events.clear();
+		try {
+			graph.removeNode("Hulk");
+			fail("The change should have been stopped.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertTrue(graph.nodeExists("Hulk"));
+		assertEquals(0, graph.numOfConnections("Hulk"));
+		assertTrue(graph.getConnections().isEmpty());
+		assertEquals(2, events.size());
+		assertFalse(events.contains(GraphEvent.nodeRemoved("Hulk")));
+	}
+
+	@Test
+	public void testClear() {
+		graph.addConnection("Hulk", "Thor", "Axis");
+		events.clear();
+		graph.clear();
+		assertEquals(1, events.size());
+		assertEquals(GraphEvent.cleared(), events.get(0));
+	}
+
+	@Test
+	public void testRemoveListener() {
+		assertTrue(graph.removeListener(recorder));
+		assertFalse(graph.removeListener(recorder));
+		graph.addConnection("Hulk", "Thor", "Axis");
+		assertTrue(events.isEmpty());
+	}
+
+	@Test
+	public void testCloneHasNoListeners() {
+		Graph<String, String> clone = graph.clone();
+		clone.addNode("Hulk");
+		assertTrue(events.isEmpty());
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// apply tests ////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// Applying every event of a graph to another should give an equal graph,
+	// even when the first graph removed nodes as a side effect.
+	@Test
+	public void testApplyEventsGivesEqualGraph() {
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addConnection("Thor", "Loki", "Asgard");
+		graph.addConnection("Loki", "Thor", "Asgard");
+		graph.addNode("Luke Cage");
+		graph.removeNode("Thor");
+		graph.addConnection("Luke Cage", "Hulk", "Defenders");
+		graph.removeConnection("Luke Cage", "Hulk", "Defenders");
+
+		Graph<String, String> copy = new Graph<String, String>();
+		for (GraphEvent<String, String> event : events) {
+			assertTrue(copy.apply(event));
+		}
+		assertEquals(graph, copy);
+		assertEquals(graph.getNodes(), copy.getNodes());
+	}
+
+	// A removed connection event should never remove a node.
+	@Test
+	public void testApplyConnectionRemovedKeepsNodes() {
+		Graph<String, String> copy = new Graph<String, String>();
+		copy.addConnection("Hulk", "Thor", "Axis");
+		assertTrue(copy.apply(GraphEvent.<String, String>connectionRemoved(
+				"Hulk", "Thor", "Axis")));
+		assertTrue(copy.nodeExists("Hulk"));
+		assertTrue(copy.nodeExists("Thor"));
+		assertFalse(copy.apply(GraphEvent.<String, String>connectionRemoved(
+				"Hulk", "Thor", "Axis")));
+	}
+}
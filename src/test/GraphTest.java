@@ -2,9 +2,16 @@ package test;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -890,6 +897,68 @@ public class GraphTest {
 		
 	}
 	
+	// A clone shares the connections of the original until one of them is
+	// changed, and then neither should see the other's changes, including
+	// nodes and labels which are new to one of them.
+	@Test
+	public void testCloneChangesAreIndependent() {
+		Graph<String, String> original = graph4.clone();
+		Graph<String, String> clone = graph4.clone();
+		clone.addConnection("Hulk", "Thor", "Defenders");
+		clone.addConnection("Jessica Jones", "Hulk", "Defenders");
+		graph4.removeNode("Hulk");
+		graph4.addConnection("Thor", "Loki", "Asgard");
+		assertFalse(graph4.nodeExists("Hulk"));
+		assertFalse(graph4.nodeExists("Jessica Jones"));
+		assertTrue(graph4.connectionExists("Thor", "Loki", "Asgard"));
+		assertTrue(clone.nodeExists("Hulk"));
+		assertTrue(clone.connectionExists("Jessica Jones", "Hulk", 
+				"Defenders"));
+		assertFalse(clone.nodeExists("Loki"));
+		clone.removeConnection("Hulk", "Thor", "Defenders");
+		clone.removeConnection("Jessica Jones", "Hulk", "Defenders");
+		assertEquals(original, clone);
+	}
+	
+	// Clones of clones should stay independent of each other after random
+	// changes to all of them, and match copies made connection by 
+	// connection which have had the same changes.
+	@Test
+	public void testCloneOfCloneAfterRandomChanges() {
+		Random random = new Random(16);
+		List<Graph<String, String>> graphs = 
+				new ArrayList<Graph<String, String>>();
+		List<Graph<String, String>> copies = 
+				new ArrayList<Graph<String, String>>();
+		graphs.add(new Graph<String, String>());
+		copies.add(new Graph<String, String>());
+		for (int i = 0; i < 3000; i++) {
+			int which = random.nextInt(graphs.size());
+			Graph<String, String> graph = graphs.get(which);
+			Graph<String, String> copy = copies.get(which);
+			if (random.nextInt(50) == 0) {
+				graphs.add(graph.clone());
+				copies.add(new Graph<String, String>(copy.getNodes(), 
+						copy.getConnections()));
+			} else {
+				String from = "n" + random.nextInt(30);
+				String to = "n" + random.nextInt(30);
+				String label = "l" + random.nextInt(5);
+				if (random.nextBoolean()) {
+					graph.addConnection(from, to, label);
+					copy.addConnection(from, to, label);
+				} else {
+					graph.removeConnection(from, to, label);
+					copy.removeConnection(from, to, label);
+				}
+			}
+		}
+		for (int i = 0; i < graphs.size(); i++) {
+			assertEquals(copies.get(i).getNodes(), graphs.get(i).getNodes());
+			assertEquals(copies.get(i), graphs.get(i));
+		}
+	}
+	
 	// Testing clear() since it we have tested equals.
 	@Test
 	public void testClear() {
@@ -948,4 +1017,300 @@ public class GraphTest {
 		
 		assertEquals(expectedOutput, graph1.toString());
 	}
+	
+	// Testing writeTo() writes the same text as toString().
+	@Test
+	public void testWriteTo() throws IOException {
+		StringWriter out = new StringWriter();
+		graph4.writeTo(out);
+		assertEquals(graph4.toString(), out.toString());
+		StringBuilder builder = new StringBuilder("Avengers\n");
+		graph1.writeTo(builder);
+		assertEquals("Avengers\n" + graph1.toString(), builder.toString());
+	}
+	
+	// A label leading to several nodes is only listed once for a node.
+	@Test
+	public void testToStringListsLabelOnce() {
+		Graph<String, String> graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Hulk", "Loki", "Axis");
+		graph.addConnection("Hulk", "Loki", "Asgard");
+		graph.addNode("Luke Cage");
+		assertEquals("Hulk Asgard\nHulk Axis\n", graph.toString());
+	}
+	
+	// Changing the graph should not change an iterator made before.
+	@Test
+	public void testIteratorIgnoresLaterChanges() {
+		Iterator<String> it = graph1.iterator();
+		graph1.clear();
+		graph1.addConnection("Thor", "Hulk", "Axis");
+		String iterString = "";
+		while (it.hasNext()) {
+			iterString += it.next() + " ";
+		}
+		assertEquals("Captain America Age of Ultron Hulk Age of Ultron ", 
+				iterString);
+	}
+	
+	///////////////////////////////////////////////////////////////////////////
+	// Label index tests //////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+	
+	// Testing the connections with a label are found after the index is 
+	// built and kept up to date as the graph changes.
+	@Test
+	public void testConnectionsWithLabel() {
+		Graph<String, String> graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addConnection("Thor", "Loki", "Asgard");
+		assertEquals(2, graph.numOfConnectionsWithLabel("Axis"));
+		graph.addConnection("Loki", "Thor", "Axis");
+		Set<Connection<String, String>> expected = 
+				new HashSet<Connection<String, String>>();
+		expected.add(new Connection<String, String>("Hulk", "Thor", "Axis"));
+		expected.add(new Connection<String, String>("Thor", "Hulk", "Axis"));
+		expected.add(new Connection<String, String>("Loki", "Thor", "Axis"));
+		assertEquals(expected, graph.connectionsWithLabel("Axis"));
+		graph.removeNode("Hulk");
+		assertEquals(1, graph.numOfConnectionsWithLabel("Axis"));
+		graph.clear();
+		assertTrue(graph.connectionsWithLabel("Axis").isEmpty());
+		assertEquals(0, graph.numOfConnectionsWithLabel("Avengers"));
+	}
+	
+	@Test
+	public void testNodesWithLabel() {
+		assertEquals(new HashSet<String>(Arrays.asList("Captain America", 
+				"Hulk", "Luke Cage")), graph1.nodesWithLabel("Age of Ultron"));
+		assertTrue(graph1.nodesWithLabel("Axis").isEmpty());
+	}
+	
+	// Removing by label should remove nodes left without connections 
+	// leaving them, as removeConnection does.
+	@Test
+	public void testRemoveConnectionsByLabel() {
+		Graph<String, String> graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addConnection("Thor", "Loki", "Asgard");
+		graph.addConnection("Loki", "Thor", "Asgard");
+		assertEquals(2, graph.removeConnectionsByLabel("Axis"));
+		assertFalse(graph.nodeExists("Hulk"));
+		assertTrue(graph.nodeExists("Thor"));
+		assertEquals(2, graph.getConnections().size());
+		assertEquals(0, graph.removeConnectionsByLabel("Axis"));
+		assertEquals(0, graph.removeConnectionsByLabel("Avengers"));
+		graph.addConnection("Thor", "Hulk", "Axis");
+		assertEquals(1, graph.numOfConnectionsWithLabel("Axis"));
+	}
+	
+	// The index should match a scan of every connection after many random
+	// changes.
+	@Test
+	public void testLabelIndexMatchesScan() {
+		Random random = new Random(331);
+		Graph<String, String> graph = new Graph<String, String>();
+		graph.numOfConnectionsWithLabel("b0");
+		for (int i = 0; i < 5000; i++) {
+			String from = "n" + random.nextInt(60);
+			String to = "n" + random.nextInt(60);
+			String label = "b" + random.nextInt(8);
+			int action = random.nextInt(10);
+			if (action < 6) {
+				graph.addConnection(from, to, label);
+			} else if (action < 9) {
+				graph.removeConnection(from, to, label);
+			} else if (random.nextInt(10) == 0) {
+				graph.removeNode(from);
+			}
+		}
+		for (int b = 0; b < 8; b++) {
+			Set<Connection<String, String>> expected = 
+					new HashSet<Connection<String, String>>();
+			for (Connection<String, String> con : graph.getConnections()) {
+				if (con.getLabel().equals("b" + b)) {
+					expected.add(con);
+				}
+			}
+			assertEquals(expected, graph.connectionsWithLabel("b" + b));
+		}
+	}
+	
+	///////////////////////////////////////////////////////////////////////////
+	// Fingerprint tests //////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+	
+	// Graphs with the same connections should have the same fingerprint
+	// however they were built.
+	@Test
+	public void testFingerprintIgnoresOrder() {
+		Graph<String, String> backwards = new Graph<String, String>();
+		for (int i = list5.length / 3 - 1; i >= 0; i--) {
+			backwards.addConnection(list5[i * 3], list5[i * 3 + 1],
+					list5[i * 3 + 2]);
+		}
+		Graph.Builder<String, String> builder = 
+				new Graph.Builder<String, String>();
+		for (int i = 0; i < list5.length / 3; i++) {
+			builder.addConnection(list5[i * 3], list5[i * 3 + 1],
+					list5[i * 3 + 2]);
+		}
+		assertEquals(graph5.fingerprint(), backwards.fingerprint());
+		assertEquals(graph5.fingerprint(), builder.build().fingerprint());
+		assertEquals(graph5.fingerprint(), graph5.clone().fingerprint());
+		assertEquals(graph5.fingerprint(), 
+				graph5.snapshot().fingerprint());
+	}
+	
+	// Removing what was added should give back the old fingerprint, and the
+	// fingerprint should change in between.
+	@Test
+	public void testFingerprintFollowsChanges() {
+		long before = graph4.fingerprint();
+		graph4.addConnection("Hulk", "Jessica Jones", "Defenders");
+		assertTrue(before != graph4.fingerprint());
+		graph4.removeConnection("Hulk", "Jessica Jones", "Defenders");
+		assertEquals(before, graph4.fingerprint());
+		graph4.removeNode("Hulk");
+		assertTrue(before != graph4.fingerprint());
+		graph4.clear();
+		assertEquals(new Graph<String, String>().fingerprint(), 
+				graph4.fingerprint());
+	}
+	
+	// Graphs which differ in only one connection should not share a 
+	// fingerprint, even when the connections have the same hash code.
+	@Test
+	public void testFingerprintTellsGraphsApart() {
+		Set<Long> fingerprints = new HashSet<Long>();
+		for (int i = 0; i < list5.length / 3; i++) {
+			Graph<String, String> missingOne = graph5.clone();
+			missingOne.removeConnection(list5[i * 3], list5[i * 3 + 1],
+					list5[i * 3 + 2]);
+			assertFalse(missingOne.equals(graph5));
+			fingerprints.add(missingOne.fingerprint());
+		}
+		assertEquals(list5.length / 3, fingerprints.size());
+		Graph<String, String> swapped = new Graph<String, String>();
+		swapped.addConnection("Thor", "Hulk", "Axis");
+		Graph<String, String> original = new Graph<String, String>();
+		original.addConnection("Hulk", "Thor", "Axis");
+		assertEquals(new Connection<String, String>("Thor", "Hulk", "Axis")
+				.hashCode(), new Connection<String, String>("Hulk", "Thor",
+						"Axis").hashCode());
+		assertTrue(swapped.fingerprint() != original.fingerprint());
+		assertFalse(swapped.equals(original));
+	}
+	
+	///////////////////////////////////////////////////////////////////////////
+	// Degree index tests /////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+	
+	@Test
+	public void testDegreeHistogram() {
+		assertEquals(0, new Graph<String, String>().degreeHistogram().length);
+		Graph<String, String> graph = new Graph<String, String>();
+		graph.addNode("Luke Cage");
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Hulk", "Thor", "Avengers");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		assertTrue(Arrays.equals(new int[] {1, 1, 1}, 
+				graph.degreeHistogram()));
+		graph.addConnection("Thor", "Hulk", "Avengers");
+		assertTrue(Arrays.equals(new int[] {1, 0, 2}, 
+				graph.degreeHistogram()));
+		graph.removeNode("Hulk");
+		assertTrue(Arrays.equals(new int[] {2}, graph.degreeHistogram()));
+	}
+	
+	// Hubs are sorted by degree and then by name.
+	@Test
+	public void testHubs() {
+		Graph<String, String> graph = new Graph<String, String>();
+		graph.addConnection("Thor", "Loki", "Asgard");
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Hulk", "Loki", "Axis");
+		graph.addConnection("Captain America", "Loki", "Avengers");
+		graph.addNode("Luke Cage");
+		assertEquals(Arrays.asList("Hulk", "Captain America"), 
+				graph.hubs(2));
+		assertEquals(Arrays.asList("Hulk", "Captain America", "Thor", 
+				"Loki", "Luke Cage"), graph.hubs(10));
+		assertTrue(graph.hubs(0).isEmpty());
+		graph.addConnection("Loki", "Thor", "Asgard");
+		graph.addConnection("Loki", "Hulk", "Asgard");
+		graph.addConnection("Loki", "Captain America", "Asgard");
+		assertEquals(Arrays.asList("Loki", "Hulk"), graph.hubs(2));
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testHubsNegative() {
+		graph4.hubs(-1);
+	}
+	
+	// The maintained degrees should match degrees counted from scratch after
+	// every kind of change.
+	@Test
+	public void testDegreesAfterRandomChanges() {
+		Random random = new Random(19);
+		Graph<String, String> graph = new Graph<String, String>();
+		graph.degreeHistogram();
+		for (int i = 0; i < 4000; i++) {
+			String from = "n" + random.nextInt(60);
+			String to = "n" + random.nextInt(60);
+			String label = "l" + random.nextInt(6);
+			int change = random.nextInt(100);
+			if (change < 60) {
+				graph.addConnection(from, to, label);
+			} else if (change < 90) {
+				graph.removeConnection(from, to, label);
+			} else if (change < 96) {
+				graph.removeNode(from);
+			} else if (change < 98) {
+				graph.addNode(from);
+			} else if (change < 99) {
+				graph.removeConnectionsByLabel(label);
+			} else {
+				graph = graph.clone();
+			}
+			if (i % 100 == 0) {
+				assertDegrees(graph);
+			}
+		}
+		assertDegrees(graph);
+		graph.clear();
+		assertDegrees(graph);
+	}
+	
+	/**
+	 * Checks the degree histogram and hubs of a graph against ones worked
+	 * out from the number of connections of each node.
+	 * @param graph is the graph to check.
+	 */
+	private static void assertDegrees(final Graph<String, String> graph) {
+		List<String> nodes = new ArrayList<String>(graph.getNodes());
+		int maxDegree = -1;
+		for (String node : nodes) {
+			maxDegree = Math.max(maxDegree, graph.numOfConnections(node));
+		}
+		int[] histogram = new int[maxDegree + 1];
+		for (String node : nodes) {
+			histogram[graph.numOfConnections(node)]++;
+		}
+		assertTrue(Arrays.equals(histogram, graph.degreeHistogram()));
+		Collections.sort(nodes, new Comparator<String>() {
+			public int compare(String a, String b) {
+				int byDegree = Integer.compare(graph.numOfConnections(b), 
+						graph.numOfConnections(a));
+				return byDegree != 0 ? byDegree : a.compareTo(b);
+			}
+		});
+		for (int k : new int[] {1, 5, 17, nodes.size()}) {
+			assertEquals(nodes.subList(0, Math.min(k, nodes.size())), 
+					graph.hubs(k));
+		}
+	}
 }
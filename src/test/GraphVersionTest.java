@@ -0,0 +1,151 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Connection;
+import model.Graph;
+import model.GraphVersion;
+
+public class GraphVersionTest {
+
+	private Graph<String, String> graph;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setGraphToOriginalValue() {
+		graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Hulk", "Thor", "Avengers");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addNode("Luke Cage");
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Version number tests ///////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testSnapshotIsReusedUntilModified() {
+		GraphVersion<String, String> version = graph.snapshot();
+		assertSame(version, graph.snapshot());
+		assertFalse(graph.addConnection("Hulk", "Thor", "Axis"));
+		assertSame(version, graph.snapshot());
+	}
+
+	// Every change made between two snapshots should share one number.
+	@Test
+	public void testBatchesGetLargerNumbers() {
+		long first = graph.snapshot().number();
+		graph.addConnection("Thor", "Luke Cage", "Axis");
+		graph.removeNode("Hulk");
+		assertEquals(first + 1, graph.version());
+		GraphVersion<String, String> second = graph.snapshot();
+		assertEquals(first + 1, second.number());
+		graph.clear();
+		assertEquals(first + 2, graph.snapshot().number());
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Isolation tests ////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testVersionIgnoresAddedConnections() {
+		GraphVersion<String, String> version = graph.snapshot();
+		graph.addConnection("Hulk", "Thor", "Defenders");
+		graph.addConnection("Spider-Man", "Hulk", "Avengers");
+		assertFalse(version.connectionExists("Hulk", "Thor", "Defenders"));
+		assertFalse(version.nodeExists("Spider-Man"));
+		assertEquals(3, version.numOfEdges());
+		assertEquals(3, version.numOfNodes());
+		assertEquals(5, graph.snapshot().numOfEdges());
+	}
+
+	@Test
+	public void testVersionIgnoresRemovals() {
+		GraphVersion<String, String> version = graph.snapshot();
+		graph.removeConnection("Hulk", "Thor", "Axis");
+		graph.removeNode("Thor");
+		assertTrue(version.connectionExists("Hulk", "Thor", "Axis"));
+		assertTrue(version.connectionExists("Thor", "Hulk", "Axis"));
+		assertTrue(version.nodeExists("Thor"));
+		assertEquals(2, version.isConnectedWith("Hulk").size());
+	}
+
+	@Test
+	public void testVersionIgnoresClear() {
+		GraphVersion<String, String> version = graph.snapshot();
+		graph.clear();
+		assertEquals(0, graph.snapshot().numOfEdges());
+		assertEquals(3, version.numOfEdges());
+		Set<String> nodes = new HashSet<String>();
+		nodes.add("Hulk");
+		nodes.add("Thor");
+		nodes.add("Luke Cage");
+		assertEquals(nodes, version.getNodes());
+	}
+
+	// Many versions taken while the graph changes should each keep their
+	// own state.
+	@Test
+	public void testManyVersions() {
+		@SuppressWarnings("unchecked")
+		GraphVersion<String, String>[] versions =
+				(GraphVersion<String, String>[]) new GraphVersion<?, ?>[10];
+		for (int i = 0; i < versions.length; i++) {
+			versions[i] = graph.snapshot();
+			graph.addConnection("Luke Cage", "Hulk", "Label " + i);
+		}
+		for (int i = 0; i < versions.length; i++) {
+			assertEquals(3 + i, versions[i].numOfEdges());
+			assertEquals(3 + i, versions[i].freeze().numOfEdges());
+			assertFalse(versions[i].connectionExists("Luke Cage", "Hulk",
+					"Label " + i));
+		}
+	}
+
+	@Test
+	public void testIsConnectedWith() {
+		GraphVersion<String, String> version = graph.snapshot();
+		graph.addConnection("Hulk", "Luke Cage", "Defenders");
+		Set<Connection<String, String>> expected =
+				new HashSet<Connection<String, String>>();
+		expected.add(new Connection<String, String>("Hulk", "Thor", "Axis"));
+		expected.add(new Connection<String, String>("Hulk", "Thor",
+				"Avengers"));
+		assertEquals(expected, version.isConnectedWith("Hulk"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testIsConnectedWithMissingNode() {
+		GraphVersion<String, String> version = graph.snapshot();
+		graph.addNode("Spider-Man");
+		version.isConnectedWith("Spider-Man");
+	}
+
+	// A clone should not share anything with versions of the original.
+	@Test
+	public void testCloneIsIndependent() {
+		GraphVersion<String, String> version = graph.snapshot();
+		Graph<String, String> clone = graph.clone();
+		clone.addConnection("Hulk", "Thor", "Defenders");
+		graph.removeConnection("Hulk", "Thor", "Avengers");
+		assertTrue(version.connectionExists("Hulk", "Thor", "Avengers"));
+		assertFalse(version.connectionExists("Hulk", "Thor", "Defenders"));
+		assertTrue(clone.connectionExists("Hulk", "Thor", "Avengers"));
+		assertFalse(graph.connectionExists("Hulk", "Thor", "Defenders"));
+	}
+}
@@ -11,9 +11,16 @@ import test.CheckAsserts;
  */
 
 @RunWith(Suite.class)
-@SuiteClasses({ CampusTest.class, CheckAsserts.class, ConnectionTest.class, GenericsTest.class,
-				GraphTest.class, LoadGraphTest.class, LocationTest.class, NodeTest.class,
-				PointTest.class })
+@SuiteClasses({ CampusTest.class, CheckAsserts.class, CompactGraphTest.class,
+				ConcurrentGraphTest.class, ConnectionTest.class, 
+				ContractionHierarchyTest.class, 
+				DictionaryTest.class, GenericsTest.class, GraphBuilderTest.class,
+				GraphFileTest.class, GraphListenerTest.class, GraphTest.class, 
+				GraphVersionTest.class, IndexedHeapTest.class, 
+				LandmarksTest.class, LoadGraphTest.class, LocationTest.class, MemoryStatsTest.class,
+				NodeTest.class, OffHeapGraphTest.class, PairGraphTest.class, 
+				PointTest.class, SearchContextTest.class, SubgraphTest.class, 
+				WriteAheadLogTest.class })
 public final class ImplementationTests
 {
 	/**
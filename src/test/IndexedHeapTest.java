@@ -0,0 +1,170 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.IndexedHeap;
+
+public class IndexedHeapTest {
+
+	private IndexedHeap heap;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setHeapToOriginalValue() {
+		heap = new IndexedHeap(10);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Order tests ////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testPollsByKey() {
+		heap.add(3, 2.5);
+		heap.add(7, 0.5);
+		heap.add(1, 1.5);
+		assertEquals(3, heap.size());
+		assertEquals(7, heap.peek());
+		assertEquals(7, heap.poll());
+		assertEquals(1, heap.poll());
+		assertEquals(3, heap.poll());
+		assertTrue(heap.isEmpty());
+	}
+
+	// Ids with the same key should come out smallest id first.
+	@Test
+	public void testTiesBrokenById() {
+		heap.add(9, 1.0);
+		heap.add(2, 1.0);
+		heap.add(5, 1.0);
+		heap.add(4, 0.0);
+		assertEquals(4, heap.poll());
+		assertEquals(2, heap.poll());
+		assertEquals(5, heap.poll());
+		assertEquals(9, heap.poll());
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		heap.add(1, 5.0);
+		heap.add(2, 4.0);
+		heap.add(3, 3.0);
+		heap.decreaseKey(1, 1.0);
+		assertEquals(1.0, heap.key(1), 0.0);
+		assertEquals(3, heap.size());
+		assertEquals(1, heap.poll());
+		heap.addOrDecrease(2, 3.0);
+		heap.addOrDecrease(6, 3.5);
+		assertEquals(3, heap.size());
+		assertEquals(2, heap.poll());
+		assertEquals(3, heap.poll());
+		assertEquals(6, heap.poll());
+	}
+
+	@Test
+	public void testContainsAndClear() {
+		heap.add(0, 1.0);
+		heap.add(8, 2.0);
+		assertTrue(heap.contains(8));
+		assertFalse(heap.contains(4));
+		heap.clear();
+		assertTrue(heap.isEmpty());
+		assertFalse(heap.contains(8));
+		heap.add(8, 3.0);
+		assertEquals(8, heap.poll());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testAddTwice() {
+		heap.add(1, 1.0);
+		heap.add(1, 2.0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDecreaseMissing() {
+		heap.decreaseKey(1, 1.0);
+	}
+
+	@Test(expected=NoSuchElementException.class)
+	public void testPollEmpty() {
+		heap.poll();
+	}
+
+	// The ids left after retainIf should come out in the same order as
+	// before, and the removed ones can be added again.
+	@Test
+	public void testRetainIf() {
+		Random random = new Random(21);
+		IndexedHeap other = new IndexedHeap(500, 3);
+		IndexedHeap all = new IndexedHeap(500, 3);
+		for (int id = 0; id < 500; id++) {
+			double key = random.nextInt(50);
+			other.add(id, key);
+			all.add(id, key);
+		}
+		other.retainIf(id -> id % 3 != 0);
+		assertEquals(333, other.size());
+		assertFalse(other.contains(3));
+		other.add(3, all.key(3));
+		while (!all.isEmpty()) {
+			int id = all.poll();
+			if (id % 3 != 0 || id == 3) {
+				assertEquals(id, other.poll());
+			}
+		}
+		assertTrue(other.isEmpty());
+	}
+
+		// Random adds, decreases and polls should come out in the same order as
+	// from a priority queue of (key, id) pairs, for heaps of several widths.
+	@Test
+	public void testMatchesPriorityQueue() {
+		Random random = new Random(20);
+		for (int arity : new int[] {2, 3, 4, 8}) {
+			int size = 500;
+			IndexedHeap indexed = new IndexedHeap(size, arity);
+			PriorityQueue<double[]> expected = new PriorityQueue<double[]>(
+					size, (a, b) -> a[0] != b[0] ? Double.compare(a[0], b[0])
+							: Double.compare(a[1], b[1]));
+			double[] keys = new double[size];
+			Arrays.fill(keys, Double.POSITIVE_INFINITY);
+			boolean[] removed = new boolean[size];
+			for (int i = 0; i < 5000; i++) {
+				int id = random.nextInt(size);
+				if (random.nextInt(3) > 0 && !removed[id]) {
+					double key = random.nextInt(50);
+					if (key < keys[id]) {
+						keys[id] = key;
+						indexed.addOrDecrease(id, key);
+						expected.add(new double[] {key, id});
+					}
+				} else if (!indexed.isEmpty()) {
+					// The priority queue still holds entries with old keys,
+					// which are skipped the way a search skips them.
+					double[] next = expected.poll();
+					while (removed[(int) next[1]] 
+							|| next[0] != keys[(int) next[1]]) {
+						next = expected.poll();
+					}
+					removed[(int) next[1]] = true;
+					assertEquals((int) next[1], indexed.poll());
+				}
+			}
+		}
+	}
+}
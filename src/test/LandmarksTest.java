@@ -0,0 +1,244 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.DijkstrasAlgorithm;
+import controller.Landmarks;
+import controller.LoadGraph;
+import controller.SearchContext;
+import exception.MalformedDataException;
+import model.CompactGraph;
+import model.Graph;
+import model.IndexedGraph;
+import model.Node;
+
+public class LandmarksTest {
+
+	private File file;
+	private Graph<String, Double> graph;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("landmarks", ".bin");
+		file.delete();
+
+		// A line a-b-c-d-e, one way only from d to e, and an island f-g.
+		graph = new Graph<String, Double>();
+		graph.addConnection("a", "b", 1.0);
+		graph.addConnection("b", "a", 1.0);
+		graph.addConnection("b", "c", 2.0);
+		graph.addConnection("c", "b", 2.0);
+		graph.addConnection("c", "d", 3.0);
+		graph.addConnection("d", "c", 3.0);
+		graph.addConnection("d", "e", 4.0);
+		graph.addConnection("f", "g", 1.0);
+		graph.addConnection("g", "f", 1.0);
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	/**
+	 * @return The weight of the shortest path between two nodes, or
+	 * infinity if there is none.
+	 */
+	private static double distance(IndexedGraph<String, Double> graph,
+			String from, String to) {
+		List<Node<String>> path = DijkstrasAlgorithm.findShortestweightedPath(
+				from, to, graph);
+		if (path == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return path.get(path.size() - 1).getPathWeight();
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Landmark tests /////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// There should be as many landmarks as asked for, or one for every node
+	// of a small graph, and no node should be picked twice.
+	@Test
+	public void testNumOfLandmarks() {
+		CompactGraph<String, Double> compact = graph.freeze();
+		assertEquals(3, new Landmarks<String>(compact, 3).numOfLandmarks());
+		Landmarks<String> all = new Landmarks<String>(compact, 20);
+		assertEquals(compact.numOfNodes(), all.numOfLandmarks());
+		for (int i = 0; i < all.numOfLandmarks(); i++) {
+			for (int j = 0; j < i; j++) {
+				assertNotEquals(all.landmark(j), all.landmark(i));
+			}
+		}
+	}
+
+	// The bound should never be more than the real distance, and should be
+	// infinite between nodes which cannot reach each other.
+	@Test
+	public void testLowerBound() {
+		CompactGraph<String, Double> compact = graph.freeze();
+		Landmarks<String> landmarks = new Landmarks<String>(compact, 2);
+		for (int i = 0; i < compact.numOfNodes(); i++) {
+			for (int j = 0; j < compact.numOfNodes(); j++) {
+				String from = compact.nodeOf(i);
+				String to = compact.nodeOf(j);
+				double bound = landmarks.lowerBound(from, to);
+				double distance = distance(compact, from, to);
+				assertTrue(from + " to " + to, bound <= distance);
+			}
+		}
+		assertEquals(0.0, landmarks.lowerBound("c", "c"), 0.0);
+		Landmarks<String> all = new Landmarks<String>(compact, 20);
+		assertEquals(Double.POSITIVE_INFINITY, all.lowerBound("e", "a"), 0.0);
+		assertEquals(Double.POSITIVE_INFINITY, all.lowerBound("a", "f"), 0.0);
+		assertEquals(10.0, all.lowerBound("a", "e"), 0.0);
+	}
+
+	@Test
+	public void testFindPath() {
+		Landmarks<String> landmarks = new Landmarks<String>(graph.freeze(),
+				2);
+		List<Node<String>> path = landmarks.findShortestweightedPath("a",
+				"e");
+		assertEquals(5, path.size());
+		assertEquals("e", path.get(4).getNodeName());
+		assertEquals(10.0, path.get(4).getPathWeight(), 0.0);
+		assertNull(landmarks.findShortestweightedPath("e", "a"));
+		assertNull(landmarks.findShortestweightedPath("a", "g"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnknownNode() {
+		new Landmarks<String>(graph.freeze(), 2).findShortestweightedPath("a",
+				"z");
+	}
+
+	// On random graphs the search should find paths exactly as heavy as a
+	// plain search while finishing fewer nodes.
+	@Test
+	public void testMatchesDijkstraOnRandomGraphs() {
+		Random random = new Random(25);
+		SearchContext context = new SearchContext();
+		long plainFinished = 0;
+		long landmarkFinished = 0;
+		for (int size : new int[] {10, 100, 2000}) {
+			CompactGraph<String, Double> compact = RandomGraphs.weighted(random, size,
+					3 * size);
+			Landmarks<String> landmarks = new Landmarks<String>(compact, 8);
+			for (int i = 0; i < 100; i++) {
+				String from = compact.nodeOf(random.nextInt(
+						compact.numOfNodes()));
+				String to = compact.nodeOf(random.nextInt(
+						compact.numOfNodes()));
+				List<Node<String>> expected = DijkstrasAlgorithm
+						.findShortestweightedPath(from, to, compact, context);
+				plainFinished += context.numOfFinished();
+				List<Node<String>> actual = landmarks
+						.findShortestweightedPath(from, to, context);
+				landmarkFinished += context.numOfFinished();
+				if (expected == null) {
+					assertNull(actual);
+				} else {
+					assertEquals(expected.get(expected.size() - 1)
+							.getPathWeight(), actual.get(actual.size() - 1)
+							.getPathWeight(), 1e-9);
+				}
+			}
+		}
+		assertTrue(landmarkFinished + " of " + plainFinished,
+				landmarkFinished < plainFinished);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// File tests /////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testReadGivesSameLandmarks() throws Exception {
+		CompactGraph<String, Double> compact = RandomGraphs.weighted(new Random(250),
+				200, 600);
+		Landmarks<String> written = new Landmarks<String>(compact, 4);
+		written.write(file, 331);
+		Landmarks<String> read = Landmarks.read(compact, file, 331, 4);
+		assertEquals(written.numOfLandmarks(), read.numOfLandmarks());
+		for (int i = 0; i < read.numOfLandmarks(); i++) {
+			assertEquals(written.landmark(i), read.landmark(i));
+		}
+		for (int i = 0; i < 50; i++) {
+			String from = compact.nodeOf(i);
+			String to = compact.nodeOf(compact.numOfNodes() - 1 - i);
+			assertEquals(written.lowerBound(from, to),
+					read.lowerBound(from, to), 0.0);
+		}
+	}
+
+	@Test
+	public void testMissingFile() throws Exception {
+		assertNull(Landmarks.read(graph.freeze(), file, 0, 2));
+	}
+
+	// Tables worked out from other data or for another number of landmarks
+	// should not be used.
+	@Test
+	public void testStaleFile() throws Exception {
+		CompactGraph<String, Double> compact = graph.freeze();
+		new Landmarks<String>(compact, 2).write(file, 331);
+		assertNull(Landmarks.read(compact, file, 332, 2));
+		assertNull(Landmarks.read(compact, file, 331, 3));
+		assertNotNull(Landmarks.read(compact, file, 331, 2));
+	}
+
+	@Test(expected=MalformedDataException.class)
+	public void testNotALandmarkFile() throws Exception {
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		out.writeInt(331);
+		out.close();
+		Landmarks.read(graph.freeze(), file, 0, 2);
+	}
+
+	@Test(expected=MalformedDataException.class)
+	public void testCutShort() throws Exception {
+		CompactGraph<String, Double> compact = graph.freeze();
+		new Landmarks<String>(compact, 2).write(file, 331);
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		out.setLength(out.length() - 8);
+		out.close();
+		Landmarks.read(compact, file, 331, 2);
+	}
+
+	// The second load should read the tables written by the first.
+	@Test
+	public void testCachedLoad() throws Exception {
+		IndexedGraph<String, Double> animals =
+				LoadGraph.loadWeightedGraph("animals_v2.tsv").freeze();
+		Landmarks<String> built = LoadGraph.loadLandmarks("animals_v2.tsv",
+				animals, 3, file);
+		assertTrue(file.exists());
+		assertTrue(file.setLastModified(331000));
+		Landmarks<String> cached = LoadGraph.loadLandmarks("animals_v2.tsv",
+				animals, 3, file);
+		assertEquals(331000, file.lastModified());
+		for (int i = 0; i < built.numOfLandmarks(); i++) {
+			assertEquals(built.landmark(i), cached.landmark(i));
+		}
+	}
+}
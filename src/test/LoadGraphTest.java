@@ -13,6 +13,7 @@ import org.junit.Test;
 
 import controller.LoadGraph;
 import exception.MalformedDataException;
+import model.Connection;
 import model.Graph;
 
 public class LoadGraphTest {
@@ -111,4 +112,35 @@ public class LoadGraphTest {
 		//System.out.println(" seconds to create marvel.tsv");
 	}
 	
+	// A clone and the graph it was cloned from should not see each other's
+	// changes, whichever of them changes first. CloneBenchmark times this 
+	// against a full copy.
+	@Test
+	public void testCloneThenEdit() {
+		Graph<String, Double> original = testGraph.copy();
+		Connection<String, Double> edge = original.getConnections()
+				.iterator().next();
+		Graph<String, Double> clone = original.clone();
+		assertTrue(clone.removeConnection(edge));
+		assertTrue(original.connectionExists(edge));
+		assertFalse(clone.connectionExists(edge));
+
+		assertTrue(original.addConnection("Dog", "Parrot", 331.0));
+		assertFalse(clone.connectionExists("Dog", "Parrot", 331.0));
+		assertEquals(testGraph.getConnections().size() + 1, 
+				original.getConnections().size());
+		assertEquals(testGraph.getConnections().size() - 1, 
+				clone.getConnections().size());
+	}
+	
+	// A copy should equal the graph and be independent of it.
+	@Test
+	public void testCopy() {
+		Graph<String, Double> copy = testGraph.copy();
+		assertEquals(testGraph, copy);
+		assertEquals(testGraph.getNodes(), copy.getNodes());
+		assertTrue(copy.addConnection("Dog", "Parrot", 331.0));
+		assertFalse(testGraph.connectionExists("Dog", "Parrot", 331.0));
+	}
+	
 }
@@ -0,0 +1,107 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Graph;
+import model.MemoryStats;
+
+public class MemoryStatsTest {
+
+	private Graph<String, String> graph;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setGraphToOriginalValue() {
+		graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Loki", "Asgard");
+		graph.addConnection("Hulk", "Captain America", "Avengers");
+		graph.addConnection("Captain America", "Loki", "Avengers");
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Count tests ////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testCounts() {
+		MemoryStats stats = graph.memoryStats();
+		assertEquals(4, stats.numOfNodes());
+		assertEquals(4, stats.numOfEdges());
+	}
+
+	@Test
+	public void testEmptyGraph() {
+		MemoryStats stats = new Graph<String, String>().memoryStats();
+		assertEquals(0, stats.numOfNodes());
+		assertEquals(0, stats.numOfEdges());
+		assertEquals(0, stats.connectionBytes());
+		assertEquals(0, stats.indexBytes());
+		assertEquals(0.0, stats.bytesPerEdge(), 0.0);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Byte tests /////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testTotalIsSumOfStructures() {
+		MemoryStats stats = graph.memoryStats();
+		assertTrue(stats.nodeBytes() > 0);
+		assertTrue(stats.connectionBytes() > 0);
+		assertTrue(stats.labelBytes() > 0);
+		assertEquals(stats.nodeBytes() + stats.connectionBytes() 
+				+ stats.indexBytes() + stats.labelBytes(), stats.totalBytes());
+		assertEquals((double) stats.totalBytes() / 4, stats.bytesPerEdge(), 
+				1e-9);
+	}
+
+	// Indexes are only counted once they have been built.
+	@Test
+	public void testIndexesCountedOnceBuilt() {
+		assertEquals(0, graph.memoryStats().indexBytes());
+		graph.numOfConnectionsWithLabel("Avengers");
+		long byLabel = graph.memoryStats().indexBytes();
+		assertTrue(byLabel > 0);
+		graph.freeze();
+		assertTrue(graph.memoryStats().indexBytes() > byLabel);
+	}
+
+	@Test
+	public void testMoreConnectionsTakeMoreBytes() {
+		long before = graph.memoryStats().connectionBytes();
+		for (int i = 0; i < 100; i++) {
+			graph.addConnection("Hulk", "Thor", "Issue " + i);
+		}
+		assertTrue(graph.memoryStats().connectionBytes() > before);
+	}
+
+	// Longer labels should take more bytes.
+	@Test
+	public void testLabelBytesGrowWithLength() {
+		Graph<String, String> longLabels = new Graph<String, String>();
+		longLabels.addConnection("Hulk", "Thor", "Axis and then a great many "
+				+ "more words");
+		Graph<String, String> shortLabels = new Graph<String, String>();
+		shortLabels.addConnection("Hulk", "Thor", "Axis");
+		assertTrue(longLabels.memoryStats().labelBytes() 
+				> shortLabels.memoryStats().labelBytes());
+	}
+
+	@Test
+	public void testToString() {
+		String stats = graph.memoryStats().toString();
+		assertTrue(stats.startsWith("4 nodes and 4 connections"));
+		assertTrue(stats.contains("bytes per connection"));
+	}
+}
@@ -0,0 +1,137 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.DijkstrasAlgorithm;
+import model.CompactGraph;
+import model.Graph;
+import model.MemoryStats;
+import model.OffHeapGraph;
+import view.GraphPaths;
+
+public class OffHeapGraphTest {
+
+	private Graph<String, String> graph;
+	private Graph<String, Double> weighted;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setGraphsToOriginalValues() {
+		graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Hulk", "Thor", "Avengers");
+		graph.addConnection("Hulk", "Captain America", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addNode("Luke Cage");
+
+		Random random = new Random(331);
+		weighted = new Graph<String, Double>();
+		for (int i = 0; i < 2000; i++) {
+			weighted.addConnection("n" + random.nextInt(300), 
+					"n" + random.nextInt(300), (double) random.nextInt(50));
+		}
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Copy tests /////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// Every query should give the same answer as the graph it was copied from.
+	@Test
+	public void testMatchesCompactGraph() {
+		CompactGraph<String, String> compact = graph.freeze();
+		OffHeapGraph<String, String> offHeap = 
+				new OffHeapGraph<String, String>(compact);
+		assertEquals(compact.numOfNodes(), offHeap.numOfNodes());
+		assertEquals(compact.numOfEdges(), offHeap.numOfEdges());
+		assertEquals(compact.numOfLabels(), offHeap.numOfLabels());
+		for (int id = 0; id < compact.numOfNodes(); id++) {
+			assertEquals(compact.nodeOf(id), offHeap.nodeOf(id));
+			assertEquals(id, offHeap.idOf(compact.nodeOf(id)));
+			assertEquals(compact.edgesStart(id), offHeap.edgesStart(id));
+			assertEquals(compact.edgesEnd(id), offHeap.edgesEnd(id));
+		}
+		for (int e = 0; e < compact.numOfEdges(); e++) {
+			assertEquals(compact.target(e), offHeap.target(e));
+			assertEquals(compact.labelId(e), offHeap.labelId(e));
+			assertEquals(compact.label(e), offHeap.label(e));
+		}
+		assertTrue(offHeap.nodeExists("Luke Cage"));
+		assertFalse(offHeap.nodeExists("Spider-Man"));
+		assertEquals(-1, offHeap.idOf("Spider-Man"));
+		assertFalse(offHeap.isWeighted());
+	}
+
+	@Test
+	public void testWeights() {
+		CompactGraph<String, Double> compact = weighted.freeze();
+		OffHeapGraph<String, Double> offHeap = 
+				new OffHeapGraph<String, Double>(compact);
+		assertTrue(offHeap.isWeighted());
+		for (int e = 0; e < compact.numOfEdges(); e++) {
+			assertEquals(compact.weight(e), offHeap.weight(e), 0.0);
+		}
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testWeightOfNonNumericLabel() {
+		new OffHeapGraph<String, String>(graph.freeze()).weight(0);
+	}
+
+	@Test
+	public void testEmpty() {
+		OffHeapGraph<String, String> offHeap = new OffHeapGraph<String, 
+				String>(new Graph<String, String>().freeze());
+		assertEquals(0, offHeap.numOfNodes());
+		assertEquals(0, offHeap.numOfEdges());
+	}
+
+	// Only the nodes and labels are kept on the heap, so no memory should be
+	// counted for the connections however many there are.
+	@Test
+	public void testMemoryStats() {
+		CompactGraph<String, String> compact = graph.freeze();
+		MemoryStats stats = new OffHeapGraph<String, String>(compact)
+				.memoryStats();
+		assertEquals(compact.numOfNodes(), stats.numOfNodes());
+		assertEquals(compact.numOfEdges(), stats.numOfEdges());
+		assertEquals(0, stats.connectionBytes());
+		assertTrue(stats.nodeBytes() > 0);
+		assertTrue(stats.labelBytes() > 0);
+		assertTrue(stats.totalBytes() < graph.memoryStats().totalBytes());
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Search tests ///////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// Searches should find the same paths off the heap as on it.
+	@Test
+	public void testSearchesMatch() {
+		CompactGraph<String, Double> compact = weighted.freeze();
+		OffHeapGraph<String, Double> offHeap = 
+				new OffHeapGraph<String, Double>(compact);
+		for (int i = 0; i < 20; i++) {
+			String start = compact.nodeOf(i);
+			String target = compact.nodeOf(compact.numOfNodes() - 1 - i);
+			assertEquals(DijkstrasAlgorithm.findShortestweightedPath(start, 
+					target, compact), DijkstrasAlgorithm
+					.findShortestweightedPath(start, target, offHeap));
+			assertTrue(Arrays.equals(GraphPaths.findPath(start, target, 
+					compact), GraphPaths.findPath(start, target, offHeap)));
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Graph;
+import model.PairGraph;
+
+public class PairGraphTest {
+
+	private Graph<String, String> graph;
+	private PairGraph<String, String> pairs;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setGraphToOriginalValue() {
+		graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Hulk", "Thor", "Avengers");
+		graph.addConnection("Hulk", "Thor", "Age of Ultron");
+		graph.addConnection("Hulk", "Captain America", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addNode("Luke Cage");
+		pairs = new PairGraph<String, String>(graph.freeze());
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Pair tests /////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testSizes() {
+		assertEquals(4, pairs.numOfNodes());
+		assertEquals(5, pairs.numOfEdges());
+		assertEquals(3, pairs.numOfPairs());
+	}
+
+	@Test
+	public void testLabelsOfPair() {
+		assertEquals(graph.isConnectedWith("Hulk", "Thor"), 
+				pairs.isConnectedWith("Hulk", "Thor"));
+		assertEquals(3, pairs.numOfConnections("Hulk", "Thor"));
+		assertEquals("Age of Ultron", 
+				pairs.getFirstConnectionLabel("Hulk", "Thor"));
+	}
+
+	@Test
+	public void testUnconnectedPair() {
+		assertTrue(pairs.isConnectedWith("Thor", "Luke Cage").isEmpty());
+		assertEquals(0, pairs.numOfConnections("Thor", "Luke Cage"));
+		assertNull(pairs.getFirstConnectionLabel("Luke Cage", "Hulk"));
+	}
+
+	@Test
+	public void testConnectionsOfNode() {
+		assertEquals(2, pairs.numOfConnectedNodes("Hulk"));
+		assertEquals(4, pairs.numOfConnections("Hulk"));
+		assertEquals(0, pairs.numOfConnectedNodes("Spider-Man"));
+		assertEquals(0, pairs.numOfConnections("Luke Cage"));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testMissingNode() {
+		pairs.isConnectedWith("Hulk", "Spider-Man");
+	}
+
+	// Every pair should give the same answers as the graph it was built
+	// from.
+	@Test
+	public void testMatchesGraph() {
+		Random random = new Random(331);
+		Graph<String, String> large = new Graph<String, String>();
+		for (int i = 0; i < 3000; i++) {
+			large.addConnection("n" + random.nextInt(40), 
+					"n" + random.nextInt(40), "b" + random.nextInt(30));
+		}
+		PairGraph<String, String> compacted = 
+				new PairGraph<String, String>(large.freeze());
+		assertEquals(large.getConnections().size(), compacted.numOfEdges());
+		for (String from : large.getNodes()) {
+			assertEquals(large.numOfConnectedNodes(from), 
+					compacted.numOfConnectedNodes(from));
+			assertEquals(large.numOfConnections(from), 
+					compacted.numOfConnections(from));
+			for (String to : large.getNodes()) {
+				assertEquals(large.isConnectedWith(from, to), 
+						compacted.isConnectedWith(from, to));
+				assertEquals(large.numOfConnections(from, to), 
+						compacted.numOfConnections(from, to));
+				assertEquals(large.getFirstConnectionLabel(from, to), 
+						compacted.getFirstConnectionLabel(from, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package test;
+
+import java.util.Random;
+
+import model.CompactGraph;
+import model.Graph;
+
+/**
+ * Builds random graphs for the tests which compare ways of searching on many
+ * graphs at once.
+ * @author L. James Davidson
+ */
+final class RandomGraphs {
+	// This class does not represent an ADT.
+
+	private RandomGraphs() {
+	}
+
+	/**
+	 * Builds a random weighted graph. The weights are whole numbers from 0
+	 * to 19, so many paths tie and some connections weigh nothing.
+	 * @param random gives the nodes and weights.
+	 * @param numOfNodes is the number of nodes to pick from, named n0 to
+	 * n(numOfNodes - 1).
+	 * @param numOfConnections is the number of connections to add.
+	 * @requires random is non-null, numOfNodes > 0, numOfConnections >= 0
+	 * @return The graph, frozen.
+	 */
+	static CompactGraph<String, Double> weighted(Random random,
+			int numOfNodes, int numOfConnections) {
+		Graph.Builder<String, Double> builder =
+				new Graph.Builder<String, Double>();
+		for (int i = 0; i < numOfConnections; i++) {
+			builder.addConnection("n" + random.nextInt(numOfNodes),
+					"n" + random.nextInt(numOfNodes),
+					(double) random.nextInt(20));
+		}
+		return builder.build().freeze();
+	}
+}
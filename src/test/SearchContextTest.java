@@ -0,0 +1,259 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.DijkstrasAlgorithm;
+import controller.SearchContext;
+import model.CompactGraph;
+import model.Graph;
+import model.IndexedGraph;
+import model.Location;
+import model.Node;
+import model.Point;
+import model.Subgraph;
+
+public class SearchContextTest {
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Reuse tests ////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// A context reused for many searches, over graphs which get larger and
+	// smaller, should find the same paths as a new context every time.
+	@Test
+	public void testReusedContextMatchesNewContext() {
+		Random random = new Random(21);
+		SearchContext reused = new SearchContext();
+		for (int size : new int[] {10, 200, 50, 400, 5}) {
+			CompactGraph<String, Double> graph = RandomGraphs.weighted(random, size, 
+					3 * size);
+			for (int i = 0; i < 100; i++) {
+				String from = graph.nodeOf(random.nextInt(graph.numOfNodes()));
+				String to = graph.nodeOf(random.nextInt(graph.numOfNodes()));
+				List<Node<String>> expected = DijkstrasAlgorithm
+						.findShortestweightedPath(from, to, graph, 
+								new SearchContext(graph.numOfNodes()));
+				assertEquals(expected, DijkstrasAlgorithm
+						.findShortestweightedPath(from, to, graph, reused));
+				assertEquals(expected, DijkstrasAlgorithm
+						.findShortestweightedPath(from, to, graph));
+			}
+		}
+	}
+
+	// Once a thread has searched a graph, searching it again should only 
+	// allocate the path which is returned, not arrays for every node.
+	@Test
+	public void testNoAllocationPerNode() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() 
+				instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = 
+				(com.sun.management.ThreadMXBean) 
+						ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported()
+				&& threads.isThreadAllocatedMemoryEnabled());
+		Random random = new Random(2100);
+		CompactGraph<String, Double> graph = RandomGraphs.weighted(random, 20000, 
+				60000);
+		SearchContext context = new SearchContext();
+		String from = graph.nodeOf(0);
+		String to = graph.nodeOf(graph.numOfNodes() - 1);
+		for (int i = 0; i < 20; i++) {
+			DijkstrasAlgorithm.findShortestweightedPath(from, to, graph, 
+					context);
+		}
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		List<Node<String>> path = DijkstrasAlgorithm.findShortestweightedPath(
+				from, to, graph, context);
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+		int length = path == null ? 0 : path.size();
+		// Arrays for every node would take at least 8 bytes a node.
+		assertTrue(allocated + " bytes", allocated < 4096 + 128 * length);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Estimate tests /////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// On a grid where every step is at least as long as the straight line
+	// between its ends, searching with the straight line distance as the
+	// estimate should find paths as short as a plain search while finishing
+	// fewer nodes.
+	@Test
+	public void testEstimateFinishesFewerNodes() {
+		Random random = new Random(22);
+		int side = 40;
+		Location[][] grid = new Location[side][side];
+		for (int x = 0; x < side; x++) {
+			for (int y = 0; y < side; y++) {
+				grid[x][y] = new Location(new Point(x, y));
+			}
+		}
+		Graph.Builder<Location, Double> builder = 
+				new Graph.Builder<Location, Double>();
+		for (int x = 0; x < side; x++) {
+			for (int y = 0; y < side; y++) {
+				if (x + 1 < side) {
+					double weight = 1 + random.nextDouble();
+					builder.addConnection(grid[x][y], grid[x + 1][y], weight);
+					builder.addConnection(grid[x + 1][y], grid[x][y], weight);
+				}
+				if (y + 1 < side) {
+					double weight = 1 + random.nextDouble();
+					builder.addConnection(grid[x][y], grid[x][y + 1], weight);
+					builder.addConnection(grid[x][y + 1], grid[x][y], weight);
+				}
+			}
+		}
+		CompactGraph<Location, Double> graph = builder.build().freeze();
+		SearchContext context = new SearchContext();
+		long plainFinished = 0;
+		long estimateFinished = 0;
+		for (int i = 0; i < 100; i++) {
+			Location from = grid[random.nextInt(side)][random.nextInt(side)];
+			Location to = grid[random.nextInt(side)][random.nextInt(side)];
+			List<Node<Location>> plain = DijkstrasAlgorithm
+					.findShortestweightedPath(from, to, graph, context);
+			plainFinished += context.numOfFinished();
+			List<Node<Location>> estimated = DijkstrasAlgorithm
+					.findShortestweightedPath(from, to, graph, 
+							(a, b) -> Math.hypot(
+									a.entrance.getX() - b.entrance.getX(), 
+									a.entrance.getY() - b.entrance.getY()),
+							context);
+			estimateFinished += context.numOfFinished();
+			assertEquals(plain.get(plain.size() - 1).getPathWeight(), 
+					estimated.get(estimated.size() - 1).getPathWeight(), 
+					1e-9);
+		}
+		assertTrue(estimateFinished + " of " + plainFinished, 
+				estimateFinished < plainFinished);
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Bidirectional tests ////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	// Searching from both ends should find the same paths as a search from
+	// the start, including when there is no path, on the whole graph and on
+	// a view which hides some of it. The weights are small whole numbers, so
+	// many paths tie.
+	@Test
+	public void testBidirectionalMatchesOneWay() {
+		Random random = new Random(23);
+		SearchContext forward = new SearchContext();
+		SearchContext backward = new SearchContext();
+		for (int size : new int[] {5, 50, 300}) {
+			CompactGraph<String, Double> whole = RandomGraphs.weighted(random, size, 
+					2 * size);
+			Subgraph<String, Double> view = new Subgraph<String, Double>(
+					whole, name -> name.hashCode() % 5 != 0, 
+					weight -> weight != 7.0);
+			for (IndexedGraph<String, Double> graph : Arrays.asList(whole, 
+					view)) {
+				for (int i = 0; i < 200; i++) {
+					String from = whole.nodeOf(random.nextInt(size / 2));
+					String to = whole.nodeOf(random.nextInt(
+							whole.numOfNodes()));
+					if (!graph.nodeExists(from) || !graph.nodeExists(to)) {
+						continue;
+					}
+					List<Node<String>> expected = DijkstrasAlgorithm
+							.findShortestweightedPath(from, to, graph);
+					List<Node<String>> actual = DijkstrasAlgorithm
+							.findShortestweightedPathBidirectional(from, to, 
+									graph, forward, backward);
+					if (expected == null) {
+						assertNull(actual);
+						continue;
+					}
+					assertEquals(names(expected), names(actual));
+					assertEquals(expected.get(expected.size() - 1)
+							.getPathWeight(), actual.get(actual.size() - 1)
+							.getPathWeight(), 1e-9);
+				}
+			}
+		}
+	}
+
+	// Of two paths of the same weight, searching from both ends should
+	// give the one a search from the start gives, which goes through B
+	// since B is finished before A's path reaches Z.
+	@Test
+	public void testBidirectionalBreaksTiesLikeOneWay() {
+		Graph.Builder<String, Double> builder = 
+				new Graph.Builder<String, Double>();
+		builder.addConnection("S", "A", 1.0);
+		builder.addConnection("S", "B", 1.0);
+		builder.addConnection("A", "Z", 1.0);
+		builder.addConnection("B", "Y", 1.0);
+		builder.addConnection("Z", "T", 1.0);
+		builder.addConnection("Y", "T", 1.0);
+		CompactGraph<String, Double> graph = builder.build().freeze();
+		List<String> expected = Arrays.asList("S", "B", "Y", "T");
+		assertEquals(expected, names(DijkstrasAlgorithm
+				.findShortestweightedPath("S", "T", graph)));
+		List<Node<String>> path = DijkstrasAlgorithm
+				.findShortestweightedPathBidirectional("S", "T", graph);
+		assertEquals(expected, names(path));
+		assertEquals(3.0, path.get(3).getPathWeight(), 0.0);
+	}
+
+	/**
+	 * @param path is a path found by a search.
+	 * @requires path is non-null.
+	 * @return The names of the nodes of path in order.
+	 */
+	private static List<String> names(List<Node<String>> path) {
+		List<String> names = new ArrayList<String>();
+		for (Node<String> node : path) {
+			names.add(node.getNodeName());
+		}
+		return names;
+	}
+
+	// Between two far apart nodes the two searches together should finish
+	// far fewer nodes than one search from the start.
+	@Test
+	public void testBidirectionalFinishesFewerNodes() {
+		Random random = new Random(230);
+		CompactGraph<String, Double> graph = RandomGraphs.weighted(random, 5000, 
+				15000);
+		SearchContext forward = new SearchContext();
+		SearchContext backward = new SearchContext();
+		long oneWayFinished = 0;
+		long bothWaysFinished = 0;
+		for (int i = 0; i < 50; i++) {
+			String from = graph.nodeOf(random.nextInt(graph.numOfNodes()));
+			String to = graph.nodeOf(random.nextInt(graph.numOfNodes()));
+			DijkstrasAlgorithm.findShortestweightedPath(from, to, graph, 
+					forward);
+			oneWayFinished += forward.numOfFinished();
+			DijkstrasAlgorithm.findShortestweightedPathBidirectional(from, to, 
+					graph, forward, backward);
+			bothWaysFinished += forward.numOfFinished() 
+					+ backward.numOfFinished();
+		}
+		assertTrue(bothWaysFinished + " of " + oneWayFinished, 
+				bothWaysFinished < oneWayFinished);
+	}
+}
@@ -0,0 +1,145 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.DijkstrasAlgorithm;
+import model.CompactGraph;
+import model.Connection;
+import model.Graph;
+import model.Node;
+import model.Subgraph;
+import view.GraphPaths;
+
+public class SubgraphTest {
+
+	private Graph<String, String> graph;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void setGraphToOriginalValue() {
+		graph = new Graph<String, String>();
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Loki", "Asgard");
+		graph.addConnection("Hulk", "Captain America", "Avengers");
+		graph.addConnection("Captain America", "Loki", "Avengers");
+		graph.addNode("Luke Cage");
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// View tests /////////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testHiddenNode() {
+		Subgraph<String, String> view = graph.subgraph(
+				n -> !n.equals("Thor"), l -> true);
+		assertFalse(view.nodeExists("Thor"));
+		assertEquals(-1, view.idOf("Thor"));
+		assertTrue(view.nodeExists("Hulk"));
+		assertEquals(4, view.numOfVisibleNodes());
+		assertEquals(2, view.numOfVisibleEdges());
+		assertEquals(graph.freeze().numOfNodes(), view.numOfNodes());
+	}
+
+	@Test
+	public void testHiddenLabel() {
+		Subgraph<String, String> view = graph.subgraph(n -> true, 
+				l -> !l.equals("Avengers"));
+		assertEquals(5, view.numOfVisibleNodes());
+		assertEquals(2, view.numOfVisibleEdges());
+	}
+
+	// The view should not copy the set of excluded ids, so ids added to the
+	// set later are hidden too.
+	@Test
+	public void testExcludedSetIsShared() {
+		CompactGraph<String, String> compact = graph.freeze();
+		BitSet excluded = new BitSet();
+		Subgraph<String, String> view = 
+				new Subgraph<String, String>(compact, excluded);
+		assertTrue(view.nodeExists("Thor"));
+		excluded.set(compact.idOf("Thor"));
+		assertFalse(view.nodeExists("Thor"));
+		assertEquals(0, view.edgesEnd(compact.idOf("Thor")) 
+				- view.edgesStart(compact.idOf("Thor")));
+	}
+
+	// A view of a view should hide what both of them hide.
+	@Test
+	public void testViewOfView() {
+		Subgraph<String, String> inner = graph.subgraph(
+				n -> !n.equals("Thor"), l -> true);
+		Subgraph<String, String> outer = new Subgraph<String, String>(inner,
+				n -> true, l -> !l.equals("Avengers"));
+		assertFalse(outer.nodeExists("Thor"));
+		assertEquals(0, outer.numOfVisibleEdges());
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Search tests ///////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testFindPathAvoidsHiddenNodes() {
+		assertTrue(Arrays.equals(new String[] {"Hulk", "Captain America", 
+				"Loki"}, GraphPaths.findPath("Hulk", "Loki", 
+						graph.subgraph(n -> !n.equals("Thor"), l -> true))));
+		assertNull(GraphPaths.findPath("Hulk", "Loki", graph.subgraph(
+				n -> true, l -> l.equals("Axis"))));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testFindPathFromHiddenNode() {
+		GraphPaths.findPath("Thor", "Loki", graph.subgraph(
+				n -> !n.equals("Thor"), l -> true));
+	}
+
+	// Searching a view should give the same path as searching a graph built
+	// from only the connections the view keeps.
+	@Test
+	public void testDijkstraMatchesFilteredGraph() {
+		Random random = new Random(331);
+		Graph<String, Double> weighted = new Graph<String, Double>();
+		for (int i = 0; i < 2000; i++) {
+			weighted.addConnection("n" + random.nextInt(200), 
+					"n" + random.nextInt(200), (double) random.nextInt(40));
+		}
+		Predicate<String> nodes = n -> n.hashCode() % 5 != 0;
+		Predicate<Double> labels = l -> l < 30.0;
+		Graph<String, Double> filtered = new Graph<String, Double>();
+		for (Connection<String, Double> con : weighted.getConnections()) {
+			if (nodes.test(con.getFrom()) && nodes.test(con.getTo())
+					&& labels.test(con.getLabel())) {
+				filtered.addConnection(con);
+			}
+		}
+		Subgraph<String, Double> view = weighted.subgraph(nodes, labels);
+		for (String start : filtered.getNodes()) {
+			for (String target : Arrays.asList("n1", "n17", "n42", "n199")) {
+				if (filtered.nodeExists(target)) {
+					List<Node<String>> expected = DijkstrasAlgorithm
+							.findShortestweightedPath(start, target, filtered);
+					List<Node<String>> actual = DijkstrasAlgorithm
+							.findShortestweightedPath(start, target, view);
+					assertEquals(expected, actual);
+				}
+			}
+		}
+	}
+}
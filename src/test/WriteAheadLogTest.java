@@ -0,0 +1,300 @@
+package test;
+
+import static org.junit.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.Codec;
+import controller.WriteAheadLog;
+import exception.MalformedDataException;
+import model.Graph;
+import model.Location;
+import model.Point;
+
+public class WriteAheadLogTest {
+
+	private File file;
+
+	/**
+	 * checks that Java asserts are enabled, and exits if not
+	 */
+	@Before
+	public void testAssertsEnabled() {
+		CheckAsserts.checkAssertsEnabled();
+	}
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("graph", ".log");
+		file.delete();
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	///////////////////////////////////////////////////////////////////////////
+	// Replay tests ///////////////////////////////////////////////////////////
+	///////////////////////////////////////////////////////////////////////////
+
+	@Test
+	public void testMissingLogReplaysNothing() throws Exception {
+		WriteAheadLog<String, String> log = newLog();
+		assertEquals(0, log.replay(new Graph<String, String>()));
+	}
+
+	@Test
+	public void testReplayGivesEqualGraph() throws Exception {
+		Graph<String, String> graph = new Graph<String, String>();
+		WriteAheadLog<String, String> log = newLog();
+		log.attach(graph);
+		graph.addConnection("Hulk", "Thor", "Axis");
+		graph.addConnection("Thor", "Hulk", "Axis");
+		graph.addConnection("Thor", "Loki", "Asgard");
+		graph.removeNode("Hulk");
+		graph.addNode("Luke Cage");
+		log.close();
+
+		Graph<String, String> replayed = new Graph<String, String>();
+		assertTrue(newLog().replay(replayed) > 0);
+		assertEquals(graph, replayed);
+		assertEquals(graph.getNodes(), replayed.getNodes());
+	}
+
+	// A second run should replay the first run's changes and then keep
+	// logging after them.
+	@Test
+	public void testAttachAppends() throws Exception {
+		Graph<String, String> first = new Graph<String, String>();
+		WriteAheadLog<String, String> log = newLog();
+		log.attach(first);
+		first.addConnection("Hulk", "Thor", "Axis");
+		log.close();
+
+		Graph<String, String> second = new Graph<String, String>();
+		log = newLog();
+		assertEquals(3, log.attach(second));
+		second.clear();
+		second.addConnection("Thor", "Loki", "Asgard");
+		log.close();
+
+		Graph<String, String> third = new Graph<String, String>();
+		newLog().replay(third);
+		assertEquals(second, third);
+		assertEquals(second.getNodes(), third.getNodes());
+	}
+
+	// A record cut off part way should be dropped along with the rest of
+	// the file.
+	@Test
+	public void testTornRecordIsDropped() throws Exception {
+		Graph<String, String> graph = new Graph<String, String>();
+		WriteAheadLog<String, String> log = newLog();
+		log.attach(graph);
+		graph.addConnection("Hulk", "Thor", "Axis");
+		log.close();
+		long length = file.length();
+
+		log = newLog();
+		graph = new Graph<String, String>();
+		log.attach(graph);
+		graph.addNode("Loki");
+		log.close();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(file.length() - 2);
+		raf.close();
+
+		Graph<String, String> replayed = new Graph<String, String>();
+		assertEquals(3, newLog().replay(replayed));
+		assertFalse(replayed.nodeExists("Loki"));
+		assertEquals(length, file.length());
+	}
+
+	// A last record which does not match its CRC was only partly written,
+	// so it should be dropped.
+	@Test
+	public void testDamagedLastRecordIsDropped() throws Exception {
+		Graph<String, String> graph = new Graph<String, String>();
+		WriteAheadLog<String, String> log = newLog();
+		log.attach(graph);
+		graph.addNode("A");
+		graph.addNode("B");
+		long length = file.length();
+		graph.addNode("C");
+		log.close();
+		flipByte(file.length() - 6);
+
+		Graph<String, String> replayed = new Graph<String, String>();
+		assertEquals(2, newLog().replay(replayed));
+		assertFalse(replayed.nodeExists("C"));
+		assertEquals(length, file.length());
+	}
+
+	// A damaged record with others after it was not left by a write which
+	// stopped part way, so replaying should fail and keep every record.
+	@Test
+	public void testDamagedMiddleRecordIsKept() throws Exception {
+		Graph<String, String> graph = new Graph<String, String>();
+		WriteAheadLog<String, String> log = newLog();
+		log.attach(graph);
+		graph.addNode("A");
+		long start = file.length();
+		graph.addNode("B");
+		graph.addNode("C");
+		log.close();
+		long length = file.length();
+		flipByte(start + 6);
+
+		try {
+			newLog().replay(new Graph<String, String>());
+			fail("The damaged record should not be replayed.");
+		} catch (MalformedDataException e) {
+			// expected
+		}
+		assertEquals(length, file.length());
+		flipByte(start + 6);
+		Graph<String, String> replayed = new Graph<String, String>();
+		assertEquals(3, newLog().replay(replayed));
+		assertEquals(graph, replayed);
+	}
+
+	/**
+	 * Flips the bits of one byte of the log file.
+	 * @param position is the index of the byte in the file.
+	 * @throws IOException if the file cannot be changed.
+	 */
+	private void flipByte(long position) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(position);
+			int value = raf.read();
+			raf.seek(position);
+			raf.write(~value);
+		} finally {
+			raf.close();
+		}
+	}
+
+	// A header cut off part way, as left by stopping while the file was
+	// created, should be dropped like a torn record.
+	@Test
+	public void testTornHeaderIsDropped() throws Exception {
+		WriteAheadLog<String, String> log = newLog();
+		log.open();
+		log.close();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(3);
+		raf.close();
+
+		Graph<String, String> graph = new Graph<String, String>();
+		log = newLog();
+		assertEquals(0, log.attach(graph));
+		graph.addConnection("Hulk", "Thor", "Axis");
+		log.close();
+		Graph<String, String> replayed = new Graph<String, String>();
+		assertEquals(3, newLog().replay(replayed));
+		assertEquals(graph, replayed);
+	}
+
+	// A change which cannot be written should not be made, and the log 
+	// should still match the graph afterwards.
+	@Test
+	public void testUnwritableChangeIsNotMade() throws Exception {
+		Codec<String> noLoki = new Codec<String>() {
+			public void write(DataOutput out, String value)
+					throws IOException {
+				if (value.equals("Loki")) {
+					throw new IOException("Loki cannot be written.");
+				}
+				Codec.STRING.write(out, value);
+			}
+
+			public String read(DataInput in) throws IOException {
+				return Codec.STRING.read(in);
+			}
+		};
+		Graph<String, String> graph = new Graph<String, String>();
+		WriteAheadLog<String, String> log = new WriteAheadLog<String,
+				String>(file, noLoki, Codec.STRING);
+		log.attach(graph);
+		graph.addConnection("Hulk", "Thor", "Axis");
+		try {
+			graph.addConnection("Thor", "Loki", "Asgard");
+			fail("The change should have been stopped.");
+		} catch (UncheckedIOException e) {
+			// expected
+		}
+		assertFalse(graph.nodeExists("Loki"));
+		graph.addConnection("Thor", "Hulk", "Axis");
+		log.close();
+
+		Graph<String, String> replayed = new Graph<String, String>();
+		assertEquals(4, newLog().replay(replayed));
+		assertEquals(graph, replayed);
+		assertEquals(graph.getNodes(), replayed.getNodes());
+	}
+
+	// A closed log should stop changes rather than let the graph get ahead
+	// of it.
+	@Test
+	public void testClosedLogStopsChanges() throws Exception {
+		Graph<String, String> graph = new Graph<String, String>();
+		WriteAheadLog<String, String> log = newLog();
+		log.attach(graph);
+		graph.addConnection("Hulk", "Thor", "Axis");
+		log.close();
+		try {
+			graph.removeNode("Thor");
+			fail("The change should have been stopped.");
+		} catch (UncheckedIOException e) {
+			// expected
+		}
+		assertTrue(graph.connectionExists("Hulk", "Thor", "Axis"));
+
+		Graph<String, String> replayed = new Graph<String, String>();
+		newLog().replay(replayed);
+		assertEquals(graph, replayed);
+	}
+
+	@Test(expected=MalformedDataException.class)
+	public void testNotALog() throws Exception {
+		FileOutputStream out = new FileOutputStream(file);
+		out.write("Hulk\tAxis\n".getBytes("UTF-8"));
+		out.close();
+		newLog().replay(new Graph<String, String>());
+	}
+
+	@Test
+	public void testLocations() throws Exception {
+		Location building = new Location("ABC", "Easy as do re mi",
+				new Point(331.0, 4.0));
+		Location path = new Location(new Point(2015.0, 2017.0));
+		Graph<Location, Double> graph = new Graph<Location, Double>();
+		WriteAheadLog<Location, Double> log = new WriteAheadLog<Location,
+				Double>(file, Codec.LOCATION, Codec.DOUBLE);
+		log.attach(graph);
+		graph.addConnection(building, path, 12.5);
+		log.close();
+
+		Graph<Location, Double> replayed = new Graph<Location, Double>();
+		new WriteAheadLog<Location, Double>(file, Codec.LOCATION,
+				Codec.DOUBLE).replay(replayed);
+		assertTrue(replayed.connectionExists(building, path, 12.5));
+	}
+
+	private WriteAheadLog<String, String> newLog() {
+		return new WriteAheadLog<String, String>(file, Codec.STRING,
+				Codec.STRING);
+	}
+}
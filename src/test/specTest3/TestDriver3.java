@@ -362,7 +362,7 @@ public class TestDriver3 {
 			// Now that we know they both exist we can attempt to find the 
 			// path.
 			List<Node<String>> solution = DijkstrasAlgorithm.
-					findShortestweightedPath(newFrom, newTo, multigraph);
+					findShortestweightedPathBidirectional(newFrom, newTo, multigraph);
 			output.println("path from " + newFrom + " to " + newTo + ":");
 			if (solution == null) {
 				output.println("no path found");
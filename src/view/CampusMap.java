@@ -1,5 +1,6 @@
 package view;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +23,13 @@ public class CampusMap {
 	// This class does not represent an ADT it is the UI for finding paths 
 	// on the University of Washington Campus.
 	
+	// The campus graph is kept in a cache file with the buildings already
+	// joined to the paths, and paths opened or closed are kept in a log, 
+	// both next to the data files.
+	private static final File CACHE_FILE = new File("src/data/campus.cache");
+	private static final File CHANGES_FILE = 
+			new File("src/data/campus_changes.log");
+	
 	private static Campus UofW;
 	
 	/**
@@ -108,7 +116,7 @@ public class CampusMap {
 	 */
 	private static void initialise() {
 		try {
-			UofW = LoadCampus.loadInfo();
+			UofW = LoadCampus.loadInfo(CHANGES_FILE, CACHE_FILE);
 		} catch (IOException e ) {
 			System.out.println("The files to initialise the UofW campus are "
 					+ "not in the proper location.");
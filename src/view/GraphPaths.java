@@ -3,21 +3,22 @@ package view;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Scanner;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
+import controller.Codec;
 import controller.FileParser;
+import controller.GraphFile;
 import exception.MalformedDataException;
-import model.Connection;
 import model.Graph;
+import model.IndexedGraph;
+import model.OffHeapGraph;
 
 /**
  * Allows users to interact with graphs. They can load graphs, remove graphs, 
@@ -28,8 +29,11 @@ public class GraphPaths {
 
 	// Holds all the graphs in a map so that the user can receive the correct
 	// graph when they give the name which is tied to the graph.
-	private static Map<String, Graph<String, String>> graphHolder;
-	private static final String FILE_PREFIX = "src\\data\\";
+	// Each graph is kept in a cache file next to the file it was loaded 
+	// from, so loading it again maps the cache instead of building it.
+	private static Map<String, OffHeapGraph<String, String>> graphHolder;
+	private static final String FILE_PREFIX = "src/data/";
+	private static final String CACHE_SUFFIX = ".cache";
 	
 	/**
 	 * User interface where the user can interact with graphs.
@@ -42,7 +46,7 @@ public class GraphPaths {
 	 */
 	public static void main(String[] args) throws MalformedDataException, 
 												  InterruptedException {
-		graphHolder = new HashMap<String, Graph<String, String>>();
+		graphHolder = new HashMap<String, OffHeapGraph<String, String>>();
 		Scanner input = new Scanner(System.in);
 		String userInput;
 
@@ -64,6 +68,8 @@ public class GraphPaths {
 				getCharacters(input);
 			} else if (userInput.equals("5")) {
 				findAPath(input);
+			} else if (userInput.equals("6")) {
+				printMemoryStats();
 			} else if (userInput.equals("exit")) {
 				System.out.println(
 						"Thank you for using Graph Paths! Goodbye.");
@@ -90,6 +96,8 @@ public class GraphPaths {
 		System.out.println("'4' to get an alphabetized list of characters.");
 		System.out.println("'5' to search for a path between two nodes in "
 				+ "a multigraph.");
+		System.out.println("'6' to see how much memory each loaded graph "
+				+ "uses.");
 		System.out.println("'exit' to leave." + '\n');
 	}
 
@@ -117,12 +125,13 @@ public class GraphPaths {
 		}
 		boolean properFormat = true;
 		File f = new File(FILE_PREFIX + filename);
-		Graph<String, String> loadedGraph = new Graph<String, String>();
+		OffHeapGraph<String, String> loadedGraph = null;
 		boolean properFile = true;
 		
 		do {
 			try {
-				loadedGraph = loadGraph(filename);
+				loadedGraph = loadGraph(filename, new File(FILE_PREFIX 
+						+ filename + CACHE_SUFFIX));
 				properFormat = true;
 			} catch (IOException e) {
 		        System.err.println(e.toString());
@@ -205,6 +214,23 @@ public class GraphPaths {
 		}
 	}
 
+	/**
+	 * Prints the estimated memory used by each of the graphs which have been
+	 * loaded, in alphabetical order.
+	 */
+	private static void printMemoryStats() {
+		Set<String> setOfGraphs = new TreeSet<String>(graphHolder.keySet());
+		if (setOfGraphs.size() == 0) {
+			System.out.println("There are currently no graphs loaded." + '\n');
+		} else {
+			for (String graphName : setOfGraphs) {
+				System.out.println(graphName + ": " 
+						+ graphHolder.get(graphName).memoryStats());
+			}
+			System.out.println();
+		}
+	}
+
 	/**
 	 * Prints a list of characters from a specific graph.
 	 * @param input to read user input.
@@ -238,8 +264,9 @@ public class GraphPaths {
 					return;
 				}
 			}
-			Graph<String, String> targetGraph = graphHolder.get(userInput);
-			Set<String> characterList = targetGraph.getNodes();
+			OffHeapGraph<String, String> targetGraph = 
+					graphHolder.get(userInput);
+			List<String> characterList = nodesOf(targetGraph);
 			System.out.println("Characters from " + userInput + ":");
 			for (String character : characterList) {
 				System.out.println(character);
@@ -283,7 +310,8 @@ public class GraphPaths {
 				}
 			}
 			String graphName = userInput;
-			Graph<String, String> multigraph = graphHolder.get(graphName);
+			OffHeapGraph<String, String> multigraph = 
+					graphHolder.get(graphName);
 			boolean validResponse = false;
 			String[] characterNames = new String[0];
 			
@@ -316,7 +344,7 @@ public class GraphPaths {
 							+ "to find a path. ");
 					userInput = input.nextLine();
 				} else if (userInput.toLowerCase().equals("list")) {
-					Set<String> characterList = multigraph.getNodes();
+					List<String> characterList = nodesOf(multigraph);
 					System.out.println("Characters from " + graphName + ":");
 					for (String character : characterList) {
 						System.out.println(character);
@@ -366,8 +394,8 @@ public class GraphPaths {
 					for (int i = 0; i < size - 1; i++) {
 						String char1 = solution[i];
 						String char2 = solution[i + 1];
-						String conName = multigraph.
-								getFirstConnectionLabel(char1, char2);
+						String conName = firstLabel(multigraph, char1, 
+								char2);
 						System.out.println(char1 + " to " + char2 + " via " 
 								+ conName);
 					}
@@ -394,14 +422,24 @@ public class GraphPaths {
 			throws MalformedDataException, IOException {
 
 		filename = "src/data/" + filename;
-		Graph<String, String> loadedGraph = new Graph<String, String>();
 		Set<String> allCharacters = new HashSet<String>();
 		Map<String, List<String>> booksToChars = new HashMap<String, 
 				List<String>>();
 		FileParser.parseData(filename, allCharacters, booksToChars);
-		loadedGraph.addNodes(allCharacters);
 
+		// Every book connects each pair of its characters both ways, which
+		// tells the builder how many connections to make room for.
 		Set<String> allBookTitles = booksToChars.keySet();
+		long expectedConnections = 0;
+		for (String bookTitle : allBookTitles) {
+			long size = booksToChars.get(bookTitle).size();
+			expectedConnections += size * (size - 1);
+		}
+		Graph.Builder<String, String> loadedGraph = 
+				new Graph.Builder<String, String>(allCharacters.size(), 
+						(int) Math.min(expectedConnections, 1 << 24));
+		loadedGraph.addNodes(allCharacters);
+
 		for (String bookTitle : allBookTitles) {
 			ArrayList<String> charsInBook = new ArrayList<String>();
 			charsInBook.addAll(booksToChars.get(bookTitle));
@@ -432,7 +470,74 @@ public class GraphPaths {
 				// in charsInBook for the characters from 0 to size - 1.
 			}
 		}
-		return loadedGraph;
+		return loadedGraph.build();
+	}
+
+	/**
+	 * Loads the same graph as loadGraph(filename), but keeps a binary copy 
+	 * of it in a cache file. If the cache was built from the current version
+	 * of the file the graph is mapped from the cache instead of being built
+	 * again, which for marvel.tsv saves building every connection of every
+	 * book.
+	 * @param filename is the name of the file.
+	 * @param cache is where the binary copy of the graph is kept.
+	 * @throws MalformedDataException if the file is not well-formed or the
+	 * cache is not a graph file.
+	 * @throws IOException if the file does not exist or the cache cannot be
+	 * written.
+	 * @effects Writes the graph to cache if the cache is missing or stale.
+	 * @modifies cache
+	 * @return The loaded graph, mapped from the cache.
+	 */
+	public static OffHeapGraph<String, String> loadGraph(String filename, 
+			File cache) throws MalformedDataException, IOException {
+		long checksum = GraphFile.checksum(new File("src/data/" + filename));
+		OffHeapGraph<String, String> cached = GraphFile.read(cache, checksum,
+				Codec.STRING, Codec.STRING);
+		if (cached == null) {
+			GraphFile.write(loadGraph(filename).freeze(), cache, checksum, 
+					Codec.STRING, Codec.STRING);
+			cached = GraphFile.read(cache, checksum, Codec.STRING, 
+					Codec.STRING);
+		}
+		return cached;
+	}
+
+	/**
+	 * @param graph is an indexed graph.
+	 * @requires graph is non-null.
+	 * @return The nodes of graph in order, which is the order of their ids.
+	 */
+	private static List<String> nodesOf(IndexedGraph<String, String> graph) {
+		List<String> nodes = new ArrayList<String>(graph.numOfNodes());
+		for (int id = 0; id < graph.numOfNodes(); id++) {
+			nodes.add(graph.nodeOf(id));
+		}
+		return nodes;
+	}
+
+	/**
+	 * Finds the alphabetically first label of the connections between two 
+	 * nodes, as Graph.getFirstConnectionLabel does.
+	 * @param graph is an indexed graph.
+	 * @param from is the name of the node which the connections are from.
+	 * @param to is the name of the node which the connections are to.
+	 * @requires All parameters are non-null and from and to are in graph.
+	 * @return The first label, or null if there is no such connection.
+	 */
+	private static String firstLabel(IndexedGraph<String, String> graph, 
+			String from, String to) {
+		int fromId = graph.idOf(from);
+		int toId = graph.idOf(to);
+		String first = null;
+		int end = graph.edgesEnd(fromId);
+		for (int e = graph.edgesStart(fromId); e < end; e++) {
+			if (graph.target(e) == toId && (first == null 
+					|| graph.label(e).compareTo(first) < 0)) {
+				first = graph.label(e);
+			}
+		}
+		return first;
 	}
 
 	/**
@@ -456,66 +561,108 @@ public class GraphPaths {
 			solution[0] = startNode.toString();
 			return solution;
 		}
+		if (!(multigraph.nodeExists(startNode) 
+				&& multigraph.nodeExists(targetNode))) {
+			throw new IllegalArgumentException("One or more of the nodes do "
+					+ "not exist in this graph.");
+		}
+		return findPath(startNode, targetNode, multigraph.freeze());
+	}
+	
+	/**
+	 * Finds the lexicographically shortest path between two nodes in a 
+	 * indexed snapshot of a multigraph. If there is no path it will return 
+	 * null.
+	 * @param startNode is the starting node.
+	 * @param targetNode is the node that is attempted to be found.
+	 * @param multigraph is the multigraph in which the path or lack of path 
+	 * will be found in.
+	 * @requires startNode, targetNode, and the multigraph must be all 
+	 * non-null.
+	 * @throws IllegalArgumentException if one or more nodes are not in the 
+	 * multigraph.
+	 * @return A string array of the steps of the path from the starting
+	 * node to the target node. Null will be returned if there is no path.
+	 */
+	public static <T extends Comparable<T>, N extends Comparable<N>> String[] 
+			findPath(T startNode, T targetNode, IndexedGraph<T, N> multigraph) {
+		int start = multigraph.idOf(startNode);
+		int target = multigraph.idOf(targetNode);
+		if (start < 0 || target < 0) {
+			throw new IllegalArgumentException("One or more of the nodes do "
+					+ "not exist in this graph.");
+		}
+		if (start == target) {
+			String[] solution = new String[1];
+			solution[0] = startNode.toString();
+			return solution;
+		}
 		
-		// It would improve the speed of the search if we could remove searched
-		// characters from the map. This is a clone of it that allows me to do
-		// that.
-		Graph<T, N> modifiableGraph = multigraph.clone();
-
-		String solution = "";
-
-		// The map will contain all the searched characters and the paths that
-		// led this method to them.
-		Map<T, String> searchedCharacters = new TreeMap<T, String>();
-		searchedCharacters.put(startNode, startNode.toString());
-
-		// We initially want to start our search at the start node.
-		Queue<T> charactersToSearch = new LinkedList<T>();
-		charactersToSearch.add(startNode);
-
-		// Inv: charactersToSearch.size() is the number of characters left to
-		// search.
+		// prevNode holds the node each searched character was reached from,
+		// the start node points at itself and unsearched characters at -1.
+		int size = multigraph.numOfNodes();
+		int[] prevNode = new int[size];
+		Arrays.fill(prevNode, -1);
+		prevNode[start] = start;
 
-		boolean foundSolution = false;
-		while (!charactersToSearch.isEmpty()) {
+		// We initially want to start our search at the start node. Every 
+		// node is queued at most once so the queue never needs to grow.
+		int[] charactersToSearch = new int[size];
+		int head = 0;
+		int tail = 0;
+		charactersToSearch[tail++] = start;
 
-			T currCharacter = charactersToSearch.remove();
-			String partialSolution = searchedCharacters.get(currCharacter);
-			Set<Connection<T, N>> connections = modifiableGraph
-					.isConnectedWith(currCharacter);
-			Set<T> childrenOfCurrCharacter = new TreeSet<T>();
-			for (Connection<T, N> con : connections) {
-				childrenOfCurrCharacter.add(con.getTo());
-			}
-
-			modifiableGraph.removeNode(currCharacter);
-
-			for (T child : childrenOfCurrCharacter) {
-				if (child.equals(targetNode)) {
+		// Inv: tail - head is the number of characters left to search.
+		while (head < tail) {
+			int currCharacter = charactersToSearch[head++];
+			
+			// The children are sorted by id, which is the same order as the
+			// characters themselves, so the first path found is the 
+			// lexicographically smallest one.
+			int end = multigraph.edgesEnd(currCharacter);
+			for (int e = multigraph.edgesStart(currCharacter); e < end; e++) {
+				if (!multigraph.isVisible(e)) {
+					continue;
+				}
+				int child = multigraph.target(e);
+				if (child == target) {
 					// We have found our target node.
-					solution = partialSolution + "_" + child;
-					foundSolution = true;
-					break;
+					prevNode[child] = currCharacter;
+					return backtrack(multigraph, start, target, prevNode);
 				}
-				if (!searchedCharacters.containsKey(child)) {
-					// Get the child's name so we can add it to our partial
-					// path.
-					searchedCharacters.put(child,
-							partialSolution + "_" + child);
-					charactersToSearch.add(child);
+				if (prevNode[child] == -1) {
+					prevNode[child] = currCharacter;
+					charactersToSearch[tail++] = child;
 				}
 				// else { we have already or will search for this character }
 			}
-			if (foundSolution) {
-				break;
-			}
 		}
-		// Q: No characters left to search, we either found a solution or lack
-		// thereof.
-		if (solution.isEmpty()) {
-			return null;
-		} else {
-			return solution.split("_");
+		// Q: No characters left to search so there is no path.
+		return null;
+	}
+	
+	/**
+	 * Builds the steps of a path found by findPath.
+	 * @param multigraph is the graph which was searched.
+	 * @param start is the id of the start node.
+	 * @param target is the id of the target node.
+	 * @param prevNode maps each searched node id to the id it was reached 
+	 * from.
+	 * @return The names of the nodes on the path from start to target.
+	 */
+	private static <T extends Comparable<T>, N extends Comparable<N>> String[]
+			backtrack(IndexedGraph<T, N> multigraph, int start, int target, 
+					int[] prevNode) {
+		int length = 1;
+		for (int id = target; id != start; id = prevNode[id]) {
+			length++;
+		}
+		String[] solution = new String[length];
+		int id = target;
+		for (int i = length - 1; i >= 0; i--) {
+			solution[i] = multigraph.nodeOf(id).toString();
+			id = prevNode[id];
 		}
+		return solution;
 	}
 }